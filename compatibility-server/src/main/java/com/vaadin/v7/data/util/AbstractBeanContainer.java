@@ -149,6 +149,51 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE>
      */
     private final Map<IDTYPE, BeanItem<BEANTYPE>> itemIdToItem = new HashMap<IDTYPE, BeanItem<BEANTYPE>>();
 
+    /**
+     * Listens to value changes of an indexed property of an item, updating the
+     * property index before re-filtering the container. Used instead of the
+     * container itself as the listener of indexed properties so that the index
+     * is always updated first.
+     */
+    private class PropertyIndexUpdater implements ValueChangeListener {
+
+        private final Object itemId;
+        private final Object propertyId;
+
+        public PropertyIndexUpdater(Object itemId, Object propertyId) {
+            this.itemId = itemId;
+            this.propertyId = propertyId;
+        }
+
+        @Override
+        public void valueChange(ValueChangeEvent event) {
+            updatePropertyIndex(itemId, propertyId);
+            if (isPropertyFiltered(propertyId)) {
+                filterAll();
+            }
+        }
+
+        private AbstractBeanContainer<?, ?> getContainer() {
+            return AbstractBeanContainer.this;
+        }
+
+        @Override
+        public int hashCode() {
+            return itemId.hashCode() ^ propertyId.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof AbstractBeanContainer.PropertyIndexUpdater)) {
+                return false;
+            }
+            AbstractBeanContainer<?, ?>.PropertyIndexUpdater other = (AbstractBeanContainer<?, ?>.PropertyIndexUpdater) obj;
+            return other.getContainer() == getContainer()
+                    && itemId.equals(other.itemId)
+                    && propertyId.equals(other.propertyId);
+        }
+    }
+
     /**
      * The type of the beans in the container.
      */
@@ -222,8 +267,10 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE>
         internalRemoveAllItems();
 
         // detach listeners from all Items
-        for (Item item : itemIdToItem.values()) {
-            removeAllValueChangeListeners(item);
+        for (Map.Entry<IDTYPE, BeanItem<BEANTYPE>> entry : itemIdToItem
+                .entrySet()) {
+            removeAllValueChangeListeners(entry.getValue());
+            removePropertyIndexUpdaters(entry.getKey(), entry.getValue());
         }
         itemIdToItem.clear();
 
@@ -272,6 +319,7 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE>
         if (internalRemoveItem(itemId)) {
             // detach listeners from Item
             removeAllValueChangeListeners(item);
+            removePropertyIndexUpdaters(itemId, item);
 
             // remove item
             itemIdToItem.remove(itemId);
@@ -361,6 +409,11 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE>
      *            The id of the property
      */
     private void addValueChangeListener(Item item, Object propertyId) {
+        if (isPropertyIndexed(propertyId)) {
+            // the PropertyIndexUpdater of the property re-filters the
+            // container
+            return;
+        }
         Property<?> property = item.getItemProperty(propertyId);
         if (property instanceof ValueChangeNotifier) {
             // avoid multiple notifications for the same property if
@@ -399,6 +452,138 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE>
         }
     }
 
+    /**
+     * Make the property index of the container listen to the given property
+     * provided it notifies when its value changes. The container itself
+     * stops listening to the property, as the index updater also re-filters
+     * the container.
+     *
+     * @param itemId
+     *            The id of the item
+     * @param item
+     *            The {@link Item} that contains the property
+     * @param propertyId
+     *            The id of the indexed property
+     */
+    private void addPropertyIndexUpdater(Object itemId, Item item,
+            Object propertyId) {
+        Property<?> property = item.getItemProperty(propertyId);
+        if (property instanceof ValueChangeNotifier) {
+            ValueChangeNotifier notifier = (ValueChangeNotifier) property;
+            notifier.removeListener(this);
+            PropertyIndexUpdater updater = new PropertyIndexUpdater(itemId,
+                    propertyId);
+            notifier.removeListener(updater);
+            notifier.addListener(updater);
+        }
+    }
+
+    /**
+     * Stop updating the property index when the given property changes.
+     *
+     * @param itemId
+     *            The id of the item
+     * @param item
+     *            The {@link Item} that contains the property
+     * @param propertyId
+     *            The id of the indexed property
+     */
+    private void removePropertyIndexUpdater(Object itemId, Item item,
+            Object propertyId) {
+        Property<?> property = item.getItemProperty(propertyId);
+        if (property instanceof ValueChangeNotifier) {
+            ((ValueChangeNotifier) property).removeListener(
+                    new PropertyIndexUpdater(itemId, propertyId));
+        }
+    }
+
+    /**
+     * Stop updating the property indexes when the properties of the given
+     * {@link Item} change.
+     *
+     * @param itemId
+     *            The id of the item
+     * @param item
+     *            The {@link Item} that contains the properties
+     */
+    private void removePropertyIndexUpdaters(Object itemId, Item item) {
+        for (Object propertyId : getIndexedPropertyIds()) {
+            removePropertyIndexUpdater(itemId, item, propertyId);
+        }
+    }
+
+    /**
+     * Adds an index for the values of a bean property, so that filtering on
+     * the property only evaluates the filters for the items the index finds.
+     * The index listens to value changes of the property in each
+     * {@link BeanItem}, changes made directly to the beans are not seen.
+     *
+     * @see AbstractInMemoryContainer#addPropertyIndex(Object)
+     *
+     * @param propertyId
+     *            the id of the property to index
+     * @return true if the index was added, false if the property was already
+     *         indexed
+     * @throws IllegalArgumentException
+     *             if the container has no property with the given id
+     * @since 8.12
+     */
+    @Override
+    public boolean addPropertyIndex(Object propertyId) {
+        if (!super.addPropertyIndex(propertyId)) {
+            return false;
+        }
+        for (Map.Entry<IDTYPE, BeanItem<BEANTYPE>> entry : itemIdToItem
+                .entrySet()) {
+            addPropertyIndexUpdater(entry.getKey(), entry.getValue(),
+                    propertyId);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the index of a property added with
+     * {@link #addPropertyIndex(Object)} and the value change listeners it
+     * added to the items.
+     *
+     * @param propertyId
+     *            the id of the indexed property
+     * @return true if the index was removed, false if the property was not
+     *         indexed
+     * @since 8.12
+     */
+    @Override
+    public boolean removePropertyIndex(Object propertyId) {
+        if (!super.removePropertyIndex(propertyId)) {
+            return false;
+        }
+        boolean filtered = isPropertyFiltered(propertyId);
+        for (Map.Entry<IDTYPE, BeanItem<BEANTYPE>> entry : itemIdToItem
+                .entrySet()) {
+            removePropertyIndexUpdater(entry.getKey(), entry.getValue(),
+                    propertyId);
+            if (filtered) {
+                // the container needs to re-filter on changes again
+                addValueChangeListener(entry.getValue(), propertyId);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a property has been indexed with
+     * {@link #addPropertyIndex(Object)}.
+     *
+     * @param propertyId
+     *            the id of the property
+     * @return true if the property is indexed, false otherwise
+     * @since 8.12
+     */
+    @Override
+    public boolean isPropertyIndexed(Object propertyId) {
+        return super.isPropertyIndexed(propertyId);
+    }
+
     @Override
     public Collection<?> getSortableContainerPropertyIds() {
         return getSortablePropertyIds();
@@ -434,6 +619,11 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE>
                 }
             }
         }
+
+        // keep the property indexes up to date on property changes
+        for (Object propertyId : getIndexedPropertyIds()) {
+            addPropertyIndexUpdater(itemId, item, propertyId);
+        }
     }
 
     /**
@@ -816,6 +1006,7 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE>
         Class<?> propertyType = getType(propertyId);
         LinkedHashMap<String, VaadinPropertyDescriptor<Object>> pds = BeanItem
                 .getPropertyDescriptors((Class<Object>) propertyType);
+        removePropertyIndex(propertyId);
         for (String subPropertyId : pds.keySet()) {
             String qualifiedPropertyId = propertyId + "." + subPropertyId;
             NestedPropertyDescriptor<BEANTYPE> pd = new NestedPropertyDescriptor<BEANTYPE>(
@@ -840,6 +1031,7 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE>
         if (!model.containsKey(propertyId)) {
             return false;
         }
+        removePropertyIndex(propertyId);
 
         // Removes the Property to Property list and types
         model.remove(propertyId);
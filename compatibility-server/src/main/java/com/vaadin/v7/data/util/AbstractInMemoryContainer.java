@@ -15,19 +15,35 @@
  */
 package com.vaadin.v7.data.util;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EventObject;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
 
 import com.vaadin.data.provider.DataProvider;
 import com.vaadin.v7.data.Container;
 import com.vaadin.v7.data.Container.ItemSetChangeNotifier;
 import com.vaadin.v7.data.Item;
+import com.vaadin.v7.data.Property;
+import com.vaadin.v7.data.util.filter.AbstractJunctionFilter;
+import com.vaadin.v7.data.util.filter.And;
+import com.vaadin.v7.data.util.filter.Between;
+import com.vaadin.v7.data.util.filter.Compare;
+import com.vaadin.v7.data.util.filter.IsNull;
+import com.vaadin.v7.data.util.filter.Or;
 import com.vaadin.v7.data.util.filter.SimpleStringFilter;
 import com.vaadin.v7.data.util.filter.UnsupportedFilterException;
 
@@ -80,6 +96,12 @@ import com.vaadin.v7.data.util.filter.UnsupportedFilterException;
  * {@link #addFilter(Container.Filter)} and {@link #removeFilters(Object)}
  * respectively.
  *
+ * Subclasses can make filtering by a property faster by letting users add
+ * property indexes with {@link #addPropertyIndex(Object)}. Subclasses
+ * supporting property indexes must call
+ * {@link #updatePropertyIndex(Object, Object)} whenever a property value of an
+ * item changes.
+ *
  * @param <ITEMIDTYPE>
  *            the class of item identifiers in the container, use Object if can
  *            be any class
@@ -129,13 +151,21 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
      */
     private ItemSorter itemSorter = new DefaultItemSorter();
 
+    /**
+     * Indexes of the values of properties used for filtering, by property id.
+     */
+    private Map<Object, PropertyIndex> propertyIndexes = new HashMap<Object, PropertyIndex>();
+
     // Constructors
 
     /**
      * Constructor for an abstract in-memory container.
      */
     protected AbstractInMemoryContainer() {
-        setAllItemIds(new ListSet<ITEMIDTYPE>());
+        ListSet<ITEMIDTYPE> itemIds = new ListSet<ITEMIDTYPE>();
+        // kept while items are only added at the end
+        itemIds.enableIndexMap();
+        setAllItemIds(itemIds);
     }
 
     // Container interface methods with more specific return class
@@ -518,12 +548,16 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
             originalFilteredItemIds = Collections.emptyList();
             wasUnfiltered = true;
         }
-        setFilteredItemIds(new ListSet<ITEMIDTYPE>());
+        ListSet<ITEMIDTYPE> newFilteredItemIds = new ListSet<ITEMIDTYPE>();
+        // the filtered list is rebuilt rather than modified, so indexOfId()
+        // can use an id to index map until the next filtering
+        newFilteredItemIds.enableIndexMap();
+        setFilteredItemIds(newFilteredItemIds);
 
         // Filter
         boolean equal = true;
         Iterator<ITEMIDTYPE> origIt = originalFilteredItemIds.iterator();
-        for (final ITEMIDTYPE id : getAllItemIds()) {
+        for (final ITEMIDTYPE id : getItemIdsToFilter()) {
             if (passesFilters(id)) {
                 // filtered list comes from the full list, can use ==
                 equal = equal && origIt.hasNext() && origIt.next() == id;
@@ -535,6 +569,148 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
                 || origIt.hasNext();
     }
 
+    /**
+     * Returns the item ids for which the filters need to be evaluated, in the
+     * order of {@link #getAllItemIds()}. If property indexes can tell which
+     * items may pass one of the filters, only those items are returned.
+     *
+     * @return the item ids to filter, not null
+     */
+    private Collection<ITEMIDTYPE> getItemIdsToFilter() {
+        List<ITEMIDTYPE> allItemIds = getAllItemIds();
+        if (propertyIndexes.isEmpty()) {
+            return allItemIds;
+        }
+
+        // use the filter matching the fewest items
+        List<Set<Object>> candidates = null;
+        int candidateCount = allItemIds.size();
+        for (Filter filter : getFilters()) {
+            List<Set<Object>> itemIds = getIndexedItemIds(filter);
+            if (itemIds != null && count(itemIds) < candidateCount) {
+                candidates = itemIds;
+                candidateCount = count(itemIds);
+            }
+        }
+        if (candidates == null) {
+            return allItemIds;
+        }
+
+        List<ITEMIDTYPE> itemIdsToFilter = new ArrayList<ITEMIDTYPE>(
+                candidateCount);
+        Set<Object> candidateSet;
+        if (candidates.size() == 1) {
+            candidateSet = candidates.get(0);
+        } else {
+            candidateSet = new HashSet<Object>(candidateCount * 4 / 3 + 1);
+            for (Set<Object> itemIds : candidates) {
+                candidateSet.addAll(itemIds);
+            }
+        }
+        // keeps the order of all item ids, checking a set is cheap compared
+        // to evaluating the filters
+        for (ITEMIDTYPE itemId : allItemIds) {
+            if (candidateSet.contains(itemId)) {
+                itemIdsToFilter.add(itemId);
+            }
+        }
+        return itemIdsToFilter;
+    }
+
+    /**
+     * Uses the property indexes to find the items that may pass a filter.
+     *
+     * @param filter
+     *            the filter
+     * @return the ids of the items that may pass the filter as a list of
+     *         disjoint sets, or null if the property indexes cannot be used
+     *         for the filter
+     */
+    private List<Set<Object>> getIndexedItemIds(Filter filter) {
+        if (filter instanceof Compare) {
+            Compare compare = (Compare) filter;
+            PropertyIndex index = propertyIndexes.get(compare.getPropertyId());
+            Object value = compare.getValue();
+            if (index == null) {
+                return null;
+            } else if (compare.getOperation() == Compare.Operation.EQUAL) {
+                return index.getEqual(value);
+            } else if (value == null) {
+                return null;
+            }
+            // Compare treats null property values as the largest values
+            switch (compare.getOperation()) {
+            case GREATER:
+                return index.getRange(value, false, null, false, true);
+            case GREATER_OR_EQUAL:
+                return index.getRange(value, true, null, false, true);
+            case LESS:
+                return index.getRange(null, false, value, false, false);
+            case LESS_OR_EQUAL:
+                return index.getRange(null, false, value, true, false);
+            default:
+                return null;
+            }
+        } else if (filter instanceof Between) {
+            Between between = (Between) filter;
+            PropertyIndex index = propertyIndexes.get(between.getPropertyId());
+            if (index == null || (between.getStartValue() == null
+                    && between.getEndValue() == null)) {
+                return null;
+            }
+            return index.getRange(between.getStartValue(), true,
+                    between.getEndValue(), true, false);
+        } else if (filter instanceof SimpleStringFilter) {
+            SimpleStringFilter stringFilter = (SimpleStringFilter) filter;
+            PropertyIndex index = propertyIndexes
+                    .get(stringFilter.getPropertyId());
+            if (index == null || !stringFilter.isOnlyMatchPrefix()) {
+                return null;
+            }
+            return index.getPrefixed(stringFilter.getFilterString(),
+                    stringFilter.isIgnoreCase());
+        } else if (filter instanceof IsNull) {
+            PropertyIndex index = propertyIndexes
+                    .get(((IsNull) filter).getPropertyId());
+            return index == null ? null : index.getEqual(null);
+        } else if (filter instanceof And) {
+            List<Set<Object>> result = null;
+            for (Filter subFilter : ((AbstractJunctionFilter) filter)
+                    .getFilters()) {
+                List<Set<Object>> itemIds = getIndexedItemIds(subFilter);
+                if (itemIds != null
+                        && (result == null || count(itemIds) < count(result))) {
+                    result = itemIds;
+                }
+            }
+            return result;
+        } else if (filter instanceof Or) {
+            Collection<Filter> subFilters = ((AbstractJunctionFilter) filter)
+                    .getFilters();
+            if (subFilters.isEmpty()) {
+                return null;
+            }
+            List<Set<Object>> result = new ArrayList<Set<Object>>();
+            for (Filter subFilter : subFilters) {
+                List<Set<Object>> itemIds = getIndexedItemIds(subFilter);
+                if (itemIds == null) {
+                    return null;
+                }
+                result.addAll(itemIds);
+            }
+            return result;
+        }
+        return null;
+    }
+
+    private static int count(List<Set<Object>> itemIds) {
+        int count = 0;
+        for (Set<Object> ids : itemIds) {
+            count += ids.size();
+        }
+        return count;
+    }
+
     /**
      * Checks if the given itemId passes the filters set for the container. The
      * caller should make sure the itemId exists in the container. For
@@ -677,6 +853,379 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         return Collections.emptyList();
     }
 
+    // property indexes
+
+    /**
+     * Adds an index for the values of a property. When the container is
+     * filtered, the index is used to find the items that can pass
+     * {@link Compare}, {@link Between} and {@link IsNull} filters and prefix
+     * matching {@link SimpleStringFilter}s for the property, also inside
+     * {@link And} and {@link Or} filters. The filters are then only evaluated
+     * for those items, which makes filtering large containers considerably
+     * faster.
+     *
+     * The index uses memory for each item in the container and is updated
+     * whenever an item is added or removed or the value of the property
+     * changes. Values changed without notifying the container, e.g. by
+     * modifying a mutable property value object in place, are not seen by the
+     * index.
+     *
+     * This can be used to implement a public method for adding property
+     * indexes.
+     *
+     * @param propertyId
+     *            the id of the property to index
+     * @return true if the index was added, false if the property was already
+     *         indexed
+     * @throws IllegalArgumentException
+     *             if the container has no property with the given id
+     * @since 8.12
+     */
+    protected boolean addPropertyIndex(Object propertyId) {
+        if (!getContainerPropertyIds().contains(propertyId)) {
+            throw new IllegalArgumentException(
+                    "Property " + propertyId + " not found");
+        }
+        if (propertyIndexes.containsKey(propertyId)) {
+            return false;
+        }
+        PropertyIndex index = new PropertyIndex();
+        for (ITEMIDTYPE itemId : getAllItemIds()) {
+            index.add(itemId, getIndexedValue(itemId, propertyId));
+        }
+        propertyIndexes.put(propertyId, index);
+        return true;
+    }
+
+    /**
+     * Removes the index of a property added with
+     * {@link #addPropertyIndex(Object)}.
+     *
+     * This can be used to implement a public method for removing property
+     * indexes, and should be called when a property is removed from the
+     * container.
+     *
+     * @param propertyId
+     *            the id of the indexed property
+     * @return true if the index was removed, false if the property was not
+     *         indexed
+     * @since 8.12
+     */
+    protected boolean removePropertyIndex(Object propertyId) {
+        return propertyIndexes.remove(propertyId) != null;
+    }
+
+    /**
+     * Checks if a property has been indexed with
+     * {@link #addPropertyIndex(Object)}.
+     *
+     * @param propertyId
+     *            the id of the property
+     * @return true if the property is indexed, false otherwise
+     * @since 8.12
+     */
+    protected boolean isPropertyIndexed(Object propertyId) {
+        return propertyIndexes.containsKey(propertyId);
+    }
+
+    /**
+     * Returns the ids of the properties indexed with
+     * {@link #addPropertyIndex(Object)}.
+     *
+     * @return an unmodifiable collection of the indexed property ids
+     * @since 8.12
+     */
+    protected Collection<Object> getIndexedPropertyIds() {
+        return Collections.unmodifiableCollection(propertyIndexes.keySet());
+    }
+
+    /**
+     * Updates the index of a property after its value has changed for an item.
+     * Subclasses must call this when a property value changes, before
+     * re-filtering the container. Does nothing if the property is not indexed.
+     *
+     * @param itemId
+     *            the id of the item whose property value has changed
+     * @param propertyId
+     *            the id of the changed property
+     * @since 8.12
+     */
+    protected void updatePropertyIndex(Object itemId, Object propertyId) {
+        if (propertyIndexes.isEmpty()) {
+            return;
+        }
+        PropertyIndex index = propertyIndexes.get(propertyId);
+        if (index != null && index.remove(itemId)) {
+            index.add(itemId, getIndexedValue(itemId, propertyId));
+        }
+    }
+
+    private Object getIndexedValue(Object itemId, Object propertyId) {
+        ITEMCLASS item = getUnfilteredItem(itemId);
+        Property<?> property = item == null ? null
+                : item.getItemProperty(propertyId);
+        return property == null ? null : property.getValue();
+    }
+
+    /**
+     * An index of the values of a property, mapping each distinct value to the
+     * items having it. Sorted views of the values for range and prefix
+     * queries are built when first needed and then kept up to date.
+     *
+     * The queries return the ids of the items that may pass a filter as a list
+     * of disjoint sets, or null if the index cannot be used for the filter.
+     */
+    private static class PropertyIndex implements Serializable {
+
+        /**
+         * Value types for which equals is consistent with compareTo, so that
+         * the hash index can be used for {@link Compare.Equal}.
+         */
+        private static final Set<Class<?>> EQUALS_CONSISTENT_TYPES = new HashSet<Class<?>>(
+                Arrays.<Class<?>> asList(String.class, Integer.class,
+                        Long.class, Short.class, Byte.class, Double.class,
+                        Float.class, Character.class, Boolean.class));
+
+        private final Map<Object, Object> itemValues = new HashMap<Object, Object>();
+
+        private final Map<Object, Set<Object>> valueItems = new HashMap<Object, Set<Object>>();
+
+        /**
+         * The distinct non-null values in their natural order, each mapped to
+         * the values comparing equal to it. Null if not built yet.
+         */
+        private transient TreeMap<Object, List<Object>> sortedValues;
+
+        /**
+         * True if the values could not be sorted because they are not
+         * mutually comparable.
+         */
+        private transient boolean unsortable;
+
+        /**
+         * The distinct non-null values by their string and lower case string
+         * representation. Null if not built yet.
+         */
+        private transient TreeMap<String, List<Object>> stringValues;
+        private transient TreeMap<String, List<Object>> lowerCaseStringValues;
+
+        public void add(Object itemId, Object value) {
+            itemValues.put(itemId, value);
+            Set<Object> itemIds = valueItems.get(value);
+            if (itemIds == null) {
+                itemIds = new HashSet<Object>();
+                valueItems.put(value, itemIds);
+                addDistinctValue(value);
+            }
+            itemIds.add(itemId);
+        }
+
+        public boolean remove(Object itemId) {
+            if (!itemValues.containsKey(itemId)) {
+                return false;
+            }
+            Object value = itemValues.remove(itemId);
+            Set<Object> itemIds = valueItems.get(value);
+            if (itemIds != null && itemIds.remove(itemId)
+                    && itemIds.isEmpty()) {
+                valueItems.remove(value);
+                removeDistinctValue(value);
+            }
+            return true;
+        }
+
+        public void clear() {
+            itemValues.clear();
+            valueItems.clear();
+            sortedValues = null;
+            unsortable = false;
+            stringValues = null;
+            lowerCaseStringValues = null;
+        }
+
+        public List<Set<Object>> getEqual(Object value) {
+            if (value == null || !(value instanceof Comparable)
+                    || value instanceof Enum
+                    || EQUALS_CONSISTENT_TYPES.contains(value.getClass())) {
+                return getItemIds(Collections.singletonList(value));
+            }
+            // Compare.Equal uses compareTo for other comparable values
+            TreeMap<Object, List<Object>> sorted = getSortedValues();
+            if (sorted == null) {
+                return null;
+            }
+            try {
+                List<Object> values = sorted.get(value);
+                return getItemIds(values == null
+                        ? Collections.emptyList() : values);
+            } catch (ClassCastException e) {
+                // let the filter decide how to handle incomparable values
+                return null;
+            }
+        }
+
+        public List<Set<Object>> getRange(Object from, boolean fromInclusive,
+                Object to, boolean toInclusive, boolean includeNull) {
+            TreeMap<Object, List<Object>> sorted = getSortedValues();
+            if (sorted == null) {
+                return null;
+            }
+            List<Object> values = new ArrayList<Object>();
+            try {
+                NavigableMap<Object, List<Object>> range;
+                if (from == null) {
+                    range = sorted.headMap(to, toInclusive);
+                } else if (to == null) {
+                    range = sorted.tailMap(from, fromInclusive);
+                } else {
+                    range = sorted.subMap(from, fromInclusive, to,
+                            toInclusive);
+                }
+                for (List<Object> rangeValues : range.values()) {
+                    values.addAll(rangeValues);
+                }
+            } catch (ClassCastException e) {
+                // let the filter decide how to handle incomparable values
+                return null;
+            } catch (IllegalArgumentException e) {
+                // from is after to, no values in between
+                values.clear();
+            }
+            if (includeNull) {
+                values.add(null);
+            }
+            return getItemIds(values);
+        }
+
+        public List<Set<Object>> getPrefixed(String prefix,
+                boolean ignoreCase) {
+            TreeMap<String, List<Object>> strings = getStringValues(
+                    ignoreCase);
+            List<Object> values = new ArrayList<Object>();
+            for (Entry<String, List<Object>> entry : strings
+                    .tailMap(prefix, true).entrySet()) {
+                if (!entry.getKey().startsWith(prefix)) {
+                    break;
+                }
+                values.addAll(entry.getValue());
+            }
+            return getItemIds(values);
+        }
+
+        private List<Set<Object>> getItemIds(List<Object> values) {
+            List<Set<Object>> result = new ArrayList<Set<Object>>(
+                    values.size());
+            for (Object value : values) {
+                Set<Object> itemIds = valueItems.get(value);
+                if (itemIds != null) {
+                    result.add(itemIds);
+                }
+            }
+            return result;
+        }
+
+        private TreeMap<Object, List<Object>> getSortedValues() {
+            if (sortedValues == null && !unsortable) {
+                TreeMap<Object, List<Object>> sorted = new TreeMap<Object, List<Object>>();
+                try {
+                    for (Object value : valueItems.keySet()) {
+                        if (value != null) {
+                            addValue(sorted, value, value);
+                        }
+                    }
+                    sortedValues = sorted;
+                } catch (ClassCastException e) {
+                    unsortable = true;
+                }
+            }
+            return sortedValues;
+        }
+
+        private TreeMap<String, List<Object>> getStringValues(
+                boolean ignoreCase) {
+            TreeMap<String, List<Object>> strings = ignoreCase
+                    ? lowerCaseStringValues
+                    : stringValues;
+            if (strings == null) {
+                strings = new TreeMap<String, List<Object>>();
+                for (Object value : valueItems.keySet()) {
+                    if (value != null) {
+                        addValue(strings, toString(value, ignoreCase), value);
+                    }
+                }
+                if (ignoreCase) {
+                    lowerCaseStringValues = strings;
+                } else {
+                    stringValues = strings;
+                }
+            }
+            return strings;
+        }
+
+        private void addDistinctValue(Object value) {
+            if (value == null) {
+                return;
+            }
+            if (sortedValues != null) {
+                try {
+                    addValue(sortedValues, value, value);
+                } catch (ClassCastException e) {
+                    sortedValues = null;
+                    unsortable = true;
+                }
+            }
+            if (stringValues != null) {
+                addValue(stringValues, toString(value, false), value);
+            }
+            if (lowerCaseStringValues != null) {
+                addValue(lowerCaseStringValues, toString(value, true), value);
+            }
+        }
+
+        private void removeDistinctValue(Object value) {
+            if (value == null) {
+                return;
+            }
+            if (sortedValues != null) {
+                removeValue(sortedValues, value, value);
+            } else {
+                // the value may have been the one preventing sorting
+                unsortable = false;
+            }
+            if (stringValues != null) {
+                removeValue(stringValues, toString(value, false), value);
+            }
+            if (lowerCaseStringValues != null) {
+                removeValue(lowerCaseStringValues, toString(value, true),
+                        value);
+            }
+        }
+
+        private static String toString(Object value, boolean ignoreCase) {
+            // same as in SimpleStringFilter
+            return ignoreCase ? value.toString().toLowerCase(Locale.ROOT)
+                    : value.toString();
+        }
+
+        private static <K> void addValue(TreeMap<K, List<Object>> map, K key,
+                Object value) {
+            List<Object> values = map.get(key);
+            if (values == null) {
+                values = new ArrayList<Object>(1);
+                map.put(key, values);
+            }
+            values.add(value);
+        }
+
+        private static <K> void removeValue(TreeMap<K, List<Object>> map,
+                K key, Object value) {
+            List<Object> values = map.get(key);
+            if (values != null && values.remove(value) && values.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+
     // sorting
 
     /**
@@ -723,6 +1272,10 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
 
         // Perform the actual sort
         doSort();
+        // sorting reorders the list as a whole, a new map can be built
+        if (getAllItemIds() instanceof ListSet) {
+            ((ListSet<ITEMIDTYPE>) getAllItemIds()).enableIndexMap();
+        }
 
         // Post sort updates
         if (isFiltered()) {
@@ -776,6 +1329,9 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         if (isFiltered()) {
             getFilteredItemIds().clear();
         }
+        for (PropertyIndex index : propertyIndexes.values()) {
+            index.clear();
+        }
     }
 
     /**
@@ -799,6 +1355,11 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         if (result && isFiltered()) {
             getFilteredItemIds().remove(itemId);
         }
+        if (result) {
+            for (PropertyIndex index : propertyIndexes.values()) {
+                index.remove(itemId);
+            }
+        }
 
         return result;
     }
@@ -844,6 +1405,10 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         // by the caller after calling this method.
         getAllItemIds().add(position, itemId);
         registerNewItem(position, itemId, item);
+        for (Entry<Object, PropertyIndex> entry : propertyIndexes.entrySet()) {
+            entry.getValue().add(itemId,
+                    getIndexedValue(itemId, entry.getKey()));
+        }
 
         return item;
     }
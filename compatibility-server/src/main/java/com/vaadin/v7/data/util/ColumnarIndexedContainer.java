@@ -0,0 +1,1427 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.v7.data.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EventObject;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.vaadin.data.provider.ListDataProvider;
+import com.vaadin.v7.data.Container;
+import com.vaadin.v7.data.Item;
+import com.vaadin.v7.data.Property;
+import com.vaadin.v7.data.util.filter.SimpleStringFilter;
+import com.vaadin.v7.data.util.filter.UnsupportedFilterException;
+
+/**
+ * An implementation of the <code>{@link Container.Indexed}</code> interface
+ * that stores the property values column by column, for large containers
+ * with many numeric properties.
+ * <p>
+ * The container works like {@link IndexedContainer}, but instead of a map of
+ * property values for each item, every item is assigned a row number and each
+ * property is stored in an array indexed by the row number. Properties of type
+ * {@link Integer}, {@link Long}, {@link Double}, {@link Float} and
+ * {@link Boolean} are stored in primitive arrays, so their values are not kept
+ * as separate objects, and sorting by them compares the primitive values
+ * directly when the default {@link ItemSorter} is used. Values of other
+ * properties are stored in object arrays.
+ * <p>
+ *
+ * Features:
+ * <ul>
+ * <li>{@link Container.Indexed}
+ * <li>{@link Container.Ordered}
+ * <li>{@link Container.Sortable}
+ * <li>{@link Container.Filterable}
+ * <li>Sends all needed events on content changes.
+ * </ul>
+ *
+ * @see IndexedContainer
+ *
+ * @author Vaadin Ltd
+ * @since 8.12
+ *
+ * @deprecated As of 8.0, replaced by {@link ListDataProvider}. Provided for
+ *             migrating large v7 containers.
+ */
+
+@Deprecated
+@SuppressWarnings("serial")
+public class ColumnarIndexedContainer
+        extends AbstractInMemoryContainer<Object, Object, Item>
+        implements Container.PropertySetChangeNotifier,
+        Property.ValueChangeNotifier, Container.Sortable,
+        Container.Filterable, Container.SimpleFilterable {
+
+    /* Internal structure */
+
+    /**
+     * Ordered Property IDs.
+     */
+    private List<Object> propertyIds = new ArrayList<Object>();
+
+    /**
+     * Property ID to column mapping.
+     */
+    private Map<Object, Column> columns = new HashMap<Object, Column>();
+
+    /**
+     * Item ID to row number mapping.
+     */
+    private Map<Object, Integer> rows = new HashMap<Object, Integer>();
+
+    /**
+     * Item IDs by row number, <code>null</code> for unused rows. The length of
+     * the array is the capacity of the columns.
+     */
+    private Object[] rowItemIds = new Object[0];
+
+    /**
+     * Number of rows that have been in use.
+     */
+    private int rowCount = 0;
+
+    /**
+     * Rows freed by removed items, reused before growing the columns.
+     */
+    private int[] freeRows = new int[0];
+    private int freeRowCount = 0;
+
+    /**
+     * Set of properties that are read-only.
+     */
+    private Set<Property<?>> readOnlyProperties = new HashSet<Property<?>>();
+
+    /**
+     * List of all Property value change event listeners listening all the
+     * properties.
+     */
+    private List<Property.ValueChangeListener> propertyValueChangeListeners = null;
+
+    /**
+     * Data structure containing all listeners interested in changes to single
+     * Properties. Maps Property IDs to a map from Item IDs to the listeners of
+     * the Property identified by given Property ID and Item ID.
+     */
+    private Map<Object, Map<Object, List<Property.ValueChangeListener>>> singlePropertyValueChangeListeners;
+
+    /**
+     * The item sorter created by default. Sorting compares the column values
+     * directly as long as this is the item sorter in use.
+     */
+    private final ItemSorter defaultItemSorter;
+
+    /**
+     * The columns and directions of the sort in progress.
+     */
+    private Column[] sortColumns;
+    private boolean[] sortAscending;
+
+    private int nextGeneratedItemId = 1;
+
+    /* Container constructors */
+
+    public ColumnarIndexedContainer() {
+        super();
+        defaultItemSorter = getItemSorter();
+    }
+
+    public ColumnarIndexedContainer(Collection<?> itemIds) {
+        this();
+        for (Object itemId : itemIds) {
+            internalAddItemAtEnd(itemId, new ColumnarContainerItem(itemId),
+                    false);
+        }
+        filterAll();
+    }
+
+    /* Container methods */
+
+    @Override
+    protected Item getUnfilteredItem(Object itemId) {
+        if (itemId != null && rows.containsKey(itemId)) {
+            return new ColumnarContainerItem(itemId);
+        }
+        return null;
+    }
+
+    @Override
+    public Collection<?> getContainerPropertyIds() {
+        return Collections.unmodifiableCollection(propertyIds);
+    }
+
+    /**
+     * Gets the type of a Property stored in the list.
+     *
+     * @param propertyId
+     *            the ID of the Property.
+     * @return Type of the requested Property
+     */
+    @Override
+    public Class<?> getType(Object propertyId) {
+        Column column = columns.get(propertyId);
+        return column == null ? null : column.type;
+    }
+
+    @Override
+    public Property getContainerProperty(Object itemId, Object propertyId) {
+        if (!containsId(itemId) || propertyId == null
+                || !columns.containsKey(propertyId)) {
+            return null;
+        }
+
+        return new ColumnarContainerProperty(itemId, propertyId);
+    }
+
+    @Override
+    public boolean addContainerProperty(Object propertyId, Class<?> type,
+            Object defaultValue) {
+
+        // Fails, if nulls are given
+        if (propertyId == null || type == null) {
+            return false;
+        }
+
+        // Fails if the Property is already present
+        if (columns.containsKey(propertyId)) {
+            return false;
+        }
+
+        // A default value of another type can only be stored as an object
+        Column column = defaultValue == null || type.isInstance(defaultValue)
+                ? createColumn(type)
+                : new ObjectColumn(type);
+        column.resize(rowItemIds.length);
+
+        propertyIds.add(propertyId);
+        columns.put(propertyId, column);
+
+        // If default value is given, set it
+        if (defaultValue != null) {
+            // for existing rows
+            for (final Iterator<?> i = getAllItemIds().iterator(); i
+                    .hasNext();) {
+                getUnfilteredItem(i.next()).getItemProperty(propertyId)
+                        .setValue(defaultValue);
+            }
+            // store for next rows
+            column.defaultValue = defaultValue;
+        }
+
+        // Sends a change event
+        fireContainerPropertySetChange();
+
+        return true;
+    }
+
+    @Override
+    public boolean removeAllItems() {
+        int origSize = size();
+        Object firstItem = getFirstVisibleItem();
+
+        internalRemoveAllItems();
+
+        rows.clear();
+        rowItemIds = new Object[0];
+        rowCount = 0;
+        freeRows = new int[0];
+        freeRowCount = 0;
+        for (Column column : columns.values()) {
+            column.resize(0);
+        }
+
+        // fire event only if the visible view changed, regardless of whether
+        // filtered out items were removed or not
+        if (origSize != 0) {
+            // Sends a change event
+            fireItemsRemoved(0, firstItem, origSize);
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The item ID is generated from a sequence of Integers. The id of the first
+     * added item is 1.
+     */
+    @Override
+    public Object addItem() {
+
+        // Creates a new id
+        final Object id = generateId();
+
+        // Adds the Item into container
+        addItem(id);
+
+        return id;
+    }
+
+    @Override
+    public Item addItem(Object itemId) {
+        Item item = internalAddItemAtEnd(itemId,
+                new ColumnarContainerItem(itemId), false);
+        if (item == null) {
+            return null;
+        } else if (!isFiltered()) {
+            // always the last item
+            fireItemAdded(size() - 1, itemId, item);
+        } else if (passesFilters(itemId) && !containsId(itemId)) {
+            getFilteredItemIds().add(itemId);
+            // always the last item
+            fireItemAdded(size() - 1, itemId, item);
+        }
+        return item;
+    }
+
+    @Override
+    public boolean removeItem(Object itemId) {
+        if (itemId == null) {
+            return false;
+        }
+        Integer row = rows.remove(itemId);
+        if (row == null) {
+            return false;
+        }
+        releaseRow(row);
+
+        int origSize = size();
+        int position = indexOfId(itemId);
+        if (internalRemoveItem(itemId)) {
+            // fire event only if the visible view changed, regardless of
+            // whether filtered out items were removed or not
+            if (size() != origSize) {
+                fireItemRemoved(position, itemId);
+            }
+
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean removeContainerProperty(Object propertyId) {
+
+        // Fails if the Property is not present
+        if (columns.remove(propertyId) == null) {
+            return false;
+        }
+        propertyIds.remove(propertyId);
+        removePropertyIndex(propertyId);
+
+        // Sends a change event
+        fireContainerPropertySetChange();
+
+        return true;
+    }
+
+    /* Container.Ordered methods */
+
+    @Override
+    public Item addItemAfter(Object previousItemId, Object newItemId) {
+        return internalAddItemAfter(previousItemId, newItemId,
+                new ColumnarContainerItem(newItemId), true);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The item ID is generated from a sequence of Integers. The id of the first
+     * added item is 1.
+     */
+    @Override
+    public Object addItemAfter(Object previousItemId) {
+
+        // Creates a new id
+        final Object id = generateId();
+
+        if (addItemAfter(previousItemId, id) != null) {
+            return id;
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public Item addItemAt(int index, Object newItemId) {
+        return internalAddItemAt(index, newItemId,
+                new ColumnarContainerItem(newItemId), true);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The item ID is generated from a sequence of Integers. The id of the first
+     * added item is 1.
+     */
+    @Override
+    public Object addItemAt(int index) {
+
+        // Creates a new id
+        final Object id = generateId();
+
+        // Adds the Item into container
+        addItemAt(index, id);
+
+        return id;
+    }
+
+    /**
+     * Generates an unique identifier for use as an item id. Guarantees that the
+     * generated id is not currently used as an id.
+     *
+     * @return a new item id
+     */
+    private Serializable generateId() {
+        Serializable id;
+        do {
+            id = Integer.valueOf(nextGeneratedItemId++);
+        } while (rows.containsKey(id));
+
+        return id;
+    }
+
+    @Override
+    protected void registerNewItem(int index, Object newItemId, Item item) {
+        int row = allocateRow();
+        rows.put(newItemId, row);
+        rowItemIds[row] = newItemId;
+        for (Column column : columns.values()) {
+            column.set(row, column.defaultValue);
+        }
+    }
+
+    /**
+     * Gets a row for a new item, reusing the row of a removed item if there is
+     * one.
+     *
+     * @return the row number
+     */
+    private int allocateRow() {
+        if (freeRowCount > 0) {
+            return freeRows[--freeRowCount];
+        }
+        if (rowCount == rowItemIds.length) {
+            int capacity = Math.max(16, rowCount + (rowCount >> 1));
+            rowItemIds = Arrays.copyOf(rowItemIds, capacity);
+            for (Column column : columns.values()) {
+                column.resize(capacity);
+            }
+        }
+        return rowCount++;
+    }
+
+    /**
+     * Clears the values of a row of a removed item and makes the row available
+     * for new items.
+     *
+     * @param row
+     *            the row number
+     */
+    private void releaseRow(int row) {
+        rowItemIds[row] = null;
+        for (Column column : columns.values()) {
+            column.set(row, null);
+        }
+        if (freeRowCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows,
+                    Math.max(16, freeRowCount + (freeRowCount >> 1)));
+        }
+        freeRows[freeRowCount++] = row;
+    }
+
+    /* Column storage */
+
+    private static Column createColumn(Class<?> type) {
+        if (type == Integer.class) {
+            return new IntColumn(type);
+        } else if (type == Long.class) {
+            return new LongColumn(type);
+        } else if (type == Double.class) {
+            return new DoubleColumn(type);
+        } else if (type == Float.class) {
+            return new FloatColumn(type);
+        } else if (type == Boolean.class) {
+            return new BooleanColumn(type);
+        } else {
+            return new ObjectColumn(type);
+        }
+    }
+
+    /**
+     * The values of one property for all rows.
+     */
+    private abstract static class Column implements Serializable {
+        private final Class<?> type;
+        private Object defaultValue;
+
+        private Column(Class<?> type) {
+            this.type = type;
+        }
+
+        /**
+         * Gets the value of the given row.
+         */
+        abstract Object get(int row);
+
+        /**
+         * Sets the value of the given row. The value is either
+         * <code>null</code> or of the type of the column.
+         */
+        abstract void set(int row, Object value);
+
+        /**
+         * Changes the number of rows the column can hold. Values beyond the
+         * new capacity are discarded.
+         */
+        abstract void resize(int capacity);
+
+        /**
+         * Compares the values of two rows in the same way as
+         * {@link DefaultItemSorter.DefaultPropertyValueComparator}, with
+         * <code>null</code> less than any other value.
+         */
+        abstract int compare(int row1, int row2);
+    }
+
+    private static class ObjectColumn extends Column {
+        private Object[] values = new Object[0];
+
+        private ObjectColumn(Class<?> type) {
+            super(type);
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void set(int row, Object value) {
+            values[row] = value;
+        }
+
+        @Override
+        void resize(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        int compare(int row1, int row2) {
+            Object value1 = values[row1];
+            Object value2 = values[row2];
+            if (value1 != null && value2 != null) {
+                return ((Comparable<Object>) value1).compareTo(value2);
+            } else if (value1 == value2) {
+                return 0;
+            } else {
+                return value1 == null ? -1 : 1;
+            }
+        }
+    }
+
+    /**
+     * A column of primitive values, with a bit for each row telling whether
+     * the row has a value or is <code>null</code>.
+     */
+    private abstract static class PrimitiveColumn extends Column {
+        private final BitSet present = new BitSet();
+
+        private PrimitiveColumn(Class<?> type) {
+            super(type);
+        }
+
+        @Override
+        Object get(int row) {
+            return present.get(row) ? getValue(row) : null;
+        }
+
+        @Override
+        void set(int row, Object value) {
+            if (value == null) {
+                present.clear(row);
+            } else {
+                setValue(row, value);
+                present.set(row);
+            }
+        }
+
+        @Override
+        void resize(int capacity) {
+            if (capacity < present.length()) {
+                present.clear(capacity, present.length());
+            }
+            resizeValues(capacity);
+        }
+
+        @Override
+        int compare(int row1, int row2) {
+            boolean present1 = present.get(row1);
+            if (present1 != present.get(row2)) {
+                return present1 ? 1 : -1;
+            }
+            return present1 ? compareValues(row1, row2) : 0;
+        }
+
+        abstract Object getValue(int row);
+
+        abstract void setValue(int row, Object value);
+
+        abstract void resizeValues(int capacity);
+
+        abstract int compareValues(int row1, int row2);
+    }
+
+    private static class IntColumn extends PrimitiveColumn {
+        private int[] values = new int[0];
+
+        private IntColumn(Class<?> type) {
+            super(type);
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            values[row] = (Integer) value;
+        }
+
+        @Override
+        void resizeValues(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        int compareValues(int row1, int row2) {
+            return Integer.compare(values[row1], values[row2]);
+        }
+    }
+
+    private static class LongColumn extends PrimitiveColumn {
+        private long[] values = new long[0];
+
+        private LongColumn(Class<?> type) {
+            super(type);
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            values[row] = (Long) value;
+        }
+
+        @Override
+        void resizeValues(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        int compareValues(int row1, int row2) {
+            return Long.compare(values[row1], values[row2]);
+        }
+    }
+
+    private static class DoubleColumn extends PrimitiveColumn {
+        private double[] values = new double[0];
+
+        private DoubleColumn(Class<?> type) {
+            super(type);
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            values[row] = (Double) value;
+        }
+
+        @Override
+        void resizeValues(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        int compareValues(int row1, int row2) {
+            return Double.compare(values[row1], values[row2]);
+        }
+    }
+
+    private static class FloatColumn extends PrimitiveColumn {
+        private float[] values = new float[0];
+
+        private FloatColumn(Class<?> type) {
+            super(type);
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            values[row] = (Float) value;
+        }
+
+        @Override
+        void resizeValues(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        int compareValues(int row1, int row2) {
+            return Float.compare(values[row1], values[row2]);
+        }
+    }
+
+    private static class BooleanColumn extends PrimitiveColumn {
+        private final BitSet values = new BitSet();
+
+        private BooleanColumn(Class<?> type) {
+            super(type);
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values.get(row);
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            values.set(row, (Boolean) value);
+        }
+
+        @Override
+        void resizeValues(int capacity) {
+            if (capacity < values.length()) {
+                values.clear(capacity, values.length());
+            }
+        }
+
+        @Override
+        int compareValues(int row1, int row2) {
+            return Boolean.compare(values.get(row1), values.get(row2));
+        }
+    }
+
+    /* Event notifiers */
+
+    /**
+     * An <code>event</code> object specifying the Property in a list whose
+     * value has changed.
+     */
+    private static class PropertyValueChangeEvent extends EventObject
+            implements Property.ValueChangeEvent {
+
+        private PropertyValueChangeEvent(Property source) {
+            super(source);
+        }
+
+        @Override
+        public Property getProperty() {
+            return (Property) getSource();
+        }
+
+    }
+
+    @Override
+    public void addPropertySetChangeListener(
+            Container.PropertySetChangeListener listener) {
+        super.addPropertySetChangeListener(listener);
+    }
+
+    /**
+     * @deprecated As of 7.0, replaced by
+     *             {@link #addPropertySetChangeListener(Container.PropertySetChangeListener)}
+     */
+    @Deprecated
+    @Override
+    public void addListener(Container.PropertySetChangeListener listener) {
+        addPropertySetChangeListener(listener);
+    }
+
+    @Override
+    public void removePropertySetChangeListener(
+            Container.PropertySetChangeListener listener) {
+        super.removePropertySetChangeListener(listener);
+    }
+
+    /**
+     * @deprecated As of 7.0, replaced by
+     *             {@link #removePropertySetChangeListener(Container.PropertySetChangeListener)}
+     */
+    @Deprecated
+    @Override
+    public void removeListener(Container.PropertySetChangeListener listener) {
+        removePropertySetChangeListener(listener);
+    }
+
+    @Override
+    public void addValueChangeListener(Property.ValueChangeListener listener) {
+        if (propertyValueChangeListeners == null) {
+            propertyValueChangeListeners = new LinkedList<Property.ValueChangeListener>();
+        }
+        propertyValueChangeListeners.add(listener);
+    }
+
+    /**
+     * @deprecated As of 7.0, replaced by
+     *             {@link #addValueChangeListener(Property.ValueChangeListener)}
+     */
+    @Override
+    @Deprecated
+    public void addListener(Property.ValueChangeListener listener) {
+        addValueChangeListener(listener);
+    }
+
+    @Override
+    public void removeValueChangeListener(
+            Property.ValueChangeListener listener) {
+        if (propertyValueChangeListeners != null) {
+            propertyValueChangeListeners.remove(listener);
+        }
+    }
+
+    /**
+     * @deprecated As of 7.0, replaced by
+     *             {@link #removeValueChangeListener(Property.ValueChangeListener)}
+     */
+    @Override
+    @Deprecated
+    public void removeListener(Property.ValueChangeListener listener) {
+        removeValueChangeListener(listener);
+    }
+
+    /**
+     * Sends a Property value change event to all interested listeners.
+     *
+     * @param source
+     *            the ColumnarContainerProperty object.
+     */
+    private void firePropertyValueChange(ColumnarContainerProperty source) {
+
+        // Sends event to listeners listening all value changes
+        if (propertyValueChangeListeners != null) {
+            final Property.ValueChangeEvent event = new PropertyValueChangeEvent(
+                    source);
+            for (Object l : propertyValueChangeListeners.toArray()) {
+                ((Property.ValueChangeListener) l).valueChange(event);
+            }
+        }
+
+        // Sends event to single property value change listeners
+        if (singlePropertyValueChangeListeners != null) {
+            final Map<Object, List<Property.ValueChangeListener>> propertySetToListenerListMap = singlePropertyValueChangeListeners
+                    .get(source.propertyId);
+            if (propertySetToListenerListMap != null) {
+                final List<Property.ValueChangeListener> listenerList = propertySetToListenerListMap
+                        .get(source.itemId);
+                if (listenerList != null) {
+                    final Property.ValueChangeEvent event = new PropertyValueChangeEvent(
+                            source);
+                    for (Object listener : listenerList.toArray()) {
+                        ((Property.ValueChangeListener) listener)
+                                .valueChange(event);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public Collection<?> getListeners(Class<?> eventType) {
+        if (Property.ValueChangeEvent.class.isAssignableFrom(eventType)) {
+            if (propertyValueChangeListeners == null) {
+                return Collections.EMPTY_LIST;
+            } else {
+                return Collections
+                        .unmodifiableCollection(propertyValueChangeListeners);
+            }
+        }
+        return super.getListeners(eventType);
+    }
+
+    @Override
+    protected void fireItemAdded(int position, Object itemId, Item item) {
+        if (position >= 0) {
+            super.fireItemAdded(position, itemId, item);
+        }
+    }
+
+    /**
+     * Adds new single Property change listener.
+     *
+     * @param propertyId
+     *            the ID of the Property to add.
+     * @param itemId
+     *            the ID of the Item .
+     * @param listener
+     *            the listener to be added.
+     */
+    private void addSinglePropertyChangeListener(Object propertyId,
+            Object itemId, Property.ValueChangeListener listener) {
+        if (listener != null) {
+            if (singlePropertyValueChangeListeners == null) {
+                singlePropertyValueChangeListeners = new HashMap<Object, Map<Object, List<Property.ValueChangeListener>>>();
+            }
+            Map<Object, List<Property.ValueChangeListener>> propertySetToListenerListMap = singlePropertyValueChangeListeners
+                    .get(propertyId);
+            if (propertySetToListenerListMap == null) {
+                propertySetToListenerListMap = new HashMap<Object, List<Property.ValueChangeListener>>();
+                singlePropertyValueChangeListeners.put(propertyId,
+                        propertySetToListenerListMap);
+            }
+            List<Property.ValueChangeListener> listenerList = propertySetToListenerListMap
+                    .get(itemId);
+            if (listenerList == null) {
+                listenerList = new LinkedList<Property.ValueChangeListener>();
+                propertySetToListenerListMap.put(itemId, listenerList);
+            }
+            listenerList.add(listener);
+        }
+    }
+
+    /**
+     * Removes a previously registered single Property change listener.
+     *
+     * @param propertyId
+     *            the ID of the Property to remove.
+     * @param itemId
+     *            the ID of the Item.
+     * @param listener
+     *            the listener to be removed.
+     */
+    private void removeSinglePropertyChangeListener(Object propertyId,
+            Object itemId, Property.ValueChangeListener listener) {
+        if (listener != null && singlePropertyValueChangeListeners != null) {
+            final Map<Object, List<Property.ValueChangeListener>> propertySetToListenerListMap = singlePropertyValueChangeListeners
+                    .get(propertyId);
+            if (propertySetToListenerListMap != null) {
+                final List<Property.ValueChangeListener> listenerList = propertySetToListenerListMap
+                        .get(itemId);
+                if (listenerList != null) {
+                    listenerList.remove(listener);
+                    if (listenerList.isEmpty()) {
+                        propertySetToListenerListMap.remove(itemId);
+                    }
+                }
+                if (propertySetToListenerListMap.isEmpty()) {
+                    singlePropertyValueChangeListeners.remove(propertyId);
+                }
+            }
+            if (singlePropertyValueChangeListeners.isEmpty()) {
+                singlePropertyValueChangeListeners = null;
+            }
+        }
+    }
+
+    /* Internal Item and Property implementations */
+
+    /**
+     * A class implementing the {@link Item} interface to be contained in the
+     * list.
+     */
+    private class ColumnarContainerItem implements Item {
+
+        /**
+         * Item ID in the host container for this Item.
+         */
+        private final Object itemId;
+
+        private ColumnarContainerItem(Object itemId) {
+            this.itemId = itemId;
+        }
+
+        @Override
+        public Property getItemProperty(Object id) {
+            if (!columns.containsKey(id)) {
+                return null;
+            }
+
+            return new ColumnarContainerProperty(itemId, id);
+        }
+
+        @Override
+        public Collection<?> getItemPropertyIds() {
+            return Collections.unmodifiableCollection(propertyIds);
+        }
+
+        /**
+         * Gets the <code>String</code> representation of the contents of the
+         * Item. The format of the string is a space separated catenation of the
+         * <code>String</code> representations of the values of the Properties
+         * contained by the Item.
+         *
+         * @return <code>String</code> representation of the Item contents
+         */
+        @Override
+        public String toString() {
+            StringBuilder retValue = new StringBuilder();
+
+            for (final Iterator<?> i = propertyIds.iterator(); i.hasNext();) {
+                final Object propertyId = i.next();
+                retValue.append(getItemProperty(propertyId).getValue());
+                if (i.hasNext()) {
+                    retValue.append(' ');
+                }
+            }
+
+            return retValue.toString();
+        }
+
+        @Override
+        public int hashCode() {
+            return itemId.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null
+                    || !obj.getClass().equals(ColumnarContainerItem.class)) {
+                return false;
+            }
+            final ColumnarContainerItem li = (ColumnarContainerItem) obj;
+            return getHost() == li.getHost() && itemId.equals(li.itemId);
+        }
+
+        private ColumnarIndexedContainer getHost() {
+            return ColumnarIndexedContainer.this;
+        }
+
+        /**
+         * The items do not support adding new properties. Add properties at
+         * container level. See
+         * {@link ColumnarIndexedContainer#addContainerProperty(Object, Class, Object)}
+         *
+         * @see Item#addProperty(Object, Property)
+         */
+        @Override
+        public boolean addItemProperty(Object id, Property property)
+                throws UnsupportedOperationException {
+            throw new UnsupportedOperationException("Columnar container item "
+                    + "does not support adding new properties");
+        }
+
+        /**
+         * The items do not support removing properties. Remove properties at
+         * container level. See
+         * {@link ColumnarIndexedContainer#removeContainerProperty(Object)}
+         *
+         * @see Item#removeProperty(Object)
+         */
+        @Override
+        public boolean removeItemProperty(Object id)
+                throws UnsupportedOperationException {
+            throw new UnsupportedOperationException(
+                    "Columnar container item does not support property removal");
+        }
+
+    }
+
+    /**
+     * A class implementing the {@link Property} interface for the value of one
+     * column in one row.
+     */
+    private class ColumnarContainerProperty<T>
+            implements Property<T>, Property.ValueChangeNotifier {
+
+        /**
+         * ID of the Item, where this property resides.
+         */
+        private final Object itemId;
+
+        /**
+         * Id of the Property.
+         */
+        private final Object propertyId;
+
+        private ColumnarContainerProperty(Object itemId, Object propertyId) {
+            if (itemId == null || propertyId == null) {
+                // Null ids are not accepted
+                throw new NullPointerException(
+                        "Container item or property ids can not be null");
+            }
+            this.propertyId = propertyId;
+            this.itemId = itemId;
+        }
+
+        @Override
+        public Class<T> getType() {
+            return (Class<T>) ColumnarIndexedContainer.this.getType(propertyId);
+        }
+
+        @Override
+        public T getValue() {
+            Integer row = rows.get(itemId);
+            Column column = columns.get(propertyId);
+            if (row == null || column == null) {
+                return null;
+            }
+            return (T) column.get(row);
+        }
+
+        @Override
+        public boolean isReadOnly() {
+            return readOnlyProperties.contains(this);
+        }
+
+        @Override
+        public void setReadOnly(boolean newStatus) {
+            if (newStatus) {
+                readOnlyProperties.add(this);
+            } else {
+                readOnlyProperties.remove(this);
+            }
+        }
+
+        @Override
+        public void setValue(Object newValue)
+                throws Property.ReadOnlyException {
+            Column column = columns.get(propertyId);
+
+            // Support null values on all types
+            if (newValue != null
+                    && !column.type.isAssignableFrom(newValue.getClass())) {
+                throw new IllegalArgumentException(
+                        "Value is of invalid type, got "
+                                + newValue.getClass().getName() + " but "
+                                + column.type.getName() + " was expected");
+            }
+            column.set(rows.get(itemId), newValue);
+
+            updatePropertyIndex(itemId, propertyId);
+
+            // update the container filtering if this property is being filtered
+            if (isPropertyFiltered(propertyId)) {
+                filterAll();
+            }
+
+            firePropertyValueChange(this);
+        }
+
+        @Override
+        public int hashCode() {
+            return itemId.hashCode() ^ propertyId.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null || !obj.getClass()
+                    .equals(ColumnarContainerProperty.class)) {
+                return false;
+            }
+            final ColumnarContainerProperty lp = (ColumnarContainerProperty) obj;
+            return lp.getHost() == getHost() && lp.propertyId.equals(propertyId)
+                    && lp.itemId.equals(itemId);
+        }
+
+        @Override
+        public void addValueChangeListener(
+                Property.ValueChangeListener listener) {
+            addSinglePropertyChangeListener(propertyId, itemId, listener);
+        }
+
+        /**
+         * @deprecated As of 7.0, replaced by
+         *             {@link #addValueChangeListener(Property.ValueChangeListener)}
+         */
+        @Override
+        @Deprecated
+        public void addListener(Property.ValueChangeListener listener) {
+            addValueChangeListener(listener);
+        }
+
+        @Override
+        public void removeValueChangeListener(
+                Property.ValueChangeListener listener) {
+            removeSinglePropertyChangeListener(propertyId, itemId, listener);
+        }
+
+        /**
+         * @deprecated As of 7.0, replaced by
+         *             {@link #removeValueChangeListener(Property.ValueChangeListener)}
+         */
+        @Override
+        @Deprecated
+        public void removeListener(Property.ValueChangeListener listener) {
+            removeValueChangeListener(listener);
+        }
+
+        private ColumnarIndexedContainer getHost() {
+            return ColumnarIndexedContainer.this;
+        }
+
+    }
+
+    /* Sorting */
+
+    @Override
+    public void sort(Object[] propertyId, boolean[] ascending) {
+        // Same properties as DefaultItemSorter uses
+        Collection<?> sortable = getSortableContainerPropertyIds();
+        List<Column> sortedColumns = new ArrayList<Column>();
+        List<Boolean> directions = new ArrayList<Boolean>();
+        for (int i = 0; i < propertyId.length; i++) {
+            if (sortable.contains(propertyId[i])) {
+                sortedColumns.add(columns.get(propertyId[i]));
+                directions.add(i < ascending.length ? ascending[i] : true);
+            }
+        }
+        sortColumns = sortedColumns.toArray(new Column[sortedColumns.size()]);
+        sortAscending = new boolean[directions.size()];
+        for (int i = 0; i < sortAscending.length; i++) {
+            sortAscending[i] = directions.get(i);
+        }
+        try {
+            sortContainer(propertyId, ascending);
+        } finally {
+            sortColumns = null;
+            sortAscending = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When the default item sorter is used, the rows are sorted by comparing
+     * the column values directly instead of through items and properties.
+     */
+    @Override
+    protected void doSort() {
+        if (getItemSorter() != defaultItemSorter || sortColumns == null) {
+            super.doSort();
+            return;
+        }
+        // Like DefaultItemSorter, place items hidden by filters last in
+        // their current order
+        List<Object> itemIds = getAllItemIds();
+        List<Object> visibleItemIds = getVisibleItemIds();
+        int[] sortedRows = new int[visibleItemIds.size()];
+        List<Object> hiddenItemIds = new ArrayList<Object>(
+                itemIds.size() - sortedRows.length);
+        int count = 0;
+        for (Object itemId : itemIds) {
+            if (visibleItemIds == itemIds || visibleItemIds.contains(itemId)) {
+                sortedRows[count++] = rows.get(itemId);
+            } else {
+                hiddenItemIds.add(itemId);
+            }
+        }
+        sortedRows = sortRows(sortedRows);
+        ListSet<Object> sortedItemIds = new ListSet<Object>(itemIds.size());
+        for (int row : sortedRows) {
+            sortedItemIds.add(rowItemIds[row]);
+        }
+        sortedItemIds.addAll(hiddenItemIds);
+        setAllItemIds(sortedItemIds);
+    }
+
+    private int compareRows(int row1, int row2) {
+        for (int i = 0; i < sortColumns.length; i++) {
+            int result = sortAscending[i] ? sortColumns[i].compare(row1, row2)
+                    : sortColumns[i].compare(row2, row1);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Sorts the given rows with a stable merge sort, like
+     * {@link Collections#sort(List, java.util.Comparator)} but without boxing
+     * the row numbers.
+     *
+     * @param rows
+     *            the rows to sort
+     * @return the sorted rows, either the given array or a new one
+     */
+    private int[] sortRows(int[] rows) {
+        final int run = 32;
+        int length = rows.length;
+        for (int start = 0; start < length; start += run) {
+            int end = Math.min(start + run, length);
+            for (int i = start + 1; i < end; i++) {
+                int row = rows[i];
+                int j = i;
+                while (j > start && compareRows(rows[j - 1], row) > 0) {
+                    rows[j] = rows[j - 1];
+                    j--;
+                }
+                rows[j] = row;
+            }
+        }
+        int[] source = rows;
+        int[] target = new int[length];
+        for (int width = run; width < length; width *= 2) {
+            for (int start = 0; start < length; start += 2 * width) {
+                int middle = Math.min(start + width, length);
+                int end = Math.min(start + 2 * width, length);
+                int left = start;
+                int right = middle;
+                for (int i = start; i < end; i++) {
+                    if (right >= end || left < middle
+                            && compareRows(source[left], source[right]) <= 0) {
+                        target[i] = source[left++];
+                    } else {
+                        target[i] = source[right++];
+                    }
+                }
+            }
+            int[] merged = target;
+            target = source;
+            source = merged;
+        }
+        return source;
+    }
+
+    @Override
+    public Collection<?> getSortableContainerPropertyIds() {
+        return getSortablePropertyIds();
+    }
+
+    @Override
+    public ItemSorter getItemSorter() {
+        return super.getItemSorter();
+    }
+
+    @Override
+    public void setItemSorter(ItemSorter itemSorter) {
+        super.setItemSorter(itemSorter);
+    }
+
+    /**
+     * Adds an index for the values of a property, so that filtering on the
+     * property only evaluates the filters for the items the index finds. The
+     * index costs memory per item on top of the value column and is updated
+     * whenever a value of the property is set through the container.
+     *
+     * @see AbstractInMemoryContainer#addPropertyIndex(Object)
+     *
+     * @param propertyId
+     *            the id of the property to index
+     * @return true if the index was added, false if the property was already
+     *         indexed
+     * @throws IllegalArgumentException
+     *             if the container has no property with the given id
+     * @since 8.12
+     */
+    @Override
+    public boolean addPropertyIndex(Object propertyId) {
+        return super.addPropertyIndex(propertyId);
+    }
+
+    /**
+     * Removes the index of a property added with
+     * {@link #addPropertyIndex(Object)}.
+     *
+     * @param propertyId
+     *            the id of the indexed property
+     * @return true if the index was removed, false if the property was not
+     *         indexed
+     * @since 8.12
+     */
+    @Override
+    public boolean removePropertyIndex(Object propertyId) {
+        return super.removePropertyIndex(propertyId);
+    }
+
+    /**
+     * Checks if a property has been indexed with
+     * {@link #addPropertyIndex(Object)}.
+     *
+     * @param propertyId
+     *            the id of the property
+     * @return true if the property is indexed, false otherwise
+     * @since 8.12
+     */
+    @Override
+    public boolean isPropertyIndexed(Object propertyId) {
+        return super.isPropertyIndexed(propertyId);
+    }
+
+    /* Filtering */
+
+    @Override
+    public void addContainerFilter(Object propertyId, String filterString,
+            boolean ignoreCase, boolean onlyMatchPrefix) {
+        try {
+            addFilter(new SimpleStringFilter(propertyId, filterString,
+                    ignoreCase, onlyMatchPrefix));
+        } catch (UnsupportedFilterException e) {
+            // the filter instance created here is always valid for in-memory
+            // containers
+        }
+    }
+
+    @Override
+    public void removeAllContainerFilters() {
+        removeAllFilters();
+    }
+
+    @Override
+    public void removeContainerFilters(Object propertyId) {
+        removeFilters(propertyId);
+    }
+
+    @Override
+    public void addContainerFilter(Filter filter)
+            throws UnsupportedFilterException {
+        addFilter(filter);
+    }
+
+    @Override
+    public void removeContainerFilter(Filter filter) {
+        removeFilter(filter);
+    }
+
+    @Override
+    public boolean hasContainerFilters() {
+        return super.hasContainerFilters();
+    }
+
+    @Override
+    public Collection<Filter> getContainerFilters() {
+        return super.getContainerFilters();
+    }
+
+}
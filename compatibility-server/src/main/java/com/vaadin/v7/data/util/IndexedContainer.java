@@ -306,6 +306,7 @@ public class IndexedContainer
         // Removes the Property to Property list and types
         propertyIds.remove(propertyId);
         types.remove(propertyId);
+        removePropertyIndex(propertyId);
         if (defaultPropertyValues != null) {
             defaultPropertyValues.remove(propertyId);
         }
@@ -862,6 +863,8 @@ public class IndexedContainer
                                 + getType().getName() + " was expected");
             }
 
+            updatePropertyIndex(itemId, propertyId);
+
             // update the container filtering if this property is being filtered
             if (isPropertyFiltered(propertyId)) {
                 filterAll();
@@ -964,6 +967,57 @@ public class IndexedContainer
         super.setItemSorter(itemSorter);
     }
 
+    /**
+     * Adds an index for the values of a property, so that filtering on the
+     * property only evaluates the filters for the items the index finds. The
+     * index is kept up to date when items are added or removed and when
+     * property values are set through the container.
+     *
+     * @see AbstractInMemoryContainer#addPropertyIndex(Object)
+     *
+     * @param propertyId
+     *            the id of the property to index
+     * @return true if the index was added, false if the property was already
+     *         indexed
+     * @throws IllegalArgumentException
+     *             if the container has no property with the given id
+     * @since 8.12
+     */
+    @Override
+    public boolean addPropertyIndex(Object propertyId) {
+        return super.addPropertyIndex(propertyId);
+    }
+
+    /**
+     * Removes the index of a property added with
+     * {@link #addPropertyIndex(Object)}. The index is also removed when the
+     * property is removed from the container.
+     *
+     * @param propertyId
+     *            the id of the indexed property
+     * @return true if the index was removed, false if the property was not
+     *         indexed
+     * @since 8.12
+     */
+    @Override
+    public boolean removePropertyIndex(Object propertyId) {
+        return super.removePropertyIndex(propertyId);
+    }
+
+    /**
+     * Checks if a property has been indexed with
+     * {@link #addPropertyIndex(Object)}.
+     *
+     * @param propertyId
+     *            the id of the property
+     * @return true if the property is indexed, false otherwise
+     * @since 8.12
+     */
+    @Override
+    public boolean isPropertyIndexed(Object propertyId) {
+        return super.isPropertyIndexed(propertyId);
+    }
+
     /**
      * Supports cloning of the IndexedContainer cleanly.
      *
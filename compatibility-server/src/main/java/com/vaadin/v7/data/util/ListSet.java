@@ -44,6 +44,28 @@ public class ListSet<E> extends ArrayList<E> {
      */
     private Map<E, Integer> duplicates = new HashMap<E, Integer>();
 
+    /**
+     * Contains a map from an element to its index in the list, used by
+     * {@link #indexOf(Object)} when enabled with {@link #enableIndexMap()}.
+     * Built on the first lookup and kept up to date when elements are
+     * appended.
+     */
+    private transient Map<Object, Integer> indexes;
+
+    /**
+     * The modification count of the list that {@link #indexes} corresponds
+     * to.
+     */
+    private transient int indexModCount;
+
+    /**
+     * Whether {@link #indexOf(Object)} may use {@link #indexes}. Cleared when
+     * the list is modified in any other way than by appending, so that lists
+     * modified between lookups keep using the plain search instead of
+     * rebuilding the map every time.
+     */
+    private transient boolean indexMapEnabled;
+
     public ListSet() {
         super();
         itemSet = new HashSet<E>();
@@ -81,6 +103,10 @@ public class ListSet<E> extends ArrayList<E> {
 
         if (super.add(e)) {
             itemSet.add(e);
+            if (indexes != null && indexModCount == modCount - 1) {
+                indexes.put(e, size() - 1);
+                indexModCount = modCount;
+            }
             return true;
         } else {
             return false;
@@ -148,9 +174,49 @@ public class ListSet<E> extends ArrayList<E> {
             return -1;
         }
 
+        if (indexMapEnabled) {
+            if (indexes == null) {
+                buildIndexMap();
+                return indexes.get(o);
+            } else if (indexModCount == modCount) {
+                return indexes.get(o);
+            } else {
+                // Modified in some other way than appending
+                disableIndexMap();
+            }
+        }
         return super.indexOf(o);
     }
 
+    /**
+     * Lets {@link #indexOf(Object)} find elements through a map from each
+     * element to its index instead of searching the list. The map is built on
+     * the next lookup and kept while elements are only appended to the list.
+     * Any other modification disables the map until this method is called
+     * again.
+     *
+     * This should be called after the list has been built or reordered as a
+     * whole, not for lists that are modified between lookups.
+     */
+    void enableIndexMap() {
+        indexMapEnabled = true;
+        indexes = null;
+    }
+
+    private void buildIndexMap() {
+        indexes = new HashMap<Object, Integer>(size() * 4 / 3 + 1);
+        for (int i = size() - 1; i >= 0; i--) {
+            // the first index wins if there are temporary duplicates
+            indexes.put(get(i), i);
+        }
+        indexModCount = modCount;
+    }
+
+    private void disableIndexMap() {
+        indexMapEnabled = false;
+        indexes = null;
+    }
+
     @Override
     public int lastIndexOf(Object o) {
         if (!contains(o)) {
@@ -211,6 +277,8 @@ public class ListSet<E> extends ArrayList<E> {
         }
 
         E old = super.set(index, element);
+        // set does not change modCount
+        disableIndexMap();
         removeFromSet(old);
         itemSet.add(element);
 
@@ -269,6 +337,7 @@ public class ListSet<E> extends ArrayList<E> {
     public Object clone() {
         ListSet<E> v = (ListSet<E>) super.clone();
         v.itemSet = new HashSet<E>(itemSet);
+        v.disableIndexMap();
         return v;
     }
 
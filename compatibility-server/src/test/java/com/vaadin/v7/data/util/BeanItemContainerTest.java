@@ -26,6 +26,7 @@ import com.vaadin.v7.data.Container.ItemSetChangeListener;
 import com.vaadin.v7.data.Item;
 import com.vaadin.v7.data.util.NestedMethodPropertyTest.Address;
 import com.vaadin.v7.data.util.filter.Compare;
+import com.vaadin.v7.data.util.filter.SimpleStringFilter;
 
 /**
  * Test basic functionality of BeanItemContainer.
@@ -989,4 +990,30 @@ public class BeanItemContainerTest extends AbstractBeanContainerTestBase {
                 .getItemProperty("address.street").getValue());
 
     }
+
+    @Test
+    public void propertyIndex_filteringUpdatedOnPropertyValueChange() {
+        BeanItemContainer<Person> container = new BeanItemContainer<Person>(
+                Person.class);
+        Person jack = new Person("Jack");
+        Person john = new Person("John");
+        container.addAll(Arrays.asList(jack, john));
+        container.addPropertyIndex("name");
+        container.addContainerFilter(new Compare.Equal("name", "John"));
+        assertEquals(Arrays.asList(john), container.getItemIds());
+
+        container.getItem(jack).getItemProperty("name").setValue("John");
+        assertEquals(Arrays.asList(jack, john), container.getItemIds());
+
+        container.removePropertyIndex("name");
+        container.getItem(john).getItemProperty("name").setValue("Jill");
+        assertEquals(Arrays.asList(jack), container.getItemIds());
+
+        container.addPropertyIndex("name");
+        container.removeAllContainerFilters();
+        container.addContainerFilter(
+                new SimpleStringFilter("name", "ji", true, true));
+        container.getItem(jack).getItemProperty("name").setValue("Jim");
+        assertEquals(Arrays.asList(jack, john), container.getItemIds());
+    }
 }
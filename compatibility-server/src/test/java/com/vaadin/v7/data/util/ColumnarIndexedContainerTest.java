@@ -0,0 +1,211 @@
+package com.vaadin.v7.data.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.vaadin.v7.data.Container;
+import com.vaadin.v7.data.Item;
+import com.vaadin.v7.data.util.filter.Compare;
+
+public class ColumnarIndexedContainerTest
+        extends AbstractInMemoryContainerTestBase {
+
+    @Test
+    public void testBasicOperations() {
+        testBasicContainerOperations(new ColumnarIndexedContainer());
+    }
+
+    @Test
+    public void testFiltering() {
+        testContainerFiltering(new ColumnarIndexedContainer());
+    }
+
+    @Test
+    public void testSorting() {
+        testContainerSorting(new ColumnarIndexedContainer());
+    }
+
+    @Test
+    public void testSortingAndFiltering() {
+        testContainerSortingAndFiltering(new ColumnarIndexedContainer());
+    }
+
+    @Test
+    public void testContainerOrdered() {
+        testContainerOrdered(new ColumnarIndexedContainer());
+    }
+
+    @Test
+    public void testContainerIndexed() {
+        testContainerIndexed(new ColumnarIndexedContainer(), sampleData[2], 2,
+                true, "newItemId", true);
+    }
+
+    private static void addProperties(Container container) {
+        container.addContainerProperty("int", Integer.class, null);
+        container.addContainerProperty("long", Long.class, 7L);
+        container.addContainerProperty("double", Double.class, null);
+        container.addContainerProperty("float", Float.class, null);
+        container.addContainerProperty("boolean", Boolean.class, null);
+        container.addContainerProperty("string", String.class, null);
+    }
+
+    private static void addRow(Container container, Object itemId,
+            Integer intValue, Double doubleValue, Boolean booleanValue,
+            String stringValue) {
+        Item item = container.addItem(itemId);
+        item.getItemProperty("int").setValue(intValue);
+        item.getItemProperty("double").setValue(doubleValue);
+        item.getItemProperty("boolean").setValue(booleanValue);
+        item.getItemProperty("string").setValue(stringValue);
+        item.getItemProperty("float").setValue(
+                doubleValue == null ? null : doubleValue.floatValue());
+    }
+
+    private static void addRows(Container container) {
+        addRow(container, "a", 3, 1.5, true, "x");
+        addRow(container, "b", null, -0.0, false, null);
+        addRow(container, "c", -1, Double.NaN, null, "z");
+        addRow(container, "d", 3, null, true, "y");
+        addRow(container, "e", Integer.MIN_VALUE, 0.0, false, "x");
+    }
+
+    @Test
+    public void primitiveValues_storedAndReadBack() {
+        ColumnarIndexedContainer container = new ColumnarIndexedContainer();
+        addProperties(container);
+        addRows(container);
+
+        Item item = container.getItem("c");
+        assertEquals(-1, item.getItemProperty("int").getValue());
+        assertEquals(Double.NaN, item.getItemProperty("double").getValue());
+        assertEquals(Float.NaN, item.getItemProperty("float").getValue());
+        assertNull(item.getItemProperty("boolean").getValue());
+        assertEquals(7L, item.getItemProperty("long").getValue());
+        assertEquals("z", item.getItemProperty("string").getValue());
+        assertNull(container.getItem("b").getItemProperty("int").getValue());
+        assertEquals(false,
+                container.getItem("b").getItemProperty("boolean").getValue());
+        assertEquals(Integer.class, container.getType("int"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setValue_wrongType_throws() {
+        ColumnarIndexedContainer container = new ColumnarIndexedContainer();
+        addProperties(container);
+        container.addItem("a").getItemProperty("int").setValue(1L);
+    }
+
+    @Test
+    public void removeItem_rowReusedWithoutOldValues() {
+        ColumnarIndexedContainer container = new ColumnarIndexedContainer();
+        addProperties(container);
+        addRows(container);
+
+        container.removeItem("a");
+        Item item = container.addItem("f");
+        assertNull(item.getItemProperty("int").getValue());
+        assertNull(item.getItemProperty("boolean").getValue());
+        assertEquals(7L, item.getItemProperty("long").getValue());
+        assertEquals(Arrays.asList("b", "c", "d", "e", "f"),
+                container.getItemIds());
+        assertEquals(3, container.getItem("d").getItemProperty("int")
+                .getValue());
+
+        container.removeAllItems();
+        assertEquals(0, container.size());
+        addRow(container, "a", 1, 1.0, true, "x");
+        assertEquals(1,
+                container.getItem("a").getItemProperty("int").getValue());
+    }
+
+    @Test
+    public void addContainerProperty_defaultValueSetForExistingItems() {
+        ColumnarIndexedContainer container = new ColumnarIndexedContainer();
+        container.addItem("a");
+        container.addContainerProperty("double", Double.class, 2.5);
+        container.addItem("b");
+
+        assertEquals(2.5,
+                container.getItem("a").getItemProperty("double").getValue());
+        assertEquals(2.5,
+                container.getItem("b").getItemProperty("double").getValue());
+
+        container.removeContainerProperty("double");
+        assertNull(container.getItem("a").getItemProperty("double"));
+        assertNull(container.getType("double"));
+    }
+
+    @Test
+    public void sort_sameOrderAsIndexedContainer() {
+        Object[][] sorts = { { "int" }, { "double" }, { "float" },
+                { "boolean" }, { "string" }, { "int", "string" },
+                { "boolean", "double" } };
+        for (Object[] sort : sorts) {
+            for (boolean ascending : new boolean[] { true, false }) {
+                boolean[] directions = new boolean[sort.length];
+                Arrays.fill(directions, ascending);
+                directions[0] = !ascending;
+
+                IndexedContainer expected = new IndexedContainer();
+                ColumnarIndexedContainer actual = new ColumnarIndexedContainer();
+                for (Container.Sortable container : Arrays
+                        .<Container.Sortable> asList(expected, actual)) {
+                    addProperties(container);
+                    addRows(container);
+                    container.sort(sort, directions);
+                }
+
+                assertEquals(Arrays.toString(sort) + " " + ascending,
+                        expected.getItemIds(), actual.getItemIds());
+            }
+        }
+    }
+
+    @Test
+    public void sort_filteredItemsKeptLastLikeIndexedContainer() {
+        IndexedContainer expected = new IndexedContainer();
+        ColumnarIndexedContainer actual = new ColumnarIndexedContainer();
+        for (Container.Filterable container : Arrays
+                .<Container.Filterable> asList(expected, actual)) {
+            addProperties(container);
+            addRows(container);
+            container.addContainerFilter(new Compare.Equal("boolean", true));
+            ((Container.Sortable) container).sort(new Object[] { "string" },
+                    new boolean[] { false });
+        }
+        assertEquals(Arrays.asList("d", "a"), actual.getItemIds());
+
+        expected.removeAllContainerFilters();
+        actual.removeAllContainerFilters();
+        assertEquals(expected.getItemIds(), actual.getItemIds());
+    }
+
+    @Test
+    public void sort_customItemSorterUsed() {
+        ColumnarIndexedContainer container = new ColumnarIndexedContainer();
+        addProperties(container);
+        addRows(container);
+        List<Object> compared = new ArrayList<>();
+        container.setItemSorter(new DefaultItemSorter() {
+            @Override
+            public int compare(Object o1, Object o2) {
+                compared.add(o1);
+                return super.compare(o1, o2);
+            }
+        });
+
+        container.sort(new Object[] { "int" }, new boolean[] { true });
+
+        assertEquals(Arrays.asList("b", "e", "c", "a", "d"),
+                container.getItemIds());
+        assertFalse(compared.isEmpty());
+    }
+}
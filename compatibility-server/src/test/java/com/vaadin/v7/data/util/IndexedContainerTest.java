@@ -1,9 +1,12 @@
 package com.vaadin.v7.data.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.easymock.Capture;
@@ -13,7 +16,15 @@ import org.junit.Test;
 import com.vaadin.v7.data.Container.Indexed.ItemAddEvent;
 import com.vaadin.v7.data.Container.Indexed.ItemRemoveEvent;
 import com.vaadin.v7.data.Container.ItemSetChangeListener;
+import com.vaadin.v7.data.Container.Filter;
 import com.vaadin.v7.data.Item;
+import com.vaadin.v7.data.Property;
+import com.vaadin.v7.data.util.filter.And;
+import com.vaadin.v7.data.util.filter.Between;
+import com.vaadin.v7.data.util.filter.Compare;
+import com.vaadin.v7.data.util.filter.IsNull;
+import com.vaadin.v7.data.util.filter.Or;
+import com.vaadin.v7.data.util.filter.SimpleStringFilter;
 
 public class IndexedContainerTest extends AbstractInMemoryContainerTestBase {
 
@@ -529,4 +540,137 @@ public class IndexedContainerTest extends AbstractInMemoryContainerTestBase {
         ic.addItem(object1);
         assertNull(ic.getContainerProperty(object1, null));
     }
+
+    private static IndexedContainer createNumberContainer(int size) {
+        IndexedContainer container = new IndexedContainer();
+        container.addContainerProperty("number", Integer.class, null);
+        container.addContainerProperty("name", String.class, null);
+        for (int i = 0; i < size; i++) {
+            Item item = container.addItem(i);
+            item.getItemProperty("number")
+                    .setValue(i % 7 == 0 ? null : i * 37 % 50);
+            item.getItemProperty("name")
+                    .setValue((i % 3 == 0 ? "Item " : "item ") + i * 13 % 100);
+        }
+        return container;
+    }
+
+    @Test
+    public void propertyIndex_sameResultsAsWithoutIndex() {
+        IndexedContainer expected = createNumberContainer(500);
+        IndexedContainer indexed = createNumberContainer(500);
+        assertTrue(indexed.addPropertyIndex("number"));
+        assertTrue(indexed.addPropertyIndex("name"));
+        assertFalse(indexed.addPropertyIndex("name"));
+        assertTrue(indexed.isPropertyIndexed("number"));
+
+        List<Filter> filters = Arrays.asList(
+                new Compare.Equal("number", 12),
+                new Compare.Equal("number", null),
+                new Compare.Greater("number", 40),
+                new Compare.GreaterOrEqual("number", 40),
+                new Compare.Less("number", 3),
+                new Compare.LessOrEqual("number", 3),
+                new Between("number", 10, 20), new Between("number", 20, 10),
+                new Between("number", null, 5), new IsNull("number"),
+                new SimpleStringFilter("name", "Item 1", false, true),
+                new SimpleStringFilter("name", "item 1", true, true),
+                new SimpleStringFilter("name", "m 1", false, false),
+                new And(new Compare.Greater("number", 10),
+                        new SimpleStringFilter("name", "item 2", true, true)),
+                new Or(new Compare.Equal("number", 1),
+                        new Compare.Less("number", 5)),
+                new Or(new Compare.Equal("number", 1),
+                        new SimpleStringFilter("name", "9", false, false)));
+        for (Filter filter : filters) {
+            expected.addContainerFilter(filter);
+            indexed.addContainerFilter(filter);
+            assertEquals(filter.toString(), expected.getItemIds(),
+                    indexed.getItemIds());
+
+            expected.sort(new Object[] { "name" }, new boolean[] { true });
+            indexed.sort(new Object[] { "name" }, new boolean[] { true });
+            assertEquals(filter.toString(), expected.getItemIds(),
+                    indexed.getItemIds());
+
+            expected.addContainerFilter(new Compare.Less("number", 30));
+            indexed.addContainerFilter(new Compare.Less("number", 30));
+            assertEquals(filter.toString(), expected.getItemIds(),
+                    indexed.getItemIds());
+
+            expected.removeAllContainerFilters();
+            indexed.removeAllContainerFilters();
+        }
+    }
+
+    @Test
+    public void propertyIndex_updatedOnValueChangeAndItemSetChange() {
+        IndexedContainer container = createNumberContainer(20);
+        container.addPropertyIndex("number");
+        // item 0 is not visible when filtered
+        Property<Object> number = container.getContainerProperty(0, "number");
+        container.addContainerFilter(new Between("number", 40, 49));
+        assertEquals(Arrays.asList(4, 8, 12, 16), container.getItemIds());
+
+        container.getContainerProperty(4, "number").setValue(1);
+        number.setValue(45);
+        assertEquals(Arrays.asList(0, 8, 12, 16), container.getItemIds());
+
+        container.removeItem(8);
+        container.addItemAt(1, 100).getItemProperty("number").setValue(47);
+        assertEquals(Arrays.asList(0, 100, 12, 16), container.getItemIds());
+
+        container.removeAllItems();
+        assertEquals(0, container.size());
+        container.addItem(5).getItemProperty("number").setValue(41);
+        container.addItem(6).getItemProperty("number").setValue(50);
+        assertEquals(Arrays.asList(5), container.getItemIds());
+
+        assertTrue(container.removeContainerProperty("number"));
+        assertFalse(container.isPropertyIndexed("number"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addPropertyIndex_nonExistingProperty_throws() {
+        new IndexedContainer().addPropertyIndex("xyz");
+    }
+
+    @Test
+    public void indexOfId_correctAfterModifications() {
+        IndexedContainer container = createNumberContainer(50);
+        List<Object> expected = new ArrayList<Object>(
+                container.getItemIds());
+        for (int round = 0; round < 8; round++) {
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(i, container.indexOfId(expected.get(i)));
+            }
+            switch (round) {
+            case 0:
+                container.addItem("appended");
+                break;
+            case 1:
+                container.sort(new Object[] { "name" },
+                        new boolean[] { false });
+                break;
+            case 2:
+                container.removeItem(expected.get(10));
+                break;
+            case 3:
+                container.addItemAt(3, "new");
+                break;
+            case 4:
+                container.addContainerFilter(
+                        new SimpleStringFilter("name", "item", false, true));
+                break;
+            case 5:
+                container.addItem("item appended").getItemProperty("name")
+                        .setValue("item appended");
+                break;
+            default:
+                container.removeItem(expected.get(round));
+            }
+            expected = new ArrayList<Object>(container.getItemIds());
+        }
+        assertEquals(-1, container.indexOfId("missing"));
+    }
 }
@@ -1,6 +1,7 @@
 package com.vaadin.v7.tests.server.component.grid;
 
 import java.lang.reflect.Field;
+import java.util.Collections;
 
 import org.easymock.EasyMock;
 
@@ -40,6 +41,8 @@ public class TestGrid extends Grid {
                 .createNiceMock(ConnectorTracker.class);
         EasyMock.expect(mockUI.getConnectorTracker()).andReturn(mockCT)
                 .anyTimes();
+        EasyMock.expect(mockCT.getBroadcastTopics())
+                .andReturn(Collections.emptyList()).anyTimes();
         EasyMock.replay(mockUI, mockCT);
 
         setParent(mockUI);
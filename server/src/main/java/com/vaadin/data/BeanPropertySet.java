@@ -17,16 +17,23 @@ package com.vaadin.data;
 
 import com.vaadin.data.util.BeanUtil;
 import com.vaadin.server.Setter;
+import com.vaadin.util.ReflectTools;
 import kava.beans.IntrospectionException;
 import kava.beans.PropertyDescriptor;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -109,13 +116,12 @@ public class BeanPropertySet<T> implements PropertySet<T> {
             super(propertySet, propertyHolderType, descriptor);
         }
 
+        private transient ValueProvider<Object, Object> reader;
+        private transient Setter<Object, Object> writer;
+
         @Override
         public ValueProvider<T, V> getGetter() {
-            return bean -> {
-                Method readMethod = getDescriptor().getReadMethod();
-                Object value = invokeWrapExceptions(readMethod, bean);
-                return getType().cast(value);
-            };
+            return bean -> getType().cast(getReader().apply(bean));
         }
 
         @Override
@@ -124,17 +130,25 @@ public class BeanPropertySet<T> implements PropertySet<T> {
                 return Optional.empty();
             }
 
-            Setter<T, V> setter = (bean, value) -> {
-                // Do not "optimize" this getter call,
-                // if its done outside the code block, that will produce
-                // NotSerializableException because of some lambda compilation
-                // magic
-                Method innerSetter = getDescriptor().getWriteMethod();
-                invokeWrapExceptions(innerSetter, bean, value);
-            };
+            Setter<T, V> setter = (bean, value) -> getWriter().accept(bean,
+                    value);
             return Optional.of(setter);
         }
 
+        private ValueProvider<Object, Object> getReader() {
+            if (reader == null) {
+                reader = createReader(getDescriptor().getReadMethod());
+            }
+            return reader;
+        }
+
+        private Setter<Object, Object> getWriter() {
+            if (writer == null) {
+                writer = createWriter(getDescriptor().getWriteMethod());
+            }
+            return writer;
+        }
+
         private Object writeReplace() {
             /*
              * Instead of serializing this actual property definition, only
@@ -168,6 +182,10 @@ public class BeanPropertySet<T> implements PropertySet<T> {
 
         private final PropertyDefinition<T, ?> parent;
 
+        private transient ValueProvider<T, ?> parentGetter;
+        private transient ValueProvider<Object, Object> reader;
+        private transient Setter<Object, Object> writer;
+
         public NestedBeanPropertyDefinition(BeanPropertySet<T> propertySet,
                 PropertyDefinition<T, ?> parent,
                 PropertyDescriptor descriptor) {
@@ -177,12 +195,8 @@ public class BeanPropertySet<T> implements PropertySet<T> {
 
         @Override
         public ValueProvider<T, V> getGetter() {
-            return bean -> {
-                Method readMethod = getDescriptor().getReadMethod();
-                Object value = invokeWrapExceptions(readMethod,
-                        parent.getGetter().apply(bean));
-                return getType().cast(value);
-            };
+            return bean -> getType()
+                    .cast(getReader().apply(getParentGetter().apply(bean)));
         }
 
         @Override
@@ -191,18 +205,32 @@ public class BeanPropertySet<T> implements PropertySet<T> {
                 return Optional.empty();
             }
 
-            Setter<T, V> setter = (bean, value) -> {
-                // Do not "optimize" this getter call,
-                // if its done outside the code block, that will produce
-                // NotSerializableException because of some lambda compilation
-                // magic
-                Method innerSetter = getDescriptor().getWriteMethod();
-                invokeWrapExceptions(innerSetter,
-                        parent.getGetter().apply(bean), value);
-            };
+            Setter<T, V> setter = (bean, value) -> getWriter()
+                    .accept(getParentGetter().apply(bean), value);
             return Optional.of(setter);
         }
 
+        private ValueProvider<T, ?> getParentGetter() {
+            if (parentGetter == null) {
+                parentGetter = parent.getGetter();
+            }
+            return parentGetter;
+        }
+
+        private ValueProvider<Object, Object> getReader() {
+            if (reader == null) {
+                reader = createReader(getDescriptor().getReadMethod());
+            }
+            return reader;
+        }
+
+        private Setter<Object, Object> getWriter() {
+            if (writer == null) {
+                writer = createWriter(getDescriptor().getWriteMethod());
+            }
+            return writer;
+        }
+
         @Override
         public String getName() {
             return parent.getName() + "." + super.getName();
@@ -494,6 +522,142 @@ public class BeanPropertySet<T> implements PropertySet<T> {
                 && readMethod.getDeclaringClass() != Object.class;
     }
 
+    /**
+     * Creates a function that invokes the given getter. When possible, the
+     * function calls the getter directly through a class generated with
+     * {@link LambdaMetafactory}. Otherwise, or if the bean is not of the type
+     * declaring the getter, reflection is used. The same exceptions are thrown
+     * in both cases.
+     *
+     * @param readMethod
+     *            the getter to invoke, not <code>null</code>
+     * @return a function returning the property value of the given bean
+     */
+    private static ValueProvider<Object, Object> createReader(
+            Method readMethod) {
+        Function<Object, Object> generated = null;
+        if (isVisible(readMethod.getDeclaringClass())) {
+            generated = generateFunction(Function.class, "apply",
+                    MethodType.methodType(Object.class, Object.class),
+                    readMethod);
+        }
+        if (generated == null) {
+            return bean -> invokeWrapExceptions(readMethod, bean);
+        }
+        Function<Object, Object> function = generated;
+        Class<?> beanType = readMethod.getDeclaringClass();
+        return bean -> {
+            if (!beanType.isInstance(bean)) {
+                return invokeWrapExceptions(readMethod, bean);
+            }
+            try {
+                return function.apply(bean);
+            } catch (Throwable e) {
+                throw new RuntimeException(new InvocationTargetException(e));
+            }
+        };
+    }
+
+    /**
+     * Creates a function that invokes the given setter. Works like
+     * {@link #createReader(Method)}; values that the setter does not accept
+     * are also passed through reflection.
+     *
+     * @param writeMethod
+     *            the setter to invoke, not <code>null</code>
+     * @return a function setting the property value of the given bean
+     */
+    private static Setter<Object, Object> createWriter(Method writeMethod) {
+        Class<?> valueType = writeMethod.getParameterTypes()[0];
+        BiConsumer<Object, Object> generated = null;
+        if (isVisible(writeMethod.getDeclaringClass())
+                && isVisible(valueType)) {
+            generated = generateFunction(BiConsumer.class, "accept",
+                    MethodType.methodType(void.class, Object.class,
+                            Object.class),
+                    writeMethod);
+        }
+        if (generated == null) {
+            return (bean, value) -> invokeWrapExceptions(writeMethod, bean,
+                    value);
+        }
+        BiConsumer<Object, Object> function = generated;
+        Class<?> beanType = writeMethod.getDeclaringClass();
+        boolean nullable = !valueType.isPrimitive();
+        Class<?> boxedValueType = ReflectTools.convertPrimitiveType(valueType);
+        return (bean, value) -> {
+            if (!beanType.isInstance(bean) || (value == null ? !nullable
+                    : !boxedValueType.isInstance(value))) {
+                invokeWrapExceptions(writeMethod, bean, value);
+                return;
+            }
+            try {
+                function.accept(bean, value);
+            } catch (Throwable e) {
+                throw new RuntimeException(new InvocationTargetException(e));
+            }
+        };
+    }
+
+    /**
+     * Generates an implementation of a functional interface that calls the
+     * given method with the bean as the first argument.
+     *
+     * @param functionType
+     *            the functional interface to implement
+     * @param functionMethodName
+     *            the name of the method of the functional interface
+     * @param functionMethodType
+     *            the erased type of the method of the functional interface
+     * @param method
+     *            the method to call
+     * @return the generated function or <code>null</code> if the method
+     *         cannot be called from generated code
+     */
+    @SuppressWarnings("unchecked")
+    private static <F> F generateFunction(Class<? super F> functionType,
+            String functionMethodName, MethodType functionMethodType,
+            Method method) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle handle = lookup.unreflect(method);
+            MethodType instantiatedType = handle.type().wrap();
+            if (functionMethodType.returnType() == void.class) {
+                instantiatedType = instantiatedType
+                        .changeReturnType(void.class);
+            }
+            CallSite site = LambdaMetafactory.metafactory(lookup,
+                    functionMethodName, MethodType.methodType(functionType),
+                    functionMethodType, handle, instantiatedType);
+            return (F) site.getTarget().invoke();
+        } catch (Throwable e) {
+            // Not accessible from here, use reflection instead
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether the given type is resolved to the same class from the
+     * class loader of this class, which is needed for generated functions
+     * using the type.
+     *
+     * @param type
+     *            the type to check
+     * @return <code>true</code> if the type is visible, <code>false</code>
+     *         otherwise
+     */
+    private static boolean isVisible(Class<?> type) {
+        if (type.isPrimitive()) {
+            return true;
+        }
+        try {
+            return Class.forName(type.getName(), false,
+                    BeanPropertySet.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
     private static Object invokeWrapExceptions(Method method, Object target,
             Object... parameters) {
         try {
@@ -25,6 +25,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -32,8 +34,8 @@ import java.util.stream.Stream;
 import com.vaadin.data.ValueProvider;
 import com.vaadin.data.provider.DataChangeEvent.DataRefreshEvent;
 import com.vaadin.server.AbstractExtension;
-import com.vaadin.server.KeyMapper;
 import com.vaadin.server.SerializableConsumer;
+import com.vaadin.server.SerializableSupplier;
 import com.vaadin.shared.Range;
 import com.vaadin.shared.Registration;
 import com.vaadin.shared.data.DataCommunicatorClientRpc;
@@ -41,6 +43,8 @@ import com.vaadin.shared.data.DataCommunicatorConstants;
 import com.vaadin.shared.data.DataRequestRpc;
 import com.vaadin.shared.extension.datacommunicator.DataCommunicatorState;
 import com.vaadin.ui.ComboBox;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
 
 import elemental.json.Json;
 import elemental.json.JsonArray;
@@ -140,6 +144,16 @@ public class DataCommunicator<T> extends AbstractExtension {
             droppedData.clear();
         }
 
+        /**
+         * Immediately drops the data the client has reported as dropped,
+         * without waiting for the next time rows are pushed. Rows that are
+         * requested again get new keys.
+         */
+        private void releaseDroppedData() {
+            dropData(droppedData);
+            droppedData.clear();
+        }
+
         /**
          * Marks all currently active data objects to be dropped.
          *
@@ -232,6 +246,29 @@ public class DataCommunicator<T> extends AbstractExtension {
     private final List<QuerySortOrder> backEndSorting = new ArrayList<>();
     private final DataCommunicatorClientRpc rpc;
 
+    /**
+     * Executor for fetching rows without holding the session lock, or
+     * <code>null</code> to fetch rows while writing the response.
+     */
+    private transient Executor fetchExecutor;
+    private int prefetchSize = 0;
+
+    /** Fetch currently running in the fetch executor, if any. */
+    private transient CompletableFuture<List<T>> pendingFetch;
+    private transient Range pendingFetchRange;
+    private transient Range pendingPushRows;
+
+    /** Rows fetched by the latest completed asynchronous fetch. */
+    private transient Range prefetchedRange;
+    private transient List<T> prefetchedRows;
+
+    /** Maximum number of row windows to cache, 0 if caching is disabled. */
+    private int rowCacheSize = 0;
+    private transient RowCache<T> rowCache;
+
+    /** Number of active keys above which dropped rows are released early. */
+    private int activeKeyLimit = 0;
+
     public DataCommunicator() {
         addDataGenerator(handler);
         rpc = getRpcProxy(DataCommunicatorClientRpc.class);
@@ -249,6 +286,7 @@ public class DataCommunicator<T> extends AbstractExtension {
     public void detach() {
         super.detach();
         detachDataProviderListener();
+        discardFetchedRows();
     }
 
     /**
@@ -321,6 +359,10 @@ public class DataCommunicator<T> extends AbstractExtension {
         for (int i = 0; i < keys.length(); ++i) {
             handler.dropActiveData(keys.getString(i));
         }
+        if (activeKeyLimit > 0
+                && handler.activeData.size() > activeKeyLimit) {
+            handler.releaseDroppedData();
+        }
     }
 
     /**
@@ -372,15 +414,16 @@ public class DataCommunicator<T> extends AbstractExtension {
         boolean triggerReset = false;
         if (!requestedRows.isEmpty()) {
             int offset = requestedRows.getStart();
-            int limit = requestedRows.length();
 
-            List<T> rowsToPush = fetchItemsWithRange(offset, limit);
+            List<T> rowsToPush = getRowsToPush(requestedRows);
 
-            if (!initial && !reset && rowsToPush.isEmpty()) {
-                triggerReset = true;
-            }
+            if (rowsToPush != null) {
+                if (!initial && !reset && rowsToPush.isEmpty()) {
+                    triggerReset = true;
+                }
 
-            pushData(offset, rowsToPush);
+                pushData(offset, rowsToPush);
+            }
         }
 
         setPushRows(Range.withLength(0, 0));
@@ -388,6 +431,400 @@ public class DataCommunicator<T> extends AbstractExtension {
         updatedData.clear();
     }
 
+    /**
+     * Gets the requested rows from the row cache, from the rows fetched in
+     * advance or from the data provider.
+     *
+     * @param requestedRows
+     *            the rows to get
+     * @return the requested rows, or <code>null</code> if they are being
+     *         fetched asynchronously
+     */
+    private List<T> getRowsToPush(Range requestedRows) {
+        List<T> rows = getCachedRows(requestedRows);
+        if (rows != null) {
+            return rows;
+        }
+        if (fetchExecutor != null) {
+            rows = getPrefetchedRows(requestedRows);
+            if (rows != null || fetchAsync(requestedRows)) {
+                return rows;
+            }
+        }
+        rows = fetchItemsWithRange(requestedRows.getStart(),
+                requestedRows.length());
+        cacheRows(requestedRows, rows);
+        return rows;
+    }
+
+    /**
+     * Gets the requested rows from the rows fetched by the latest asynchronous
+     * fetch.
+     *
+     * @param requestedRows
+     *            the rows to get
+     * @return the requested rows, or <code>null</code> if they have not been
+     *         fetched
+     */
+    private List<T> getPrefetchedRows(Range requestedRows) {
+        if (prefetchedRows == null
+                || requestedRows.getStart() < prefetchedRange.getStart()) {
+            return null;
+        }
+        int fetchedEnd = prefetchedRange.getStart() + prefetchedRows.size();
+        boolean endOfData = prefetchedRows.size() < prefetchedRange.length();
+        if (requestedRows.getEnd() > fetchedEnd && !endOfData) {
+            return null;
+        }
+        int from = Math.min(requestedRows.getStart(), fetchedEnd)
+                - prefetchedRange.getStart();
+        int to = Math.min(requestedRows.getEnd(), fetchedEnd)
+                - prefetchedRange.getStart();
+        return new ArrayList<>(prefetchedRows.subList(from, to));
+    }
+
+    /**
+     * Starts fetching the requested rows and the surrounding prefetch window
+     * in the fetch executor, unless a running fetch already covers them. Any
+     * other running fetch is cancelled. The rows are pushed to the client once
+     * the fetch completes.
+     *
+     * @param requestedRows
+     *            the rows requested by the client
+     * @return <code>true</code> if the rows are being fetched asynchronously,
+     *         <code>false</code> if they should be fetched right away
+     */
+    private boolean fetchAsync(Range requestedRows) {
+        if (pendingFetch != null
+                && requestedRows.isSubsetOf(pendingFetchRange)) {
+            // Coalesce with the fetch that is already running
+            pendingPushRows = requestedRows;
+            return true;
+        }
+
+        Range fetchRange = Range.between(
+                Math.max(0, requestedRows.getStart() - prefetchSize),
+                requestedRows.getEnd() + prefetchSize);
+        SerializableSupplier<List<T>> fetchTask = createFetchTask(
+                fetchRange.getStart(), fetchRange.length());
+        if (fetchTask == null) {
+            return false;
+        }
+
+        cancelPendingFetch();
+        UI ui = getUI();
+        CompletableFuture<List<T>> fetch = CompletableFuture
+                .supplyAsync(fetchTask, fetchExecutor);
+        pendingFetch = fetch;
+        pendingFetchRange = fetchRange;
+        pendingPushRows = requestedRows;
+
+        fetch.whenComplete((rows, exception) -> {
+            if (fetch.isCancelled()) {
+                return;
+            }
+            try {
+                ui.access(() -> onFetchCompleted(fetch, fetchRange, rows,
+                        exception));
+            } catch (UIDetachedException e) {
+                // Nobody is interested in the rows any longer
+            }
+        });
+        return true;
+    }
+
+    private void onFetchCompleted(CompletableFuture<List<T>> fetch,
+            Range fetchRange, List<T> rows, Throwable exception) {
+        if (fetch != pendingFetch) {
+            // Superseded by another fetch or discarded by a reset
+            return;
+        }
+        Range rowsToPush = pendingPushRows;
+        pendingFetch = null;
+        pendingFetchRange = null;
+        pendingPushRows = null;
+
+        if (exception != null) {
+            throw new RuntimeException("Fetching rows " + fetchRange
+                    + " from the data provider failed", exception);
+        }
+
+        prefetchedRange = fetchRange;
+        prefetchedRows = rows;
+        cacheRows(fetchRange, rows);
+        if (getPushRows().isEmpty()) {
+            setPushRows(rowsToPush);
+        }
+        markAsDirty();
+    }
+
+    private void cancelPendingFetch() {
+        if (pendingFetch != null) {
+            // A fetch that has not yet started will never be run, a running
+            // fetch will be ignored when it completes
+            pendingFetch.cancel(false);
+            pendingFetch = null;
+            pendingFetchRange = null;
+            pendingPushRows = null;
+        }
+    }
+
+    /**
+     * Cancels any running asynchronous fetch and discards the rows fetched in
+     * advance, so that subsequent requests fetch up to date rows.
+     */
+    private void discardFetchedRows() {
+        cancelPendingFetch();
+        prefetchedRange = null;
+        prefetchedRows = null;
+    }
+
+    /**
+     * Creates a task that fetches the given range of items when run in the
+     * fetch executor, i.e. without holding the session lock. Everything the
+     * task needs, such as the filter and the sort orders, must be captured
+     * when this method is called.
+     * <p>
+     * Subclasses that cannot fetch items without holding the session lock
+     * should return <code>null</code>, in which case items are always fetched
+     * using {@link #fetchItemsWithRange(int, int)}.
+     *
+     * @param offset
+     *            the starting index of the range
+     * @param limit
+     *            the max number of results
+     * @return a task returning the list of items in the given range, or
+     *         <code>null</code> to fetch the items synchronously
+     * @see #setFetchExecutor(Executor)
+     * @since 8.12
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    protected SerializableSupplier<List<T>> createFetchTask(int offset,
+            int limit) {
+        DataProvider dataProvider = getDataProvider();
+        Query query = new Query(offset, limit,
+                new ArrayList<>(backEndSorting), inMemorySorting, filter);
+        return () -> (List<T>) dataProvider.fetch(query)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Sets the executor to use for fetching rows from the data provider without
+     * holding the session lock.
+     * <p>
+     * When an executor is set, rows requested by the client are fetched in the
+     * executor together with {@link #setPrefetchSize(int) prefetched} rows
+     * around them, and pushed to the client in a later response once the
+     * fetch has completed. Requests for rows that have already been fetched
+     * are served right away. Requests covered by a fetch that is still running
+     * are coalesced with it, and a fetch that is no longer needed because the
+     * client requested other rows is cancelled.
+     * <p>
+     * The later response is sent using {@link UI#access(Runnable)}, so server
+     * push or polling should be enabled for the rows to be shown without
+     * waiting for the next user interaction. The size of the data set is still
+     * queried while the session is locked.
+     * <p>
+     * The executor is not serialized with the session and must be set again
+     * after deserialization.
+     *
+     * @param fetchExecutor
+     *            the executor to use, or <code>null</code> to fetch rows while
+     *            writing the response (the default)
+     * @since 8.12
+     */
+    public void setFetchExecutor(Executor fetchExecutor) {
+        this.fetchExecutor = fetchExecutor;
+        if (fetchExecutor == null) {
+            discardFetchedRows();
+        }
+    }
+
+    /**
+     * Gets the executor used for fetching rows without holding the session
+     * lock.
+     *
+     * @return the executor, or <code>null</code> if rows are fetched while
+     *         writing the response
+     * @see #setFetchExecutor(Executor)
+     * @since 8.12
+     */
+    public Executor getFetchExecutor() {
+        return fetchExecutor;
+    }
+
+    /**
+     * Sets the number of rows to fetch in advance before and after the rows
+     * requested by the client when fetching rows using the
+     * {@link #setFetchExecutor(Executor) fetch executor}. Has no effect if no
+     * fetch executor is set.
+     *
+     * @param prefetchSize
+     *            the number of rows to fetch in advance in each direction, not
+     *            negative
+     * @since 8.12
+     */
+    public void setPrefetchSize(int prefetchSize) {
+        if (prefetchSize < 0) {
+            throw new IllegalArgumentException("Value cannot be negative");
+        }
+        this.prefetchSize = prefetchSize;
+    }
+
+    /**
+     * Gets the number of rows fetched in advance before and after the rows
+     * requested by the client.
+     *
+     * @see #setPrefetchSize(int)
+     * @return the number of rows fetched in advance in each direction
+     * @since 8.12
+     */
+    public int getPrefetchSize() {
+        return prefetchSize;
+    }
+
+    private RowCache.QuerySignature getQuerySignature() {
+        return new RowCache.QuerySignature(filter, backEndSorting,
+                inMemorySorting);
+    }
+
+    private RowCache<T> getRowCache() {
+        if (rowCacheSize == 0) {
+            return null;
+        }
+        if (rowCache == null || rowCache.getMaxWindows() != rowCacheSize) {
+            rowCache = new RowCache<>(rowCacheSize);
+        }
+        return rowCache;
+    }
+
+    private List<T> getCachedRows(Range requestedRows) {
+        RowCache<T> cache = getRowCache();
+        if (cache == null) {
+            return null;
+        }
+        return cache.getRows(getQuerySignature(), requestedRows);
+    }
+
+    private void cacheRows(Range fetchedRange, List<T> rows) {
+        RowCache<T> cache = getRowCache();
+        if (cache != null) {
+            cache.putRows(getQuerySignature(), fetchedRange, rows);
+        }
+    }
+
+    private void clearRowCache() {
+        if (rowCache != null) {
+            rowCache.clear();
+        }
+    }
+
+    /**
+     * Sets the maximum number of fetched row windows to cache.
+     * <p>
+     * When caching is enabled, the rows fetched for a request are kept in a
+     * least recently used cache together with the size of the data set. The
+     * cache is keyed by the filter and the back end and in-memory sorting, so
+     * that requests for rows that have already been fetched with the same
+     * filter and sorting, e.g. when the user scrolls back and forth, do not
+     * reach the data provider. The cache is cleared whenever the data provider
+     * fires a {@link DataChangeEvent}, including
+     * {@link DataProvider#refreshItem(Object)}, and when the data provider is
+     * changed.
+     * <p>
+     * Filters and comparators are compared using
+     * {@link Object#equals(Object)}, so for instance equal lambda filters that
+     * are different instances do not share cached rows.
+     * <p>
+     * The cached rows are not serialized with the session.
+     *
+     * @param windows
+     *            the maximum number of row windows to cache, or 0 to disable
+     *            caching (the default)
+     * @since 8.12
+     */
+    public void setRowCacheSize(int windows) {
+        if (windows < 0) {
+            throw new IllegalArgumentException("Value cannot be negative");
+        }
+        rowCacheSize = windows;
+        if (windows == 0) {
+            rowCache = null;
+        }
+    }
+
+    /**
+     * Gets the maximum number of fetched row windows to cache.
+     *
+     * @see #setRowCacheSize(int)
+     * @return the maximum number of row windows to cache, 0 if caching is
+     *         disabled
+     * @since 8.12
+     */
+    public int getRowCacheSize() {
+        return rowCacheSize;
+    }
+
+    /**
+     * Gets the number of row and size lookups that have been served from the
+     * row cache.
+     *
+     * @see #setRowCacheSize(int)
+     * @return the number of cache hits
+     * @since 8.12
+     */
+    public long getRowCacheHitCount() {
+        return rowCache == null ? 0 : rowCache.getHitCount();
+    }
+
+    /**
+     * Gets the number of row and size lookups that could not be served from
+     * the row cache and were passed on to the data provider.
+     *
+     * @see #setRowCacheSize(int)
+     * @return the number of cache misses
+     * @since 8.12
+     */
+    public long getRowCacheMissCount() {
+        return rowCache == null ? 0 : rowCache.getMissCount();
+    }
+
+    /**
+     * Sets the number of active keys above which rows dropped by the client
+     * are released immediately.
+     * <p>
+     * By default, rows the client reports as dropped from its cache keep their
+     * keys until the next time rows are pushed, so that rows that are dropped
+     * and requested again in the same round trip keep their keys. With a
+     * limit, the dropped rows are released as soon as the client reports them
+     * if more than the given number of keys is active, which bounds the memory
+     * used for keys and generated data even when no new rows are pushed.
+     *
+     * @param limit
+     *            the number of active keys above which dropped rows are
+     *            released immediately, or 0 to not limit the number of keys
+     *            (the default)
+     * @since 8.12
+     */
+    public void setActiveKeyLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Value cannot be negative");
+        }
+        activeKeyLimit = limit;
+    }
+
+    /**
+     * Gets the number of active keys above which rows dropped by the client
+     * are released immediately.
+     *
+     * @see #setActiveKeyLimit(int)
+     * @return the active key limit, 0 if the number of keys is not limited
+     * @since 8.12
+     */
+    public int getActiveKeyLimit() {
+        return activeKeyLimit;
+    }
+
     /**
      * Fetches a list of items from the DataProvider.
      *
@@ -529,6 +966,7 @@ public class DataCommunicator<T> extends AbstractExtension {
      * full data update.
      */
     public void reset() {
+        discardFetchedRows();
         // Only needed if a full reset is not pending.
         if (!reset) {
             if (getParent() instanceof ComboBox) {
@@ -586,6 +1024,7 @@ public class DataCommunicator<T> extends AbstractExtension {
     public void setInMemorySorting(Comparator<T> comparator,
             boolean immediateReset) {
         inMemorySorting = comparator;
+        discardFetchedRows();
         if (immediateReset) {
             reset();
         }
@@ -626,6 +1065,7 @@ public class DataCommunicator<T> extends AbstractExtension {
             boolean immediateReset) {
         backEndSorting.clear();
         backEndSorting.addAll(sortOrder);
+        discardFetchedRows();
         if (immediateReset) {
             reset();
         }
@@ -654,7 +1094,8 @@ public class DataCommunicator<T> extends AbstractExtension {
     /**
      * Creates a {@link DataKeyMapper} to use with this DataCommunicator.
      * <p>
-     * This method is called from the constructor.
+     * This method is called from the constructor. The default implementation
+     * returns an {@link IntKeyMapper}.
      *
      * @param identifierGetter
      *            has to return a unique key for every bean, and the returned
@@ -668,7 +1109,7 @@ public class DataCommunicator<T> extends AbstractExtension {
      */
     protected DataKeyMapper<T> createKeyMapper(
             ValueProvider<T, Object> identifierGetter) {
-        return new KeyMapper<T>(identifierGetter);
+        return new IntKeyMapper<T>(identifierGetter);
     }
 
     /**
@@ -765,6 +1206,7 @@ public class DataCommunicator<T> extends AbstractExtension {
      */
     protected <F> void setFilter(F filter) {
         this.filter = filter;
+        discardFetchedRows();
     }
 
     /**
@@ -812,7 +1254,17 @@ public class DataCommunicator<T> extends AbstractExtension {
      */
     @SuppressWarnings({ "unchecked", "rawtypes" })
     public int getDataProviderSize() {
-        return getDataProvider().size(new Query(getFilter()));
+        RowCache<T> cache = getRowCache();
+        if (cache == null) {
+            return getDataProvider().size(new Query(getFilter()));
+        }
+        RowCache.QuerySignature signature = getQuerySignature();
+        Integer size = cache.getSize(signature);
+        if (size == null) {
+            size = getDataProvider().size(new Query(getFilter()));
+            cache.putSize(signature, size);
+        }
+        return size;
     }
 
     @Override
@@ -832,14 +1284,34 @@ public class DataCommunicator<T> extends AbstractExtension {
                         T item = ((DataRefreshEvent<T>) event).getItem();
                         getKeyMapper().refresh(item);
                         generators.forEach(g -> g.refreshData(item));
-                        getUI().access(() -> refresh(item));
+                        getUI().access(() -> {
+                            discardFetchedRows();
+                            clearRowCache();
+                            refresh(item);
+                        });
                     } else {
                         reset = true;
-                        getUI().access(() -> markAsDirty());
+                        onDataProviderRefreshAll();
+                        getUI().access(() -> {
+                            discardFetchedRows();
+                            clearRowCache();
+                            markAsDirty();
+                        });
                     }
                 });
     }
 
+    /**
+     * Called when the data provider notifies that all of its data may have
+     * changed, before a full reset of the client side data is scheduled.
+     * Subclasses that keep derived state about the data should discard it.
+     * Does nothing by default.
+     *
+     * @since 8.12
+     */
+    protected void onDataProviderRefreshAll() {
+    }
+
     private void detachDataProviderListener() {
         if (dataProviderUpdateRegistration != null) {
             dataProviderUpdateRegistration.remove();
@@ -857,6 +1329,8 @@ public class DataCommunicator<T> extends AbstractExtension {
     protected void setDataProvider(DataProvider<T, ?> dataProvider) {
         detachDataProviderListener();
         dropAllData();
+        discardFetchedRows();
+        clearRowCache();
         this.dataProvider = dataProvider;
         getKeyMapper().setIdentifierGetter(dataProvider::getId);
     }
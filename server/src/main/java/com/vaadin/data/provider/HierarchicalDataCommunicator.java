@@ -24,6 +24,7 @@ import java.util.stream.Stream;
 
 import com.vaadin.data.TreeData;
 import com.vaadin.server.SerializableConsumer;
+import com.vaadin.server.SerializableSupplier;
 import com.vaadin.shared.Range;
 import com.vaadin.shared.extension.datacommunicator.HierarchicalDataCommunicatorState;
 import com.vaadin.ui.ItemCollapseAllowedProvider;
@@ -65,6 +66,18 @@ public class HierarchicalDataCommunicator<T> extends DataCommunicator<T> {
         return (HierarchicalDataCommunicatorState) super.getState(markAsDirty);
     }
 
+    @Override
+    public void attach() {
+        super.attach();
+        // The data provider may have been refreshed while not listening
+        mapper.invalidateIndex();
+    }
+
+    @Override
+    protected void onDataProviderRefreshAll() {
+        mapper.invalidateIndex();
+    }
+
     @Override
     public List<T> fetchItemsWithRange(int offset, int limit) {
         // Instead of adding logic to this class, delegate request to the
@@ -73,6 +86,32 @@ public class HierarchicalDataCommunicator<T> extends DataCommunicator<T> {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    protected SerializableSupplier<List<T>> createFetchTask(int offset,
+            int limit) {
+        // The hierarchy mapper keeps track of expanded items and must only be
+        // used while the session is locked
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Row caching is not supported for hierarchical data, since the rows
+     * depend on which items are expanded.
+     *
+     * @throws UnsupportedOperationException
+     *             if trying to enable caching
+     */
+    @Override
+    public void setRowCacheSize(int windows) {
+        if (windows != 0) {
+            throw new UnsupportedOperationException(
+                    "Row caching is not supported for hierarchical data");
+        }
+        super.setRowCacheSize(windows);
+    }
+
     @Override
     public HierarchicalDataProvider<T, ?> getDataProvider() {
         return (HierarchicalDataProvider<T, ?>) super.getDataProvider();
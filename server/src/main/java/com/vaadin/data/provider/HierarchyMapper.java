@@ -15,14 +15,14 @@
  */
 package com.vaadin.data.provider;
 
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -42,6 +42,14 @@ import elemental.json.JsonObject;
  * Keeps track of the expanded nodes, and size of of the subtrees for each
  * expanded node.
  * <p>
+ * The currently visible hierarchy is indexed when it is first needed, after
+ * which the index is kept up to date when items are expanded or collapsed.
+ * This makes fetching a range of rows and finding the index of an item
+ * logarithmic in the size of the hierarchy. The index is discarded when the
+ * filter or sorting changes or when {@link #invalidateIndex()} is called, so
+ * changes in the hierarchy of the data provider are only seen after a
+ * {@link DataProvider#refreshAll()}.
+ * <p>
  * This class is framework internal implementation details, and can be changed /
  * moved at any point. This means that you should not directly use this for
  * anything.
@@ -56,11 +64,97 @@ import elemental.json.JsonObject;
  */
 public class HierarchyMapper<T, F> implements DataGenerator<T> {
 
+    /**
+     * A visible item in the index of the hierarchy. An expanded node keeps
+     * the sizes of the subtrees of its children in a Fenwick tree, so that
+     * finding the child containing a given row and the row of a given child
+     * are logarithmic in the number of children.
+     *
+     * @param <T>
+     *            the data type
+     */
+    private static final class IndexNode<T> implements Serializable {
+        private T item;
+        private final IndexNode<T> parent;
+        private final int index;
+        private List<IndexNode<T>> children = Collections.emptyList();
+        // 1-based Fenwick tree of the subtree sizes of the children
+        private int[] subtreeSizes;
+        private int descendantCount;
+
+        private IndexNode(T item, IndexNode<T> parent, int index) {
+            this.item = item;
+            this.parent = parent;
+            this.index = index;
+        }
+
+        private void setChildren(List<IndexNode<T>> children) {
+            this.children = children;
+            int count = children.size();
+            subtreeSizes = count == 0 ? null : new int[count + 1];
+            descendantCount = 0;
+            for (int i = 1; i <= count; i++) {
+                int size = children.get(i - 1).getSubtreeSize();
+                descendantCount += size;
+                subtreeSizes[i] += size;
+                int next = i + (i & -i);
+                if (next <= count) {
+                    subtreeSizes[next] += subtreeSizes[i];
+                }
+            }
+        }
+
+        private int getSubtreeSize() {
+            return descendantCount + 1;
+        }
+
+        private void addToSubtreeSize(int childIndex, int delta) {
+            for (int i = childIndex + 1; i < subtreeSizes.length; i += i
+                    & -i) {
+                subtreeSizes[i] += delta;
+            }
+        }
+
+        /**
+         * Gets the number of rows before the subtree of the given child,
+         * relative to the first child.
+         */
+        private int getRowsBefore(int childIndex) {
+            int rows = 0;
+            for (int i = childIndex; i > 0; i -= i & -i) {
+                rows += subtreeSizes[i];
+            }
+            return rows;
+        }
+
+        /**
+         * Gets the index of the child whose subtree contains the given row,
+         * relative to the first child.
+         */
+        private int findChild(int row) {
+            int childIndex = 0;
+            for (int step = Integer.highestOneBit(
+                    subtreeSizes.length - 1); step > 0; step >>= 1) {
+                int next = childIndex + step;
+                if (next < subtreeSizes.length
+                        && subtreeSizes[next] <= row) {
+                    childIndex = next;
+                    row -= subtreeSizes[next];
+                }
+            }
+            return childIndex;
+        }
+    }
+
     // childMap is only used for finding parents of items and clean up on
     // removing children of expanded nodes.
-    private Map<T, Set<T>> childMap = new HashMap<>();
+    private Map<Object, Set<T>> childMap = new HashMap<>();
     private Map<Object, T> parentIdMap = new HashMap<>();
 
+    // Index of the visible hierarchy, built lazily
+    private transient IndexNode<T> root;
+    private transient Map<Object, IndexNode<T>> indexNodes;
+
     private final HierarchicalDataProvider<T, F> provider;
     private F filter;
     private List<QuerySortOrder> backEndSorting;
@@ -85,7 +179,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return the amount of available data
      */
     public int getTreeSize() {
-        return (int) getHierarchy(null).count();
+        return getRoot().descendantCount;
     }
 
     /**
@@ -97,9 +191,10 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      *
      */
     public Integer getParentIndex(T item) {
-        // TODO: This can be optimized.
-        List<T> flatHierarchy = getHierarchy(null).collect(Collectors.toList());
-        return flatHierarchy.indexOf(getParentOfItem(item));
+        // Parents are registered while building the index
+        getRoot();
+        T parent = getParentOfItem(item);
+        return parent == null ? -1 : getIndexOf(parent).orElse(-1);
     }
 
     /**
@@ -127,9 +222,18 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return range of rows added by expanding the item
      */
     public Range expand(T item, Integer position) {
-        if (doExpand(item) && position != null) {
-            return Range.withLength(position + 1,
-                    (int) getHierarchy(item, false).count());
+        // Index before expanding so that the children are added only once
+        IndexNode<T> node = getIndexNode(item);
+        if (doExpand(item)) {
+            if (node != null) {
+                loadChildren(node);
+                updateAncestors(node, node.descendantCount);
+            }
+            if (position != null) {
+                return Range.withLength(position + 1,
+                        node != null ? node.descendantCount
+                                : (int) getHierarchy(item, false).count());
+            }
         }
 
         return Range.emptyRange();
@@ -181,11 +285,19 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
     public Range collapse(T item, Integer position) {
         Range removedRows = Range.emptyRange();
         if (isExpanded(item)) {
+            IndexNode<T> node = getIndexNode(item);
             if (position != null) {
                 removedRows = Range.withLength(position + 1,
-                        (int) getHierarchy(item, false).count());
+                        node != null ? node.descendantCount
+                                : (int) getHierarchy(item, false).count());
             }
             expandedItemIds.remove(getDataProvider().getId(item));
+            if (node != null) {
+                int removedCount = node.descendantCount;
+                removeIndexNodes(node.children);
+                node.setChildren(Collections.emptyList());
+                updateAncestors(node, -removedCount);
+            }
         }
         return removedRows;
     }
@@ -275,6 +387,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      */
     public void setInMemorySorting(Comparator<T> inMemorySorting) {
         this.inMemorySorting = inMemorySorting;
+        invalidateIndex();
     }
 
     /**
@@ -295,6 +408,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      */
     public void setBackEndSorting(List<QuerySortOrder> backEndSorting) {
         this.backEndSorting = backEndSorting;
+        invalidateIndex();
     }
 
     /**
@@ -315,6 +429,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      */
     public void setFilter(Object filter) {
         this.filter = (F) filter;
+        invalidateIndex();
     }
 
     /**
@@ -349,7 +464,7 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return the stream of items
      */
     public Stream<T> fetchItems(Range range) {
-        return getHierarchy(null).skip(range.getStart()).limit(range.length());
+        return fetchItems(getRoot(), range);
     }
 
     /**
@@ -363,8 +478,70 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      * @return the stream of items
      */
     public Stream<T> fetchItems(T parent, Range range) {
-        return getHierarchy(parent, false).skip(range.getStart())
-                .limit(range.length());
+        IndexNode<T> node = parent == null ? getRoot() : getIndexNode(parent);
+        if (node == null) {
+            // Not visible, so not indexed
+            return getHierarchy(parent, false).skip(range.getStart())
+                    .limit(range.length());
+        }
+        return fetchItems(node, range);
+    }
+
+    /**
+     * Gets the items in the given range of the flattened subtree of the given
+     * node, not including the node itself.
+     *
+     * @param parent
+     *            the parent node
+     * @param range
+     *            the requested item range
+     * @return the stream of items
+     */
+    private Stream<T> fetchItems(IndexNode<T> parent, Range range) {
+        int start = range.getStart();
+        int count = Math.min(range.length(), parent.descendantCount - start);
+        if (count <= 0) {
+            return Stream.empty();
+        }
+
+        // Find the node at the start of the range
+        IndexNode<T> node = parent;
+        int row = start;
+        while (true) {
+            int childIndex = node.findChild(row);
+            row -= node.getRowsBefore(childIndex);
+            node = node.children.get(childIndex);
+            if (row == 0) {
+                break;
+            }
+            // Skip the child itself
+            row--;
+        }
+
+        List<T> items = new ArrayList<>(count);
+        items.add(node.item);
+        while (items.size() < count) {
+            node = getNextNode(node);
+            items.add(node.item);
+        }
+        return items.stream();
+    }
+
+    /**
+     * Gets the node following the given one in the flattened hierarchy.
+     *
+     * @param node
+     *            the node, not the last one in the hierarchy
+     * @return the next node
+     */
+    private IndexNode<T> getNextNode(IndexNode<T> node) {
+        if (!node.children.isEmpty()) {
+            return node.children.get(0);
+        }
+        while (node.index + 1 == node.parent.children.size()) {
+            node = node.parent;
+        }
+        return node.parent.children.get(node.index + 1);
     }
 
     /* Methods for providing information on the hierarchy. */
@@ -419,27 +596,20 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      */
     protected void removeChildren(Object id) {
         // Clean up removed nodes from child map
-        Iterator<Entry<T, Set<T>>> iterator = childMap.entrySet().iterator();
-        Set<T> invalidatedChildren = new HashSet<>();
-        while (iterator.hasNext()) {
-            Entry<T, Set<T>> entry = iterator.next();
-            T key = entry.getKey();
-            if (key != null && getDataProvider().getId(key).equals(id)) {
-                invalidatedChildren.addAll(entry.getValue());
-                iterator.remove();
-            }
-        }
+        Set<T> invalidatedChildren = id == null ? null : childMap.remove(id);
         expandedItemIds.remove(id);
-        invalidatedChildren.stream().map(getDataProvider()::getId)
-                .forEach(x -> {
-                    removeChildren(x);
-                    parentIdMap.remove(x);
-                });
+        if (invalidatedChildren != null) {
+            invalidatedChildren.stream().map(getDataProvider()::getId)
+                    .forEach(x -> {
+                        removeChildren(x);
+                        parentIdMap.remove(x);
+                    });
+        }
     }
 
     /**
-     * Finds the current index of given object. This is based on a search in
-     * flattened version of the hierarchy.
+     * Finds the current index of given object in the flattened version of the
+     * hierarchy.
      *
      * @param target
      *            the target object to find
@@ -450,21 +620,116 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
             return Optional.empty();
         }
 
-        final List<Object> collect = getHierarchy(null).map(provider::getId)
-                .collect(Collectors.toList());
-        int index = collect.indexOf(getDataProvider().getId(target));
-        return Optional.ofNullable(index < 0 ? null : index);
+        IndexNode<T> node = getIndexNode(target);
+        if (node == null) {
+            return Optional.empty();
+        }
+        int index = -1;
+        for (; node.parent != null; node = node.parent) {
+            index += node.parent.getRowsBefore(node.index) + 1;
+        }
+        return Optional.of(index);
     }
 
     /**
-     * Gets the full hierarchy tree starting from given node.
+     * Discards the index of the visible hierarchy. The index is built again
+     * from the data provider when it is next needed. This is done
+     * automatically when the filter or sorting changes, and by
+     * {@link HierarchicalDataCommunicator} when the data provider is
+     * refreshed.
      *
-     * @param parent
-     *            the parent node to start from
-     * @return the flattened hierarchy as a stream
+     * @since 8.12
+     */
+    protected void invalidateIndex() {
+        root = null;
+        indexNodes = null;
+    }
+
+    /**
+     * Gets the root of the index of the visible hierarchy, building the index
+     * if needed.
+     *
+     * @return the root node
+     */
+    private IndexNode<T> getRoot() {
+        if (root == null) {
+            indexNodes = new HashMap<>();
+            IndexNode<T> newRoot = new IndexNode<>(null, null, 0);
+            loadChildren(newRoot);
+            root = newRoot;
+        }
+        return root;
+    }
+
+    /**
+     * Gets the index node of the given item.
+     *
+     * @param item
+     *            the item
+     * @return the node, or {@code null} if the item is {@code null} or not
+     *         visible
+     */
+    private IndexNode<T> getIndexNode(T item) {
+        if (item == null) {
+            return null;
+        }
+        getRoot();
+        return indexNodes.get(getDataProvider().getId(item));
+    }
+
+    /**
+     * Fetches the children of the given node from the data provider and
+     * indexes them together with their expanded descendants. Does not update
+     * the ancestors of the node.
+     *
+     * @param node
+     *            the node to load the children of
      */
-    private Stream<T> getHierarchy(T parent) {
-        return getHierarchy(parent, true);
+    private void loadChildren(IndexNode<T> node) {
+        List<T> childList = Collections.emptyList();
+        if (isExpanded(node.item)) {
+            childList = getDirectChildren(node.item)
+                    .collect(Collectors.toList());
+            if (childList.isEmpty()) {
+                removeChildren(node.item == null ? null
+                        : getDataProvider().getId(node.item));
+            } else {
+                registerChildren(node.item, childList);
+            }
+        }
+
+        List<IndexNode<T>> children = new ArrayList<>(childList.size());
+        for (T childItem : childList) {
+            IndexNode<T> child = new IndexNode<>(childItem, node,
+                    children.size());
+            indexNodes.put(getDataProvider().getId(childItem), child);
+            loadChildren(child);
+            children.add(child);
+        }
+        node.setChildren(children);
+    }
+
+    /**
+     * Adds the given change in the number of descendants of the node to all
+     * of its ancestors.
+     *
+     * @param node
+     *            the changed node
+     * @param delta
+     *            the change in the number of descendants
+     */
+    private void updateAncestors(IndexNode<T> node, int delta) {
+        for (; node.parent != null; node = node.parent) {
+            node.parent.addToSubtreeSize(node.index, delta);
+            node.parent.descendantCount += delta;
+        }
+    }
+
+    private void removeIndexNodes(List<IndexNode<T>> nodes) {
+        for (IndexNode<T> node : nodes) {
+            indexNodes.remove(getDataProvider().getId(node.item));
+            removeIndexNodes(node.children);
+        }
     }
 
     /**
@@ -545,7 +810,8 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
      *            list of parents children to be registered.
      */
     protected void registerChildren(T parent, List<T> childList) {
-        childMap.put(parent, new HashSet<>(childList));
+        childMap.put(parent == null ? null : getDataProvider().getId(parent),
+                new HashSet<>(childList));
         childList.forEach(
                 x -> parentIdMap.put(getDataProvider().getId(x), parent));
     }
@@ -572,9 +838,19 @@ public class HierarchyMapper<T, F> implements DataGenerator<T> {
         return Stream.concat(parentStream, children);
     }
 
+    @Override
+    public void refreshData(T item) {
+        IndexNode<T> node = indexNodes == null ? null
+                : indexNodes.get(getDataProvider().getId(item));
+        if (node != null) {
+            node.item = item;
+        }
+    }
+
     @Override
     public void destroyAllData() {
         childMap.clear();
         parentIdMap.clear();
+        invalidateIndex();
     }
 }
@@ -0,0 +1,394 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+
+import com.vaadin.data.ValueProvider;
+import com.vaadin.server.KeyMapper;
+
+/**
+ * Key mapper that uses sequential integers as keys. Produces the same keys as
+ * {@link KeyMapper}, but stores them as primitive ints in open addressing
+ * hash tables instead of as strings in hash maps, which makes it considerably
+ * smaller in memory when a large number of objects is mapped. The key strings
+ * are only created when requested.
+ *
+ * @param <V>
+ *            the type of mapped objects
+ *
+ * @author Vaadin Ltd
+ * @since 8.12
+ */
+public class IntKeyMapper<V> implements DataKeyMapper<V> {
+
+    /**
+     * Stand-in for <code>null</code> identifiers since <code>null</code>
+     * marks a free slot in the identifier table.
+     */
+    private enum NullId {
+        INSTANCE;
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Open addressing hash table with linear probing from identifiers to
+     * keys.
+     */
+    private static final class IdTable implements Serializable {
+        private Object[] ids = new Object[INITIAL_CAPACITY];
+        private int[] keys = new int[INITIAL_CAPACITY];
+        private int size;
+
+        private int indexOf(Object id) {
+            int mask = ids.length - 1;
+            int index = mix(id.hashCode()) & mask;
+            Object current;
+            while ((current = ids[index]) != null) {
+                if (current.equals(id)) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            // Encode the free slot where the id would be inserted
+            return -index - 1;
+        }
+
+        int get(Object id) {
+            int index = indexOf(id);
+            return index < 0 ? 0 : keys[index];
+        }
+
+        void put(Object id, int key) {
+            int index = indexOf(id);
+            if (index >= 0) {
+                keys[index] = key;
+                return;
+            }
+            if (needsResize(size + 1, ids.length)) {
+                resize(ids.length * 2);
+                index = indexOf(id);
+            }
+            ids[-index - 1] = id;
+            keys[-index - 1] = key;
+            size++;
+        }
+
+        int remove(Object id) {
+            int index = indexOf(id);
+            if (index < 0) {
+                return 0;
+            }
+            int key = keys[index];
+            int mask = ids.length - 1;
+            // Backward shift deletion keeps probe sequences intact without
+            // tombstones
+            int hole = index;
+            int i = index;
+            while (ids[i = (i + 1) & mask] != null) {
+                int home = mix(ids[i].hashCode()) & mask;
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    ids[hole] = ids[i];
+                    keys[hole] = keys[i];
+                    hole = i;
+                }
+            }
+            ids[hole] = null;
+            keys[hole] = 0;
+            size--;
+            return key;
+        }
+
+        private void resize(int capacity) {
+            Object[] oldIds = ids;
+            int[] oldKeys = keys;
+            ids = new Object[capacity];
+            keys = new int[capacity];
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] != null) {
+                    int index = -indexOf(oldIds[i]) - 1;
+                    ids[index] = oldIds[i];
+                    keys[index] = oldKeys[i];
+                }
+            }
+        }
+
+        void clear() {
+            ids = new Object[INITIAL_CAPACITY];
+            keys = new int[INITIAL_CAPACITY];
+            size = 0;
+        }
+
+        private void readObject(ObjectInputStream in)
+                throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            // Identity hash codes are not preserved by serialization
+            resize(ids.length);
+        }
+    }
+
+    /**
+     * Open addressing hash table with linear probing from keys to objects. The
+     * key 0 is never used and marks a free slot.
+     */
+    private static final class KeyTable implements Serializable {
+        private int[] keys = new int[INITIAL_CAPACITY];
+        private Object[] values = new Object[INITIAL_CAPACITY];
+        private int size;
+
+        private int indexOf(int key) {
+            int mask = keys.length - 1;
+            // Keys are sequential, so they are well distributed as such and
+            // lookups of nearby keys hit nearby slots
+            int index = key & mask;
+            int current;
+            while ((current = keys[index]) != 0) {
+                if (current == key) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return -index - 1;
+        }
+
+        Object get(int key) {
+            int index = indexOf(key);
+            return index < 0 ? null : values[index];
+        }
+
+        boolean containsKey(int key) {
+            return indexOf(key) >= 0;
+        }
+
+        void put(int key, Object value) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                values[index] = value;
+                return;
+            }
+            if (needsResize(size + 1, keys.length)) {
+                resize(keys.length * 2);
+                index = indexOf(key);
+            }
+            keys[-index - 1] = key;
+            values[-index - 1] = value;
+            size++;
+        }
+
+        void remove(int key) {
+            int index = indexOf(key);
+            if (index < 0) {
+                return;
+            }
+            int mask = keys.length - 1;
+            int hole = index;
+            int i = index;
+            while (keys[i = (i + 1) & mask] != 0) {
+                int home = keys[i] & mask;
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = keys[i];
+                    values[hole] = values[i];
+                    hole = i;
+                }
+            }
+            keys[hole] = 0;
+            values[hole] = null;
+            size--;
+        }
+
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new int[capacity];
+            values = new Object[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int index = -indexOf(oldKeys[i]) - 1;
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                }
+            }
+        }
+
+        void clear() {
+            keys = new int[INITIAL_CAPACITY];
+            values = new Object[INITIAL_CAPACITY];
+            size = 0;
+        }
+    }
+
+    private int lastKey = 0;
+
+    private final IdTable idKeyTable = new IdTable();
+
+    private final KeyTable keyObjectTable = new KeyTable();
+
+    private ValueProvider<V, Object> identifierGetter;
+
+    /**
+     * Constructs a new mapper.
+     *
+     * @param identifierGetter
+     *            has to return a unique key for every bean, and the returned
+     *            key has to follow general {@code hashCode()} and
+     *            {@code equals()} contract, see {@link Object#hashCode()} for
+     *            details.
+     */
+    public IntKeyMapper(ValueProvider<V, Object> identifierGetter) {
+        this.identifierGetter = identifierGetter;
+    }
+
+    /**
+     * Constructs a new mapper with trivial {@code identifierGetter}.
+     */
+    public IntKeyMapper() {
+        this(v -> v);
+    }
+
+    @Override
+    public String key(V dataObject) {
+        if (dataObject == null) {
+            return "null";
+        }
+
+        Object id = getId(dataObject);
+        int key = idKeyTable.get(id);
+        if (key == 0) {
+            key = ++lastKey;
+            idKeyTable.put(id, key);
+            keyObjectTable.put(key, dataObject);
+        }
+        return Integer.toString(key);
+    }
+
+    @Override
+    public boolean has(V dataObject) {
+        return idKeyTable.get(getId(dataObject)) != 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(String key) {
+        int intKey = parseKey(key);
+        return intKey == 0 ? null : (V) keyObjectTable.get(intKey);
+    }
+
+    /**
+     * Checks if the given key is mapped to an object.
+     *
+     * @param key
+     *            the key to check
+     * @return <code>true</code> if the key is currently mapped,
+     *         <code>false</code> otherwise
+     */
+    public boolean containsKey(String key) {
+        int intKey = parseKey(key);
+        return intKey != 0 && keyObjectTable.containsKey(intKey);
+    }
+
+    @Override
+    public void remove(V dataObject) {
+        int key = idKeyTable.remove(getId(dataObject));
+        if (key != 0) {
+            keyObjectTable.remove(key);
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        idKeyTable.clear();
+        keyObjectTable.clear();
+    }
+
+    /**
+     * Gets the number of objects currently mapped.
+     *
+     * @return the number of mapped objects
+     */
+    public int size() {
+        return keyObjectTable.size;
+    }
+
+    @Override
+    public void refresh(V dataObject) {
+        int key = idKeyTable.get(getId(dataObject));
+        if (key != 0) {
+            keyObjectTable.put(key, dataObject);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void setIdentifierGetter(ValueProvider<V, Object> identifierGetter) {
+        if (this.identifierGetter != identifierGetter) {
+            this.identifierGetter = identifierGetter;
+            idKeyTable.clear();
+            int[] keys = keyObjectTable.keys;
+            Object[] values = keyObjectTable.values;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    idKeyTable.put(getId((V) values[i]), keys[i]);
+                }
+            }
+        }
+    }
+
+    private Object getId(V dataObject) {
+        Object id = identifierGetter.apply(dataObject);
+        return id == null ? NullId.INSTANCE : id;
+    }
+
+    /**
+     * Parses a key created by this mapper.
+     *
+     * @param key
+     *            the key string, may be <code>null</code>
+     * @return the key, or 0 if the string is not a key created by this mapper
+     */
+    private static int parseKey(String key) {
+        if (key == null) {
+            return 0;
+        }
+        int length = key.length();
+        // Keys are positive and have no leading zeros
+        if (length == 0 || length > 10 || key.charAt(0) == '0') {
+            return 0;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value > Integer.MAX_VALUE ? 0 : (int) value;
+    }
+
+    private static boolean needsResize(int size, int capacity) {
+        // Keep the load factor at most 0.75
+        return size * 4L > capacity * 3L;
+    }
+
+    private static int mix(int hash) {
+        // Spread poor hash codes over the whole table
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
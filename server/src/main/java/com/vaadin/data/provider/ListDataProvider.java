@@ -15,10 +15,16 @@
  */
 package com.vaadin.data.provider;
 
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.vaadin.server.SerializableComparator;
@@ -35,12 +41,70 @@ public class ListDataProvider<T>
         extends AbstractDataProvider<T, SerializablePredicate<T>>
         implements InMemoryDataProvider<T> {
 
+    /**
+     * The filters and sorting that determine the contents of a cached view.
+     */
+    private static final class ViewKey implements Serializable {
+        private final Object providerFilter;
+        private final Object queryFilter;
+        private final Comparator<?> querySorting;
+        private final Comparator<?> providerSorting;
+
+        private ViewKey(Object providerFilter, Object queryFilter,
+                Comparator<?> querySorting, Comparator<?> providerSorting) {
+            this.providerFilter = providerFilter;
+            this.queryFilter = queryFilter;
+            this.querySorting = querySorting;
+            this.providerSorting = providerSorting;
+        }
+
+        private boolean isSorted() {
+            return querySorting != null || providerSorting != null;
+        }
+
+        private boolean hasSameFilters(ViewKey other) {
+            return Objects.equals(providerFilter, other.providerFilter)
+                    && Objects.equals(queryFilter, other.queryFilter);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ViewKey)) {
+                return false;
+            }
+            ViewKey other = (ViewKey) obj;
+            return hasSameFilters(other)
+                    && Objects.equals(querySorting, other.querySorting)
+                    && Objects.equals(providerSorting, other.providerSorting);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(providerFilter, queryFilter, querySorting,
+                    providerSorting);
+        }
+    }
+
+    /**
+     * The maximum number of filtered and sorted views to keep in indexed mode.
+     */
+    private static final int MAX_CACHED_VIEWS = 8;
+
     private SerializableComparator<T> sortOrder = null;
 
     private SerializablePredicate<T> filter;
 
     private final Collection<T> backend;
 
+    private boolean indexed = false;
+
+    /**
+     * Filtered and sorted views of the backing collection in indexed mode.
+     * Replaced instead of cleared when invalidated so that views computed
+     * concurrently with the invalidation are not stored in the new cache.
+     */
+    private transient volatile Map<ViewKey, List<T>> views;
+
     /**
      * Constructs a new ListDataProvider.
      * <p>
@@ -66,14 +130,72 @@ public class ListDataProvider<T>
         return backend;
     }
 
+    /**
+     * Sets whether this data provider caches the filtered and sorted views of
+     * the backing collection.
+     * <p>
+     * By default, every call to {@link #fetch(Query)} and {@link #size(Query)}
+     * filters, and for fetch also sorts, the whole backing collection. In
+     * indexed mode, the filtered and sorted list of items is computed once for
+     * each combination of filters and sort order, and further fetch and size
+     * calls with the same filters and sorting are answered directly from that
+     * list. Filters and comparators are compared using
+     * {@link Object#equals(Object)}.
+     * <p>
+     * The cached views are discarded by {@link #refreshAll()} and
+     * {@link #refreshItem(Object)}. In indexed mode, changes to the backing
+     * collection or to the items are therefore not visible until one of them
+     * is called.
+     *
+     * @param indexed
+     *            <code>true</code> to cache filtered and sorted views,
+     *            <code>false</code> to filter and sort on every call (the
+     *            default)
+     * @since 8.12
+     */
+    public void setIndexed(boolean indexed) {
+        this.indexed = indexed;
+        views = null;
+    }
+
+    /**
+     * Gets whether this data provider caches the filtered and sorted views of
+     * the backing collection.
+     *
+     * @see #setIndexed(boolean)
+     * @return <code>true</code> if views are cached, <code>false</code>
+     *         otherwise
+     * @since 8.12
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    @Override
+    public void refreshAll() {
+        views = null;
+        super.refreshAll();
+    }
+
+    @Override
+    public void refreshItem(T item) {
+        views = null;
+        super.refreshItem(item);
+    }
+
     @Override
     public Stream<T> fetch(Query<T, SerializablePredicate<T>> query) {
+        if (indexed) {
+            List<T> view = getView(query, true);
+            int offset = Math.min(query.getOffset(), view.size());
+            int end = (int) Math.min((long) offset + query.getLimit(),
+                    view.size());
+            return view.subList(offset, end).stream();
+        }
+
         Stream<T> stream = getFilteredStream(query);
 
-        Optional<Comparator<T>> comparing = Stream
-                .of(query.getInMemorySorting(), sortOrder)
-                .filter(c -> c != null)
-                .reduce((c1, c2) -> c1.thenComparing(c2));
+        Optional<Comparator<T>> comparing = getComparator(query);
 
         if (comparing.isPresent()) {
             stream = stream.sorted(comparing.get());
@@ -84,9 +206,84 @@ public class ListDataProvider<T>
 
     @Override
     public int size(Query<T, SerializablePredicate<T>> query) {
+        if (indexed) {
+            return getView(query, false).size();
+        }
         return (int) getFilteredStream(query).count();
     }
 
+    /**
+     * Gets a cached view for the query, creating it if necessary.
+     *
+     * @param query
+     *            the query
+     * @param sorted
+     *            <code>true</code> if the items must be sorted,
+     *            <code>false</code> if any view with the same filters can be
+     *            used
+     * @return the filtered and possibly sorted items, never modified
+     */
+    private List<T> getView(Query<T, SerializablePredicate<T>> query,
+            boolean sorted) {
+        Map<ViewKey, List<T>> cache = views;
+        if (cache == null) {
+            cache = new LinkedHashMap<ViewKey, List<T>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<ViewKey, List<T>> eldest) {
+                    return size() > MAX_CACHED_VIEWS;
+                }
+            };
+            views = cache;
+        }
+
+        Object queryFilter = query.getFilter().orElse(null);
+        ViewKey filteredKey = new ViewKey(filter, queryFilter, null, null);
+        ViewKey key = sorted ? new ViewKey(filter, queryFilter,
+                query.getInMemorySorting(), sortOrder) : filteredKey;
+
+        List<T> filtered;
+        synchronized (cache) {
+            List<T> view = cache.get(key);
+            if (view != null) {
+                return view;
+            }
+            if (!sorted) {
+                // The size is the same regardless of sorting
+                for (Map.Entry<ViewKey, List<T>> entry : cache.entrySet()) {
+                    if (entry.getKey().hasSameFilters(key)) {
+                        return entry.getValue();
+                    }
+                }
+            }
+            filtered = cache.get(filteredKey);
+        }
+
+        if (filtered == null) {
+            filtered = getFilteredStream(query).collect(Collectors.toList());
+            synchronized (cache) {
+                cache.put(filteredKey, filtered);
+            }
+        }
+        if (!key.isSorted()) {
+            return filtered;
+        }
+
+        List<T> view = new ArrayList<>(filtered);
+        view.sort(getComparator(query).get());
+        synchronized (cache) {
+            cache.put(key, view);
+        }
+        return view;
+    }
+
+    private Optional<Comparator<T>> getComparator(
+            Query<T, SerializablePredicate<T>> query) {
+        return Stream.of(query.getInMemorySorting(), sortOrder)
+                .filter(c -> c != null)
+                .reduce((c1, c2) -> c1.thenComparing(c2));
+    }
+
     private Stream<T> getFilteredStream(
             Query<T, SerializablePredicate<T>> query) {
         Stream<T> stream = backend.stream();
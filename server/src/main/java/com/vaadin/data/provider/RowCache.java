@@ -0,0 +1,243 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.vaadin.shared.Range;
+
+/**
+ * Bounded least recently used cache of row windows and data set sizes fetched
+ * by a {@link DataCommunicator}, keyed by the filter and sorting used for
+ * fetching them.
+ *
+ * @param <T>
+ *            the bean type
+ *
+ * @author Vaadin Ltd
+ * @since 8.12
+ */
+class RowCache<T> implements Serializable {
+
+    /**
+     * The parameters of a query that affect which rows are returned for a
+     * given range.
+     */
+    static final class QuerySignature implements Serializable {
+        private final Object filter;
+        private final List<Object> sortOrders;
+        private final Comparator<?> inMemorySorting;
+        private final int hashCode;
+
+        QuerySignature(Object filter, List<QuerySortOrder> backEndSorting,
+                Comparator<?> inMemorySorting) {
+            this.filter = filter;
+            // SortOrder does not implement equals
+            sortOrders = new ArrayList<>(backEndSorting.size() * 2);
+            for (QuerySortOrder sortOrder : backEndSorting) {
+                sortOrders.add(sortOrder.getSorted());
+                sortOrders.add(sortOrder.getDirection());
+            }
+            this.inMemorySorting = inMemorySorting;
+            hashCode = Objects.hash(filter, sortOrders, inMemorySorting);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof QuerySignature)) {
+                return false;
+            }
+            QuerySignature other = (QuerySignature) obj;
+            return Objects.equals(filter, other.filter)
+                    && sortOrders.equals(other.sortOrders)
+                    && Objects.equals(inMemorySorting, other.inMemorySorting);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class WindowKey implements Serializable {
+        private final QuerySignature signature;
+        private final Range range;
+
+        private WindowKey(QuerySignature signature, Range range) {
+            this.signature = signature;
+            this.range = range;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof WindowKey)) {
+                return false;
+            }
+            WindowKey other = (WindowKey) obj;
+            return signature.equals(other.signature)
+                    && range.equals(other.range);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * signature.hashCode() + range.hashCode();
+        }
+    }
+
+    private final int maxWindows;
+    private final LinkedHashMap<WindowKey, List<T>> windows;
+    private final Map<QuerySignature, Integer> sizes = new HashMap<>();
+
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxWindows
+     *            the maximum number of row windows to keep, at least 1
+     */
+    RowCache(int maxWindows) {
+        this.maxWindows = maxWindows;
+        // Access order makes the eldest entry the least recently used one
+        windows = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Gets the maximum number of row windows kept in this cache.
+     *
+     * @return the maximum number of row windows
+     */
+    int getMaxWindows() {
+        return maxWindows;
+    }
+
+    /**
+     * Gets cached rows for the given range.
+     *
+     * @param signature
+     *            the signature of the query
+     * @param requestedRows
+     *            the range of rows to get
+     * @return the rows, or <code>null</code> if no cached window contains the
+     *         range
+     */
+    List<T> getRows(QuerySignature signature, Range requestedRows) {
+        for (Map.Entry<WindowKey, List<T>> entry : windows.entrySet()) {
+            WindowKey key = entry.getKey();
+            List<T> rows = entry.getValue();
+            if (!key.signature.equals(signature)
+                    || requestedRows.getStart() < key.range.getStart()) {
+                continue;
+            }
+            int fetchedEnd = key.range.getStart() + rows.size();
+            boolean endOfData = rows.size() < key.range.length();
+            if (requestedRows.getEnd() <= fetchedEnd || endOfData) {
+                // Mark as recently used
+                windows.get(key);
+                hitCount++;
+                int from = Math.min(requestedRows.getStart(), fetchedEnd)
+                        - key.range.getStart();
+                int to = Math.min(requestedRows.getEnd(), fetchedEnd)
+                        - key.range.getStart();
+                return new ArrayList<>(rows.subList(from, to));
+            }
+        }
+        missCount++;
+        return null;
+    }
+
+    /**
+     * Stores fetched rows in the cache, evicting the least recently used
+     * window if the cache is full.
+     *
+     * @param signature
+     *            the signature of the query
+     * @param fetchedRange
+     *            the range that was requested from the data provider
+     * @param rows
+     *            the rows returned by the data provider
+     */
+    void putRows(QuerySignature signature, Range fetchedRange, List<T> rows) {
+        windows.put(new WindowKey(signature, fetchedRange),
+                new ArrayList<>(rows));
+        if (windows.size() > maxWindows) {
+            Iterator<WindowKey> eldest = windows.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Gets the cached size of the data set.
+     *
+     * @param signature
+     *            the signature of the query
+     * @return the size, or <code>null</code> if the size is not cached
+     */
+    Integer getSize(QuerySignature signature) {
+        Integer size = sizes.get(signature);
+        if (size == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return size;
+    }
+
+    /**
+     * Stores the size of the data set in the cache.
+     *
+     * @param signature
+     *            the signature of the query
+     * @param size
+     *            the size of the data set
+     */
+    void putSize(QuerySignature signature, int size) {
+        if (sizes.size() >= maxWindows && !sizes.containsKey(signature)) {
+            // Sizes are cheap to keep but must not grow without bounds
+            sizes.clear();
+        }
+        sizes.put(signature, size);
+    }
+
+    /**
+     * Removes all cached rows and sizes.
+     */
+    void clear() {
+        windows.clear();
+        sizes.clear();
+    }
+
+    long getHitCount() {
+        return hitCount;
+    }
+
+    long getMissCount() {
+        return missCount;
+    }
+}
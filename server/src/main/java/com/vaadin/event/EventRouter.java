@@ -20,10 +20,14 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EventObject;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -44,11 +48,26 @@ import com.vaadin.shared.ui.ComponentStateUtil;
 @SuppressWarnings("serial")
 public class EventRouter implements MethodEventSource {
 
+    private static final ListenerMethod[] NO_LISTENERS = new ListenerMethod[0];
+
     /**
      * List of registered listeners.
      */
     private LinkedHashSet<ListenerMethod> listenerList = null;
 
+    /**
+     * Listeners to notify by event class, in registration order. Built lazily
+     * and discarded whenever the listeners change, so the arrays are never
+     * modified and events can be fired without copying the listeners.
+     */
+    private transient Map<Class<?>, ListenerMethod[]> listenersByEventClass;
+
+    /**
+     * The event types of all registered listeners, built lazily like
+     * {@link #listenersByEventClass}.
+     */
+    private transient Set<Class<?>> listenedTypes;
+
     /*
      * Registers a new listener with the specified activation method to listen
      * events generated by this component. Don't add a JavaDoc comment here, we
@@ -61,13 +80,10 @@ public class EventRouter implements MethodEventSource {
         Objects.requireNonNull(object, "Listener must not be null.");
         getLogger().log(Level.WARNING, "Adding listeners with type Object is"
                 + " deprecated, event listener should extend SerializableEventListener");
-        if (listenerList == null) {
-            listenerList = new LinkedHashSet<>();
-        }
         ListenerMethod listenerMethod = new ListenerMethod(eventType, object,
                 method);
-        listenerList.add(listenerMethod);
-        return () -> listenerList.remove(listenerMethod);
+        addListenerMethod(listenerMethod);
+        return () -> removeListenerMethod(listenerMethod);
     }
 
     /*
@@ -79,13 +95,10 @@ public class EventRouter implements MethodEventSource {
     public Registration addListener(Class<?> eventType,
             SerializableEventListener listener, Method method) {
         Objects.requireNonNull(listener, "Listener must not be null.");
-        if (listenerList == null) {
-            listenerList = new LinkedHashSet<>();
-        }
         ListenerMethod listenerMethod = new ListenerMethod(eventType, listener,
                 method);
-        listenerList.add(listenerMethod);
-        return () -> listenerList.remove(listenerMethod);
+        addListenerMethod(listenerMethod);
+        return () -> removeListenerMethod(listenerMethod);
     }
 
     /**
@@ -138,18 +151,15 @@ public class EventRouter implements MethodEventSource {
             Method method, String eventIdentifier, SharedState state) {
         getLogger().log(Level.WARNING, "Adding listeners with type Object is"
                 + " deprecated, event listener should extend SerializableEventListener");
-        if (listenerList == null) {
-            listenerList = new LinkedHashSet<>();
-        }
         ListenerMethod listenerMethod = new ListenerMethod(eventType, target,
                 method);
-        listenerList.add(listenerMethod);
+        addListenerMethod(listenerMethod);
 
         Registration registration = ComponentStateUtil
                 .addRegisteredEventListener(state, eventIdentifier);
 
         return () -> {
-            listenerList.remove(listenerMethod);
+            removeListenerMethod(listenerMethod);
             if (!hasListeners(eventType)) {
                 registration.remove();
             }
@@ -200,18 +210,15 @@ public class EventRouter implements MethodEventSource {
     public Registration addListener(Class<?> eventType,
             SerializableEventListener listener, Method method,
             String eventIdentifier, SharedState state) {
-        if (listenerList == null) {
-            listenerList = new LinkedHashSet<>();
-        }
         ListenerMethod listenerMethod = new ListenerMethod(eventType, listener,
                 method);
-        listenerList.add(listenerMethod);
+        addListenerMethod(listenerMethod);
 
         Registration registration = ComponentStateUtil
                 .addRegisteredEventListener(state, eventIdentifier);
 
         return () -> {
-            listenerList.remove(listenerMethod);
+            removeListenerMethod(listenerMethod);
             if (!hasListeners(eventType)) {
                 registration.remove();
             }
@@ -230,13 +237,10 @@ public class EventRouter implements MethodEventSource {
         Objects.requireNonNull(object, "Listener must not be null.");
         getLogger().log(Level.WARNING, "Adding listeners with type Object is"
                 + " deprecated, event listener should extend SerializableEventListener");
-        if (listenerList == null) {
-            listenerList = new LinkedHashSet<>();
-        }
         ListenerMethod listenerMethod = new ListenerMethod(eventType, object,
                 methodName);
-        listenerList.add(listenerMethod);
-        return () -> listenerList.remove(listenerMethod);
+        addListenerMethod(listenerMethod);
+        return () -> removeListenerMethod(listenerMethod);
     }
 
     /*
@@ -248,13 +252,10 @@ public class EventRouter implements MethodEventSource {
     public Registration addListener(Class<?> eventType,
             SerializableEventListener listener, String methodName) {
         Objects.requireNonNull(listener, "Listener must not be null.");
-        if (listenerList == null) {
-            listenerList = new LinkedHashSet<>();
-        }
         ListenerMethod listenerMethod = new ListenerMethod(eventType, listener,
                 methodName);
-        listenerList.add(listenerMethod);
-        return () -> listenerList.remove(listenerMethod);
+        addListenerMethod(listenerMethod);
+        return () -> removeListenerMethod(listenerMethod);
     }
 
     /*
@@ -271,6 +272,7 @@ public class EventRouter implements MethodEventSource {
                 final ListenerMethod lm = i.next();
                 if (lm.matches(eventType, target)) {
                     i.remove();
+                    listenersChanged();
                     return;
                 }
             }
@@ -303,6 +305,7 @@ public class EventRouter implements MethodEventSource {
                 final ListenerMethod lm = i.next();
                 if (lm.matches(eventType, target, method)) {
                     i.remove();
+                    listenersChanged();
                     return;
                 }
             }
@@ -339,6 +342,7 @@ public class EventRouter implements MethodEventSource {
                 final ListenerMethod lm = i.next();
                 if (lm.matches(eventType, target, method)) {
                     i.remove();
+                    listenersChanged();
                     return;
                 }
             }
@@ -350,6 +354,56 @@ public class EventRouter implements MethodEventSource {
      */
     public void removeAllListeners() {
         listenerList = null;
+        listenersChanged();
+    }
+
+    private void addListenerMethod(ListenerMethod listenerMethod) {
+        if (listenerList == null) {
+            listenerList = new LinkedHashSet<>();
+        }
+        if (listenerList.add(listenerMethod)) {
+            listenersChanged();
+        }
+    }
+
+    private void removeListenerMethod(ListenerMethod listenerMethod) {
+        if (listenerList != null && listenerList.remove(listenerMethod)) {
+            listenersChanged();
+        }
+    }
+
+    private void listenersChanged() {
+        listenersByEventClass = null;
+        listenedTypes = null;
+    }
+
+    /**
+     * Gets the listeners that should receive events of the given class.
+     *
+     * @param eventClass
+     *            the class of the event
+     * @return the listeners in registration order, not to be modified
+     */
+    private ListenerMethod[] getListenersFor(Class<?> eventClass) {
+        if (listenerList == null) {
+            return NO_LISTENERS;
+        }
+        if (listenersByEventClass == null) {
+            listenersByEventClass = new HashMap<>();
+        }
+        ListenerMethod[] listeners = listenersByEventClass.get(eventClass);
+        if (listeners == null) {
+            List<ListenerMethod> matching = new ArrayList<>();
+            for (ListenerMethod lm : listenerList) {
+                if (lm.receives(eventClass)) {
+                    matching.add(lm);
+                }
+            }
+            listeners = matching.isEmpty() ? NO_LISTENERS
+                    : matching.toArray(new ListenerMethod[matching.size()]);
+            listenersByEventClass.put(eventClass, listeners);
+        }
+        return listeners;
     }
 
     /**
@@ -379,25 +433,19 @@ public class EventRouter implements MethodEventSource {
      *            caller, preventing further listener calls
      */
     public void fireEvent(EventObject event, ErrorHandler errorHandler) {
-        // It is not necessary to send any events if there are no listeners
-        if (listenerList != null) {
-
-            // Make a copy of the listener list to allow listeners to be added
-            // inside listener methods. Fixes #3605.
-
-            // Send the event to all listeners. The listeners themselves
-            // will filter out unwanted events.
-            for (Object l : listenerList.toArray()) {
-                ListenerMethod listenerMethod = (ListenerMethod) l;
-                if (null != errorHandler) {
-                    try {
-                        listenerMethod.receiveEvent(event);
-                    } catch (Exception e) {
-                        errorHandler.error(new ErrorEvent(e));
-                    }
-                } else {
+        // The listeners are looked up from an array that is replaced rather
+        // than modified when listeners change, which allows listeners to be
+        // added inside listener methods. Fixes #3605.
+        for (ListenerMethod listenerMethod : getListenersFor(
+                event.getClass())) {
+            if (null != errorHandler) {
+                try {
                     listenerMethod.receiveEvent(event);
+                } catch (Exception e) {
+                    errorHandler.error(new ErrorEvent(e));
                 }
+            } else {
+                listenerMethod.receiveEvent(event);
             }
         }
     }
@@ -411,14 +459,16 @@ public class EventRouter implements MethodEventSource {
      * @return true if a listener is registered for the given event type
      */
     public boolean hasListeners(Class<?> eventType) {
-        if (listenerList != null) {
+        if (listenerList == null) {
+            return false;
+        }
+        if (listenedTypes == null) {
+            listenedTypes = new HashSet<>();
             for (ListenerMethod lm : listenerList) {
-                if (lm.isType(eventType)) {
-                    return true;
-                }
+                listenedTypes.add(lm.getEventType());
             }
         }
-        return false;
+        return listenedTypes.contains(eventType);
     }
 
     /**
@@ -853,6 +853,27 @@ public class ListenerMethod implements EventListener, Serializable {
         return eventType.isAssignableFrom(this.eventType);
     }
 
+    /**
+     * Checks whether events of the given class are passed to the trigger
+     * method by {@link #receiveEvent(EventObject)}.
+     *
+     * @param eventClass
+     *            the class of the event
+     * @return true if events of the given class are received, false otherwise
+     */
+    boolean receives(Class<?> eventClass) {
+        return eventType.isAssignableFrom(eventClass);
+    }
+
+    /**
+     * Returns the type of the events this ListenerMethod is registered for.
+     *
+     * @return the event type
+     */
+    Class<?> getEventType() {
+        return eventType;
+    }
+
     /**
      * Returns the target object which contains the trigger method.
      *
@@ -27,9 +27,11 @@ import java.util.Collections;
 import java.util.EventObject;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.WeakHashMap;
 
 import com.vaadin.event.EventRouter;
@@ -42,6 +44,7 @@ import com.vaadin.shared.communication.SharedState;
 import com.vaadin.shared.ui.ComponentStateUtil;
 import com.vaadin.ui.Component;
 import com.vaadin.ui.Component.Event;
+import com.vaadin.ui.ConnectorTracker;
 import com.vaadin.ui.HasComponents;
 import com.vaadin.ui.LegacyComponent;
 import com.vaadin.ui.UI;
@@ -79,6 +82,19 @@ public abstract class AbstractClientConnector
 
     private Class<? extends SharedState> stateType;
 
+    /**
+     * Names of the shared state properties marked as changed using
+     * {@link #markStatePropertiesDirty(String...)} since the state was last
+     * encoded, or <code>null</code> if no property has been marked.
+     */
+    private Set<String> dirtyStateProperties;
+
+    /**
+     * Whether the shared state may have changed in a way that is not tracked
+     * per property since the state was last encoded.
+     */
+    private boolean untrackedStateChange;
+
     /**
      * Pending RPC method invocations to be sent.
      */
@@ -103,6 +119,14 @@ public abstract class AbstractClientConnector
     private static final Map<Class<? extends AbstractClientConnector>, Class<? extends SharedState>> STATE_TYPE_CACHE = Collections
             .synchronizedMap(new WeakHashMap<>());
 
+    /**
+     * Static cache telling whether AbstractClientConnector classes override
+     * {@link #beforeClientResponse(boolean)}. Using WeakHashMap since entries
+     * are recalculated on demand.
+     */
+    private static final Map<Class<? extends AbstractClientConnector>, Boolean> BEFORE_CLIENT_RESPONSE_OVERRIDDEN_CACHE = Collections
+            .synchronizedMap(new WeakHashMap<>());
+
     @Override
     public Registration addAttachListener(AttachListener listener) {
         return addListener(AttachEvent.ATTACH_EVENT_IDENTIFIER,
@@ -149,6 +173,7 @@ public abstract class AbstractClientConnector
         assert getSession() == null
                 || getSession().hasLock() : buildLockAssertMessage(
                         "markAsDirty()");
+        untrackedStateChange = true;
         UI uI = getUI();
         if (uI != null) {
             uI.getConnectorTracker().markDirty(this);
@@ -269,6 +294,7 @@ public abstract class AbstractClientConnector
             sharedState = createState();
         }
         if (markAsDirty) {
+            untrackedStateChange = true;
             UI ui = getUI();
             if (ui != null && !ui.getConnectorTracker().isDirty(this)
                     && !ui.getConnectorTracker().isWritingResponse()) {
@@ -278,11 +304,107 @@ public abstract class AbstractClientConnector
         return sharedState;
     }
 
+    /**
+     * Marks the given shared state properties as changed and the connector as
+     * dirty.
+     * <p>
+     * A connector that updates its state using {@code getState(false)} and
+     * this method, instead of using {@link #getState()}, only gets the marked
+     * properties encoded when the response is written, instead of having the
+     * whole state encoded and compared to what was previously sent to the
+     * client. Any call to {@link #getState()}, {@code getState(true)} or
+     * {@link #markAsDirty()} before the response is written causes the whole
+     * state to be encoded as usual.
+     * <p>
+     * The whole state is also always encoded for connectors that override
+     * {@link #beforeClientResponse(boolean)}, since such methods typically
+     * update the state directly. This includes all components. Changing the
+     * state of a connector in any other way without marking the changed
+     * properties is detected when assertions are enabled.
+     *
+     * @param propertyNames
+     *            the names of the changed shared state properties
+     * @since 8.12
+     */
+    protected void markStatePropertiesDirty(String... propertyNames) {
+        assert getSession() == null
+                || getSession().hasLock() : buildLockAssertMessage(
+                        "markStatePropertiesDirty()");
+
+        if (!untrackedStateChange) {
+            if (dirtyStateProperties == null) {
+                dirtyStateProperties = new LinkedHashSet<>();
+            }
+            Collections.addAll(dirtyStateProperties, propertyNames);
+        }
+        UI ui = getUI();
+        if (ui != null && !ui.getConnectorTracker().isDirty(this)
+                && !ui.getConnectorTracker().isWritingResponse()) {
+            ui.getConnectorTracker().markDirty(this);
+        }
+    }
+
     @Override
     public JsonObject encodeState() {
+        Set<String> changedProperties = dirtyStateProperties;
+        boolean onlyTrackedChanges = !untrackedStateChange;
+        dirtyStateProperties = null;
+        untrackedStateChange = false;
+
+        if (onlyTrackedChanges && changedProperties != null
+                && !isBeforeClientResponseOverridden()) {
+            ConnectorTracker connectorTracker = getUI().getConnectorTracker();
+            JsonObject diffState = connectorTracker.getDiffState(this);
+            if (diffState != null) {
+                assert findUntrackedStateChanges(changedProperties, diffState,
+                        connectorTracker)
+                        .isEmpty() : "State properties "
+                                + findUntrackedStateChanges(changedProperties,
+                                        diffState, connectorTracker)
+                                + " of " + getClass().getName()
+                                + " were changed without marking them dirty";
+                // The client already has everything else
+                return JsonCodec.encodeProperties(getState(false),
+                        changedProperties, diffState, getStateType(),
+                        connectorTracker);
+            }
+        }
         return LegacyCommunicationManager.encodeState(this, getState(false));
     }
 
+    private boolean isBeforeClientResponseOverridden() {
+        return BEFORE_CLIENT_RESPONSE_OVERRIDDEN_CACHE.computeIfAbsent(
+                getClass(), key -> {
+                    try {
+                        return key
+                                .getMethod("beforeClientResponse",
+                                        boolean.class)
+                                .getDeclaringClass() != AbstractClientConnector.class;
+                    } catch (NoSuchMethodException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+    }
+
+    /**
+     * Finds the state properties that differ from what has been sent to the
+     * client but have not been marked dirty. Only used for assertions since
+     * it encodes the whole state.
+     */
+    private Set<String> findUntrackedStateChanges(
+            Set<String> changedProperties, JsonObject diffState,
+            ConnectorTracker connectorTracker) {
+        JsonObject diff = (JsonObject) JsonCodec.encode(getState(false),
+                diffState, getStateType(), connectorTracker).getDiff();
+        Set<String> untracked = new LinkedHashSet<>();
+        for (String key : diff.keys()) {
+            if (!changedProperties.contains(key)) {
+                untracked.add(key);
+            }
+        }
+        return untracked;
+    }
+
     /**
      * Creates the shared state bean to be used in server to client
      * communication.
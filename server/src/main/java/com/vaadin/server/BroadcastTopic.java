@@ -0,0 +1,222 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.vaadin.shared.Registration;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
+
+import elemental.json.JsonValue;
+
+/**
+ * A topic for publishing the same value to many UIs, e.g. a stock quote shown
+ * by every user of the application.
+ * <p>
+ * Each UI subscribes to the topic with a listener that updates its components.
+ * When a value is {@link #publish(Object) published}, the listeners are run
+ * through {@link UI#access(Runnable)}, so with automatic push the updates are
+ * pushed to the clients once the listeners have run. The published value is
+ * shared by the subscribed UIs while it is the current value of the topic:
+ * when a component state or RPC parameter refers to the published instance,
+ * e.g. a list set as the items of a JavaScript component, it is converted to
+ * JSON only once instead of once for every UI.
+ * <p>
+ * A published value must not be modified after it has been published and it
+ * must not contain components or other connectors. Publish a new value
+ * instead of modifying the previous one.
+ * <p>
+ * The subscriptions of a topic are not serialized. A subscription is removed
+ * when its UI is detached.
+ *
+ * @param <T>
+ *            the type of the published values
+ *
+ * @since 8.12
+ * @author Vaadin Ltd
+ */
+public class BroadcastTopic<T> implements Serializable {
+
+    private class Subscription implements Serializable {
+        private final UI ui;
+        private final SerializableConsumer<T> listener;
+        private Registration detachRegistration;
+
+        private Subscription(UI ui, SerializableConsumer<T> listener) {
+            this.ui = ui;
+            this.listener = listener;
+        }
+
+        private void deliver(T value) {
+            try {
+                ui.access(new ErrorHandlingRunnable() {
+                    @Override
+                    public void run() {
+                        listener.accept(value);
+                    }
+
+                    @Override
+                    public void handleError(Exception exception) {
+                        if (exception instanceof UIDetachedException) {
+                            remove();
+                        } else if (exception instanceof RuntimeException) {
+                            throw (RuntimeException) exception;
+                        } else {
+                            throw new RuntimeException(exception);
+                        }
+                    }
+                });
+            } catch (UIDetachedException e) {
+                remove();
+            }
+        }
+
+        private void remove() {
+            if (subscriptions.remove(this)) {
+                detachRegistration.remove();
+                if (subscriptions.stream().noneMatch(s -> s.ui == ui)) {
+                    ui.getConnectorTracker()
+                            .removeBroadcastTopic(BroadcastTopic.this);
+                }
+            }
+        }
+    }
+
+    /**
+     * The current value together with the JSON it has been encoded to, by
+     * type.
+     */
+    private static class SharedValue implements Serializable {
+        private final Object value;
+        private final ConcurrentMap<Type, JsonValue> encoded = new ConcurrentHashMap<>();
+
+        private SharedValue(Object value) {
+            this.value = value;
+        }
+    }
+
+    private transient List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private transient volatile SharedValue sharedValue;
+
+    private volatile T value;
+
+    /**
+     * Creates a new topic without a value.
+     */
+    public BroadcastTopic() {
+    }
+
+    /**
+     * Subscribes the given UI to this topic. The listener is run with the UI
+     * locked for every value published after subscribing, until the returned
+     * registration is removed or the UI is detached. The current value, if
+     * any, is not delivered to the new subscriber; use {@link #getValue()} to
+     * initialize the UI.
+     *
+     * @param ui
+     *            the subscribing UI, not <code>null</code>
+     * @param listener
+     *            the listener that applies published values to the UI, not
+     *            <code>null</code>
+     * @return a registration for removing the subscription
+     */
+    public Registration subscribe(UI ui, SerializableConsumer<T> listener) {
+        Objects.requireNonNull(ui, "UI cannot be null");
+        Objects.requireNonNull(listener, "Listener cannot be null");
+        Subscription subscription = new Subscription(ui, listener);
+        subscription.detachRegistration = ui
+                .addDetachListener(event -> subscription.remove());
+        subscriptions.add(subscription);
+        ui.getConnectorTracker().addBroadcastTopic(this);
+        return subscription::remove;
+    }
+
+    /**
+     * Publishes a value to all subscribed UIs. The listeners of the UIs are
+     * run asynchronously through {@link UI#access(Runnable)}.
+     *
+     * @param value
+     *            the value to publish, may be <code>null</code>
+     */
+    public void publish(T value) {
+        this.value = value;
+        sharedValue = value == null || value instanceof JsonValue ? null
+                : new SharedValue(value);
+        for (Subscription subscription : subscriptions) {
+            subscription.deliver(value);
+        }
+    }
+
+    /**
+     * Gets the most recently published value.
+     *
+     * @return the current value, or <code>null</code> if no value has been
+     *         published
+     */
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * Gets the number of UIs currently subscribed to this topic.
+     *
+     * @return the number of subscriptions
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Gets the shared JSON for the given value if it is the current value of
+     * this topic. The value is encoded the first time it is requested for a
+     * type and the result is reused by all subscribed UIs.
+     * <p>
+     * This method is for internal use only.
+     *
+     * @param value
+     *            the value to encode, not <code>null</code>
+     * @param type
+     *            the type to encode the value as, not <code>null</code>
+     * @return the shared JSON, or <code>null</code> if the value is not the
+     *         current value of this topic
+     */
+    JsonValue getSharedEncoding(Object value, Type type) {
+        SharedValue shared = sharedValue;
+        if (shared == null || shared.value != value) {
+            return null;
+        }
+        // A shared value contains no connectors, so no connector tracker is
+        // needed and no other shared values are looked up while encoding it
+        return shared.encoded.computeIfAbsent(type,
+                t -> JsonCodec.encode(value, null, t, null).getEncodedValue());
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        subscriptions = new CopyOnWriteArrayList<>();
+    }
+}
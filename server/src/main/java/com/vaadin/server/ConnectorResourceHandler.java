@@ -41,6 +41,20 @@ public class ConnectorResourceHandler implements RequestHandler {
 
     }
 
+    /**
+     * Checks whether the given request is for a connector resource.
+     *
+     * @param request
+     *            the request to check
+     * @return <code>true</code> if the request is for a connector resource,
+     *         otherwise <code>false</code>
+     */
+    static boolean isConnectorResourceRequest(VaadinRequest request) {
+        String requestPath = request.getPathInfo();
+        return requestPath != null
+                && requestPath.startsWith(CONNECTOR_RESOURCE_PREFIX);
+    }
+
     @Override
     public boolean handleRequest(VaadinSession session, VaadinRequest request,
             VaadinResponse response) throws IOException {
@@ -62,7 +76,15 @@ public class ConnectorResourceHandler implements RequestHandler {
         String cid = matcher.group(2);
         String key = matcher.group(3);
 
-        session.lock();
+        // Only looking up the connector, so there's no need to wait for other
+        // resource requests if shared locking is enabled
+        boolean sharedLock = session.getService().getDeploymentConfiguration()
+                .isSharedSessionLockEnabled();
+        if (sharedLock) {
+            session.lockShared();
+        } else {
+            session.lock();
+        }
         UI ui;
         ClientConnector connector;
         try {
@@ -81,7 +103,11 @@ public class ConnectorResourceHandler implements RequestHandler {
             }
 
         } finally {
-            session.unlock();
+            if (sharedLock) {
+                session.unlockShared();
+            } else {
+                session.unlock();
+            }
         }
 
         Map<Class<?>, CurrentInstance> oldInstances = CurrentInstance
@@ -50,6 +50,18 @@ public interface Constants {
             + "in web.xml. The default of 5min will be used.\n"
             + "===========================================================";
 
+    static final String WARNING_UIDL_COMPRESSION_THRESHOLD_NOT_NUMERIC = "\n"
+            + "===========================================================\n"
+            + "WARNING: uidlCompressionThreshold has been set to a non integer value "
+            + "in web.xml. UIDL responses will not be compressed.\n"
+            + "===========================================================";
+
+    static final String WARNING_STATIC_RESOURCE_CACHE_SIZE_NOT_NUMERIC = "\n"
+            + "===========================================================\n"
+            + "WARNING: staticResourceCacheSize has been set to a non integer value "
+            + "in web.xml. Static resources will not be cached.\n"
+            + "===========================================================";
+
     static final String WARNING_PUSH_MODE_NOT_RECOGNIZED = "\n"
             + "===========================================================\n"
             + "WARNING: pushMode has been set to an unrecognized value\n"
@@ -115,6 +127,10 @@ public interface Constants {
     static final String SERVLET_PARAMETER_UI_PROVIDER = "UIProvider";
     static final String SERVLET_PARAMETER_SYNC_ID_CHECK = "syncIdCheck";
     static final String SERVLET_PARAMETER_SENDURLSASPARAMETERS = "sendUrlsAsParameters";
+    static final String SERVLET_PARAMETER_STREAMING_UIDL = "streamingUidl";
+    static final String SERVLET_PARAMETER_SHARED_SESSION_LOCK = "sharedSessionLock";
+    static final String SERVLET_PARAMETER_UIDL_COMPRESSION_THRESHOLD = "uidlCompressionThreshold";
+    static final String SERVLET_PARAMETER_STATIC_RESOURCE_CACHE_SIZE = "staticResourceCacheSize";
     static final String SERVLET_PARAMETER_PUSH_SUSPEND_TIMEOUT_LONGPOLLING = "pushLongPollingSuspendTimeout";
     /**
      * Name of system or context property to write declarative syntax with the
@@ -55,6 +55,34 @@ public class DefaultDeploymentConfiguration
 
     public static final boolean DEFAULT_SEND_URLS_AS_PARAMETERS = true;
 
+    /**
+     * Default value for {@link #isStreamingUidlEnabled()} = {@value} .
+     *
+     * @since 8.12
+     */
+    public static final boolean DEFAULT_STREAMING_UIDL = false;
+
+    /**
+     * Default value for {@link #isSharedSessionLockEnabled()} = {@value} .
+     *
+     * @since 8.12
+     */
+    public static final boolean DEFAULT_SHARED_SESSION_LOCK = false;
+
+    /**
+     * Default value for {@link #getUidlCompressionThreshold()} = {@value} .
+     *
+     * @since 8.12
+     */
+    public static final int DEFAULT_UIDL_COMPRESSION_THRESHOLD = -1;
+
+    /**
+     * Default value for {@link #getStaticResourceCacheSize()} = {@value} .
+     *
+     * @since 8.12
+     */
+    public static final int DEFAULT_STATIC_RESOURCE_CACHE_SIZE = 0;
+
     private final Properties initParameters;
     private boolean productionMode;
     private boolean xsrfProtectionEnabled;
@@ -65,6 +93,10 @@ public class DefaultDeploymentConfiguration
     private final Class<?> systemPropertyBaseClass;
     private boolean syncIdCheck;
     private boolean sendUrlsAsParameters;
+    private boolean streamingUidl;
+    private boolean sharedSessionLock;
+    private int uidlCompressionThreshold;
+    private int staticResourceCacheSize;
 
     /**
      * Create a new deployment configuration instance.
@@ -89,6 +121,10 @@ public class DefaultDeploymentConfiguration
         checkPushMode();
         checkSyncIdCheck();
         checkSendUrlsAsParameters();
+        checkStreamingUidl();
+        checkSharedSessionLock();
+        checkUidlCompressionThreshold();
+        checkStaticResourceCacheSize();
     }
 
     @Override
@@ -248,6 +284,48 @@ public class DefaultDeploymentConfiguration
         return sendUrlsAsParameters;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The default value is <code>false</code>.
+     */
+    @Override
+    public boolean isStreamingUidlEnabled() {
+        return streamingUidl;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The default value is <code>false</code>.
+     */
+    @Override
+    public boolean isSharedSessionLockEnabled() {
+        return sharedSessionLock;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The default value is <code>-1</code>, i.e. responses are not
+     * compressed.
+     */
+    @Override
+    public int getUidlCompressionThreshold() {
+        return uidlCompressionThreshold;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The default value is <code>0</code>, i.e. static resources are not
+     * cached.
+     */
+    @Override
+    public int getStaticResourceCacheSize() {
+        return staticResourceCacheSize;
+    }
+
     /**
      * {@inheritDoc}
      * <p>
@@ -346,6 +424,46 @@ public class DefaultDeploymentConfiguration
                         .equals("true");
     }
 
+    private void checkStreamingUidl() {
+        streamingUidl = getApplicationOrSystemProperty(
+                Constants.SERVLET_PARAMETER_STREAMING_UIDL,
+                Boolean.toString(DEFAULT_STREAMING_UIDL)).equals("true");
+    }
+
+    private void checkSharedSessionLock() {
+        sharedSessionLock = getApplicationOrSystemProperty(
+                Constants.SERVLET_PARAMETER_SHARED_SESSION_LOCK,
+                Boolean.toString(DEFAULT_SHARED_SESSION_LOCK)).equals("true");
+    }
+
+    private void checkUidlCompressionThreshold() {
+        try {
+            uidlCompressionThreshold = Integer
+                    .parseInt(getApplicationOrSystemProperty(
+                            Constants.SERVLET_PARAMETER_UIDL_COMPRESSION_THRESHOLD,
+                            Integer.toString(
+                                    DEFAULT_UIDL_COMPRESSION_THRESHOLD)));
+        } catch (NumberFormatException e) {
+            getLogger().warning(
+                    Constants.WARNING_UIDL_COMPRESSION_THRESHOLD_NOT_NUMERIC);
+            uidlCompressionThreshold = DEFAULT_UIDL_COMPRESSION_THRESHOLD;
+        }
+    }
+
+    private void checkStaticResourceCacheSize() {
+        try {
+            staticResourceCacheSize = Integer
+                    .parseInt(getApplicationOrSystemProperty(
+                            Constants.SERVLET_PARAMETER_STATIC_RESOURCE_CACHE_SIZE,
+                            Integer.toString(
+                                    DEFAULT_STATIC_RESOURCE_CACHE_SIZE)));
+        } catch (NumberFormatException e) {
+            getLogger().warning(
+                    Constants.WARNING_STATIC_RESOURCE_CACHE_SIZE_NOT_NUMERIC);
+            staticResourceCacheSize = DEFAULT_STATIC_RESOURCE_CACHE_SIZE;
+        }
+    }
+
     private Logger getLogger() {
         return Logger.getLogger(getClass().getName());
     }
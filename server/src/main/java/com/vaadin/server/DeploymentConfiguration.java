@@ -99,6 +99,72 @@ public interface DeploymentConfiguration extends Serializable {
      */
     public boolean isCloseIdleSessions();
 
+    /**
+     * Returns whether the shared state, connector type, hierarchy and RPC
+     * sections of UIDL responses should be written to the response one
+     * connector at a time instead of first being collected into a single JSON
+     * tree.
+     * <p>
+     * Streaming does not change the written JSON, but avoids holding the
+     * encoded data of all dirty connectors in memory at the same time.
+     *
+     * @since 8.12
+     * @return <code>true</code> if UIDL sections are streamed;
+     *         <code>false</code> otherwise
+     */
+    public boolean isStreamingUidlEnabled();
+
+    /**
+     * Returns whether connector resource lookups and heartbeat requests should
+     * only take a shared lock on the session instead of locking it
+     * exclusively.
+     * <p>
+     * Requests holding a shared lock can be handled concurrently with each
+     * other, but not while the session is locked exclusively, e.g. while a
+     * UIDL request is being handled. The session is also looked up using the
+     * shared lock for such requests, and the cleanup at the end of the request
+     * is skipped if the session is locked by another thread at that point.
+     *
+     * @see VaadinSession#lockShared()
+     * @since 8.12
+     * @return <code>true</code> if a shared lock is used for resource lookups
+     *         and heartbeats; <code>false</code> otherwise
+     */
+    public boolean isSharedSessionLockEnabled();
+
+    /**
+     * Returns the minimum size in bytes of a UIDL response for it to be gzip
+     * compressed when the browser accepts gzip encoding, or a negative number
+     * if UIDL responses should never be compressed.
+     * <p>
+     * Compressing small responses costs more CPU time than is saved in
+     * transfer time, so the threshold should typically be at least a few
+     * kilobytes. Compression should not be enabled if the servlet container
+     * or a filter already compresses the responses.
+     *
+     * @since 8.12
+     * @return the compression threshold in bytes, or a negative number if
+     *         compression is disabled
+     */
+    public int getUidlCompressionThreshold();
+
+    /**
+     * Returns the maximum total size in bytes of the static resources that
+     * {@link VaadinServlet} keeps in memory when serving files from the VAADIN
+     * directory, or zero if static resources should not be cached.
+     * <p>
+     * Cached resources are served with strong ETags and precomputed gzip
+     * variants without looking them up again, so they are assumed not to
+     * change while the application is running. The cache bypasses
+     * {@link VaadinServlet#writeStaticResourceResponse} and
+     * {@link VaadinServlet#allowServePrecompressedResource}, so it should not
+     * be enabled if those are overridden.
+     *
+     * @since 8.12
+     * @return the cache size in bytes, or zero if caching is disabled
+     */
+    public int getStaticResourceCacheSize();
+
     /**
      * Returns the mode of bidirectional ("push") client-server communication
      * that should be used.
@@ -16,13 +16,21 @@
 
 package com.vaadin.server;
 
+import java.io.EOFException;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -66,6 +74,33 @@ public class DownloadStream implements Serializable {
 
     private int bufferSize = 0;
 
+    /**
+     * Maximum number of ranges in a <code>Range</code> header, more are
+     * ignored to prevent abuse.
+     */
+    private static final int MAX_RANGES = 32;
+
+    /**
+     * An inclusive range of bytes of the stream.
+     */
+    static final class ByteRange implements Serializable {
+        final long start;
+        final long end;
+
+        ByteRange(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        long getLength() {
+            return end - start + 1;
+        }
+
+        String getContentRange(long length) {
+            return "bytes " + start + "-" + end + "/" + length;
+        }
+    }
+
     /**
      * Creates a new instance of DownloadStream.
      */
@@ -238,6 +273,14 @@ public class DownloadStream implements Serializable {
      * response. If there's is a parameter named <code>Location</code>, a
      * redirect (302 Moved temporarily) is sent instead of the contents of this
      * stream.
+     * <p>
+     * If the length of the stream is known, either because the stream is a
+     * {@link FileInputStream} or because a <code>Content-Length</code>
+     * parameter has been set, byte ranges requested using the
+     * <code>Range</code> header are supported. An <code>If-Range</code>
+     * header is honored if it matches the <code>ETag</code> or
+     * <code>Last-Modified</code> parameter. Ranges of file streams are read
+     * from the requested positions instead of skipping the preceding data.
      *
      * @param request
      *            the request for which the response should be written
@@ -293,24 +336,57 @@ public class DownloadStream implements Serializable {
 
                 response.setHeader(CONTENT_DISPOSITION, contentDisposition);
 
+                FileChannel channel = null;
+                long position = 0;
+                long length;
+                if (data instanceof FileInputStream) {
+                    channel = ((FileInputStream) data).getChannel();
+                    position = channel.position();
+                    length = channel.size() - position;
+                } else {
+                    length = getContentLengthParameter();
+                }
+
+                List<ByteRange> ranges = null;
+                if (length >= 0) {
+                    response.setHeader("Accept-Ranges", "bytes");
+                    ranges = getRequestedRanges(request, length);
+                }
+
+                if (ranges != null && ranges.isEmpty()) {
+                    response.setStatus(
+                            HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader("Content-Range", "bytes */" + length);
+                    response.setHeader("Content-Length", "0");
+                    return;
+                }
+
                 int bufferSize = getBufferSize();
                 if (bufferSize <= 0 || bufferSize > Constants.MAX_BUFFER_SIZE) {
                     bufferSize = Constants.DEFAULT_BUFFER_SIZE;
                 }
-                final byte[] buffer = new byte[bufferSize];
-                int bytesRead = 0;
-
-                out = response.getOutputStream();
 
-                long totalWritten = 0;
-                while ((bytesRead = data.read(buffer)) > 0) {
-                    out.write(buffer, 0, bytesRead);
-
-                    totalWritten += bytesRead;
-                    if (totalWritten >= buffer.length) {
-                        // Avoid chunked encoding for small resources
-                        out.flush();
+                if (ranges == null) {
+                    if (channel != null
+                            && getParameter("Content-Length") == null) {
+                        response.setHeader("Content-Length",
+                                String.valueOf(length));
                     }
+                    out = response.getOutputStream();
+                    copy(data, out, bufferSize);
+                } else if (ranges.size() == 1) {
+                    ByteRange range = ranges.get(0);
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader("Content-Range",
+                            range.getContentRange(length));
+                    response.setHeader("Content-Length",
+                            String.valueOf(range.getLength()));
+                    out = response.getOutputStream();
+                    writeRanges(data, channel, position, ranges, null, out,
+                            bufferSize);
+                } else {
+                    writeMultipartRanges(data, channel, position, length,
+                            ranges, response, bufferSize);
                 }
             } finally {
                 tryToCloseStream(out);
@@ -319,6 +395,242 @@ public class DownloadStream implements Serializable {
         }
     }
 
+    private void copy(InputStream data, OutputStream out, int bufferSize)
+            throws IOException {
+        final byte[] buffer = new byte[bufferSize];
+        int bytesRead = 0;
+
+        long totalWritten = 0;
+        while ((bytesRead = data.read(buffer)) > 0) {
+            out.write(buffer, 0, bytesRead);
+
+            totalWritten += bytesRead;
+            if (totalWritten >= buffer.length) {
+                // Avoid chunked encoding for small resources
+                out.flush();
+            }
+        }
+    }
+
+    private static void copyRange(FileChannel channel, long position,
+            long count, OutputStream out, byte[] buffer) throws IOException {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        long end = position + count;
+        while (position < end) {
+            byteBuffer.clear();
+            byteBuffer.limit((int) Math.min(buffer.length, end - position));
+            int bytesRead = channel.read(byteBuffer, position);
+            if (bytesRead < 0) {
+                throw new EOFException(
+                        "File ended before the end of the range");
+            }
+            out.write(buffer, 0, bytesRead);
+            position += bytesRead;
+        }
+    }
+
+    private void writeMultipartRanges(InputStream data, FileChannel channel,
+            long position, long length, List<ByteRange> ranges,
+            VaadinResponse response, int bufferSize) throws IOException {
+        String boundary = "vaadin-" + Long
+                .toHexString(ThreadLocalRandom.current().nextLong());
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        byte[] end = ("\r\n--" + boundary + "--\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        long contentLength = end.length;
+        for (ByteRange range : ranges) {
+            String partHeader = (partHeaders.isEmpty() ? "" : "\r\n") + "--"
+                    + boundary + "\r\n"
+                    + (getContentType() == null ? ""
+                            : "Content-Type: " + getContentType() + "\r\n")
+                    + "Content-Range: " + range.getContentRange(length)
+                    + "\r\n\r\n";
+            byte[] bytes = partHeader.getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(bytes);
+            contentLength += bytes.length + range.getLength();
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setHeader("Content-Length", String.valueOf(contentLength));
+        OutputStream out = response.getOutputStream();
+        try {
+            writeRanges(data, channel, position, ranges, partHeaders, out,
+                    bufferSize);
+            out.write(end);
+        } finally {
+            tryToCloseStream(out);
+        }
+    }
+
+    /**
+     * Writes the given ranges of the stream, preceded by the given part
+     * headers if any. The ranges must be in ascending order and not overlap.
+     */
+    private static void writeRanges(InputStream data, FileChannel channel,
+            long position, List<ByteRange> ranges, List<byte[]> partHeaders,
+            OutputStream out, int bufferSize) throws IOException {
+        byte[] buffer = new byte[bufferSize];
+        long streamPosition = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            if (partHeaders != null) {
+                out.write(partHeaders.get(i));
+            }
+            if (channel != null) {
+                copyRange(channel, position + range.start, range.getLength(),
+                        out, buffer);
+                continue;
+            }
+
+            skipFully(data, range.start - streamPosition);
+            long remaining = range.getLength();
+            while (remaining > 0) {
+                int bytesRead = data.read(buffer, 0,
+                        (int) Math.min(buffer.length, remaining));
+                if (bytesRead < 0) {
+                    throw new EOFException(
+                            "Stream ended before the end of the range");
+                }
+                out.write(buffer, 0, bytesRead);
+                remaining -= bytesRead;
+            }
+            streamPosition = range.end + 1;
+        }
+    }
+
+    private static void skipFully(InputStream data, long count)
+            throws IOException {
+        while (count > 0) {
+            long skipped = data.skip(count);
+            if (skipped <= 0) {
+                if (data.read() < 0) {
+                    throw new EOFException(
+                            "Stream ended before the start of the range");
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    private long getContentLengthParameter() {
+        String contentLength = getParameter("Content-Length");
+        if (contentLength != null) {
+            try {
+                return Long.parseLong(contentLength.trim());
+            } catch (NumberFormatException e) {
+                // Unknown length
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the byte ranges requested by the given request.
+     *
+     * @param request
+     *            the request, may be <code>null</code>
+     * @param length
+     *            the length of the stream in bytes
+     * @return the requested ranges in ascending order with overlapping ranges
+     *         merged, an empty list if none of the requested ranges can be
+     *         satisfied, or <code>null</code> if the whole stream should be
+     *         sent
+     */
+    private List<ByteRange> getRequestedRanges(VaadinRequest request,
+            long length) {
+        if (request == null || !"GET".equals(request.getMethod())) {
+            return null;
+        }
+        String rangeHeader = request.getHeader("Range");
+        if (rangeHeader == null) {
+            return null;
+        }
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange != null && !ifRange.equals(getParameter("ETag"))
+                && !ifRange.equals(getParameter("Last-Modified"))) {
+            // The client has an outdated version, send everything
+            return null;
+        }
+        return parseRanges(rangeHeader, length);
+    }
+
+    /**
+     * Parses the value of a <code>Range</code> header.
+     *
+     * @param rangeHeader
+     *            the header value
+     * @param length
+     *            the length of the stream in bytes
+     * @return the satisfiable ranges in ascending order with overlapping
+     *         ranges merged, an empty list if no range is satisfiable, or
+     *         <code>null</code> if the header is invalid and should be ignored
+     */
+    static List<ByteRange> parseRanges(String rangeHeader, long length) {
+        String header = rangeHeader.trim();
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+        String[] specs = header.substring("bytes=".length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+        try {
+            for (String spec : specs) {
+                spec = spec.trim();
+                int dash = spec.indexOf('-');
+                if (dash < 0) {
+                    return null;
+                }
+                String first = spec.substring(0, dash).trim();
+                String last = spec.substring(dash + 1).trim();
+                long start;
+                long end;
+                if (first.isEmpty()) {
+                    // Suffix range: the last n bytes
+                    long suffixLength = Long.parseLong(last);
+                    start = Math.max(0, length - suffixLength);
+                    end = length - 1;
+                    if (suffixLength <= 0) {
+                        continue;
+                    }
+                } else {
+                    start = Long.parseLong(first);
+                    end = last.isEmpty() ? length - 1
+                            : Math.min(Long.parseLong(last), length - 1);
+                    if (!last.isEmpty() && Long.parseLong(last) < start) {
+                        return null;
+                    }
+                }
+                if (start < 0) {
+                    return null;
+                }
+                if (start < length) {
+                    ranges.add(new ByteRange(start, end));
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        ranges.sort((a, b) -> Long.compare(a.start, b.start));
+        List<ByteRange> merged = new ArrayList<>(ranges.size());
+        for (ByteRange range : ranges) {
+            ByteRange previous = merged.isEmpty() ? null
+                    : merged.get(merged.size() - 1);
+            if (previous != null && range.start <= previous.end + 1) {
+                merged.set(merged.size() - 1, new ByteRange(previous.start,
+                        Math.max(previous.end, range.end)));
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+
     /**
      * Returns the filename formatted for inclusion in a Content-Disposition
      * header. Includes both a plain version of the name and a UTF-8 version
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.vaadin.server.RequestMetrics.Phase;
+
+/**
+ * Request metrics listener that aggregates the metrics of all requests into
+ * in-memory histograms. The histograms can be read at any time, for instance
+ * to periodically export them to a monitoring system.
+ * <p>
+ * Example of registering the listener:
+ *
+ * <pre>
+ * public class MetricsInitListener implements VaadinServiceInitListener {
+ *     public static final InMemoryRequestMetricsListener METRICS = new InMemoryRequestMetricsListener();
+ *
+ *     &#64;Override
+ *     public void serviceInit(ServiceInitEvent event) {
+ *         event.addRequestMetricsListener(METRICS);
+ *     }
+ * }
+ * </pre>
+ *
+ * @author Vaadin Ltd
+ * @since 8.12
+ */
+public class InMemoryRequestMetricsListener implements RequestMetricsListener {
+
+    /**
+     * A thread safe histogram with exponentially growing buckets. Bucket
+     * <code>i</code> counts the values that are at most <code>2^i</code> and
+     * greater than the upper bound of the previous bucket.
+     */
+    public static class Histogram implements Serializable {
+
+        /**
+         * The number of buckets in a histogram, enough to cover all
+         * non-negative long values.
+         */
+        public static final int BUCKET_COUNT = 64;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(
+                BUCKET_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        /**
+         * Records a value.
+         *
+         * @param value
+         *            the value to record, negative values are recorded as 0
+         */
+        public void record(long value) {
+            value = Math.max(0, value);
+            buckets.incrementAndGet(getBucketIndex(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long currentMax;
+            while (value > (currentMax = max.get())
+                    && !max.compareAndSet(currentMax, value)) {
+                // Retry until max is at least value
+            }
+        }
+
+        private static int getBucketIndex(long value) {
+            if (value <= 1) {
+                return 0;
+            }
+            // Smallest i for which value <= 2^i
+            return Math.min(BUCKET_COUNT - 1,
+                    64 - Long.numberOfLeadingZeros(value - 1));
+        }
+
+        /**
+         * Gets the inclusive upper bound of the values counted in the given
+         * bucket.
+         *
+         * @param index
+         *            the bucket index, 0 to {@link #BUCKET_COUNT} - 1
+         * @return the upper bound of the bucket
+         */
+        public static long getBucketUpperBound(int index) {
+            if (index >= BUCKET_COUNT - 1) {
+                return Long.MAX_VALUE;
+            }
+            return 1L << index;
+        }
+
+        /**
+         * Gets the number of recorded values in the given bucket.
+         *
+         * @param index
+         *            the bucket index, 0 to {@link #BUCKET_COUNT} - 1
+         * @return the number of values in the bucket
+         */
+        public long getBucketCount(int index) {
+            return buckets.get(index);
+        }
+
+        /**
+         * Gets the number of recorded values.
+         *
+         * @return the number of recorded values
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * Gets the sum of all recorded values.
+         *
+         * @return the sum of recorded values
+         */
+        public long getSum() {
+            return sum.get();
+        }
+
+        /**
+         * Gets the largest recorded value.
+         *
+         * @return the largest recorded value, or 0 if no values have been
+         *         recorded
+         */
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Gets the mean of the recorded values.
+         *
+         * @return the mean value, or 0 if no values have been recorded
+         */
+        public double getMean() {
+            long n = count.get();
+            return n == 0 ? 0 : (double) sum.get() / n;
+        }
+
+        /**
+         * Gets an estimate of the given percentile of the recorded values. The
+         * estimate is the upper bound of the bucket containing the
+         * percentile, limited by the largest recorded value.
+         *
+         * @param percentile
+         *            the percentile, between 0 and 100
+         * @return the estimated value at the percentile, or 0 if no values
+         *         have been recorded
+         */
+        public long getPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException(
+                        "Percentile must be between 0 and 100, was "
+                                + percentile);
+            }
+            long n = count.get();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(n * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(getBucketUpperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        /**
+         * Removes all recorded values.
+         */
+        public void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+    }
+
+    private final Map<Phase, Histogram> phaseHistograms = new EnumMap<>(
+            Phase.class);
+    private final Histogram totalTime = new Histogram();
+    private final Histogram lockWaitTime = new Histogram();
+    private final Histogram dirtyConnectors = new Histogram();
+    private final Histogram bytesWritten = new Histogram();
+
+    /**
+     * Creates a new listener with empty histograms.
+     */
+    public InMemoryRequestMetricsListener() {
+        for (Phase phase : Phase.values()) {
+            phaseHistograms.put(phase, new Histogram());
+        }
+    }
+
+    @Override
+    public void requestHandled(RequestMetrics metrics) {
+        for (Phase phase : Phase.values()) {
+            phaseHistograms.get(phase).record(metrics.getPhaseNanos(phase));
+        }
+        totalTime.record(metrics.getTotalNanos());
+        lockWaitTime.record(metrics.getLockWaitNanos());
+        dirtyConnectors.record(metrics.getDirtyConnectorCount());
+        bytesWritten.record(metrics.getBytesWritten());
+    }
+
+    /**
+     * Gets the histogram of the time spent in the given phase, in
+     * nanoseconds.
+     *
+     * @param phase
+     *            the phase, not <code>null</code>
+     * @return the histogram for the phase
+     */
+    public Histogram getPhaseTimeHistogram(Phase phase) {
+        return phaseHistograms.get(phase);
+    }
+
+    /**
+     * Gets the histogram of the total request handling time, in nanoseconds.
+     *
+     * @return the total time histogram
+     */
+    public Histogram getTotalTimeHistogram() {
+        return totalTime;
+    }
+
+    /**
+     * Gets the histogram of the time spent waiting for the session lock, in
+     * nanoseconds.
+     *
+     * @return the lock wait time histogram
+     */
+    public Histogram getLockWaitTimeHistogram() {
+        return lockWaitTime;
+    }
+
+    /**
+     * Gets the histogram of the number of dirty connectors in each response.
+     *
+     * @return the dirty connector count histogram
+     */
+    public Histogram getDirtyConnectorCountHistogram() {
+        return dirtyConnectors;
+    }
+
+    /**
+     * Gets the histogram of the number of bytes written for each response.
+     *
+     * @return the bytes written histogram
+     */
+    public Histogram getBytesWrittenHistogram() {
+        return bytesWritten;
+    }
+
+    /**
+     * Removes all recorded values from all histograms.
+     */
+    public void reset() {
+        for (Histogram histogram : phaseHistograms.values()) {
+            histogram.reset();
+        }
+        totalTime.reset();
+        lockWaitTime.reset();
+        dirtyConnectors.reset();
+        bytesWritten.reset();
+    }
+}
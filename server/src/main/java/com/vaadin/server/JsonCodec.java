@@ -31,6 +31,9 @@ import kava.beans.Introspector;
 import kava.beans.PropertyDescriptor;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.*;
 import java.util.*;
 import java.util.Map.Entry;
@@ -178,6 +181,236 @@ public class JsonCodec implements Serializable {
 
     }
 
+    /**
+     * Encodes one property of a bean, reusing the reference value when the
+     * property has not changed. Encoders are created once per bean type and
+     * access the property through a {@link MethodHandle} when possible.
+     */
+    private abstract static class PropertyEncoder implements Serializable {
+        protected final BeanProperty property;
+        protected final String name;
+        private final Class<?> getterType;
+
+        /**
+         * The getter of the property, or <code>null</code> if it cannot be
+         * accessed through a method handle. Method handles are not
+         * serializable, so the getter is looked up again when needed after
+         * deserialization.
+         */
+        private transient MethodHandle getter;
+        private transient boolean getterResolved;
+
+        public PropertyEncoder(BeanProperty property, Class<?> getterType,
+                MethodHandle getter) {
+            this.property = property;
+            this.getterType = getterType;
+            this.getter = getter;
+            getterResolved = true;
+            name = property.getName();
+        }
+
+        /**
+         * Gets the getter of the property, adapted to take the bean as an
+         * {@link Object} and to return the getter type of this encoder.
+         *
+         * @return the getter, or <code>null</code> if the property cannot be
+         *         accessed through a method handle
+         */
+        protected MethodHandle getGetter() {
+            if (!getterResolved) {
+                getter = findGetter(property, getterType);
+                getterResolved = true;
+            }
+            return getter;
+        }
+
+        public abstract void encode(Object bean, JsonObject referenceValue,
+                JsonObject encoded, JsonObject diff,
+                ConnectorTracker connectorTracker) throws Throwable;
+
+        protected JsonValue getReference(JsonObject referenceValue) {
+            if (referenceValue == null) {
+                return null;
+            }
+            JsonValue fieldReference = referenceValue.get(name);
+            if (fieldReference instanceof JsonNull) {
+                return null;
+            }
+            return fieldReference;
+        }
+
+        protected void putChanged(JsonValue value, JsonObject encoded,
+                JsonObject diff) {
+            encoded.put(name, value);
+            diff.put(name, value);
+        }
+
+        public static PropertyEncoder create(BeanProperty property) {
+            Type type = property.getType();
+            if (type == boolean.class) {
+                MethodHandle getter = findGetter(property, boolean.class);
+                if (getter != null) {
+                    return new BooleanPropertyEncoder(property, getter);
+                }
+            } else if (type == int.class || type == long.class
+                    || type == float.class || type == double.class) {
+                // Widened to double just like Number.doubleValue() would
+                MethodHandle getter = findGetter(property, double.class);
+                if (getter != null) {
+                    return new NumberPropertyEncoder(property, getter);
+                }
+            } else if (type == String.class) {
+                MethodHandle getter = findGetter(property, String.class);
+                if (getter != null) {
+                    return new StringPropertyEncoder(property, getter);
+                }
+            }
+            return new ObjectPropertyEncoder(property,
+                    findGetter(property, Object.class));
+        }
+
+        /**
+         * Finds a method handle for reading the property, adapted to take the
+         * bean as an {@link Object} and to return the given type.
+         *
+         * @return a method handle, or <code>null</code> if the property
+         *         cannot be accessed through a method handle
+         */
+        private static MethodHandle findGetter(BeanProperty property,
+                Class<?> returnType) {
+            try {
+                MethodHandle getter;
+                if (property instanceof FieldProperty) {
+                    getter = MethodHandles.lookup()
+                            .unreflectGetter(((FieldProperty) property).field);
+                } else if (property instanceof MethodProperty) {
+                    getter = MethodHandles.lookup().unreflect(
+                            ((MethodProperty) property).pd.getReadMethod());
+                } else {
+                    return null;
+                }
+                return getter.asType(
+                        MethodType.methodType(returnType, Object.class));
+            } catch (IllegalAccessException e) {
+                return null;
+            }
+        }
+    }
+
+    private static class BooleanPropertyEncoder extends PropertyEncoder {
+
+        public BooleanPropertyEncoder(BeanProperty property,
+                MethodHandle getter) {
+            super(property, boolean.class, getter);
+        }
+
+        @Override
+        public void encode(Object bean, JsonObject referenceValue,
+                JsonObject encoded, JsonObject diff,
+                ConnectorTracker connectorTracker) throws Throwable {
+            boolean value = (boolean) getGetter().invokeExact(bean);
+            JsonValue fieldReference = getReference(referenceValue);
+            if (fieldReference != null
+                    && fieldReference.getType() == JsonType.BOOLEAN
+                    && fieldReference.asBoolean() == value) {
+                encoded.put(name, fieldReference);
+            } else {
+                putChanged(Json.create(value), encoded, diff);
+            }
+        }
+    }
+
+    private static class NumberPropertyEncoder extends PropertyEncoder {
+
+        public NumberPropertyEncoder(BeanProperty property,
+                MethodHandle getter) {
+            super(property, double.class, getter);
+        }
+
+        @Override
+        public void encode(Object bean, JsonObject referenceValue,
+                JsonObject encoded, JsonObject diff,
+                ConnectorTracker connectorTracker) throws Throwable {
+            double value = (double) getGetter().invokeExact(bean);
+            JsonValue fieldReference = getReference(referenceValue);
+            if (fieldReference != null
+                    && fieldReference.getType() == JsonType.NUMBER
+                    && fieldReference.asNumber() == value) {
+                encoded.put(name, fieldReference);
+            } else {
+                putChanged(Json.create(value), encoded, diff);
+            }
+        }
+    }
+
+    private static class StringPropertyEncoder extends PropertyEncoder {
+
+        public StringPropertyEncoder(BeanProperty property,
+                MethodHandle getter) {
+            super(property, String.class, getter);
+        }
+
+        @Override
+        public void encode(Object bean, JsonObject referenceValue,
+                JsonObject encoded, JsonObject diff,
+                ConnectorTracker connectorTracker) throws Throwable {
+            String value = (String) getGetter().invokeExact(bean);
+            JsonValue fieldReference = getReference(referenceValue);
+            if (value == null) {
+                JsonValue encodedNull = ENCODE_RESULT_NULL.getEncodedValue();
+                encoded.put(name, encodedNull);
+                if (fieldReference != null) {
+                    diff.put(name, encodedNull);
+                }
+            } else if (fieldReference != null
+                    && fieldReference.getType() == JsonType.STRING
+                    && value.equals(fieldReference.asString())) {
+                encoded.put(name, fieldReference);
+            } else {
+                putChanged(Json.create(value), encoded, diff);
+            }
+        }
+    }
+
+    private static class ObjectPropertyEncoder extends PropertyEncoder {
+        private final Type type;
+
+        /**
+         * @param getter
+         *            the getter to use, or <code>null</code> to read the value
+         *            through {@link BeanProperty#getValue(Object)}
+         */
+        public ObjectPropertyEncoder(BeanProperty property,
+                MethodHandle getter) {
+            super(property, Object.class, getter);
+            // We can't use PropertyDescriptor.getPropertyType() as it does
+            // not support generics
+            type = property.getType();
+        }
+
+        @Override
+        public void encode(Object bean, JsonObject referenceValue,
+                JsonObject encoded, JsonObject diff,
+                ConnectorTracker connectorTracker) throws Throwable {
+            Object fieldValue;
+            MethodHandle getter = getGetter();
+            if (getter != null) {
+                fieldValue = (Object) getter.invokeExact(bean);
+            } else {
+                fieldValue = property.getValue(bean);
+            }
+            JsonValue fieldReference = getReference(referenceValue);
+
+            EncodeResult encodeResult = JsonCodec.encode(fieldValue,
+                    fieldReference, type, connectorTracker);
+            encoded.put(name, encodeResult.getEncodedValue());
+
+            if (valueChanged(encodeResult.getEncodedValue(), fieldReference)) {
+                diff.put(name, encodeResult.getDiffOrValue());
+            }
+        }
+    }
+
     /**
      * Cache the collection of bean properties for a given type to avoid doing a
      * quite expensive lookup multiple times. Will be used from any thread that
@@ -186,6 +419,13 @@ public class JsonCodec implements Serializable {
      */
     private static final ConcurrentMap<Class<?>, Collection<BeanProperty>> TYPE_PROPERTY_CACHE = new ConcurrentHashMap<>();
 
+    /**
+     * Cache of property encoders for a given type, in the same order as the
+     * properties returned by {@link #getProperties(Class)}. Will be used from
+     * any thread that happens to process Vaadin requests.
+     */
+    private static final ConcurrentMap<Class<?>, PropertyEncoder[]> TYPE_ENCODER_CACHE = new ConcurrentHashMap<>();
+
     private static final Map<Class<?>, String> TYPE_TO_TRANSPORT_TYPE = new HashMap<>();
 
     /**
@@ -272,6 +512,64 @@ public class JsonCodec implements Serializable {
         }
     }
 
+    /**
+     * Decoder for values of one declared type, see
+     * {@link JsonCodec#getDecoder(Type)}.
+     *
+     * @since 8.12
+     */
+    @FunctionalInterface
+    public interface ValueDecoder extends Serializable {
+        /**
+         * Decodes a value.
+         *
+         * @param value
+         *            the encoded value
+         * @param connectorTracker
+         *            the connector tracker for decoding connector references
+         * @return the decoded value
+         */
+        public Object decode(JsonValue value,
+                ConnectorTracker connectorTracker);
+    }
+
+    /**
+     * Gets a decoder for values of the given type. The decoder gives the same
+     * result as {@link #decodeInternalOrCustomType(Type, JsonValue, ConnectorTracker)},
+     * but the common primitive and string types are resolved once instead of
+     * for each decoded value.
+     *
+     * @param targetType
+     *            the type of the decoded values
+     * @return the decoder
+     * @since 8.12
+     */
+    public static ValueDecoder getDecoder(Type targetType) {
+        if (targetType == String.class) {
+            return (value, tracker) -> value.getType() == JsonType.NULL ? null
+                    : value.asString();
+        } else if (targetType == int.class || targetType == Integer.class) {
+            return (value, tracker) -> value.getType() == JsonType.NULL ? null
+                    : Integer.valueOf((int) value.asNumber());
+        } else if (targetType == long.class || targetType == Long.class) {
+            return (value, tracker) -> value.getType() == JsonType.NULL ? null
+                    : Long.valueOf((long) value.asNumber());
+        } else if (targetType == double.class || targetType == Double.class) {
+            return (value, tracker) -> value.getType() == JsonType.NULL ? null
+                    : Double.valueOf(value.asNumber());
+        } else if (targetType == float.class || targetType == Float.class) {
+            return (value, tracker) -> value.getType() == JsonType.NULL ? null
+                    : Float.valueOf((float) value.asNumber());
+        } else if (targetType == boolean.class
+                || targetType == Boolean.class) {
+            return (value, tracker) -> value.getType() == JsonType.NULL ? null
+                    : Boolean.valueOf(value.asBoolean());
+        }
+        // Custom serializers may change, so they are looked up when decoding
+        return (value, tracker) -> decodeInternalOrCustomType(targetType,
+                value, tracker);
+    }
+
     public static Object decodeCustomType(Type targetType, JsonValue value,
             ConnectorTracker connectorTracker) {
         if (isInternalType(targetType)) {
@@ -665,6 +963,23 @@ public class JsonCodec implements Serializable {
 
     public static EncodeResult encode(Object value, JsonValue diffState,
             Type valueType, ConnectorTracker connectorTracker) {
+        if (connectorTracker != null && value != null && valueType != null) {
+            // Only UIs subscribed to a broadcast topic have any topics
+            List<BroadcastTopic<?>> topics = connectorTracker
+                    .getBroadcastTopics();
+            for (int i = 0; i < topics.size(); i++) {
+                JsonValue shared = topics.get(i).getSharedEncoding(value,
+                        valueType);
+                if (shared != null) {
+                    return new EncodeResult(shared);
+                }
+            }
+        }
+        return encodeValue(value, diffState, valueType, connectorTracker);
+    }
+
+    private static EncodeResult encodeValue(Object value, JsonValue diffState,
+            Type valueType, ConnectorTracker connectorTracker) {
 
         if (null == value) {
             return ENCODE_RESULT_NULL;
@@ -743,8 +1058,36 @@ public class JsonCodec implements Serializable {
         return properties;
     }
 
+    private static PropertyEncoder[] getPropertyEncoders(Class<?> type)
+            throws IntrospectionException {
+        PropertyEncoder[] cachedEncoders = TYPE_ENCODER_CACHE.get(type);
+        if (cachedEncoders != null) {
+            return cachedEncoders;
+        }
+        Collection<BeanProperty> properties = getProperties(type);
+        PropertyEncoder[] encoders = new PropertyEncoder[properties.size()];
+        Set<String> names = new HashSet<>();
+        int i = 0;
+        for (BeanProperty property : properties) {
+            String fieldName = property.getName();
+            if (!names.add(fieldName)) {
+                throw new RuntimeException("Can't encode " + type.getName()
+                        + " as it has multiple properties with the name "
+                        + fieldName.toLowerCase(Locale.ROOT)
+                        + ". This can happen if there are getters and setters for a public field (the framework can't know which to ignore) or if there are properties with only casing distinguishing between the names (e.g. getFoo() and getFOO())");
+            }
+            encoders[i++] = PropertyEncoder.create(property);
+        }
+
+        // Doesn't matter if the same calculation is done multiple times from
+        // different threads, so there's no need to do e.g. putIfAbsent
+        TYPE_ENCODER_CACHE.put(type, encoders);
+        return encoders;
+    }
+
     /*
-     * Loops through the fields of value and encodes them.
+     * Loops through the fields of value and encodes them, using the property
+     * encoders cached for the type.
      */
     private static EncodeResult encodeObject(Object value, Class<?> valueType,
             JsonObject referenceValue, ConnectorTracker connectorTracker) {
@@ -752,45 +1095,76 @@ public class JsonCodec implements Serializable {
         JsonObject diff = Json.createObject();
 
         try {
-            for (BeanProperty property : getProperties(valueType)) {
-                String fieldName = property.getName();
-                // We can't use PropertyDescriptor.getPropertyType() as it does
-                // not support generics
-                Type fieldType = property.getType();
-                Object fieldValue = property.getValue(value);
-
-                if (encoded.hasKey(fieldName)) {
-                    throw new RuntimeException("Can't encode "
-                            + valueType.getName()
-                            + " as it has multiple properties with the name "
-                            + fieldName.toLowerCase(Locale.ROOT)
-                            + ". This can happen if there are getters and setters for a public field (the framework can't know which to ignore) or if there are properties with only casing distinguishing between the names (e.g. getFoo() and getFOO())");
-                }
-
-                JsonValue fieldReference;
-                if (referenceValue != null) {
-                    fieldReference = referenceValue.get(fieldName);
-                    if (fieldReference instanceof JsonNull) {
-                        fieldReference = null;
-                    }
-                } else {
-                    fieldReference = null;
-                }
+            for (PropertyEncoder encoder : getPropertyEncoders(valueType)) {
+                encoder.encode(value, referenceValue, encoded, diff,
+                        connectorTracker);
+            }
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // TODO: Should exceptions be handled in a different way?
+            throw new RuntimeException(e);
+        }
+        return new EncodeResult(encoded, diff);
+    }
 
-                EncodeResult encodeResult = encode(fieldValue, fieldReference,
-                        fieldType, connectorTracker);
-                encoded.put(fieldName, encodeResult.getEncodedValue());
+    /**
+     * Encodes only the given properties of a bean. The reference value is
+     * updated in place with the newly encoded property values, so that it
+     * afterwards corresponds to what a full encoding of the bean would have
+     * produced, provided that no other property has changed.
+     *
+     * @param value
+     *            the bean to encode, not <code>null</code>
+     * @param propertyNames
+     *            the names of the properties to encode, not <code>null</code>
+     * @param referenceValue
+     *            the previously encoded value of the bean, not
+     *            <code>null</code>
+     * @param valueType
+     *            the type of the bean
+     * @param connectorTracker
+     *            the connector tracker to use for encoding connector
+     *            references, or <code>null</code>
+     * @return a JSON object containing the changed properties, not
+     *         <code>null</code>
+     * @throws IllegalArgumentException
+     *             if the bean type has no property with one of the given
+     *             names
+     * @since 8.12
+     */
+    public static JsonObject encodeProperties(Object value,
+            Collection<String> propertyNames, JsonObject referenceValue,
+            Class<?> valueType, ConnectorTracker connectorTracker) {
+        JsonObject diff = Json.createObject();
 
-                if (valueChanged(encodeResult.getEncodedValue(),
-                        fieldReference)) {
-                    diff.put(fieldName, encodeResult.getDiffOrValue());
+        try {
+            PropertyEncoder[] encoders = getPropertyEncoders(valueType);
+            for (String propertyName : propertyNames) {
+                PropertyEncoder encoder = findEncoder(encoders, propertyName);
+                if (encoder == null) {
+                    throw new IllegalArgumentException(valueType.getName()
+                            + " has no property named " + propertyName);
                 }
+                encoder.encode(value, referenceValue, referenceValue, diff,
+                        connectorTracker);
             }
-        } catch (Exception e) {
-            // TODO: Should exceptions be handled in a different way?
+        } catch (Error | IllegalArgumentException e) {
+            throw e;
+        } catch (Throwable e) {
             throw new RuntimeException(e);
         }
-        return new EncodeResult(encoded, diff);
+        return diff;
+    }
+
+    private static PropertyEncoder findEncoder(PropertyEncoder[] encoders,
+            String propertyName) {
+        for (PropertyEncoder encoder : encoders) {
+            if (encoder.name.equals(propertyName)) {
+                return encoder;
+            }
+        }
+        return null;
     }
 
     /**
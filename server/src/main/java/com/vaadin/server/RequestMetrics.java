@@ -0,0 +1,198 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+
+import com.vaadin.ui.UI;
+
+/**
+ * Timing and payload metrics collected while handling a single UIDL request.
+ * The metrics are passed to the {@link RequestMetricsListener}s of the
+ * service once the request has been handled.
+ * <p>
+ * The setters in this class are used by the framework while handling the
+ * request and are not intended to be used by application developers.
+ *
+ * @author Vaadin Ltd
+ * @since 8.12
+ */
+public class RequestMetrics implements Serializable {
+
+    /**
+     * The phases of handling a UIDL request. The phases do not overlap, but
+     * parts of the request handling, such as finding the UI, are not included
+     * in any phase.
+     */
+    public enum Phase {
+        /**
+         * Decoding and invoking the RPC calls sent by the client.
+         */
+        RPC_HANDLING,
+        /**
+         * Running tasks enqueued using {@link VaadinSession#access(Runnable)}
+         * or {@link UI#access(Runnable)} before the response is written.
+         */
+        ACCESS_TASKS,
+        /**
+         * Calling {@link ClientConnector#beforeClientResponse(boolean)} for
+         * all dirty connectors.
+         */
+        BEFORE_CLIENT_RESPONSE,
+        /**
+         * Encoding the shared state of the dirty connectors.
+         */
+        STATE_ENCODING,
+        /**
+         * Writing all other parts of the response, such as legacy changes,
+         * hierarchy, client RPC calls and dependencies.
+         */
+        RESPONSE_ENCODING,
+        /**
+         * Writing the response to the client.
+         */
+        RESPONSE_WRITE;
+    }
+
+    private UI ui;
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private long lockWaitNanos;
+    private long totalNanos;
+    private int dirtyConnectorCount;
+    private long bytesWritten;
+
+    /**
+     * Gets the UI for which the request was handled.
+     *
+     * @return the UI, or <code>null</code> if no UI was found for the request
+     */
+    public UI getUI() {
+        return ui;
+    }
+
+    /**
+     * Sets the UI for which the request is handled.
+     *
+     * @param ui
+     *            the UI, or <code>null</code> if no UI was found
+     */
+    public void setUI(UI ui) {
+        this.ui = ui;
+    }
+
+    /**
+     * Gets the time spent in the given phase.
+     *
+     * @param phase
+     *            the phase, not <code>null</code>
+     * @return the time in nanoseconds, or 0 if the phase was not run
+     */
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * Adds time spent in the given phase. A phase may be run more than once
+     * for a request, in which case the times are summed.
+     *
+     * @param phase
+     *            the phase, not <code>null</code>
+     * @param nanos
+     *            the time spent in nanoseconds
+     */
+    public void addPhaseNanos(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * Gets the time the request thread waited for the session lock.
+     *
+     * @return the lock wait time in nanoseconds
+     */
+    public long getLockWaitNanos() {
+        return lockWaitNanos;
+    }
+
+    /**
+     * Sets the time the request thread waited for the session lock.
+     *
+     * @param lockWaitNanos
+     *            the lock wait time in nanoseconds
+     */
+    public void setLockWaitNanos(long lockWaitNanos) {
+        this.lockWaitNanos = lockWaitNanos;
+    }
+
+    /**
+     * Gets the total time spent handling the request, including waiting for
+     * the session lock and running pending access tasks when the session is
+     * unlocked.
+     *
+     * @return the total time in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Sets the total time spent handling the request.
+     *
+     * @param totalNanos
+     *            the total time in nanoseconds
+     */
+    public void setTotalNanos(long totalNanos) {
+        this.totalNanos = totalNanos;
+    }
+
+    /**
+     * Gets the number of dirty connectors that were included in the
+     * response.
+     *
+     * @return the number of dirty connectors
+     */
+    public int getDirtyConnectorCount() {
+        return dirtyConnectorCount;
+    }
+
+    /**
+     * Sets the number of dirty connectors that were included in the response.
+     *
+     * @param dirtyConnectorCount
+     *            the number of dirty connectors
+     */
+    public void setDirtyConnectorCount(int dirtyConnectorCount) {
+        this.dirtyConnectorCount = dirtyConnectorCount;
+    }
+
+    /**
+     * Gets the number of bytes written to the response.
+     *
+     * @return the number of bytes written
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Sets the number of bytes written to the response.
+     *
+     * @param bytesWritten
+     *            the number of bytes written
+     */
+    public void setBytesWritten(long bytesWritten) {
+        this.bytesWritten = bytesWritten;
+    }
+}
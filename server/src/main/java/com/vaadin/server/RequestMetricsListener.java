@@ -0,0 +1,45 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+
+/**
+ * Listener that gets timing and payload metrics for every UIDL request handled
+ * by a {@link VaadinService}. Listeners are registered using
+ * {@link ServiceInitEvent#addRequestMetricsListener(RequestMetricsListener)}
+ * from a {@link VaadinServiceInitListener}.
+ * <p>
+ * The listener is invoked by the request thread after the session has been
+ * unlocked, so it should return quickly and it must be thread safe since
+ * requests for different sessions are handled concurrently.
+ *
+ * @see InMemoryRequestMetricsListener
+ *
+ * @author Vaadin Ltd
+ * @since 8.12
+ */
+@FunctionalInterface
+public interface RequestMetricsListener extends Serializable {
+
+    /**
+     * Invoked when a UIDL request has been handled.
+     *
+     * @param metrics
+     *            the metrics collected for the request, not <code>null</code>
+     */
+    public void requestHandled(RequestMetrics metrics);
+}
@@ -17,10 +17,6 @@
 package com.vaadin.server;
 
 import java.io.Serializable;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -68,22 +64,6 @@ public class ServerRpcManager<T extends ServerRpc> implements Serializable {
 
     }
 
-    private static final Map<Class<?>, Class<?>> BOXED_TYPES = new HashMap<>();
-    static {
-        try {
-            Class<?>[] boxClasses = new Class<?>[] { Boolean.class, Byte.class,
-                    Short.class, Character.class, Integer.class, Long.class,
-                    Float.class, Double.class };
-            for (Class<?> boxClass : boxClasses) {
-                Field typeField = boxClass.getField("TYPE");
-                Class<?> primitiveType = (Class<?>) typeField.get(boxClass);
-                BOXED_TYPES.put(primitiveType, boxClass);
-            }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     /**
      * Create a RPC manager for an RPC target.
      *
@@ -149,10 +129,8 @@ public class ServerRpcManager<T extends ServerRpc> implements Serializable {
      */
     public void applyInvocation(ServerRpcMethodInvocation invocation)
             throws RpcInvocationException {
-        Method method = invocation.getMethod();
-        Object[] arguments = invocation.getParameters();
         try {
-            method.invoke(implementation, arguments);
+            invocation.invoke(implementation);
         } catch (Exception e) {
             throw new RpcInvocationException(
                     "Unable to invoke method " + invocation.getMethodName()
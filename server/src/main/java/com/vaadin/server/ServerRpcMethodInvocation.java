@@ -15,19 +15,44 @@
  */
 package com.vaadin.server;
 
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import com.vaadin.server.JsonCodec.ValueDecoder;
 import com.vaadin.shared.communication.MethodInvocation;
 import com.vaadin.shared.communication.ServerRpc;
+import com.vaadin.ui.ConnectorTracker;
+
+import elemental.json.JsonArray;
 
 public class ServerRpcMethodInvocation extends MethodInvocation {
 
-    private static final Map<String, Method> INVOCATION_METHOD_CACHE = new ConcurrentHashMap<>(
+    /**
+     * Resolved RPC method together with decoders for its parameters. Plans are
+     * created once per RPC method and shared by all invocations of the method.
+     */
+    private static final class InvocationPlan implements Serializable {
+        private final Method method;
+        private final ValueDecoder[] decoders;
+
+        private InvocationPlan(Method method) {
+            this.method = method;
+            Type[] parameterTypes = method.getGenericParameterTypes();
+            decoders = new ValueDecoder[parameterTypes.length];
+            for (int i = 0; i < parameterTypes.length; i++) {
+                decoders[i] = JsonCodec.getDecoder(parameterTypes[i]);
+            }
+        }
+    }
+
+    private static final Map<Class<?>, Map<String, InvocationPlan>> INVOCATION_PLAN_CACHE = new ConcurrentHashMap<>(
             128, 0.75f, 1);
 
-    private final Method method;
+    private final InvocationPlan plan;
 
     private final Class<? extends ServerRpc> interfaceClass;
 
@@ -39,8 +64,7 @@ public class ServerRpcMethodInvocation extends MethodInvocation {
         assert ServerRpc.class.isAssignableFrom(interfaceClass);
         this.interfaceClass = interfaceClass;
 
-        method = findInvocationMethod(interfaceClass, methodName,
-                parameterCount);
+        plan = findInvocationPlan(interfaceClass, methodName, parameterCount);
     }
 
     public Class<? extends ServerRpc> getInterfaceClass() {
@@ -48,11 +72,44 @@ public class ServerRpcMethodInvocation extends MethodInvocation {
     }
 
     public Method getMethod() {
-        return method;
+        return plan.method;
+    }
+
+    /**
+     * Decodes the given JSON values using the declared parameter types of the
+     * invoked method and sets them as the parameters of this invocation.
+     *
+     * @param parametersJson
+     *            the encoded parameters
+     * @param connectorTracker
+     *            the connector tracker for decoding connector references
+     * @since 8.12
+     */
+    public void decodeParameters(JsonArray parametersJson,
+            ConnectorTracker connectorTracker) {
+        ValueDecoder[] decoders = plan.decoders;
+        Object[] parameters = new Object[parametersJson.length()];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = decoders[i].decode(parametersJson.get(i),
+                    connectorTracker);
+        }
+        setParameters(parameters);
+    }
+
+    /**
+     * Invokes the method of this invocation with the parameters of this
+     * invocation.
+     *
+     * @param target
+     *            the RPC implementation to invoke the method on
+     */
+    void invoke(Object target)
+            throws IllegalAccessException, InvocationTargetException {
+        plan.method.invoke(target, getParameters());
     }
 
     /**
-     * Tries to find the method from the cache or alternatively by invoking
+     * Tries to find the plan from the cache or alternatively by invoking
      * {@link #doFindInvocationMethod(Class, String, int)} and updating the
      * cache.
      *
@@ -61,30 +118,36 @@ public class ServerRpcMethodInvocation extends MethodInvocation {
      * @param parameterCount
      * @return
      */
-    private Method findInvocationMethod(Class<?> targetType, String methodName,
-            int parameterCount) {
-        // TODO currently only using method name and number of parameters as the
-        // signature
-        String signature = targetType.getName() + "." + methodName + "("
-                + parameterCount;
-        Method invocationMethod = INVOCATION_METHOD_CACHE.get(signature);
-
-        if (invocationMethod == null) {
-            invocationMethod = doFindInvocationMethod(targetType, methodName,
-                    parameterCount);
-
-            if (invocationMethod != null) {
-                INVOCATION_METHOD_CACHE.put(signature, invocationMethod);
-            }
+    private static InvocationPlan findInvocationPlan(Class<?> targetType,
+            String methodName, int parameterCount) {
+        Map<String, InvocationPlan> plans = INVOCATION_PLAN_CACHE
+                .get(targetType);
+        if (plans == null) {
+            plans = INVOCATION_PLAN_CACHE.computeIfAbsent(targetType,
+                    type -> new ConcurrentHashMap<>());
         }
-
-        if (invocationMethod == null) {
-            throw new IllegalStateException("Can't find method " + methodName
-                    + " with " + parameterCount + " parameters in "
-                    + targetType.getName());
+        InvocationPlan plan = plans.get(methodName);
+        if (plan != null && plan.decoders.length == parameterCount) {
+            return plan;
         }
 
-        return invocationMethod;
+        // Methods overloaded with a different number of parameters are
+        // cached by signature
+        String signature = methodName + "(" + parameterCount;
+        plan = plans.get(signature);
+        if (plan == null) {
+            Method invocationMethod = doFindInvocationMethod(targetType,
+                    methodName, parameterCount);
+            if (invocationMethod == null) {
+                throw new IllegalStateException("Can't find method "
+                        + methodName + " with " + parameterCount
+                        + " parameters in " + targetType.getName());
+            }
+            plan = new InvocationPlan(invocationMethod);
+            plans.putIfAbsent(methodName, plan);
+            plans.putIfAbsent(signature, plan);
+        }
+        return plan;
     }
 
     /**
@@ -96,7 +159,7 @@ public class ServerRpcMethodInvocation extends MethodInvocation {
      * @param parameterCount
      * @return
      */
-    private Method doFindInvocationMethod(Class<?> targetType,
+    private static Method doFindInvocationMethod(Class<?> targetType,
             String methodName, int parameterCount) {
         Method[] methods = targetType.getMethods();
         for (Method method : methods) {
@@ -36,6 +36,7 @@ public class ServiceInitEvent extends EventObject {
     private List<RequestHandler> addedRequestHandlers = new ArrayList<>();
     private List<DependencyFilter> addedDependencyFilters = new ArrayList<>();
     private List<ConnectorIdGenerator> addedConnectorIdGenerators = new ArrayList<>();
+    private List<RequestMetricsListener> addedRequestMetricsListeners = new ArrayList<>();
 
     /**
      * Creates a new service init event for a given {@link VaadinService} and
@@ -135,6 +136,35 @@ public class ServiceInitEvent extends EventObject {
         return Collections.unmodifiableList(addedConnectorIdGenerators);
     }
 
+    /**
+     * Adds a request metrics listener that will be notified with timing and
+     * payload metrics for every UIDL request handled by this service.
+     *
+     * @param requestMetricsListener
+     *            the request metrics listener to add, not <code>null</code>
+     *
+     * @since 8.12
+     */
+    public void addRequestMetricsListener(
+            RequestMetricsListener requestMetricsListener) {
+        Objects.requireNonNull(requestMetricsListener,
+                "Request metrics listener cannot be null");
+
+        addedRequestMetricsListeners.add(requestMetricsListener);
+    }
+
+    /**
+     * Gets an unmodifiable list of all request metrics listeners that have
+     * been added for the service.
+     *
+     * @return the current list of added request metrics listeners
+     *
+     * @since 8.12
+     */
+    public List<RequestMetricsListener> getAddedRequestMetricsListeners() {
+        return Collections.unmodifiableList(addedRequestMetricsListeners);
+    }
+
     @Override
     public VaadinService getSource() {
         return (VaadinService) super.getSource();
@@ -0,0 +1,389 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.vaadin.util.EncodeUtil;
+
+/**
+ * Bounded in-memory cache of the static resources served by
+ * {@link VaadinServlet} from the VAADIN directory. A cached resource is read
+ * once together with its gzip and brotli variants and served with a strong
+ * ETag, so that further requests need neither class loader lookups nor
+ * {@link URLConnection}s.
+ * <p>
+ * Resources are assumed not to change while the application is running.
+ * Resources are cached in the order they are requested until the maximum size
+ * is reached, after which other resources are served without caching.
+ *
+ * @see DeploymentConfiguration#getStaticResourceCacheSize()
+ *
+ * @author Vaadin Ltd
+ * @since 8.12
+ */
+class StaticResourceCache implements Serializable {
+
+    static final String GZIP = "gzip";
+    static final String BROTLI = "br";
+
+    /**
+     * A cached resource.
+     */
+    static final class Entry implements Serializable {
+        private final byte[] content;
+        private final byte[] gzipContent;
+        private final byte[] brotliContent;
+        private final String mimeType;
+        private final long lastModified;
+        private final String tag;
+
+        Entry(byte[] content, byte[] gzipContent, byte[] brotliContent,
+                String mimeType, long lastModified) {
+            this.content = content;
+            this.gzipContent = gzipContent;
+            this.brotliContent = brotliContent;
+            this.mimeType = mimeType;
+            this.lastModified = lastModified;
+            tag = hash(content);
+        }
+
+        /**
+         * Gets the strong ETag of the given representation of this resource.
+         *
+         * @param encoding
+         *            the content encoding, or <code>null</code> for the
+         *            unencoded resource
+         * @return the quoted ETag
+         */
+        String getETag(String encoding) {
+            return encoding == null ? '"' + tag + '"'
+                    : '"' + tag + '-' + encoding + '"';
+        }
+
+        byte[] getContent(String encoding) {
+            if (GZIP.equals(encoding)) {
+                return gzipContent;
+            } else if (BROTLI.equals(encoding)) {
+                return brotliContent;
+            }
+            return content;
+        }
+
+        long getSize() {
+            return content.length
+                    + (gzipContent == null ? 0 : gzipContent.length)
+                    + (brotliContent == null ? 0 : brotliContent.length);
+        }
+
+        private boolean hasEncodings() {
+            return gzipContent != null || brotliContent != null;
+        }
+    }
+
+    private final long maxSize;
+    private final AtomicLong size = new AtomicLong();
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> rejected = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxSize
+     *            the maximum total size of the cached resources in bytes
+     */
+    StaticResourceCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets the cached resource for the given file name.
+     *
+     * @param filename
+     *            the file name of the resource
+     * @return the cached entry, or <code>null</code> if the resource is not
+     *         cached
+     */
+    Entry get(String filename) {
+        return entries.get(filename);
+    }
+
+    /**
+     * Checks whether the resource with the given file name should be loaded
+     * for caching. Resources that have already been rejected, and any resources
+     * once the cache is full, should be served without loading them into
+     * memory.
+     *
+     * @param filename
+     *            the file name of the resource
+     * @return <code>true</code> if the resource may be cached,
+     *         <code>false</code> otherwise
+     */
+    boolean isCacheable(String filename) {
+        return size.get() < maxSize && !rejected.contains(filename);
+    }
+
+    /**
+     * Marks the resource with the given file name as not cacheable, e.g.
+     * because it is larger than the maximum size of this cache.
+     *
+     * @param filename
+     *            the file name of the resource
+     */
+    void reject(String filename) {
+        rejected.add(filename);
+    }
+
+    /**
+     * Adds the given resource to this cache unless the cache would then exceed
+     * its maximum size.
+     *
+     * @param filename
+     *            the file name of the resource
+     * @param entry
+     *            the resource
+     * @return <code>true</code> if the resource was cached,
+     *         <code>false</code> otherwise
+     */
+    boolean put(String filename, Entry entry) {
+        long entrySize = entry.getSize();
+        if (size.addAndGet(entrySize) > maxSize) {
+            size.addAndGet(-entrySize);
+            reject(filename);
+            return false;
+        }
+        if (entries.putIfAbsent(filename, entry) != null) {
+            // Loaded concurrently by another request
+            size.addAndGet(-entrySize);
+        }
+        return true;
+    }
+
+    /**
+     * Gets the total size of the cached resources.
+     *
+     * @return the size in bytes
+     */
+    long getSize() {
+        return size.get();
+    }
+
+    /**
+     * Reads the resource at the given URL together with any precompressed
+     * variants next to it. A gzip variant is created for textual resources
+     * that have no precompressed gzip variant.
+     *
+     * @param resourceUrl
+     *            the URL of the resource
+     * @param mimeType
+     *            the MIME type of the resource, or <code>null</code> if not
+     *            known
+     * @return the entry, or <code>null</code> if the resource is larger than
+     *         the maximum size of this cache
+     * @throws IOException
+     *             if the resource cannot be read
+     */
+    Entry load(URL resourceUrl, String mimeType) throws IOException {
+        URLConnection connection = resourceUrl.openConnection();
+        InputStream is = connection.getInputStream();
+        byte[] content;
+        long lastModified;
+        try {
+            if (connection.getContentLength() > maxSize) {
+                return null;
+            }
+            lastModified = connection.getLastModified();
+            // Browsers do not send milliseconds in If-Modified-Since
+            lastModified -= lastModified % 1000;
+            content = read(is);
+        } finally {
+            is.close();
+        }
+        if (content.length > maxSize) {
+            return null;
+        }
+
+        String urlStr = resourceUrl.toExternalForm();
+        byte[] gzipContent = readIfExists(urlStr + ".gz");
+        if (gzipContent == null && isCompressible(mimeType)) {
+            gzipContent = EncodeUtil.gzip(content);
+            if (gzipContent.length >= content.length) {
+                gzipContent = null;
+            }
+        }
+        byte[] brotliContent = readIfExists(urlStr + ".br");
+
+        return new Entry(content, gzipContent, brotliContent, mimeType,
+                lastModified);
+    }
+
+    /**
+     * Writes the given cached resource as the response, or a
+     * <code>304 Not Modified</code> response if the browser already has it.
+     * Caching headers other than <code>ETag</code> and
+     * <code>Last-Modified</code> should be set by the caller.
+     *
+     * @param entry
+     *            the cached resource
+     * @param request
+     *            the request for the resource
+     * @param response
+     *            the response to write to
+     * @throws IOException
+     *             if writing the response fails
+     */
+    void write(Entry entry, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        String encoding = null;
+        if (entry.hasEncodings()) {
+            response.setHeader("Vary", "Accept-Encoding");
+            String acceptEncoding = request.getHeader("Accept-Encoding");
+            if (entry.brotliContent != null && EncodeUtil
+                    .acceptsContentEncoding(acceptEncoding, BROTLI)) {
+                encoding = BROTLI;
+            } else if (entry.gzipContent != null && EncodeUtil
+                    .acceptsContentEncoding(acceptEncoding, GZIP)) {
+                encoding = GZIP;
+            }
+        }
+
+        String etag = entry.getETag(encoding);
+        response.setHeader("ETag", etag);
+        if (entry.lastModified > 0) {
+            response.setDateHeader("Last-Modified", entry.lastModified);
+        }
+        if (isNotModified(request, etag, entry.lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        if (entry.mimeType != null) {
+            response.setContentType(entry.mimeType);
+        }
+        if (encoding != null) {
+            response.setHeader("Content-Encoding", encoding);
+        }
+        byte[] body = entry.getContent(encoding);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static boolean isNotModified(HttpServletRequest request,
+            String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            // If-Modified-Since is ignored when If-None-Match is present
+            return matchesETag(ifNoneMatch, etag);
+        }
+        if (lastModified <= 0) {
+            return false;
+        }
+        try {
+            return request.getDateHeader("If-Modified-Since") >= lastModified;
+        } catch (IllegalArgumentException e) {
+            // Unparseable header, the browser does not have the resource
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether an <code>If-None-Match</code> header matches the given
+     * ETag using the weak comparison required for the header.
+     *
+     * @param ifNoneMatch
+     *            the header value
+     * @param etag
+     *            the quoted strong ETag of the resource
+     * @return <code>true</code> if the header matches the ETag,
+     *         <code>false</code> otherwise
+     */
+    static boolean matchesETag(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isCompressible(String mimeType) {
+        if (mimeType == null) {
+            return false;
+        }
+        String type = mimeType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/") || type.contains("javascript")
+                || type.contains("json") || type.contains("xml");
+    }
+
+    private static byte[] readIfExists(String url) {
+        try {
+            InputStream is = new URL(url).openStream();
+            try {
+                return read(is);
+            } finally {
+                is.close();
+            }
+        } catch (IOException e) {
+            // No precompressed variant
+            return null;
+        }
+    }
+
+    static byte[] read(InputStream is) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[Constants.DEFAULT_BUFFER_SIZE];
+        int bytes;
+        while ((bytes = is.read(buffer)) >= 0) {
+            out.write(buffer, 0, bytes);
+        }
+        return out.toByteArray();
+    }
+
+    static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(content);
+            StringBuilder tag = new StringBuilder(32);
+            // 128 bits are plenty for telling versions of a resource apart
+            for (int i = 0; i < 16; i++) {
+                tag.append(Character.forDigit((digest[i] >> 4) & 0xf, 16));
+                tag.append(Character.forDigit(digest[i] & 0xf, 16));
+            }
+            return tag.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -144,6 +144,8 @@ public abstract class VaadinService implements Serializable {
     private Iterable<RequestHandler> requestHandlers;
     private Iterable<DependencyFilter> dependencyFilters;
     private ConnectorIdGenerator connectorIdGenerator;
+    private List<RequestMetricsListener> requestMetricsListeners = Collections
+            .emptyList();
 
     private boolean atmosphereAvailable = checkAtmosphereSupport();
 
@@ -236,6 +238,9 @@ public abstract class VaadinService implements Serializable {
                 event.getAddedConnectorIdGenerators());
         assert connectorIdGenerator != null;
 
+        requestMetricsListeners = Collections.unmodifiableList(new ArrayList<>(
+                event.getAddedRequestMetricsListeners()));
+
         initialized = true;
     }
 
@@ -695,7 +700,7 @@ public abstract class VaadinService implements Serializable {
             synchronized (VaadinService.class) {
                 lock = getSessionLock(wrappedSession);
                 if (lock == null) {
-                    lock = new ReentrantLock();
+                    lock = new VaadinSessionLock();
                     setSessionLock(wrappedSession, lock);
                 }
             }
@@ -735,6 +740,13 @@ public abstract class VaadinService implements Serializable {
         WrappedSession wrappedSession = getWrappedSession(request,
                 requestCanCreateSession);
 
+        if (isSharedSessionLockRequest(request)) {
+            VaadinSession session = findLoadedVaadinSession(wrappedSession);
+            if (session != null) {
+                return session;
+            }
+        }
+
         try {
             lockSession(wrappedSession);
         } catch (IllegalStateException e) {
@@ -750,6 +762,64 @@ public abstract class VaadinService implements Serializable {
 
     }
 
+    /**
+     * Finds the Vaadin session stored in the given wrapped session while only
+     * holding the shared session lock. Returns <code>null</code> if the session
+     * needs to be created, restored or otherwise modified, in which case the
+     * caller should fall back to looking it up with the session locked.
+     *
+     * @param wrappedSession
+     *            the wrapped session to find the Vaadin session from
+     * @return the Vaadin session, or <code>null</code> if it could not be found
+     *         using the shared lock
+     * @throws SessionExpiredException
+     *             if the wrapped session has been invalidated
+     */
+    private VaadinSession findLoadedVaadinSession(
+            WrappedSession wrappedSession) throws SessionExpiredException {
+        Lock lock = getSessionLock(wrappedSession);
+        if (!(lock instanceof VaadinSessionLock)) {
+            return null;
+        }
+        VaadinSessionLock sessionLock = (VaadinSessionLock) lock;
+        sessionLock.lockShared();
+        try {
+            // Guard against the session being invalidated, see lockSession
+            wrappedSession.getAttribute(getLockAttributeName());
+
+            VaadinSession session = readFromHttpSession(wrappedSession);
+            // A session that has not yet been loaded by this service (e.g.
+            // after deserialization) must have its transients refreshed
+            if (session == null || session.getService() != this
+                    || session.getLockInstance() != lock) {
+                return null;
+            }
+            return session;
+        } catch (IllegalStateException e) {
+            throw new SessionExpiredException();
+        } finally {
+            sessionLock.unlockShared();
+        }
+    }
+
+    /**
+     * Checks whether the given request can be handled while only holding the
+     * shared session lock.
+     *
+     * @param request
+     *            the request to check
+     * @return <code>true</code> if the request only needs the shared lock,
+     *         otherwise <code>false</code>
+     */
+    private boolean isSharedSessionLockRequest(VaadinRequest request) {
+        return getDeploymentConfiguration().isSharedSessionLockEnabled()
+                && (ServletPortletHelper.isHeartbeatRequest(request)
+                        || ConnectorResourceHandler
+                                .isConnectorResourceRequest(request))
+                && !hasParameter(request, URL_PARAMETER_RESTART_APPLICATION)
+                && !hasParameter(request, URL_PARAMETER_CLOSE_APPLICATION);
+    }
+
     /**
      * Finds or creates a Vaadin session. Assumes necessary synchronization has
      * been done by the caller to ensure this is not called simultaneously by
@@ -1450,14 +1520,29 @@ public abstract class VaadinService implements Serializable {
             VaadinSession session) {
         if (session != null) {
             assert VaadinSession.getCurrent() == session;
-            session.lock();
-            try {
-                cleanupSession(session);
-                final long duration = (System.nanoTime() - (Long) request
-                        .getAttribute(REQUEST_START_TIME_ATTRIBUTE)) / 1000000;
-                session.setLastRequestDuration(duration);
-            } finally {
-                session.unlock();
+            boolean locked;
+            if (isSharedSessionLockRequest(request)) {
+                /*
+                 * Don't wait for the exclusive lock after a request that only
+                 * needed the shared lock. If the session is busy, cleanup and
+                 * request timing are left to the next request that gets the
+                 * lock.
+                 */
+                locked = session.getLockInstance().tryLock();
+            } else {
+                session.lock();
+                locked = true;
+            }
+            if (locked) {
+                try {
+                    cleanupSession(session);
+                    final long duration = (System.nanoTime() - (Long) request
+                            .getAttribute(REQUEST_START_TIME_ATTRIBUTE))
+                            / 1000000;
+                    session.setLastRequestDuration(duration);
+                } finally {
+                    session.unlock();
+                }
             }
         }
         CurrentInstance.clearAll();
@@ -1571,6 +1656,20 @@ public abstract class VaadinService implements Serializable {
         return dependencyFilters;
     }
 
+    /**
+     * Gets the listeners that are notified with metrics for every handled UIDL
+     * request.
+     *
+     * @see ServiceInitEvent#addRequestMetricsListener(RequestMetricsListener)
+     *
+     * @since 8.12
+     * @return an unmodifiable list of request metrics listeners, empty if
+     *         metrics are not collected
+     */
+    public List<RequestMetricsListener> getRequestMetricsListeners() {
+        return requestMetricsListeners;
+    }
+
     /**
      * Handles the incoming request and writes the response into the response
      * object. Uses {@link #getRequestHandlers()} for handling the request.
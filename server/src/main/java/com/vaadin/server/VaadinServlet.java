@@ -17,19 +17,19 @@ package com.vaadin.server;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.ObjectInputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Method;
+import java.net.JarURLConnection;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -37,15 +37,17 @@ import java.net.URLConnection;
 import java.net.URLDecoder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -66,39 +68,54 @@ import com.vaadin.shared.JsonConstants;
 import com.vaadin.shared.Version;
 import com.vaadin.ui.UI;
 import com.vaadin.util.CurrentInstance;
+import com.vaadin.util.EncodeUtil;
 
 import elemental.json.Json;
-import elemental.json.JsonArray;
 import elemental.json.JsonObject;
 
 @SuppressWarnings("serial")
 public class VaadinServlet extends HttpServlet implements Constants {
 
-    private class ScssCacheEntry implements Serializable {
+    class ScssCacheEntry implements Serializable {
 
-        private final String css;
-        private final List<String> sourceUris;
-        private final long timestamp;
+        private final byte[] css;
+        private final byte[] gzippedCss;
+        /**
+         * Content hashes of the files used during the compilation, empty for
+         * files that could not be read.
+         */
+        private final Map<String, String> sourceHashes = new LinkedHashMap<>();
+        /**
+         * Modification times of the source files, or of the jars containing
+         * them, when their content was last found to match the hash, so that
+         * unmodified files need not be read again.
+         */
+        private final Map<String, Long> verifiedTimestamps = new ConcurrentHashMap<>();
         private final String scssFileName;
 
         public ScssCacheEntry(String scssFileName, String css,
-                List<String> sourceUris) {
+                List<String> sourceUris) throws IOException {
             this.scssFileName = scssFileName;
-            this.css = css;
-            this.sourceUris = sourceUris;
+            this.css = css.getBytes(UTF_8);
+            gzippedCss = EncodeUtil.gzip(this.css);
 
-            timestamp = getLastModified();
+            for (String uri : sourceUris) {
+                long lastModified = getSourceTimestamp(uri);
+                String hash = hashSource(uri);
+                sourceHashes.put(uri, hash);
+                if (lastModified > 0 && !hash.isEmpty()) {
+                    verifiedTimestamps.put(uri, lastModified);
+                }
+            }
         }
 
-        public ScssCacheEntry(JsonObject json) {
-            css = json.getString("css");
-            timestamp = Long.parseLong(json.getString("timestamp"));
-
-            sourceUris = new ArrayList<>();
+        public ScssCacheEntry(JsonObject json) throws IOException {
+            css = json.getString("css").getBytes(UTF_8);
+            gzippedCss = EncodeUtil.gzip(css);
 
-            JsonArray uris = json.getArray("uris");
-            for (int i = 0; i < uris.length(); i++) {
-                sourceUris.add(uris.getString(i));
+            JsonObject hashes = json.getObject("hashes");
+            for (String uri : hashes.keys()) {
+                sourceHashes.put(uri, hashes.getString(uri));
             }
 
             // Not set for cache entries read from disk
@@ -106,80 +123,136 @@ public class VaadinServlet extends HttpServlet implements Constants {
         }
 
         public String asJson() {
-            JsonArray uris = Json.createArray();
-            for (String uri : sourceUris) {
-                uris.set(uris.length(), uri);
+            JsonObject hashes = Json.createObject();
+            for (Map.Entry<String, String> source : sourceHashes.entrySet()) {
+                hashes.put(source.getKey(), source.getValue());
             }
 
             JsonObject object = Json.createObject();
             object.put("version", Version.getFullVersion());
-            object.put("timestamp", Long.toString(timestamp));
-            object.put("uris", uris);
-            object.put("css", css);
+            object.put("hashes", hashes);
+            object.put("css", new String(css, UTF_8));
 
             return object.toJson();
         }
 
-        public String getCss() {
-            return css;
+        /**
+         * Writes the compiled CSS to the response, gzip compressed if the
+         * browser accepts it.
+         */
+        public void write(HttpServletRequest request,
+                HttpServletResponse response) throws IOException {
+            byte[] content = css;
+            response.setHeader("Vary", "Accept-Encoding");
+            if (EncodeUtil.acceptsContentEncoding(
+                    request.getHeader("Accept-Encoding"),
+                    StaticResourceCache.GZIP)) {
+                response.setHeader("Content-Encoding",
+                        StaticResourceCache.GZIP);
+                content = gzippedCss;
+            }
+            response.setContentLength(content.length);
+            response.getOutputStream().write(content);
         }
 
-        private long getLastModified() {
-            long newest = 0;
-            for (String uri : sourceUris) {
-                File file = new File(uri);
-                URL resource = getService().getClassLoader().getResource(uri);
-                long lastModified = -1L;
-                if (file.exists()) {
-                    lastModified = file.lastModified();
-                } else if (resource != null
-                        && resource.getProtocol().equals("file")) {
-                    try {
-                        file = new File(resource.toURI());
-                        if (file.exists()) {
-                            lastModified = file.lastModified();
-                        }
-                    } catch (URISyntaxException e) {
-                        getLogger().log(Level.WARNING,
-                                "Could not resolve timestamp for " + resource,
-                                e);
+        private File getSourceFile(String uri) {
+            File file = new File(uri);
+            if (file.exists()) {
+                return file;
+            }
+            URL resource = getService().getClassLoader().getResource(uri);
+            if (resource != null && resource.getProtocol().equals("file")) {
+                try {
+                    file = new File(resource.toURI());
+                    if (file.exists()) {
+                        return file;
                     }
-                }
-                if (lastModified == -1L && resource == null) {
-                    /*
-                     * Ignore missing files found in the classpath, report
-                     * problem and abort for other files.
-                     */
+                } catch (URISyntaxException e) {
                     getLogger().log(Level.WARNING,
-                            "Could not resolve timestamp for {0}, Scss on the fly caching will be disabled",
-                            uri);
-                    // -1 means this cache entry will never be valid
-                    return -1;
+                            "Could not resolve file for " + resource, e);
                 }
-                newest = Math.max(newest, lastModified);
             }
+            return null;
+        }
 
-            return newest;
+        /**
+         * Gets the modification time of the given source file, or of the jar
+         * file containing it. Returns 0 if the time cannot be determined.
+         */
+        private long getSourceTimestamp(String uri) {
+            File file = getSourceFile(uri);
+            if (file != null) {
+                return file.lastModified();
+            }
+            URL resource = getService().getClassLoader().getResource(uri);
+            if (resource == null || !"jar".equals(resource.getProtocol())) {
+                return 0;
+            }
+            try {
+                URLConnection connection = resource.openConnection();
+                if (connection instanceof JarURLConnection) {
+                    // Does not open the jar file
+                    URL jarFileUrl = ((JarURLConnection) connection)
+                            .getJarFileURL();
+                    if ("file".equals(jarFileUrl.getProtocol())) {
+                        return new File(jarFileUrl.toURI()).lastModified();
+                    }
+                }
+            } catch (IOException | URISyntaxException e) {
+                getLogger().log(Level.FINE,
+                        "Could not find the jar file for " + resource, e);
+            }
+            return 0;
+        }
+
+        private String hashSource(String uri) {
+            File file = getSourceFile(uri);
+            try {
+                URL url = file != null ? file.toURI().toURL()
+                        : getService().getClassLoader().getResource(uri);
+                if (url != null) {
+                    try (InputStream in = url.openStream()) {
+                        return StaticResourceCache
+                                .hash(StaticResourceCache.read(in));
+                    }
+                }
+            } catch (IOException e) {
+                getLogger().log(Level.FINE, "Could not read " + uri, e);
+            }
+            getLogger().log(Level.WARNING,
+                    "Could not read {0}, Scss on the fly caching will be disabled",
+                    uri);
+            return "";
         }
 
         public boolean isStillValid() {
-            if (timestamp == -1) {
-                /*
-                 * Don't ever bother checking anything if files used during the
-                 * compilation were gone before the cache entry was created.
-                 */
-                return false;
-            } else if (timestamp != getLastModified()) {
-                /*
-                 * Would in theory still be valid if the last modification is
-                 * before the recorded timestamp, but that would still mean that
-                 * something has changed since we last checked, so let's
-                 * invalidate in that case as well to be on the safe side.
-                 */
-                return false;
-            } else {
-                return true;
+            for (Map.Entry<String, String> source : sourceHashes.entrySet()) {
+                String uri = source.getKey();
+                String hash = source.getValue();
+                if (hash.isEmpty()) {
+                    /*
+                     * Don't ever bother checking anything if files used during
+                     * the compilation were gone before the cache entry was
+                     * created.
+                     */
+                    return false;
+                }
+
+                long lastModified = getSourceTimestamp(uri);
+                Long verified = verifiedTimestamps.get(uri);
+                if (lastModified > 0 && verified != null
+                        && verified.longValue() == lastModified) {
+                    continue;
+                }
+                // Touched or timestamp not known, compare the content
+                if (!hash.equals(hashSource(uri))) {
+                    return false;
+                }
+                if (lastModified > 0) {
+                    verifiedTimestamps.put(uri, lastModified);
+                }
             }
+            return true;
         }
 
         public String getScssFileName() {
@@ -190,6 +263,8 @@ public class VaadinServlet extends HttpServlet implements Constants {
 
     private VaadinServletService servletService;
 
+    private StaticResourceCache staticResourceCache;
+
     /**
      * Called by the servlet container to indicate to a servlet that the servlet
      * is being placed into service.
@@ -214,6 +289,13 @@ public class VaadinServlet extends HttpServlet implements Constants {
         // Sets current service even though there are no request and response
         servletService.setCurrentInstances(null, null);
 
+        int staticResourceCacheSize = servletService.getDeploymentConfiguration()
+                .getStaticResourceCacheSize();
+        if (staticResourceCacheSize > 0) {
+            staticResourceCache = new StaticResourceCache(
+                    staticResourceCacheSize);
+        }
+
         servletInitialized();
 
         CurrentInstance.clearAll();
@@ -657,28 +739,6 @@ public class VaadinServlet extends HttpServlet implements Constants {
         }
     }
 
-    /**
-     * Writes the response in {@code output} using the contentType given in
-     * {@code contentType} to the provided {@link HttpServletResponse}
-     *
-     * @param response
-     * @param contentType
-     * @param output
-     *            Output to write (UTF-8 encoded)
-     * @throws IOException
-     */
-    private void writeResponse(HttpServletResponse response, String contentType,
-            String output) throws IOException {
-        response.setContentType(contentType);
-        final OutputStream out = response.getOutputStream();
-        try ( // Set the response type
-                PrintWriter outWriter = new PrintWriter(new BufferedWriter(
-                        new OutputStreamWriter(out, UTF_8)))) {
-            outWriter.print(output);
-            outWriter.flush();
-        }
-    }
-
     /**
      * Gets resource path using different implementations. Required to
      * supporting different servlet container implementations (application
@@ -743,16 +803,16 @@ public class VaadinServlet extends HttpServlet implements Constants {
      * Mutex for preventing to scss compilations to take place simultaneously.
      * This is a workaround needed as the scss compiler currently is not thread
      * safe (#10292).
-     * <p>
-     * In addition, this is also used to protect the cached compilation results.
      */
     private static final Object SCSS_MUTEX = new Object();
 
     /**
-     * Global cache of scss compilation results. This map is protected from
-     * concurrent access by {@link #SCSS_MUTEX}.
+     * Global cache of scss compilation results. The future for a file is added
+     * before it is compiled, so that concurrent requests for the same file wait
+     * for the same compilation while requests for other files are served
+     * without waiting.
      */
-    private final Map<String, ScssCacheEntry> scssCache = new HashMap<>();
+    private transient ConcurrentHashMap<String, CompletableFuture<ScssCacheEntry>> scssCache = new ConcurrentHashMap<>();
 
     /**
      * Keeps track of whether a warning about not being able to persist cache
@@ -822,6 +882,15 @@ public class VaadinServlet extends HttpServlet implements Constants {
             HttpServletRequest request, HttpServletResponse response)
             throws IOException, ServletException {
 
+        if (staticResourceCache != null) {
+            StaticResourceCache.Entry entry = staticResourceCache.get(filename);
+            if (entry != null) {
+                setCacheHeaders(filename, response);
+                staticResourceCache.write(entry, request, response);
+                return;
+            }
+        }
+
         final ServletContext sc = getServletContext();
         URL resourceUrl = findResourceURL(filename);
 
@@ -851,14 +920,28 @@ public class VaadinServlet extends HttpServlet implements Constants {
             return;
         }
 
-        String cacheControl = "public, max-age=0, must-revalidate";
-        int resourceCacheTime = getCacheTime(filename);
-        if (resourceCacheTime > 0) {
-            cacheControl = "max-age=" + String.valueOf(resourceCacheTime);
+        if (staticResourceCache != null
+                && staticResourceCache.isCacheable(filename)) {
+            StaticResourceCache.Entry entry;
+            try {
+                entry = staticResourceCache.load(resourceUrl,
+                        sc.getMimeType(filename));
+            } catch (FileNotFoundException e) {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            if (entry != null) {
+                // Written from the loaded entry even if the cache is full
+                staticResourceCache.put(filename, entry);
+                setCacheHeaders(filename, response);
+                staticResourceCache.write(entry, request, response);
+                return;
+            }
+            // Too large to be cached
+            staticResourceCache.reject(filename);
         }
-        response.setHeader("Cache-Control", cacheControl);
-        response.setDateHeader("Expires",
-                System.currentTimeMillis() + resourceCacheTime * 1000);
+
+        setCacheHeaders(filename, response);
 
         // Find the modification timestamp
         long lastModifiedTime = 0;
@@ -907,6 +990,18 @@ public class VaadinServlet extends HttpServlet implements Constants {
         writeStaticResourceResponse(request, response, resourceUrl);
     }
 
+    private void setCacheHeaders(String filename,
+            HttpServletResponse response) {
+        String cacheControl = "public, max-age=0, must-revalidate";
+        int resourceCacheTime = getCacheTime(filename);
+        if (resourceCacheTime > 0) {
+            cacheControl = "max-age=" + String.valueOf(resourceCacheTime);
+        }
+        response.setHeader("Cache-Control", cacheControl);
+        response.setDateHeader("Expires",
+                System.currentTimeMillis() + resourceCacheTime * 1000);
+    }
+
     /**
      * Calculates the cache lifetime for the given filename in seconds. By
      * default filenames containing ".nocache." return 0, filenames containing
@@ -1104,10 +1199,53 @@ public class VaadinServlet extends HttpServlet implements Constants {
             return true;
         }
 
-        synchronized (SCSS_MUTEX) {
-            ScssCacheEntry cacheEntry = scssCache.get(scssFilename);
+        ScssCacheEntry cacheEntry = getScssCacheEntry(filename, scssFilename,
+                sc);
+        if (cacheEntry == null) {
+            // compilation did not produce any result, but logged a message
+            return false;
+        }
+
+        // This is for development mode only so instruct the browser to
+        // never cache it
+        response.setHeader("Cache-Control", "no-cache");
+        response.setContentType(getService().getMimeType(filename));
+        cacheEntry.write(request, response);
+
+        return true;
+    }
+
+    private ScssCacheEntry getScssCacheEntry(String filename,
+            String scssFilename, ServletContext sc) throws IOException {
+        boolean stale = false;
+        while (true) {
+            CompletableFuture<ScssCacheEntry> future = scssCache
+                    .get(scssFilename);
+            if (future == null) {
+                CompletableFuture<ScssCacheEntry> newFuture = new CompletableFuture<>();
+                future = scssCache.putIfAbsent(scssFilename, newFuture);
+                if (future == null) {
+                    return loadOrCompileScss(filename, scssFilename, sc,
+                            stale, newFuture);
+                }
+            }
+
+            ScssCacheEntry cacheEntry = getScssCompilationResult(future);
+            if (cacheEntry == null || cacheEntry.isStillValid()) {
+                return cacheEntry;
+            }
+            // Only one of the requests noticing the change compiles again
+            scssCache.remove(scssFilename, future);
+            stale = true;
+        }
+    }
 
-            if (cacheEntry == null) {
+    private ScssCacheEntry loadOrCompileScss(String filename,
+            String scssFilename, ServletContext sc, boolean stale,
+            CompletableFuture<ScssCacheEntry> future) throws IOException {
+        ScssCacheEntry cacheEntry = null;
+        try {
+            if (!stale) {
                 try {
                     cacheEntry = loadPersistedScssCache(scssFilename, sc);
                 } catch (Exception e) {
@@ -1117,23 +1255,41 @@ public class VaadinServlet extends HttpServlet implements Constants {
             }
 
             if (cacheEntry == null || !cacheEntry.isStillValid()) {
-                cacheEntry = compileScssOnTheFly(filename, scssFilename, sc);
-                persistCacheEntry(cacheEntry);
-            }
-            scssCache.put(scssFilename, cacheEntry);
-
-            if (cacheEntry == null) {
-                // compilation did not produce any result, but logged a message
-                return false;
+                synchronized (SCSS_MUTEX) {
+                    cacheEntry = compileScssOnTheFly(filename, scssFilename,
+                            sc);
+                    if (cacheEntry != null) {
+                        persistCacheEntry(cacheEntry);
+                    }
+                }
             }
+        } catch (IOException | RuntimeException | Error e) {
+            scssCache.remove(scssFilename, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
 
-            // This is for development mode only so instruct the browser to
-            // never cache it
-            response.setHeader("Cache-Control", "no-cache");
-            final String mimetype = getService().getMimeType(filename);
-            writeResponse(response, mimetype, cacheEntry.getCss());
+        if (cacheEntry == null) {
+            // Try again on the next request
+            scssCache.remove(scssFilename, future);
+        }
+        future.complete(cacheEntry);
+        return cacheEntry;
+    }
 
-            return true;
+    private static ScssCacheEntry getScssCompilationResult(
+            CompletableFuture<ScssCacheEntry> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(
+                    "Interrupted while waiting for scss compilation");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Scss compilation failed", e.getCause());
         }
     }
 
@@ -1151,8 +1307,10 @@ public class VaadinServlet extends HttpServlet implements Constants {
         JsonObject entryJson = Json.parse(jsonString);
 
         String cacheVersion = entryJson.getString("version");
-        if (!Version.getFullVersion().equals(cacheVersion)) {
-            // Compiled for some other Vaadin version, discard cache
+        if (!Version.getFullVersion().equals(cacheVersion)
+                || !entryJson.hasKey("hashes")) {
+            // Compiled for some other Vaadin version or stored without
+            // content hashes, discard cache
             scssCacheFile.delete();
             return null;
         }
@@ -1160,7 +1318,7 @@ public class VaadinServlet extends HttpServlet implements Constants {
         return new ScssCacheEntry(entryJson);
     }
 
-    private ScssCacheEntry compileScssOnTheFly(String filename,
+    ScssCacheEntry compileScssOnTheFly(String filename,
             String scssFilename, ServletContext sc) throws IOException {
         String realFilename = sc.getRealPath(scssFilename);
         ScssStylesheet scss = ScssStylesheet.get(realFilename);
@@ -1479,6 +1637,13 @@ public class VaadinServlet extends HttpServlet implements Constants {
         }
     }
 
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // Pending compilations are not serialized
+        scssCache = new ConcurrentHashMap<>();
+    }
+
     private static void persistCacheEntry(ScssCacheEntry cacheEntry) {
         String scssFileName = cacheEntry.getScssFileName();
         if (scssFileName == null) {
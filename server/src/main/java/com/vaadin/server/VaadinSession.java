@@ -221,7 +221,12 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
 
     protected WebBrowser browser = new WebBrowser();
 
-    private DragAndDropService dragAndDropService;
+    /*
+     * Created eagerly since connectors may be looked up while only holding the
+     * shared session lock
+     */
+    private final DragAndDropService dragAndDropService = new DragAndDropService(
+            this);
 
     private LegacyCommunicationManager communicationManager;
 
@@ -411,9 +416,6 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
     }
 
     public DragAndDropService getDragAndDropService() {
-        if (dragAndDropService == null) {
-            dragAndDropService = new DragAndDropService(this);
-        }
         return dragAndDropService;
     }
 
@@ -670,7 +672,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @since 7.0
      */
     public Collection<RequestHandler> getRequestHandlers() {
-        assert hasLock();
+        assert hasLock() || hasSharedLock();
         return Collections.unmodifiableCollection(requestHandlers);
     }
 
@@ -787,7 +789,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @return The UI with the given id or null if not found
      */
     public UI getUIById(int uiId) {
-        assert hasLock();
+        assert hasLock() || hasSharedLock();
         return uIs.get(uiId);
     }
 
@@ -1055,6 +1057,62 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         }
     }
 
+    /**
+     * Takes a shared lock on this session. Threads holding the shared lock may
+     * run concurrently with each other, but not with a thread that has
+     * {@link #lock() locked} the session. The shared lock should only be used
+     * by framework code for looking up data that is never modified without
+     * holding the exclusive lock, and must always be released using
+     * {@link #unlockShared()} in a finally block.
+     * <p>
+     * A thread holding only the shared lock must not lock the session
+     * exclusively. If the lock instance of this session does not support
+     * shared locking, the session is locked exclusively instead.
+     *
+     * @see VaadinSessionLock#lockShared()
+     * @see DeploymentConfiguration#isSharedSessionLockEnabled()
+     * @since 8.12
+     */
+    public void lockShared() {
+        Lock lockInstance = getLockInstance();
+        if (lockInstance instanceof VaadinSessionLock) {
+            ((VaadinSessionLock) lockInstance).lockShared();
+        } else {
+            lock();
+        }
+    }
+
+    /**
+     * Releases a shared lock taken using {@link #lockShared()}.
+     *
+     * @since 8.12
+     */
+    public void unlockShared() {
+        Lock lockInstance = getLockInstance();
+        if (lockInstance instanceof VaadinSessionLock) {
+            ((VaadinSessionLock) lockInstance).unlockShared();
+        } else {
+            unlock();
+        }
+    }
+
+    /**
+     * Checks if the current thread holds a shared lock on this session taken
+     * using {@link #lockShared()}.
+     *
+     * @return <code>true</code> if the current thread holds a shared lock,
+     *         <code>false</code> otherwise
+     * @since 8.12
+     */
+    public boolean hasSharedLock() {
+        Lock lockInstance = getLockInstance();
+        if (lockInstance instanceof VaadinSessionLock) {
+            return ((VaadinSessionLock) lockInstance)
+                    .isSharedHeldByCurrentThread();
+        }
+        return hasLock();
+    }
+
     /**
      * Stores a value in this service session. This can be used to associate
      * data with the current user so that it can be retrieved at a later point
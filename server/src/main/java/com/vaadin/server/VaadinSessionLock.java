@@ -0,0 +1,335 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The lock used for a {@link VaadinSession}. Works as a regular
+ * {@link ReentrantLock} for exclusive access to the session, but additionally
+ * supports shared locking for request handling that only reads session data
+ * that is not modified without holding the exclusive lock, and keeps track of
+ * how often and for how long threads had to wait for the lock.
+ * <p>
+ * Any number of threads may hold the shared lock at the same time, but not
+ * while another thread holds the exclusive lock. A thread holding the
+ * exclusive lock may also take the shared lock. A thread holding only the
+ * shared lock may not take the exclusive lock, since that could deadlock.
+ *
+ * @author Vaadin Ltd
+ * @since 8.12
+ */
+public class VaadinSessionLock extends ReentrantLock {
+
+    private final ReentrantReadWriteLock sharedLock = new ReentrantReadWriteLock();
+
+    private final AtomicLong exclusiveAcquisitions = new AtomicLong();
+    private final AtomicLong contendedExclusiveAcquisitions = new AtomicLong();
+    private final AtomicLong exclusiveWaitNanos = new AtomicLong();
+    private final AtomicLong sharedAcquisitions = new AtomicLong();
+    private final AtomicLong contendedSharedAcquisitions = new AtomicLong();
+    private final AtomicLong sharedWaitNanos = new AtomicLong();
+
+    @Override
+    public void lock() {
+        checkNotOnlySharedLockHeld();
+        long start = System.nanoTime();
+        boolean contended = !super.tryLock();
+        if (contended) {
+            super.lock();
+        }
+        if (getHoldCount() == 1 && !sharedLock.writeLock().tryLock()) {
+            // Wait for threads holding the shared lock to finish
+            contended = true;
+            sharedLock.writeLock().lock();
+        }
+        recordExclusiveAcquisition(start, contended);
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        checkNotOnlySharedLockHeld();
+        long start = System.nanoTime();
+        boolean contended = !super.tryLock();
+        if (contended) {
+            super.lockInterruptibly();
+        }
+        if (getHoldCount() == 1 && !sharedLock.writeLock().tryLock()) {
+            contended = true;
+            try {
+                sharedLock.writeLock().lockInterruptibly();
+            } catch (InterruptedException e) {
+                super.unlock();
+                throw e;
+            }
+        }
+        recordExclusiveAcquisition(start, contended);
+    }
+
+    @Override
+    public boolean tryLock() {
+        checkNotOnlySharedLockHeld();
+        if (!super.tryLock()) {
+            return false;
+        }
+        if (getHoldCount() == 1 && !sharedLock.writeLock().tryLock()) {
+            super.unlock();
+            return false;
+        }
+        exclusiveAcquisitions.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public boolean tryLock(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        checkNotOnlySharedLockHeld();
+        long start = System.nanoTime();
+        long deadline = start + unit.toNanos(timeout);
+        boolean contended = !super.tryLock();
+        if (contended && !super.tryLock(timeout, unit)) {
+            return false;
+        }
+        if (getHoldCount() == 1 && !sharedLock.writeLock().tryLock()) {
+            contended = true;
+            boolean locked;
+            try {
+                locked = sharedLock.writeLock().tryLock(
+                        deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                super.unlock();
+                throw e;
+            }
+            if (!locked) {
+                super.unlock();
+                return false;
+            }
+        }
+        recordExclusiveAcquisition(start, contended);
+        return true;
+    }
+
+    @Override
+    public void unlock() {
+        if (getHoldCount() == 1) {
+            sharedLock.writeLock().unlock();
+        }
+        super.unlock();
+    }
+
+    /**
+     * Returns a {@link Condition} for use with the exclusive lock. Waiting for
+     * the condition also lets threads take the shared lock until the waiting
+     * thread has locked the session again.
+     */
+    @Override
+    public Condition newCondition() {
+        return new SessionCondition(super.newCondition());
+    }
+
+    /**
+     * Acquires the shared lock, waiting until no other thread holds the
+     * exclusive lock.
+     */
+    public void lockShared() {
+        // Not using tryLock() for the uncontended case since it would barge
+        // ahead of queued writers and could starve them
+        long start = System.nanoTime();
+        boolean contended = sharedLock.isWriteLocked()
+                || sharedLock.hasQueuedThreads();
+        sharedLock.readLock().lock();
+        sharedAcquisitions.incrementAndGet();
+        if (contended) {
+            contendedSharedAcquisitions.incrementAndGet();
+            sharedWaitNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Releases the shared lock.
+     */
+    public void unlockShared() {
+        sharedLock.readLock().unlock();
+    }
+
+    /**
+     * Checks whether the current thread holds the shared lock.
+     *
+     * @return <code>true</code> if the current thread holds the shared lock,
+     *         otherwise <code>false</code>
+     */
+    public boolean isSharedHeldByCurrentThread() {
+        return sharedLock.getReadHoldCount() > 0;
+    }
+
+    /**
+     * Gets the number of times the exclusive lock has been acquired. Reentrant
+     * acquisitions are included.
+     *
+     * @return the number of exclusive acquisitions
+     */
+    public long getExclusiveAcquisitionCount() {
+        return exclusiveAcquisitions.get();
+    }
+
+    /**
+     * Gets the number of times a thread had to wait for the exclusive lock.
+     *
+     * @return the number of contended exclusive acquisitions
+     */
+    public long getContendedExclusiveAcquisitionCount() {
+        return contendedExclusiveAcquisitions.get();
+    }
+
+    /**
+     * Gets the total time threads have waited for the exclusive lock.
+     *
+     * @return the total wait time in nanoseconds
+     */
+    public long getExclusiveWaitTimeNanos() {
+        return exclusiveWaitNanos.get();
+    }
+
+    /**
+     * Gets the number of times the shared lock has been acquired.
+     *
+     * @return the number of shared acquisitions
+     */
+    public long getSharedAcquisitionCount() {
+        return sharedAcquisitions.get();
+    }
+
+    /**
+     * Gets the number of times a thread had to wait for the shared lock.
+     *
+     * @return the number of contended shared acquisitions
+     */
+    public long getContendedSharedAcquisitionCount() {
+        return contendedSharedAcquisitions.get();
+    }
+
+    /**
+     * Gets the total time threads have waited for the shared lock.
+     *
+     * @return the total wait time in nanoseconds
+     */
+    public long getSharedWaitTimeNanos() {
+        return sharedWaitNanos.get();
+    }
+
+    /**
+     * A condition of the exclusive lock that releases the write lock of
+     * {@link #sharedLock} while waiting, since it is only released when the
+     * exclusive lock is released.
+     */
+    private class SessionCondition implements Condition, Serializable {
+        private final Condition condition;
+
+        private SessionCondition(Condition condition) {
+            this.condition = condition;
+        }
+
+        @Override
+        public void await() throws InterruptedException {
+            releaseSharedWriteLock();
+            try {
+                condition.await();
+            } finally {
+                sharedLock.writeLock().lock();
+            }
+        }
+
+        @Override
+        public void awaitUninterruptibly() {
+            releaseSharedWriteLock();
+            try {
+                condition.awaitUninterruptibly();
+            } finally {
+                sharedLock.writeLock().lock();
+            }
+        }
+
+        @Override
+        public long awaitNanos(long nanosTimeout) throws InterruptedException {
+            releaseSharedWriteLock();
+            try {
+                return condition.awaitNanos(nanosTimeout);
+            } finally {
+                sharedLock.writeLock().lock();
+            }
+        }
+
+        @Override
+        public boolean await(long time, TimeUnit unit)
+                throws InterruptedException {
+            releaseSharedWriteLock();
+            try {
+                return condition.await(time, unit);
+            } finally {
+                sharedLock.writeLock().lock();
+            }
+        }
+
+        @Override
+        public boolean awaitUntil(Date deadline) throws InterruptedException {
+            releaseSharedWriteLock();
+            try {
+                return condition.awaitUntil(deadline);
+            } finally {
+                sharedLock.writeLock().lock();
+            }
+        }
+
+        @Override
+        public void signal() {
+            condition.signal();
+        }
+
+        @Override
+        public void signalAll() {
+            condition.signalAll();
+        }
+
+        private void releaseSharedWriteLock() {
+            if (!isHeldByCurrentThread()) {
+                throw new IllegalMonitorStateException();
+            }
+            // Held once regardless of the hold count of the exclusive lock
+            sharedLock.writeLock().unlock();
+        }
+    }
+
+    private void checkNotOnlySharedLockHeld() {
+        if (!isHeldByCurrentThread() && isSharedHeldByCurrentThread()) {
+            throw new IllegalStateException(
+                    "The session cannot be locked exclusively by a thread that holds only the shared lock");
+        }
+    }
+
+    private void recordExclusiveAcquisition(long start, boolean contended) {
+        exclusiveAcquisitions.incrementAndGet();
+        if (contended) {
+            contendedExclusiveAcquisitions.incrementAndGet();
+            exclusiveWaitNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+}
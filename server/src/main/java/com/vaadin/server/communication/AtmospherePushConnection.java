@@ -21,9 +21,10 @@ import java.io.ObjectInputStream;
 import java.io.Reader;
 import java.io.Serializable;
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.io.Writer;
+import java.util.ArrayDeque;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.logging.ConsoleHandler;
@@ -36,7 +37,9 @@ import org.atmosphere.cpr.AtmosphereResource.TRANSPORT;
 import org.atmosphere.util.Version;
 
 import com.vaadin.shared.communication.PushConstants;
+import com.vaadin.ui.PushConfiguration;
 import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
 
 /**
  * A {@link PushConnection} implementation using the Atmosphere push support
@@ -105,6 +108,88 @@ public class AtmospherePushConnection implements PushConnection {
         }
     }
 
+    /**
+     * Runs the deferred pushes of all connections that coalesce pushes. The
+     * thread is created when the first push is deferred and stops after being
+     * idle for a minute, so it is not left running when coalescing is not used
+     * or the application has been undeployed.
+     */
+    private static class PushScheduler {
+        private static final ScheduledThreadPoolExecutor EXECUTOR = createExecutor();
+
+        private static ScheduledThreadPoolExecutor createExecutor() {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                    1, runnable -> {
+                        Thread thread = new Thread(runnable,
+                                "Vaadin push coalescing");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.setKeepAliveTime(1, TimeUnit.MINUTES);
+            executor.allowCoreThreadTimeOut(true);
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
+
+    /**
+     * An unsynchronized writer appending to a {@link StringBuilder}, used
+     * instead of a {@link java.io.StringWriter} so that the framed message can
+     * be written to a single reusable buffer.
+     */
+    private static class MessageWriter extends Writer {
+        private final StringBuilder buffer;
+
+        private MessageWriter(StringBuilder buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int c) {
+            buffer.append((char) c);
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            buffer.append(chars, offset, length);
+        }
+
+        @Override
+        public void write(String string) {
+            buffer.append(string);
+        }
+
+        @Override
+        public void write(String string, int offset, int length) {
+            buffer.append(string, offset, offset + length);
+        }
+
+        @Override
+        public Writer append(CharSequence chars) {
+            buffer.append(chars);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final int INITIAL_MESSAGE_BUFFER_SIZE = 1024;
+
+    /**
+     * Messages larger than this (in chars) are written to a buffer that is
+     * not kept for the next push, to avoid each request thread holding on to
+     * the largest message it has ever pushed.
+     */
+    private static final int MAX_POOLED_MESSAGE_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<StringBuilder> MESSAGE_BUFFER = new ThreadLocal<>();
+
     protected enum State {
         /**
          * Not connected. Trying to push will set the connection state to
@@ -136,6 +221,17 @@ public class AtmospherePushConnection implements PushConnection {
     private transient AtmosphereResource resource;
     private transient FragmentedMessage incomingMessage;
     private transient Future<Object> outgoingMessage;
+    private transient int lastMessageLength;
+
+    /*
+     * Push coalescing, see PushConfiguration.setPushCoalescingInterval. Only
+     * modified with the session locked.
+     */
+    private transient ArrayDeque<Future<Object>> outstandingMessages;
+    private transient long lastMessageNanos;
+    private transient Future<?> deferredPush;
+    private transient volatile long pushedMessageCount;
+    private transient volatile long coalescedPushCount;
 
     public AtmospherePushConnection(UI ui) {
         this.ui = ui;
@@ -162,17 +258,69 @@ public class AtmospherePushConnection implements PushConnection {
             } else {
                 state = State.RESPONSE_PENDING;
             }
+        } else if (async && deferPush()) {
+            // The changes stay dirty and are sent by the deferred push
         } else {
+            StringBuilder buffer = takeMessageBuffer();
             try {
-                Writer writer = new StringWriter();
-                new UidlWriter().write(getUI(), writer, async);
-                sendMessage("for(;;);[{" + writer + "}]");
+                Writer writer = new MessageWriter(buffer);
+                writer.write("for(;;);[{");
+                writeMessage(writer, async);
+                writer.write("}]");
+                String message = buffer.toString();
+                lastMessageLength = message.length();
+                sendMessage(message);
             } catch (Exception e) {
                 throw new RuntimeException("Push failed", e);
+            } finally {
+                releaseMessageBuffer(buffer);
             }
         }
     }
 
+    /**
+     * Writes the pending state changes and client RPC calls of the UI to the
+     * given writer. The message is framed in the same way as responses to
+     * UIDL requests by the caller.
+     *
+     * @since 8.12
+     * @param writer
+     *            the writer to write the message to
+     * @param async
+     *            True if this push asynchronously originates from the server,
+     *            false if it is a response to a client request.
+     * @throws IOException
+     *             if writing fails
+     */
+    protected void writeMessage(Writer writer, boolean async)
+            throws IOException {
+        new UidlWriter().write(getUI(), writer, async);
+    }
+
+    /**
+     * Gets a buffer for writing a message. Messages are written to the
+     * reusable buffer of the pushing thread, or for messages larger than that
+     * to a buffer sized after the previous message of this connection so that
+     * large messages do not have to be copied while growing the buffer.
+     */
+    private StringBuilder takeMessageBuffer() {
+        StringBuilder buffer = MESSAGE_BUFFER.get();
+        if (buffer != null && buffer.capacity() >= lastMessageLength) {
+            // Not shared with a nested push while in use
+            MESSAGE_BUFFER.remove();
+            return buffer;
+        }
+        return new StringBuilder(Math.max(INITIAL_MESSAGE_BUFFER_SIZE,
+                lastMessageLength + lastMessageLength / 8));
+    }
+
+    private static void releaseMessageBuffer(StringBuilder buffer) {
+        if (buffer.capacity() <= MAX_POOLED_MESSAGE_BUFFER_SIZE) {
+            buffer.setLength(0);
+            MESSAGE_BUFFER.set(buffer);
+        }
+    }
+
     /**
      * Sends the given message to the current client. Cannot be called if
      * {@isConnected()} is false.
@@ -185,6 +333,142 @@ public class AtmospherePushConnection implements PushConnection {
         // "Broadcast" the changes to the single client only
         outgoingMessage = getResource().getBroadcaster().broadcast(message,
                 getResource());
+
+        lastMessageNanos = nanoTime();
+        pushedMessageCount++;
+        if (getCoalescingIntervalNanos() > 0 && outgoingMessage != null) {
+            if (outstandingMessages == null) {
+                outstandingMessages = new ArrayDeque<>();
+            }
+            outstandingMessages.add(outgoingMessage);
+        } else {
+            outstandingMessages = null;
+        }
+    }
+
+    /**
+     * Checks whether an asynchronous push should be deferred because of the
+     * coalescing interval of the UI, and schedules the deferred push if so.
+     * Must be called with the session locked.
+     *
+     * @return <code>true</code> if the push was deferred, <code>false</code>
+     *         if it should be sent now
+     */
+    boolean deferPush() {
+        long interval = getCoalescingIntervalNanos();
+        if (interval <= 0 || pushedMessageCount == 0) {
+            return false;
+        }
+        long delay;
+        if (getOutstandingMessageCount() > 0) {
+            // The client is slower than the server, try again later
+            delay = interval;
+        } else {
+            delay = lastMessageNanos + interval - nanoTime();
+            if (delay <= 0) {
+                return false;
+            }
+        }
+        coalescedPushCount++;
+        if (deferredPush == null) {
+            deferredPush = scheduleDeferredPush(this::runDeferredPush,
+                    delay);
+        }
+        return true;
+    }
+
+    /**
+     * Schedules a deferred push of the UI of this connection.
+     *
+     * @param push
+     *            the task running the deferred push
+     * @param delayNanos
+     *            the delay in nanoseconds
+     * @return a future for the scheduled push
+     */
+    Future<?> scheduleDeferredPush(Runnable push, long delayNanos) {
+        return PushScheduler.EXECUTOR.schedule(push, delayNanos,
+                TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the current value of the time source used for the coalescing
+     * interval, in nanoseconds.
+     *
+     * @return the current time in nanoseconds
+     */
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    private void runDeferredPush() {
+        try {
+            getUI().access(() -> {
+                deferredPush = null;
+                UI ui = getUI();
+                if (ui.getPushConfiguration().getPushMode().isEnabled()
+                        && ui.getPushConnection() == this) {
+                    // Pushes whatever has changed, even if it has already
+                    // been sent in a response in the meantime
+                    ui.push();
+                }
+            });
+        } catch (UIDetachedException e) {
+            // Nothing to push to
+        }
+    }
+
+    private long getCoalescingIntervalNanos() {
+        PushConfiguration configuration = getUI().getPushConfiguration();
+        if (configuration == null) {
+            return 0;
+        }
+        return TimeUnit.MILLISECONDS
+                .toNanos(configuration.getPushCoalescingInterval());
+    }
+
+    /**
+     * Returns the number of messages that have been sent through this
+     * connection but not yet written to the client. Only tracked when push
+     * coalescing is enabled. Should be called with the session locked.
+     *
+     * @since 8.12
+     * @return the number of outstanding messages
+     */
+    public int getOutstandingMessageCount() {
+        if (outstandingMessages == null) {
+            return 0;
+        }
+        // Messages are completed in order
+        while (!outstandingMessages.isEmpty()
+                && outstandingMessages.peek().isDone()) {
+            outstandingMessages.poll();
+        }
+        return outstandingMessages.size();
+    }
+
+    /**
+     * Returns the number of messages sent through this connection since it was
+     * created or deserialized.
+     *
+     * @since 8.12
+     * @return the number of sent messages
+     */
+    public long getPushedMessageCount() {
+        return pushedMessageCount;
+    }
+
+    /**
+     * Returns the number of asynchronous pushes that were deferred and
+     * coalesced with other pushes because of the
+     * {@link PushConfiguration#getPushCoalescingInterval() coalescing
+     * interval}, since this connection was created or deserialized.
+     *
+     * @since 8.12
+     * @return the number of coalesced pushes
+     */
+    public long getCoalescedPushCount() {
+        return coalescedPushCount;
     }
 
     /**
@@ -326,6 +610,7 @@ public class AtmospherePushConnection implements PushConnection {
      */
     public void connectionLost() {
         resource = null;
+        outstandingMessages = null;
         if (state == State.CONNECTED) {
             // Guard against connectionLost being (incorrectly) called when
             // state is PUSH_PENDING or RESPONSE_PENDING
@@ -19,7 +19,9 @@ package com.vaadin.server.communication;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 import com.vaadin.server.AbstractClientConnector;
@@ -63,6 +65,12 @@ public class ConnectorHierarchyWriter implements Serializable {
         Collection<ClientConnector> dirtyVisibleConnectors = ui
                 .getConnectorTracker().getDirtyVisibleConnectors();
 
+        if (UidlWriter.isStreamingEnabled(ui)) {
+            writeStreaming(dirtyVisibleConnectors, writer,
+                    stateUpdateConnectors);
+            return;
+        }
+
         JsonObject hierarchyInfo = Json.createObject();
         for (ClientConnector connector : dirtyVisibleConnectors) {
             String connectorId = connector.getConnectorId();
@@ -97,6 +105,60 @@ public class ConnectorHierarchyWriter implements Serializable {
         writer.write(JsonUtil.stringify(hierarchyInfo));
     }
 
+    /**
+     * Writes the children of each connector directly to the writer. The full
+     * hierarchy object is only populated when assertions are enabled, since it
+     * is only needed for verifying the hierarchy sent to the client.
+     */
+    private void writeStreaming(
+            Collection<ClientConnector> dirtyVisibleConnectors, Writer writer,
+            Set<String> stateUpdateConnectors) throws IOException {
+        JsonObject sentHierarchy = Json.createObject();
+
+        JsonStreamWriter hierarchyInfo = new JsonStreamWriter(writer)
+                .beginObject();
+        List<String> children = new ArrayList<>();
+        for (ClientConnector connector : dirtyVisibleConnectors) {
+            String connectorId = connector.getConnectorId();
+            children.clear();
+
+            for (ClientConnector child : AbstractClientConnector
+                    .getAllChildrenIterable(connector)) {
+                if (LegacyCommunicationManager
+                        .isConnectorVisibleToClient(child)) {
+                    children.add(child.getConnectorId());
+                }
+            }
+
+            // Omit for leaf nodes with state changes
+            if (!children.isEmpty()
+                    || !stateUpdateConnectors.contains(connectorId)) {
+                hierarchyInfo.name(connectorId).beginArray();
+                for (String childId : children) {
+                    hierarchyInfo.value(childId);
+                }
+                hierarchyInfo.endArray();
+
+                assert addSentChildren(sentHierarchy, connectorId, children);
+            }
+        }
+        hierarchyInfo.endObject();
+
+        assert storeSentHierarchy(sentHierarchy, stateUpdateConnectors);
+    }
+
+    private static boolean addSentChildren(JsonObject sentHierarchy,
+            String connectorId, List<String> children) {
+        JsonArray childArray = Json.createArray();
+        for (String childId : children) {
+            childArray.set(childArray.length(), childId);
+        }
+        sentHierarchy.put(connectorId, childArray);
+
+        // Always true, we're just setting up for another assert
+        return true;
+    }
+
     private boolean storeSentHierarchy(JsonObject hierarchyInfo,
             Set<String> stateUpdateConnectors) {
         VaadinRequest request = VaadinService.getCurrentRequest();
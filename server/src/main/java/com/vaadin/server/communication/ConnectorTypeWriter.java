@@ -58,6 +58,17 @@ public class ConnectorTypeWriter implements Serializable {
         Collection<ClientConnector> dirtyVisibleConnectors = ui
                 .getConnectorTracker().getDirtyVisibleConnectors();
 
+        if (UidlWriter.isStreamingEnabled(ui)) {
+            JsonStreamWriter connectorTypes = new JsonStreamWriter(writer)
+                    .beginObject();
+            for (ClientConnector connector : dirtyVisibleConnectors) {
+                connectorTypes.name(connector.getConnectorId())
+                        .value(target.getTag(connector));
+            }
+            connectorTypes.endObject();
+            return;
+        }
+
         JsonObject connectorTypes = Json.createObject();
         for (ClientConnector connector : dirtyVisibleConnectors) {
             String connectorType = target.getTag(connector);
@@ -17,12 +17,12 @@
 package com.vaadin.server.communication;
 
 import java.io.BufferedWriter;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.util.Arrays;
 
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.NoInputStreamException;
@@ -55,151 +55,202 @@ public class FileUploadHandler implements RequestHandler {
     /**
      * Stream that extracts content from another stream until the boundary
      * string is encountered.
+     * <p>
+     * The underlying stream is read in large blocks and the boundary is
+     * searched for within the buffered data using the Boyer-Moore-Horspool
+     * algorithm, so that most of the content is copied without inspecting
+     * every byte. The headers preceding the content can be read with
+     * {@link #readLine()} from the same buffer.
      *
      * Public only for unit tests, should be considered private for all other
      * purposes.
      */
     public static class SimpleMultiPartInputStream extends InputStream {
 
+        private static final int BUFFER_SIZE = 64 * 1024;
+
+        private final byte[] boundary;
+
         /**
-         * Counter of how many characters have been matched to boundary string
-         * from the stream
+         * Horspool shift for each byte value when it is the last byte of the
+         * current search window.
          */
-        int matchedCount = -1;
+        private final int[] shifts = new int[256];
+
+        private final InputStream realInputStream;
+
+        private final byte[] buffer;
+
+        private int pos = 0;
+
+        private int limit = 0;
 
         /**
-         * Used as pointer when returning bytes after partly matched boundary
-         * string.
+         * End of the buffered data that is known to be content, i.e. not part
+         * of the boundary.
          */
-        int curBoundaryIndex = 0;
+        private int dataEnd = 0;
+
         /**
-         * The byte found after a "promising start for boundary"
+         * Whether the boundary starts at {@link #dataEnd}.
          */
-        private int bufferedByte = -1;
-        private boolean atTheEnd = false;
+        private boolean boundaryFound = false;
 
-        private final char[] boundary;
+        private boolean endOfStream = false;
 
-        private final InputStream realInputStream;
+        private boolean atTheEnd = false;
 
         public SimpleMultiPartInputStream(InputStream realInputStream,
                 String boundaryString) {
-            boundary = (CRLF + DASHDASH + boundaryString).toCharArray();
+            boundary = (CRLF + DASHDASH + boundaryString).getBytes(UTF_8);
             this.realInputStream = realInputStream;
+            buffer = new byte[Math.max(BUFFER_SIZE, 2 * boundary.length)];
+
+            Arrays.fill(shifts, boundary.length);
+            for (int i = 0; i < boundary.length - 1; i++) {
+                shifts[boundary[i] & 0xff] = boundary.length - 1 - i;
+            }
         }
 
         @Override
         public int read() throws IOException {
-            if (atTheEnd) {
-                // End boundary reached, nothing more to read
+            if (pos >= dataEnd && !findData()) {
+                return -1;
+            }
+            return buffer[pos++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            } else if (len == 0) {
+                return 0;
+            }
+            if (pos >= dataEnd && !findData()) {
                 return -1;
-            } else if (bufferedByte >= 0) {
-                /* Purge partially matched boundary if there was such */
-                return getBuffered();
-            } else if (matchedCount != -1) {
-                /*
-                 * Special case where last "failed" matching ended with first
-                 * character from boundary string
-                 */
-                return matchForBoundary();
-            } else {
-                int fromActualStream = realInputStream.read();
-                if (fromActualStream == -1) {
-                    // unexpected end of stream
-                    throw new IOException(
-                            "The multipart stream ended unexpectedly");
-                }
-                if (boundary[0] == fromActualStream) {
-                    /*
-                     * If matches the first character in boundary string, start
-                     * checking if the boundary is fetched.
-                     */
-                    return matchForBoundary();
-                }
-                return fromActualStream;
             }
+            int count = Math.min(len, dataEnd - pos);
+            System.arraycopy(buffer, pos, b, off, count);
+            pos += count;
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return Math.max(0, dataEnd - pos);
         }
 
         /**
-         * Reads the input to expect a boundary string. Expects that the first
-         * character has already been matched.
+         * Reads a line ending with LF directly from the underlying stream,
+         * without looking for the boundary. Used for reading the part headers
+         * before the content is read.
          *
-         * @return -1 if the boundary was matched, else returns the first byte
-         *         from boundary
+         * @return the line without the line delimiter
          * @throws IOException
+         *             if the stream ends before the line or the line is longer
+         *             than {@link FileUploadHandler#MULTIPART_BOUNDARY_LINE_LIMIT}
          */
-        private int matchForBoundary() throws IOException {
-            matchedCount = 0;
-            /*
-             * Going to "buffered mode". Read until full boundary match or a
-             * different character.
-             */
+        String readLine() throws IOException {
+            int scanned = 0;
             while (true) {
-                matchedCount++;
-                if (matchedCount == boundary.length) {
-                    /*
-                     * The whole boundary matched so we have reached the end of
-                     * file
-                     */
-                    atTheEnd = true;
-                    return -1;
+                for (int i = pos + scanned; i < limit; i++) {
+                    if (buffer[i] == LF) {
+                        // Strip the CR preceding the LF
+                        String line = new String(buffer, pos,
+                                Math.max(0, i - pos - 1), UTF_8);
+                        pos = i + 1;
+                        dataEnd = pos;
+                        return line;
+                    }
                 }
-                int fromActualStream = realInputStream.read();
-                if (fromActualStream != boundary[matchedCount]) {
-                    /*
-                     * Did not find full boundary, cache the mismatching byte
-                     * and start returning the partially matched boundary.
-                     */
-                    bufferedByte = fromActualStream;
-                    return getBuffered();
+                scanned = limit - pos;
+                if (scanned > MULTIPART_BOUNDARY_LINE_LIMIT) {
+                    throw new IOException(
+                            "The multipart stream does not contain boundary");
+                } else if (endOfStream) {
+                    throw new IOException(
+                            "The multipart stream ended unexpectedly");
                 }
+                fill();
             }
         }
 
         /**
-         * Returns the partly matched boundary string and the byte following
-         * that.
+         * Makes more content available after {@link #pos}.
          *
-         * @return
+         * @return <code>true</code> if there is content to read,
+         *         <code>false</code> if the boundary has been reached
          * @throws IOException
+         *             if the stream ends before the boundary
          */
-        private int getBuffered() throws IOException {
-            int b;
-            if (matchedCount == 0) {
-                // The boundary has been returned, return the buffered byte.
-                b = bufferedByte;
-                bufferedByte = -1;
-                matchedCount = -1;
-            } else {
-                b = boundary[curBoundaryIndex++];
-                if (curBoundaryIndex == matchedCount) {
-                    // The full boundary has been returned, remaining is the
-                    // char that did not match the boundary.
-
-                    curBoundaryIndex = 0;
-                    if (bufferedByte != boundary[0]) {
-                        /*
-                         * next call for getBuffered will return the
-                         * bufferedByte that came after the partial boundary
-                         * match
-                         */
-                        matchedCount = 0;
-                    } else {
-                        /*
-                         * Special case where buffered byte again matches the
-                         * boundaryString. This could be the start of the real
-                         * end boundary.
-                         */
-                        matchedCount = 0;
-                        bufferedByte = -1;
+        private boolean findData() throws IOException {
+            if (atTheEnd || boundaryFound) {
+                // End boundary reached, nothing more to read
+                atTheEnd = true;
+                return false;
+            }
+            while (true) {
+                int index = indexOfBoundary();
+                if (index >= 0) {
+                    dataEnd = index;
+                    boundaryFound = true;
+                    atTheEnd = index == pos;
+                    return !atTheEnd;
+                }
+                if (endOfStream) {
+                    if (pos < limit) {
+                        // Return the remaining content before failing
+                        dataEnd = limit;
+                        return true;
                     }
+                    throw new IOException(
+                            "The multipart stream ended unexpectedly");
                 }
+                // The end of the buffer may contain the start of the boundary
+                int safeEnd = limit - boundary.length + 1;
+                if (safeEnd > pos) {
+                    dataEnd = safeEnd;
+                    return true;
+                }
+                fill();
             }
-            if (b == -1) {
-                throw new IOException(
-                        "The multipart stream ended unexpectedly");
+        }
+
+        private int indexOfBoundary() {
+            int last = boundary.length - 1;
+            int i = pos;
+            while (i + last < limit) {
+                int j = last;
+                while (buffer[i + j] == boundary[j]) {
+                    if (j == 0) {
+                        return i;
+                    }
+                    j--;
+                }
+                i += shifts[buffer[i + last] & 0xff];
+            }
+            return -1;
+        }
+
+        /**
+         * Moves the unread bytes to the start of the buffer and reads more
+         * bytes after them.
+         */
+        private void fill() throws IOException {
+            if (pos > 0) {
+                System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+                limit -= pos;
+                dataEnd = Math.max(0, dataEnd - pos);
+                pos = 0;
+            }
+            int read = realInputStream.read(buffer, limit,
+                    buffer.length - limit);
+            if (read < 0) {
+                endOfStream = true;
+            } else {
+                limit += read;
             }
-            return b;
         }
     }
 
@@ -231,9 +282,10 @@ public class FileUploadHandler implements RequestHandler {
     private static final String DASHDASH = "--";
 
     /*
-     * Same as in apache commons file upload library that was previously used.
+     * Size of the chunks written to the receiver. Large enough to keep the
+     * number of writes and interrupt checks low for big files.
      */
-    private static final int MAX_UPLOAD_BUFFER_SIZE = 4 * 1024;
+    private static final int MAX_UPLOAD_BUFFER_SIZE = 32 * 1024;
 
     /* Minimum interval which will be used for streaming progress events. */
     public static final int DEFAULT_STREAMING_PROGRESS_EVENT_INTERVAL_MS = 500;
@@ -303,25 +355,6 @@ public class FileUploadHandler implements RequestHandler {
         return true;
     }
 
-    private static String readLine(InputStream stream) throws IOException {
-        ByteArrayOutputStream bout = new ByteArrayOutputStream();
-        int readByte = stream.read();
-        while (readByte != LF) {
-            if (readByte == -1) {
-                throw new IOException(
-                        "The multipart stream ended unexpectedly");
-            }
-            bout.write(readByte);
-            if (bout.size() > MULTIPART_BOUNDARY_LINE_LIMIT) {
-                throw new IOException(
-                        "The multipart stream does not contain boundary");
-            }
-            readByte = stream.read();
-        }
-        byte[] bytes = bout.toByteArray();
-        return new String(bytes, 0, bytes.length - 1, UTF_8);
-    }
-
     /**
      * Method used to stream content from a multipart request (either from
      * servlet or portlet request) to given StreamVariable.
@@ -356,7 +389,8 @@ public class FileUploadHandler implements RequestHandler {
         // multipart parsing, supports only one file for request, but that is
         // fine for our current terminal
 
-        final InputStream inputStream = request.getInputStream();
+        SimpleMultiPartInputStream simpleMultiPartReader = new SimpleMultiPartInputStream(
+                request.getInputStream(), boundary);
 
         long contentLength = getContentLength(request);
 
@@ -371,7 +405,7 @@ public class FileUploadHandler implements RequestHandler {
          * filename and content type from multipart headers.
          */
         while (!atStart) {
-            String readLine = readLine(inputStream);
+            String readLine = simpleMultiPartReader.readLine();
             contentLength -= (readLine.getBytes(UTF_8).length + CRLF.length());
             if (readLine.startsWith("Content-Disposition:")
                     && readLine.indexOf("filename=") > 0) {
@@ -391,22 +425,6 @@ public class FileUploadHandler implements RequestHandler {
         contentLength -= (boundary.length() + CRLF.length()
                 + 2 * DASHDASH.length() + CRLF.length());
 
-        /*
-         * Reads bytes from the underlying stream. Compares the read bytes to
-         * the boundary string and returns -1 if met.
-         *
-         * The matching happens so that if the read byte equals to the first
-         * char of boundary string, the stream goes to "buffering mode". In
-         * buffering mode bytes are read until the character does not match the
-         * corresponding from boundary string or the full boundary string is
-         * found.
-         *
-         * Note, if this is someday needed elsewhere, don't shoot yourself to
-         * foot and split to a top level helper class.
-         */
-        InputStream simpleMultiPartReader = new SimpleMultiPartInputStream(
-                inputStream, boundary);
-
         /*
          * Should report only the filename even if the browser sends the path
          */
@@ -20,6 +20,7 @@ import java.io.IOException;
 
 import javax.servlet.http.HttpServletResponse;
 
+import com.vaadin.server.DeploymentConfiguration;
 import com.vaadin.server.ServletPortletHelper;
 import com.vaadin.server.SessionExpiredHandler;
 import com.vaadin.server.SynchronizedRequestHandler;
@@ -48,6 +49,33 @@ public class HeartbeatHandler extends SynchronizedRequestHandler
         return ServletPortletHelper.isHeartbeatRequest(request);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If {@link DeploymentConfiguration#isSharedSessionLockEnabled() shared
+     * session locking} is enabled, only a shared lock is held while handling
+     * the request, so that heartbeats for different UIs do not need to wait
+     * for each other.
+     */
+    @Override
+    public boolean handleRequest(VaadinSession session, VaadinRequest request,
+            VaadinResponse response) throws IOException {
+        if (!session.getService().getDeploymentConfiguration()
+                .isSharedSessionLockEnabled()) {
+            return super.handleRequest(session, request, response);
+        }
+        if (!canHandleRequest(request)) {
+            return false;
+        }
+
+        session.lockShared();
+        try {
+            return synchronizedHandleRequest(session, request, response);
+        } finally {
+            session.unlockShared();
+        }
+    }
+
     /**
      * Handles a heartbeat request for the given session. Reads the GET
      * parameter named {@link UIConstants#UI_ID_PARAMETER} to identify the UI.
@@ -58,7 +86,16 @@ public class HeartbeatHandler extends SynchronizedRequestHandler
     @Override
     public boolean synchronizedHandleRequest(VaadinSession session,
             VaadinRequest request, VaadinResponse response) throws IOException {
-        UI ui = session.getService().findUI(request);
+        UI ui;
+        if (session.hasLock()) {
+            ui = session.getService().findUI(request);
+        } else {
+            // Only the shared lock is held, so the session must not be
+            // reloaded from the HTTP session
+            String uiId = request.getParameter(UIConstants.UI_ID_PARAMETER);
+            ui = uiId == null ? null
+                    : session.getUIById(Integer.parseInt(uiId));
+        }
         if (ui != null) {
             ui.setLastHeartbeatTimestamp(System.currentTimeMillis());
             // Ensure that the browser does not cache heartbeat responses.
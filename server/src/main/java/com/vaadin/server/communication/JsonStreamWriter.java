@@ -0,0 +1,178 @@
+/*
+ * Copyright 2000-2018 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.BitSet;
+
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+/**
+ * Writes JSON objects and arrays member by member to a {@link Writer} without
+ * first building the complete tree in memory. Values are written in the same
+ * compact format as {@link JsonUtil#stringify(JsonValue)}, so the output is
+ * identical to stringifying the corresponding {@code JsonObject} or
+ * {@code JsonArray}.
+ *
+ * @author Vaadin Ltd
+ * @since 8.12
+ */
+class JsonStreamWriter {
+
+    private final Writer writer;
+
+    /*
+     * Bit n is set if the container at nesting level n already has at least
+     * one member and the next member must be preceded by a comma.
+     */
+    private final BitSet hasMembers = new BitSet();
+    private int depth = 0;
+    private boolean afterName = false;
+
+    /**
+     * Creates a new stream writer that writes to the given writer.
+     *
+     * @param writer
+     *            the writer to write to, not <code>null</code>
+     */
+    JsonStreamWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Starts a new JSON object.
+     *
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    JsonStreamWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    /**
+     * Ends the current JSON object.
+     *
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    JsonStreamWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    /**
+     * Starts a new JSON array.
+     *
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    JsonStreamWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    /**
+     * Ends the current JSON array.
+     *
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    JsonStreamWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    /**
+     * Writes the name of the next member of the current JSON object.
+     *
+     * @param name
+     *            the member name, not <code>null</code>
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    JsonStreamWriter name(String name) throws IOException {
+        beforeValue();
+        writer.write(JsonUtil.quote(name));
+        writer.write(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes a JSON value as the next member of the current object or array.
+     *
+     * @param value
+     *            the value to write
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    JsonStreamWriter value(JsonValue value) throws IOException {
+        beforeValue();
+        writer.write(JsonUtil.stringify(value));
+        return this;
+    }
+
+    /**
+     * Writes a string as the next member of the current object or array.
+     *
+     * @param value
+     *            the string to write, not <code>null</code>
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    JsonStreamWriter value(String value) throws IOException {
+        beforeValue();
+        writer.write(JsonUtil.quote(value));
+        return this;
+    }
+
+    private JsonStreamWriter open(char bracket) throws IOException {
+        beforeValue();
+        writer.write(bracket);
+        depth++;
+        hasMembers.clear(depth);
+        return this;
+    }
+
+    private JsonStreamWriter close(char bracket) throws IOException {
+        if (depth == 0 || afterName) {
+            throw new IllegalStateException("No open JSON container to close");
+        }
+        writer.write(bracket);
+        depth--;
+        return this;
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            // Value of an object member, the name has already been written
+            afterName = false;
+            return;
+        }
+        if (hasMembers.get(depth)) {
+            writer.write(',');
+        } else {
+            hasMembers.set(depth);
+        }
+    }
+}
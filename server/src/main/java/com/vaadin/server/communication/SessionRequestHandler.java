@@ -51,13 +51,25 @@ public class SessionRequestHandler implements RequestHandler {
     @Override
     public boolean handleRequest(VaadinSession session, VaadinRequest request,
             VaadinResponse response) throws IOException {
-        // Use a copy to avoid ConcurrentModificationException
-        session.lock();
+        // Use a copy to avoid ConcurrentModificationException. The handlers
+        // are only modified while holding the exclusive lock, so a shared
+        // lock is enough for reading them if shared locking is enabled.
+        boolean sharedLock = session.getService().getDeploymentConfiguration()
+                .isSharedSessionLockEnabled();
+        if (sharedLock) {
+            session.lockShared();
+        } else {
+            session.lock();
+        }
         List<RequestHandler> requestHandlers;
         try {
             requestHandlers = new ArrayList<>(session.getRequestHandlers());
         } finally {
-            session.unlock();
+            if (sharedLock) {
+                session.unlockShared();
+            } else {
+                session.unlock();
+            }
         }
         for (RequestHandler handler : requestHandlers) {
             if (handler.handleRequest(session, request, response)) {
@@ -58,28 +58,62 @@ public class SharedStateWriter implements Serializable {
         Collection<ClientConnector> dirtyVisibleConnectors = ui
                 .getConnectorTracker().getDirtyVisibleConnectors();
 
+        if (UidlWriter.isStreamingEnabled(ui)) {
+            return writeStreaming(dirtyVisibleConnectors, writer);
+        }
+
         Set<String> writtenConnectors = new HashSet<>();
         JsonObject sharedStates = Json.createObject();
         for (ClientConnector connector : dirtyVisibleConnectors) {
             // encode and send shared state
             String connectorId = connector.getConnectorId();
-            try {
-                JsonObject stateJson = connector.encodeState();
+            JsonObject stateJson = encodeState(connector);
 
-                if (stateJson != null && stateJson.keys().length != 0) {
-                    sharedStates.put(connectorId, stateJson);
-                    writtenConnectors.add(connectorId);
-                }
-            } catch (JsonException e) {
-                throw new PaintException(
-                        "Failed to serialize shared state for connector "
-                                + connector.getClass().getName() + " ("
-                                + connectorId + "): " + e.getMessage(),
-                        e);
+            if (stateJson != null && stateJson.keys().length != 0) {
+                sharedStates.put(connectorId, stateJson);
+                writtenConnectors.add(connectorId);
             }
         }
         writer.write(JsonUtil.stringify(sharedStates));
 
         return writtenConnectors;
     }
+
+    /**
+     * Writes the state of each connector as soon as it has been encoded so
+     * that the encoded states are never all kept in memory at the same time.
+     */
+    private Set<String> writeStreaming(
+            Collection<ClientConnector> dirtyVisibleConnectors, Writer writer)
+            throws IOException {
+        Set<String> writtenConnectors = new HashSet<>();
+        JsonStreamWriter sharedStates = new JsonStreamWriter(writer)
+                .beginObject();
+        for (ClientConnector connector : dirtyVisibleConnectors) {
+            String connectorId = connector.getConnectorId();
+            JsonObject stateJson = encodeState(connector);
+
+            if (stateJson != null && stateJson.keys().length != 0
+                    && writtenConnectors.add(connectorId)) {
+                sharedStates.name(connectorId).value(stateJson);
+            }
+        }
+        sharedStates.endObject();
+
+        return writtenConnectors;
+    }
+
+    private static JsonObject encodeState(ClientConnector connector)
+            throws PaintException {
+        try {
+            return connector.encodeState();
+        } catch (JsonException e) {
+            throw new PaintException(
+                    "Failed to serialize shared state for connector "
+                            + connector.getClass().getName() + " ("
+                            + connector.getConnectorId() + "): "
+                            + e.getMessage(),
+                    e);
+        }
+    }
 }
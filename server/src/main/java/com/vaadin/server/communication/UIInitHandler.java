@@ -27,6 +27,7 @@ import java.util.logging.Logger;
 
 import com.vaadin.annotations.PreserveOnRefresh;
 import com.vaadin.server.LegacyApplicationUIProvider;
+import com.vaadin.server.RequestMetrics;
 import com.vaadin.server.SynchronizedRequestHandler;
 import com.vaadin.server.UIClassSelectionEvent;
 import com.vaadin.server.UICreateEvent;
@@ -41,6 +42,7 @@ import com.vaadin.shared.communication.PushMode;
 import com.vaadin.shared.ui.ui.Transport;
 import com.vaadin.shared.ui.ui.UIConstants;
 import com.vaadin.ui.UI;
+import com.vaadin.util.EncodeUtil;
 
 import elemental.json.Json;
 import elemental.json.JsonException;
@@ -106,6 +108,32 @@ public abstract class UIInitHandler extends SynchronizedRequestHandler {
      */
     static boolean commitJsonResponse(VaadinRequest request,
             VaadinResponse response, String json) throws IOException {
+        return commitJsonResponse(request, response, json, null);
+    }
+
+    /**
+     * Commit the JSON response and record the number of bytes written to the
+     * given metrics. The response is gzip compressed if the client accepts it
+     * and the JSON is at least
+     * {@link com.vaadin.server.DeploymentConfiguration#getUidlCompressionThreshold()}
+     * bytes long.
+     *
+     * @param request
+     *            The request that resulted in this response
+     * @param response
+     *            The response to write to
+     * @param json
+     *            The JSON to write
+     * @param metrics
+     *            the metrics to record the number of written bytes to, or
+     *            <code>null</code> to not record any metrics
+     * @return true if the JSON was written successfully, false otherwise
+     * @throws IOException
+     *             If there was an exception while writing to the output
+     */
+    static boolean commitJsonResponse(VaadinRequest request,
+            VaadinResponse response, String json, RequestMetrics metrics)
+            throws IOException {
         // The response was produced without errors so write it to the client
         response.setContentType(JsonConstants.JSON_CONTENT_TYPE);
 
@@ -114,6 +142,17 @@ public abstract class UIInitHandler extends SynchronizedRequestHandler {
         response.setNoCacheHeaders();
 
         byte[] b = json.getBytes(UTF_8);
+
+        int compressionThreshold = request.getService()
+                .getDeploymentConfiguration().getUidlCompressionThreshold();
+        if (compressionThreshold >= 0) {
+            response.setHeader("Vary", "Accept-Encoding");
+            if (b.length >= compressionThreshold && acceptsGzip(request)) {
+                b = EncodeUtil.gzip(b);
+                response.setHeader("Content-Encoding", "gzip");
+            }
+        }
+
         response.setContentLength(b.length);
 
         OutputStream outputStream = response.getOutputStream();
@@ -121,9 +160,26 @@ public abstract class UIInitHandler extends SynchronizedRequestHandler {
         // NOTE GateIn requires the buffers to be flushed to work
         outputStream.flush();
 
+        if (metrics != null) {
+            metrics.setBytesWritten(b.length);
+        }
+
         return true;
     }
 
+    /**
+     * Checks whether the client accepts gzip encoded responses.
+     *
+     * @param request
+     *            the request to check
+     * @return <code>true</code> if gzip is an acceptable content coding,
+     *         <code>false</code> otherwise
+     */
+    static boolean acceptsGzip(VaadinRequest request) {
+        return EncodeUtil.acceptsContentEncoding(
+                request.getHeader("Accept-Encoding"), "gzip");
+    }
+
     private UI getBrowserDetailsUI(VaadinRequest request,
             VaadinSession session) {
         VaadinService vaadinService = request.getService();
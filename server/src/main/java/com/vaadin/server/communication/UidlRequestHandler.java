@@ -19,10 +19,14 @@ package com.vaadin.server.communication;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.vaadin.server.LegacyCommunicationManager.InvalidUIDLSecurityKeyException;
+import com.vaadin.server.RequestMetrics;
+import com.vaadin.server.RequestMetrics.Phase;
+import com.vaadin.server.RequestMetricsListener;
 import com.vaadin.server.ServletPortletHelper;
 import com.vaadin.server.SessionExpiredHandler;
 import com.vaadin.server.SynchronizedRequestHandler;
@@ -72,9 +76,48 @@ public class UidlRequestHandler extends SynchronizedRequestHandler
         return ServletPortletHelper.isUIDLRequest(request);
     }
 
+    @Override
+    public boolean handleRequest(VaadinSession session, VaadinRequest request,
+            VaadinResponse response) throws IOException {
+        List<RequestMetricsListener> metricsListeners = session.getService()
+                .getRequestMetricsListeners();
+        if (metricsListeners.isEmpty() || !canHandleRequest(request)) {
+            return super.handleRequest(session, request, response);
+        }
+
+        RequestMetrics metrics = new RequestMetrics();
+        request.setAttribute(RequestMetrics.class.getName(), metrics);
+
+        long start = System.nanoTime();
+        session.lock();
+        metrics.setLockWaitNanos(System.nanoTime() - start);
+        try {
+            return synchronizedHandleRequest(session, request, response);
+        } finally {
+            // Unlocking runs pending access tasks, include them in the total
+            session.unlock();
+            metrics.setTotalNanos(System.nanoTime() - start);
+            fireRequestMetrics(metricsListeners, metrics);
+        }
+    }
+
+    private static void fireRequestMetrics(
+            List<RequestMetricsListener> listeners, RequestMetrics metrics) {
+        for (RequestMetricsListener listener : listeners) {
+            try {
+                listener.requestHandled(metrics);
+            } catch (RuntimeException e) {
+                getLogger().log(Level.WARNING,
+                        "Request metrics listener threw an exception", e);
+            }
+        }
+    }
+
     @Override
     public boolean synchronizedHandleRequest(VaadinSession session,
             VaadinRequest request, VaadinResponse response) throws IOException {
+        RequestMetrics metrics = (RequestMetrics) request
+                .getAttribute(RequestMetrics.class.getName());
         UI uI = session.getService().findUI(request);
         if (uI == null) {
             // This should not happen but it will if the UI has been closed. We
@@ -84,12 +127,21 @@ public class UidlRequestHandler extends SynchronizedRequestHandler
             return true;
         }
 
+        if (metrics != null) {
+            metrics.setUI(uI);
+        }
+
         StringWriter stringWriter = new StringWriter();
 
         try {
+            long rpcStart = System.nanoTime();
             rpcHandler.handleRpc(uI, request.getReader(), request);
+            if (metrics != null) {
+                metrics.addPhaseNanos(Phase.RPC_HANDLING,
+                        System.nanoTime() - rpcStart);
+            }
 
-            writeUidl(request, response, uI, stringWriter);
+            writeUidl(request, response, uI, stringWriter, metrics);
         } catch (JsonException e) {
             getLogger().log(Level.SEVERE, "Error writing JSON to response", e);
             // Refresh on client side
@@ -106,8 +158,14 @@ public class UidlRequestHandler extends SynchronizedRequestHandler
             stringWriter.close();
         }
 
-        return UIInitHandler.commitJsonResponse(request, response,
-                stringWriter.toString());
+        long writeStart = System.nanoTime();
+        boolean committed = UIInitHandler.commitJsonResponse(request, response,
+                stringWriter.toString(), metrics);
+        if (metrics != null) {
+            metrics.addPhaseNanos(Phase.RESPONSE_WRITE,
+                    System.nanoTime() - writeStart);
+        }
+        return committed;
     }
 
     private void writeRefresh(VaadinRequest request, VaadinResponse response)
@@ -118,10 +176,10 @@ public class UidlRequestHandler extends SynchronizedRequestHandler
     }
 
     private void writeUidl(VaadinRequest request, VaadinResponse response,
-            UI ui, Writer writer) throws IOException {
+            UI ui, Writer writer, RequestMetrics metrics) throws IOException {
         openJsonMessage(writer, response);
 
-        new UidlWriter().write(ui, writer, false);
+        new UidlWriter().write(ui, writer, false, metrics);
 
         closeJsonMessage(writer);
     }
@@ -34,6 +34,8 @@ import com.vaadin.server.DependencyFilter.FilterContext;
 import com.vaadin.server.JsonPaintTarget;
 import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.LegacyCommunicationManager.ClientCache;
+import com.vaadin.server.RequestMetrics;
+import com.vaadin.server.RequestMetrics.Phase;
 import com.vaadin.server.SystemMessages;
 import com.vaadin.server.VaadinService;
 import com.vaadin.server.VaadinSession;
@@ -72,12 +74,39 @@ public class UidlWriter implements Serializable {
      *             If the writing fails.
      */
     public void write(UI ui, Writer writer, boolean async) throws IOException {
+        write(ui, writer, async, null);
+    }
+
+    /**
+     * Writes a JSON object containing all pending changes to the given UI and
+     * records the time spent in each phase of writing to the given metrics.
+     *
+     * @param ui
+     *            The {@link UI} whose changes to write
+     * @param writer
+     *            The writer to use
+     * @param async
+     *            True if this message is sent by the server asynchronously,
+     *            false if it is a response to a client message.
+     * @param metrics
+     *            the metrics to record phase timings and the dirty connector
+     *            count to, or <code>null</code> to not record any metrics
+     *
+     * @throws IOException
+     *             If the writing fails.
+     * @since 8.12
+     */
+    public void write(UI ui, Writer writer, boolean async,
+            RequestMetrics metrics) throws IOException {
         VaadinSession session = ui.getSession();
         VaadinService service = session.getService();
 
+        long phaseStart = startPhase(metrics);
+
         // Purge pending access calls as they might produce additional changes
         // to write out
         service.runPendingAccessTasks(session);
+        phaseStart = endPhase(metrics, Phase.ACCESS_TASKS, phaseStart);
 
         Set<ClientConnector> processedConnectors = new HashSet<>();
 
@@ -89,32 +118,19 @@ public class UidlWriter implements Serializable {
         getLogger().log(Level.FINE, "* Creating response to client");
 
         while (true) {
-            List<ClientConnector> connectorsToProcess = new ArrayList<>();
-            for (ClientConnector c : uiConnectorTracker
-                    .getDirtyVisibleConnectors()) {
-                if (!processedConnectors.contains(c)) {
-                    connectorsToProcess.add(c);
-                }
-            }
+            // parents are returned before children
+            List<ClientConnector> connectorsToProcess = uiConnectorTracker
+                    .getNewDirtyVisibleConnectors();
 
             if (connectorsToProcess.isEmpty()) {
                 break;
             }
 
-            // process parents before children
-            Collections.sort(connectorsToProcess,
-                    Comparator.comparingInt(conn -> {
-                        int depth = 0;
-                        ClientConnector connector = conn;
-                        // this is a very fast operation, even for 100+ levels
-                        while (connector.getParent() != null) {
-                            ++depth;
-                            connector = connector.getParent();
-                        }
-                        return depth;
-                    }));
-
             for (ClientConnector connector : connectorsToProcess) {
+                if (processedConnectors.contains(connector)) {
+                    // marked clean and dirty again after being processed
+                    continue;
+                }
                 // call isDirty() to find out if ConnectorTracker knows the
                 // connector
                 boolean initialized = uiConnectorTracker.isDirty(connector)
@@ -132,6 +148,11 @@ public class UidlWriter implements Serializable {
 
         getLogger().log(Level.FINE, "Found " + processedConnectors.size()
                 + " dirty connectors to paint");
+        phaseStart = endPhase(metrics, Phase.BEFORE_CLIENT_RESPONSE,
+                phaseStart);
+        if (metrics != null) {
+            metrics.setDirtyConnectorCount(processedConnectors.size());
+        }
 
         uiConnectorTracker.setWritingResponse(true);
         try {
@@ -172,8 +193,11 @@ public class UidlWriter implements Serializable {
             // processing.
 
             writer.write("\"state\":");
+            phaseStart = endPhase(metrics, Phase.RESPONSE_ENCODING,
+                    phaseStart);
             Set<String> stateUpdateConnectors = new SharedStateWriter()
                     .write(ui, writer);
+            phaseStart = endPhase(metrics, Phase.STATE_ENCODING, phaseStart);
             writer.write(", "); // close states
 
             // TODO This should be optimized. The type only needs to be
@@ -323,7 +347,39 @@ public class UidlWriter implements Serializable {
         } finally {
             uiConnectorTracker.setWritingResponse(false);
             uiConnectorTracker.cleanConnectorMap(true);
+            endPhase(metrics, Phase.RESPONSE_ENCODING, phaseStart);
+        }
+    }
+
+    private static long startPhase(RequestMetrics metrics) {
+        return metrics == null ? 0 : System.nanoTime();
+    }
+
+    private static long endPhase(RequestMetrics metrics, Phase phase,
+            long phaseStart) {
+        if (metrics == null) {
+            return 0;
         }
+        long now = System.nanoTime();
+        metrics.addPhaseNanos(phase, now - phaseStart);
+        return now;
+    }
+
+    /**
+     * Checks whether the sections of the response for the given UI should be
+     * streamed to the writer instead of first being built as a complete JSON
+     * tree.
+     *
+     * @param ui
+     *            the UI for which a response is being written
+     * @return <code>true</code> to stream the response, <code>false</code>
+     *         otherwise
+     * @see com.vaadin.server.DeploymentConfiguration#isStreamingUidlEnabled()
+     */
+    static boolean isStreamingEnabled(UI ui) {
+        VaadinSession session = ui.getSession();
+        return session != null && session.getService()
+                .getDeploymentConfiguration().isStreamingUidlEnabled();
     }
 
     private JsonArray toJsonArray(List<Dependency> list) {
@@ -21,6 +21,7 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -35,6 +36,7 @@ import java.util.logging.Logger;
 import com.vaadin.event.MarkedAsDirtyConnectorEvent;
 import com.vaadin.event.MarkedAsDirtyListener;
 import com.vaadin.server.AbstractClientConnector;
+import com.vaadin.server.BroadcastTopic;
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.DragAndDropService;
 import com.vaadin.server.GlobalResourceHandler;
@@ -84,6 +86,30 @@ public class ConnectorTracker implements Serializable {
     private final Set<ClientConnector> dirtyConnectors = new HashSet<>();
     private final Set<ClientConnector> uninitializedConnectors = new HashSet<>();
 
+    /**
+     * Hierarchy depth of each registered connector, recorded when the
+     * connector is attached. The UI has depth 0.
+     */
+    private final Map<ClientConnector, Integer> connectorDepths = new HashMap<>();
+
+    /**
+     * Dirty connectors that have not yet been returned by
+     * {@link #getNewDirtyVisibleConnectors()}, bucketed by hierarchy depth.
+     */
+    private final List<List<ClientConnector>> newDirtyConnectorsByDepth = new ArrayList<>();
+
+    /**
+     * Dirty connectors that were not visible to the client when they were last
+     * considered by {@link #getNewDirtyVisibleConnectors()}.
+     */
+    private final List<ClientConnector> invisibleDirtyConnectors = new ArrayList<>();
+
+    /**
+     * All connectors in {@link #newDirtyConnectorsByDepth} or
+     * {@link #invisibleDirtyConnectors}.
+     */
+    private final Set<ClientConnector> pendingDirtyConnectors = new HashSet<>();
+
     private List<MarkedAsDirtyListener> markedDirtyListeners = new ArrayList<>(
             0);
 
@@ -99,6 +125,13 @@ public class ConnectorTracker implements Serializable {
     private final UI uI;
     private transient Map<ClientConnector, JsonObject> diffStates = new HashMap<>();
 
+    /**
+     * The broadcast topics the UI is subscribed to. Replaced as a whole when
+     * changed so that it can be read without locking while encoding.
+     */
+    private transient volatile List<BroadcastTopic<?>> broadcastTopics = Collections
+            .emptyList();
+
     /** Maps connectorIds to a map of named StreamVariables */
     private Map<String, Map<String, StreamVariable>> pidToNameToStreamVariable;
 
@@ -161,7 +194,9 @@ public class ConnectorTracker implements Serializable {
                     new Object[] { connector.getClass().getSimpleName(),
                             connectorId });
         }
-        dirtyConnectors.add(connector);
+        connectorDepths.remove(connector);
+        connectorDepths.put(connector, getDepth(connector));
+        addDirtyConnector(connector);
     }
 
     /**
@@ -191,6 +226,7 @@ public class ConnectorTracker implements Serializable {
         }
 
         dirtyConnectors.remove(connector);
+        connectorDepths.remove(connector);
 
         if (!isClientSideInitialized(connector)) {
             // Client side has never known about this connector so there is no
@@ -335,6 +371,7 @@ public class ConnectorTracker implements Serializable {
                 }
                 uninitializedConnectors.remove(connector);
                 diffStates.remove(connector);
+                connectorDepths.remove(connector);
                 iterator.remove();
             } else if (!uninitializedConnectors.contains(connector)
                     && !LegacyCommunicationManager
@@ -469,6 +506,7 @@ public class ConnectorTracker implements Serializable {
         }
         uninitializedConnectors.remove(connector);
         diffStates.remove(connector);
+        connectorDepths.remove(connector);
     }
 
     /**
@@ -542,7 +580,48 @@ public class ConnectorTracker implements Serializable {
             notifyMarkedAsDirtyListeners(connector);
         }
 
-        dirtyConnectors.add(connector);
+        addDirtyConnector(connector);
+    }
+
+    private void addDirtyConnector(ClientConnector connector) {
+        if (dirtyConnectors.add(connector)) {
+            addNewDirtyConnector(connector);
+        }
+    }
+
+    private void addNewDirtyConnector(ClientConnector connector) {
+        if (pendingDirtyConnectors.add(connector)) {
+            int depth = getDepth(connector);
+            while (newDirtyConnectorsByDepth.size() <= depth) {
+                newDirtyConnectorsByDepth.add(new ArrayList<>());
+            }
+            newDirtyConnectorsByDepth.get(depth).add(connector);
+        }
+    }
+
+    /**
+     * Gets the hierarchy depth of the given connector, using the depth recorded
+     * for the closest registered ancestor.
+     *
+     * @param connector
+     *            the connector to get the depth for
+     * @return the number of parents of the connector
+     */
+    private int getDepth(ClientConnector connector) {
+        int distance = 0;
+        ClientConnector current = connector;
+        while (true) {
+            Integer knownDepth = connectorDepths.get(current);
+            if (knownDepth != null) {
+                return distance + knownDepth;
+            }
+            ClientConnector parent = current.getParent();
+            if (parent == null) {
+                return distance;
+            }
+            distance++;
+            current = parent;
+        }
     }
 
     /**
@@ -616,6 +695,11 @@ public class ConnectorTracker implements Serializable {
      */
     public void markAllConnectorsClean() {
         dirtyConnectors.clear();
+        for (List<ClientConnector> bucket : newDirtyConnectorsByDepth) {
+            bucket.clear();
+        }
+        invisibleDirtyConnectors.clear();
+        pendingDirtyConnectors.clear();
         if (fineLogging) {
             getLogger().fine("All connectors are now clean");
         }
@@ -680,6 +764,55 @@ public class ConnectorTracker implements Serializable {
         return dirtyVisibleConnectors;
     }
 
+    /**
+     * Returns the {@link #getDirtyVisibleConnectors() dirty visible connectors}
+     * that have not been returned by a previous invocation of this method since
+     * all connectors were last {@link #markAllConnectorsClean() marked clean}.
+     * Parents are always returned before their children.
+     * <p>
+     * Connectors are tracked by hierarchy depth as they are marked dirty, so
+     * the cost of this method is proportional to the number of connectors
+     * marked dirty since the previous invocation rather than to the total
+     * number of dirty connectors. Dirty connectors that are not visible to the
+     * client are returned by a later invocation if they become visible.
+     *
+     * @return a list of newly dirty connectors that are visible to the client,
+     *         ordered by hierarchy depth, not <code>null</code>
+     * @since 8.12
+     */
+    public List<ClientConnector> getNewDirtyVisibleConnectors() {
+        if (!invisibleDirtyConnectors.isEmpty()) {
+            // Re-check connectors that might have become visible
+            List<ClientConnector> previouslyInvisible = new ArrayList<>(
+                    invisibleDirtyConnectors);
+            invisibleDirtyConnectors.clear();
+            for (ClientConnector connector : previouslyInvisible) {
+                pendingDirtyConnectors.remove(connector);
+                if (dirtyConnectors.contains(connector)) {
+                    addNewDirtyConnector(connector);
+                }
+            }
+        }
+
+        List<ClientConnector> newDirtyVisibleConnectors = new ArrayList<>();
+        for (List<ClientConnector> bucket : newDirtyConnectorsByDepth) {
+            for (ClientConnector connector : bucket) {
+                if (!dirtyConnectors.contains(connector)) {
+                    // Marked clean or unregistered after being marked dirty
+                    pendingDirtyConnectors.remove(connector);
+                } else if (LegacyCommunicationManager
+                        .isConnectorVisibleToClient(connector)) {
+                    pendingDirtyConnectors.remove(connector);
+                    newDirtyVisibleConnectors.add(connector);
+                } else {
+                    invisibleDirtyConnectors.add(connector);
+                }
+            }
+            bucket.clear();
+        }
+        return newDirtyVisibleConnectors;
+    }
+
     public JsonObject getDiffState(ClientConnector connector) {
         assert getConnector(connector.getConnectorId()) == connector;
         return diffStates.get(connector);
@@ -690,6 +823,55 @@ public class ConnectorTracker implements Serializable {
         diffStates.put(connector, diffState);
     }
 
+    /**
+     * Adds a broadcast topic the UI has subscribed to. The current value of the
+     * topic is encoded only once for all UIs subscribed to it.
+     * <p>
+     * This method is for internal use only.
+     *
+     * @param topic
+     *            the subscribed topic, not <code>null</code>
+     * @since 8.12
+     */
+    public synchronized void addBroadcastTopic(BroadcastTopic<?> topic) {
+        if (!broadcastTopics.contains(topic)) {
+            List<BroadcastTopic<?>> topics = new ArrayList<>(broadcastTopics);
+            topics.add(topic);
+            broadcastTopics = Collections.unmodifiableList(topics);
+        }
+    }
+
+    /**
+     * Removes a broadcast topic the UI is no longer subscribed to.
+     * <p>
+     * This method is for internal use only.
+     *
+     * @param topic
+     *            the topic to remove, not <code>null</code>
+     * @since 8.12
+     */
+    public synchronized void removeBroadcastTopic(BroadcastTopic<?> topic) {
+        if (broadcastTopics.contains(topic)) {
+            List<BroadcastTopic<?>> topics = new ArrayList<>(broadcastTopics);
+            topics.remove(topic);
+            broadcastTopics = topics.isEmpty() ? Collections.emptyList()
+                    : Collections.unmodifiableList(topics);
+        }
+    }
+
+    /**
+     * Gets the broadcast topics the UI is subscribed to.
+     * <p>
+     * This method is for internal use only.
+     *
+     * @return an unmodifiable list of topics, empty if the UI is not subscribed
+     *         to any topic
+     * @since 8.12
+     */
+    public List<BroadcastTopic<?>> getBroadcastTopics() {
+        return broadcastTopics;
+    }
+
     public boolean isDirty(ClientConnector connector) {
         return dirtyConnectors.contains(connector);
     }
@@ -767,6 +949,7 @@ public class ConnectorTracker implements Serializable {
 
         // Read String versions of JsonObjects and parse into JsonObjects as
         // JsonObject is not serializable
+        broadcastTopics = Collections.emptyList();
         diffStates = new HashMap<>();
         @SuppressWarnings("unchecked")
         Map<ClientConnector, String> stringDiffStates = (HashMap<ClientConnector, String>) in
@@ -162,10 +162,64 @@ public interface PushConfiguration extends Serializable {
      */
     public String getPushUrl();
 
+    /**
+     * Sets the minimum interval between push messages that are sent
+     * asynchronously, i.e. not as a response to a request from the client.
+     * <p>
+     * When the UI is pushed again before the interval since the previous
+     * message has passed, the push is deferred. All pushes deferred during the
+     * interval are sent as one message at the end of the interval. Because the
+     * message contains the state of the components at the time it is sent,
+     * intermediate states are never sent to the client. A push is also
+     * deferred while the previous message has not been written to the client
+     * yet, so that a slow client does not accumulate a backlog of messages.
+     * <p>
+     * The default is 0, which sends every push immediately.
+     *
+     * @see com.vaadin.server.communication.AtmospherePushConnection#getCoalescedPushCount()
+     *
+     * @since 8.12
+     * @param intervalMillis
+     *            the minimum interval in milliseconds, or 0 to push
+     *            immediately
+     * @throws IllegalArgumentException
+     *             if the interval is negative
+     * @throws UnsupportedOperationException
+     *             if the interval is not 0 and the implementation does not
+     *             support push coalescing, which is the case unless this
+     *             method is overridden
+     */
+    public default void setPushCoalescingInterval(int intervalMillis) {
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException(
+                    "Push coalescing interval cannot be negative");
+        }
+        if (intervalMillis != getPushCoalescingInterval()) {
+            throw new UnsupportedOperationException(
+                    "Push coalescing is not supported by "
+                            + getClass().getName());
+        }
+    }
+
+    /**
+     * Returns the minimum interval between push messages that are sent
+     * asynchronously.
+     *
+     * @see #setPushCoalescingInterval(int)
+     *
+     * @since 8.12
+     * @return the minimum interval in milliseconds, 0 if every push is sent
+     *         immediately
+     */
+    public default int getPushCoalescingInterval() {
+        return 0;
+    }
+
 }
 
 class PushConfigurationImpl implements PushConfiguration {
     private final UI ui;
+    private int pushCoalescingInterval = 0;
 
     public PushConfigurationImpl(UI ui) {
         this.ui = ui;
@@ -232,6 +286,20 @@ class PushConfigurationImpl implements PushConfiguration {
         return getState(false).pushUrl;
     }
 
+    @Override
+    public void setPushCoalescingInterval(int intervalMillis) {
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException(
+                    "Push coalescing interval cannot be negative");
+        }
+        pushCoalescingInterval = intervalMillis;
+    }
+
+    @Override
+    public int getPushCoalescingInterval() {
+        return pushCoalescingInterval;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -24,11 +24,16 @@ import com.vaadin.ui.UI;
 
 import java.io.Serializable;
 import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -48,6 +53,11 @@ import java.util.logging.Logger;
  * {@link UI}, {@link VaadinService}, {@link VaadinSession},
  * {@link VaadinRequest}, {@link VaadinResponse}.
  * </p>
+ * <p>
+ * These and {@link Locale} are stored in fixed slots, so setting and restoring
+ * them does not need any hash map operations. Instances of other types are
+ * stored in a map that is only created when such an instance is set.
+ * </p>
  *
  * @author Vaadin Ltd
  * @since 7.0.0
@@ -58,9 +68,119 @@ public class CurrentInstance implements Serializable {
             NULL_OBJECT);
     private static final ConcurrentHashMap<Class<?>, CurrentInstanceFallbackResolver<?>> fallbackResolvers = new ConcurrentHashMap<Class<?>, CurrentInstanceFallbackResolver<?>>();
 
+    /**
+     * The types that have their own slot in {@link Instances}.
+     */
+    private static final Class<?>[] SLOT_TYPES = { UI.class,
+            VaadinSession.class, VaadinService.class, VaadinRequest.class,
+            VaadinResponse.class, Locale.class };
+
     private final WeakReference<Object> instance;
 
-    private static final ThreadLocal<Map<Class<?>, CurrentInstance>> INSTANCES = new ThreadLocal<>();
+    private static final ThreadLocal<Instances> INSTANCES = new ThreadLocal<>();
+
+    /**
+     * A map of current instances, used both for the instances of a thread and
+     * for the instances returned by {@link CurrentInstance#getInstances()} and
+     * the <code>setCurrent</code> methods. Instances of the types in
+     * {@link CurrentInstance#SLOT_TYPES} are kept in an array indexed by the
+     * position of the type, other instances in a hash map.
+     * <p>
+     * The entry set is a snapshot that cannot be modified, changes must be
+     * done through the map methods.
+     */
+    private static final class Instances
+            extends AbstractMap<Class<?>, CurrentInstance>
+            implements Serializable {
+        private final CurrentInstance[] slots = new CurrentInstance[SLOT_TYPES.length];
+        private Map<Class<?>, CurrentInstance> others;
+        private int size;
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public CurrentInstance get(Object key) {
+            int slot = getSlot(key);
+            if (slot >= 0) {
+                return slots[slot];
+            }
+            return others == null ? null : others.get(key);
+        }
+
+        @Override
+        public CurrentInstance put(Class<?> key, CurrentInstance value) {
+            Objects.requireNonNull(value, "Current instance cannot be null");
+            int slot = getSlot(key);
+            CurrentInstance previous;
+            if (slot >= 0) {
+                previous = slots[slot];
+                slots[slot] = value;
+            } else {
+                if (others == null) {
+                    others = new HashMap<>();
+                }
+                previous = others.put(key, value);
+            }
+            if (previous == null) {
+                size++;
+            }
+            return previous;
+        }
+
+        @Override
+        public CurrentInstance remove(Object key) {
+            int slot = getSlot(key);
+            CurrentInstance previous;
+            if (slot >= 0) {
+                previous = slots[slot];
+                slots[slot] = null;
+            } else {
+                previous = others == null ? null : others.remove(key);
+            }
+            if (previous != null) {
+                size--;
+            }
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            Arrays.fill(slots, null);
+            others = null;
+            size = 0;
+        }
+
+        @Override
+        public Set<Entry<Class<?>, CurrentInstance>> entrySet() {
+            Map<Class<?>, CurrentInstance> entries = new LinkedHashMap<>();
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i] != null) {
+                    entries.put(SLOT_TYPES[i], slots[i]);
+                }
+            }
+            if (others != null) {
+                entries.putAll(others);
+            }
+            return Collections.unmodifiableMap(entries).entrySet();
+        }
+
+        private static int getSlot(Object type) {
+            for (int i = 0; i < SLOT_TYPES.length; i++) {
+                if (SLOT_TYPES[i] == type) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
 
     private CurrentInstance(Object instance) {
         this.instance = new WeakReference<>(instance);
@@ -93,7 +213,7 @@ public class CurrentInstance implements Serializable {
     }
 
     private static <T> T doGet(Class<T> type) {
-        Map<Class<?>, CurrentInstance> map = INSTANCES.get();
+        Instances map = INSTANCES.get();
         if (map == null) {
             return null;
         }
@@ -159,15 +279,13 @@ public class CurrentInstance implements Serializable {
 
     private static void removeStaleInstances(
             Map<Class<?>, CurrentInstance> map) {
-        for (Iterator<Entry<Class<?>, CurrentInstance>> iterator = map
-                .entrySet().iterator(); iterator.hasNext();) {
-            Entry<Class<?>, CurrentInstance> entry = iterator.next();
-            Object instance = entry.getValue().instance.get();
+        for (Class<?> type : new ArrayList<>(map.keySet())) {
+            Object instance = map.get(type).instance.get();
             if (instance == null) {
-                iterator.remove();
+                map.remove(type);
                 getLogger().log(Level.FINE,
                         "CurrentInstance for {0} has been garbage collected.",
-                        entry.getKey());
+                        type);
             }
         }
     }
@@ -184,25 +302,17 @@ public class CurrentInstance implements Serializable {
      *            the actual instance
      */
     public static <T> CurrentInstance set(Class<T> type, T instance) {
-        Map<Class<?>, CurrentInstance> map = INSTANCES.get();
-        CurrentInstance previousInstance = null;
+        CurrentInstance previousInstance;
         if (instance == null) {
-            // remove the instance
-            if (map != null) {
-                previousInstance = map.remove(type);
-                if (map.isEmpty()) {
-                    INSTANCES.remove();
-                    map = null;
-                }
-            }
+            previousInstance = remove(type);
         } else {
             assert type.isInstance(instance) : "Invald instance type";
-            if (map == null) {
-                map = new HashMap<>();
-                INSTANCES.set(map);
+            Instances map = INSTANCES.get();
+            previousInstance = map == null ? null : map.get(type);
+            if (previousInstance == null
+                    || previousInstance.instance.get() != instance) {
+                previousInstance = put(type, new CurrentInstance(instance));
             }
-
-            previousInstance = map.put(type, new CurrentInstance(instance));
         }
         if (previousInstance == null) {
             previousInstance = CURRENT_INSTANCE_NULL;
@@ -210,6 +320,28 @@ public class CurrentInstance implements Serializable {
         return previousInstance;
     }
 
+    private static CurrentInstance put(Class<?> type,
+            CurrentInstance currentInstance) {
+        Instances map = INSTANCES.get();
+        if (map == null) {
+            map = new Instances();
+            INSTANCES.set(map);
+        }
+        return map.put(type, currentInstance);
+    }
+
+    private static CurrentInstance remove(Class<?> type) {
+        Instances map = INSTANCES.get();
+        if (map == null) {
+            return null;
+        }
+        CurrentInstance previousInstance = map.remove(type);
+        if (map.isEmpty()) {
+            INSTANCES.remove();
+        }
+        return previousInstance;
+    }
+
     /**
      * Clears all current instances.
      */
@@ -228,31 +360,24 @@ public class CurrentInstance implements Serializable {
      */
     public static void restoreInstances(Map<Class<?>, CurrentInstance> old) {
         boolean removeStale = false;
-        for (Class c : old.keySet()) {
-            CurrentInstance ci = old.get(c);
-            Object v = ci.instance.get();
-            if (v == null) {
-                removeStale = true;
-            } else if (v == NULL_OBJECT) {
-                /*
-                 * NULL_OBJECT is used to identify objects that are null when
-                 * #setCurrent(UI) or #setCurrent(VaadinSession) are called on a
-                 * CurrentInstance. Without this a reference to an already
-                 * collected instance may be left in the CurrentInstance when it
-                 * really should be restored to null.
-                 *
-                 * One example case that this fixes:
-                 * VaadinService.runPendingAccessTasks() clears all current
-                 * instances and then sets everything but the UI. This makes
-                 * UI.accessSynchronously() save these values before calling
-                 * setCurrent(UI), which stores UI=null in the map it returns.
-                 * This map will be restored after UI.accessSync(), which,
-                 * unless it respects null values, will just leave the wrong UI
-                 * instance registered.
-                 */
-                v = null;
+        if (old instanceof Instances) {
+            Instances instances = (Instances) old;
+            for (int i = 0; i < SLOT_TYPES.length; i++) {
+                CurrentInstance ci = instances.slots[i];
+                if (ci != null) {
+                    removeStale |= !restore(SLOT_TYPES[i], ci);
+                }
+            }
+            if (instances.others != null) {
+                for (Map.Entry<Class<?>, CurrentInstance> entry : instances.others
+                        .entrySet()) {
+                    removeStale |= !restore(entry.getKey(), entry.getValue());
+                }
+            }
+        } else {
+            for (Map.Entry<Class<?>, CurrentInstance> entry : old.entrySet()) {
+                removeStale |= !restore(entry.getKey(), entry.getValue());
             }
-            set(c, v);
         }
 
         if (removeStale) {
@@ -260,6 +385,43 @@ public class CurrentInstance implements Serializable {
         }
     }
 
+    /**
+     * Restores a single current instance.
+     *
+     * @param type
+     *            the type of the instance
+     * @param ci
+     *            the instance to restore
+     * @return <code>false</code> if the instance has been garbage collected,
+     *         <code>true</code> otherwise
+     */
+    private static boolean restore(Class<?> type, CurrentInstance ci) {
+        Object v = ci.instance.get();
+        if (v == null || v == NULL_OBJECT) {
+            /*
+             * NULL_OBJECT is used to identify objects that are null when
+             * #setCurrent(UI) or #setCurrent(VaadinSession) are called on a
+             * CurrentInstance. Without this a reference to an already
+             * collected instance may be left in the CurrentInstance when it
+             * really should be restored to null.
+             *
+             * One example case that this fixes:
+             * VaadinService.runPendingAccessTasks() clears all current
+             * instances and then sets everything but the UI. This makes
+             * UI.accessSynchronously() save these values before calling
+             * setCurrent(UI), which stores UI=null in the map it returns. This
+             * map will be restored after UI.accessSync(), which, unless it
+             * respects null values, will just leave the wrong UI instance
+             * registered.
+             */
+            remove(type);
+        } else {
+            // The CurrentInstance is immutable and can be set again as is
+            put(type, ci);
+        }
+        return v != null;
+    }
+
     /**
      * Gets the currently set instances so that they can later be restored using
      * {@link #restoreInstances(Map)}.
@@ -269,18 +431,30 @@ public class CurrentInstance implements Serializable {
      * @return a map containing the current instances
      */
     public static Map<Class<?>, CurrentInstance> getInstances() {
-        Map<Class<?>, CurrentInstance> map = INSTANCES.get();
+        Instances map = INSTANCES.get();
         if (map == null) {
             return Collections.emptyMap();
         } else {
-            Map<Class<?>, CurrentInstance> copy = new HashMap<>();
+            Instances copy = new Instances();
             boolean removeStale = false;
-            for (Class<?> c : map.keySet()) {
-                CurrentInstance ci = map.get(c);
-                if (ci.instance.get() == null) {
-                    removeStale = true;
-                } else {
-                    copy.put(c, ci);
+            for (int i = 0; i < SLOT_TYPES.length; i++) {
+                CurrentInstance ci = map.slots[i];
+                if (ci != null) {
+                    if (ci.instance.get() == null) {
+                        removeStale = true;
+                    } else {
+                        copy.put(SLOT_TYPES[i], ci);
+                    }
+                }
+            }
+            if (map.others != null) {
+                for (Map.Entry<Class<?>, CurrentInstance> entry : map.others
+                        .entrySet()) {
+                    if (entry.getValue().instance.get() == null) {
+                        removeStale = true;
+                    } else {
+                        copy.put(entry.getKey(), entry.getValue());
+                    }
                 }
             }
             if (removeStale) {
@@ -325,7 +499,7 @@ public class CurrentInstance implements Serializable {
      */
     public static Map<Class<?>, CurrentInstance> setCurrent(
             VaadinSession session) {
-        Map<Class<?>, CurrentInstance> old = new HashMap<>();
+        Map<Class<?>, CurrentInstance> old = new Instances();
         old.put(VaadinSession.class, set(VaadinSession.class, session));
         VaadinService service = null;
         if (session != null) {
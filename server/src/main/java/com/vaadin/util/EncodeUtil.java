@@ -17,6 +17,10 @@ package com.vaadin.util;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
 /**
  * Utilities related to various encoding schemes.
  *
@@ -58,6 +62,63 @@ public final class EncodeUtil {
         return builder.toString();
     }
 
+    /**
+     * Checks whether an <code>Accept-Encoding</code> HTTP header allows the
+     * given content coding. A coding with a quality value of zero or with a
+     * quality value that cannot be parsed is not accepted.
+     *
+     * @param acceptEncoding
+     *            the header value, may be <code>null</code>
+     * @param encoding
+     *            the content coding, e.g. <code>gzip</code>
+     * @return <code>true</code> if the coding is accepted, <code>false</code>
+     *         otherwise
+     * @since 8.12
+     */
+    public static boolean acceptsContentEncoding(String acceptEncoding,
+            String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (!parts[0].trim().equalsIgnoreCase(encoding)) {
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                    try {
+                        return Double.parseDouble(parameter.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Compresses the given data using the gzip content coding.
+     *
+     * @param data
+     *            the data to compress, not <code>null</code>
+     * @return the compressed data
+     * @throws IOException
+     *             if compressing fails
+     * @since 8.12
+     */
+    public static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(
+                data.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(data);
+        }
+        return compressed.toByteArray();
+    }
+
     private static void appendHexBytes(StringBuilder builder, byte[] bytes) {
         for (byte byteValue : bytes) {
             // mask with 0xFF to compensate for "negative" values
@@ -0,0 +1,182 @@
+package com.vaadin.benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vaadin.data.BeanPropertySet;
+import com.vaadin.data.PropertyFilterDefinition;
+import com.vaadin.data.PropertySet;
+import com.vaadin.data.ValueProvider;
+import com.vaadin.data.util.BeanUtil;
+import com.vaadin.server.Setter;
+import com.vaadin.tests.data.bean.Address;
+import com.vaadin.tests.data.bean.Country;
+import com.vaadin.tests.data.bean.Person;
+import com.vaadin.tests.data.bean.Sex;
+
+import kava.beans.IntrospectionException;
+import kava.beans.PropertyDescriptor;
+
+/*
+ * Measures reading every property of a Person, including the nested
+ * properties of its Address, like a Grid with a column for each property
+ * does, and writing the top level properties back like Binder.writeBean does.
+ * The getters and setters of BeanPropertySet are compared to invoking the
+ * property methods through reflection, as BeanPropertySet did before it used
+ * generated functions.
+ *
+ * Please run with -server. Usage: BeanPropertyAccessBenchmark [beans]
+ */
+public class BeanPropertyAccessBenchmark {
+
+    private static int sink;
+
+    public static void main(String[] args) throws Exception {
+        int beans = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+        PropertySet<Person> propertySet = BeanPropertySet.get(Person.class,
+                true, PropertyFilterDefinition.getDefaultFilter());
+        List<ValueProvider<Person, ?>> getters = new ArrayList<>();
+        List<Setter<Person, Object>> setters = new ArrayList<>();
+        List<Method[]> readPaths = new ArrayList<>();
+        List<Method> writeMethods = new ArrayList<>();
+        List<String> writtenProperties = new ArrayList<>();
+        propertySet.getProperties().forEach(definition -> {
+            getters.add(definition.getGetter());
+            readPaths.add(getReadPath(definition.getName()));
+            if (!definition.getName().contains(".")) {
+                definition.getSetter().ifPresent(setter -> {
+                    setters.add(cast(setter));
+                    writeMethods.add(getDescriptor(Person.class,
+                            definition.getName()).getWriteMethod());
+                    writtenProperties.add(definition.getName());
+                });
+            }
+        });
+
+        Person person = new Person("John", "Doe", "john@example.com", 42,
+                Sex.MALE, new Address("Ruukinkatu 2-4", 20540, "Turku",
+                        Country.FINLAND));
+        person.setSalary(3000);
+        person.setRent(new BigDecimal("950.50"));
+        person.setSalaryDouble(3000.5);
+        person.setBirthDate(LocalDate.of(1976, 4, 1));
+        Object[] values = new Object[setters.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = invoke(getReadPath(writtenProperties.get(i)), person);
+        }
+
+        // warmup
+        for (int i = 0; i < 3; i++) {
+            read(person, getters, beans / 10);
+            readReflect(person, readPaths, beans / 10);
+            write(person, setters, values, beans / 10);
+            writeReflect(person, writeMethods, values, beans / 10);
+        }
+
+        report("read, generated   ", beans, getters.size(),
+                read(person, getters, beans));
+        report("read, reflection  ", beans, readPaths.size(),
+                readReflect(person, readPaths, beans));
+        report("write, generated  ", beans, setters.size(),
+                write(person, setters, values, beans));
+        report("write, reflection ", beans, writeMethods.size(),
+                writeReflect(person, writeMethods, values, beans));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Setter<Person, Object> cast(Setter<Person, ?> setter) {
+        return (Setter<Person, Object>) setter;
+    }
+
+    private static PropertyDescriptor getDescriptor(Class<?> type,
+            String name) {
+        try {
+            return BeanUtil.getPropertyDescriptor(type, name);
+        } catch (IntrospectionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Method[] getReadPath(String propertyName) {
+        String[] names = propertyName.split("\\.");
+        Method[] path = new Method[names.length];
+        Class<?> type = Person.class;
+        for (int i = 0; i < names.length; i++) {
+            path[i] = getDescriptor(type, names[i]).getReadMethod();
+            type = path[i].getReturnType();
+        }
+        return path;
+    }
+
+    private static Object invoke(Method[] path, Object bean) {
+        Object value = bean;
+        try {
+            for (Method method : path) {
+                value = method.invoke(value);
+            }
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException(e);
+        }
+        return value;
+    }
+
+    private static long read(Person person,
+            List<ValueProvider<Person, ?>> getters, int beans) {
+        long start = System.nanoTime();
+        for (int i = 0; i < beans; i++) {
+            for (ValueProvider<Person, ?> getter : getters) {
+                sink += getter.apply(person) == null ? 0 : 1;
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long readReflect(Person person, List<Method[]> paths,
+            int beans) {
+        long start = System.nanoTime();
+        for (int i = 0; i < beans; i++) {
+            for (Method[] path : paths) {
+                sink += invoke(path, person) == null ? 0 : 1;
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long write(Person person,
+            List<Setter<Person, Object>> setters, Object[] values,
+            int beans) {
+        long start = System.nanoTime();
+        for (int i = 0; i < beans; i++) {
+            for (int j = 0; j < values.length; j++) {
+                setters.get(j).accept(person, values[j]);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long writeReflect(Person person, List<Method> methods,
+            Object[] values, int beans) {
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < beans; i++) {
+                for (int j = 0; j < values.length; j++) {
+                    methods.get(j).invoke(person, values[j]);
+                }
+            }
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException(e);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String name, int beans, int properties,
+            long nanos) {
+        System.out.println(name + ": " + nanos / ((long) beans * properties)
+                + " ns per property (" + properties + " properties)");
+    }
+}
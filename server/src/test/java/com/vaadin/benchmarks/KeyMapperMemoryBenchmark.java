@@ -0,0 +1,96 @@
+package com.vaadin.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vaadin.data.provider.DataKeyMapper;
+import com.vaadin.data.provider.IntKeyMapper;
+import com.vaadin.server.KeyMapper;
+
+/*
+ * Compares the heap used by KeyMapper and IntKeyMapper for a number of active
+ * keys (default 1 000 000), as well as the time used for creating the keys and
+ * looking all of them up again.
+ *
+ * The mapped beans are created before measuring so that only the memory used
+ * by the mapper itself is included. Heap usage is measured after repeated
+ * System.gc() calls, so the numbers are approximate.
+ *
+ * Please run with -server and enough heap, e.g. -Xmx2g. Usage:
+ * KeyMapperMemoryBenchmark [keys]
+ */
+public class KeyMapperMemoryBenchmark {
+
+    private static class Bean {
+        private final int id;
+
+        private Bean(int id) {
+            this.id = id;
+        }
+
+        private Integer getId() {
+            return id;
+        }
+    }
+
+    public static void main(String[] args) {
+        int keys = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+        List<Bean> beans = new ArrayList<>(keys);
+        for (int i = 0; i < keys; i++) {
+            beans.add(new Bean(i));
+        }
+
+        // warmup
+        run(new KeyMapper<>(Bean::getId), beans.subList(0, keys / 10));
+        run(new IntKeyMapper<>(Bean::getId), beans.subList(0, keys / 10));
+
+        report("KeyMapper", keys, run(new KeyMapper<>(Bean::getId), beans));
+        report("IntKeyMapper", keys,
+                run(new IntKeyMapper<>(Bean::getId), beans));
+    }
+
+    private static long[] run(DataKeyMapper<Bean> mapper, List<Bean> beans) {
+        long before = usedMemory();
+
+        long start = System.nanoTime();
+        String[] keys = new String[beans.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = mapper.key(beans.get(i));
+        }
+        long keyNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (String key : keys) {
+            if (mapper.get(key) == null) {
+                throw new IllegalStateException("Missing key " + key);
+            }
+        }
+        long getNanos = System.nanoTime() - start;
+
+        // The key strings kept by the client side are not part of the mapper
+        keys = null;
+        long used = usedMemory() - before;
+
+        // Keep the mapper reachable while measuring
+        if (mapper.get("1") == null) {
+            throw new IllegalStateException();
+        }
+        return new long[] { used, keyNanos, getNanos };
+    }
+
+    private static void report(String name, int keys, long[] result) {
+        System.out.println(name + ": " + result[0] / keys + " bytes per key, "
+                + result[0] / (1024 * 1024) + " MB total, key() "
+                + result[1] / 1000000 + " ms, get() " + result[2] / 1000000
+                + " ms");
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,152 @@
+package com.vaadin.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import com.vaadin.server.communication.FileUploadHandler.SimpleMultiPartInputStream;
+
+/*
+ * Compares the throughput of extracting the content of a multipart upload
+ * (default 128 MB of random data) with the block based
+ * SimpleMultiPartInputStream and with the byte by byte parser it replaced.
+ *
+ * The content is read in 32 KB chunks, like FileUploadHandler does when
+ * streaming to the receiver. The request body is kept in memory so that only
+ * the parsing is measured.
+ *
+ * Please run with -server -Xmx1g. Usage: MultipartUploadBenchmark [megabytes]
+ */
+public class MultipartUploadBenchmark {
+
+    private static final String BOUNDARY = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+
+    /*
+     * Boundary matching of FileUploadHandler.SimpleMultiPartInputStream
+     * before it was rewritten, reading one byte at a time.
+     */
+    private static class ByteByByteMultiPartInputStream extends InputStream {
+
+        private int matchedCount = -1;
+        private int curBoundaryIndex = 0;
+        private int bufferedByte = -1;
+        private boolean atTheEnd = false;
+        private final char[] boundary;
+        private final InputStream realInputStream;
+
+        private ByteByByteMultiPartInputStream(InputStream realInputStream,
+                String boundaryString) {
+            boundary = ("\r\n--" + boundaryString).toCharArray();
+            this.realInputStream = realInputStream;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (atTheEnd) {
+                return -1;
+            } else if (bufferedByte >= 0) {
+                return getBuffered();
+            } else if (matchedCount != -1) {
+                return matchForBoundary();
+            } else {
+                int fromActualStream = realInputStream.read();
+                if (fromActualStream == -1) {
+                    throw new IOException(
+                            "The multipart stream ended unexpectedly");
+                }
+                if (boundary[0] == fromActualStream) {
+                    return matchForBoundary();
+                }
+                return fromActualStream;
+            }
+        }
+
+        private int matchForBoundary() throws IOException {
+            matchedCount = 0;
+            while (true) {
+                matchedCount++;
+                if (matchedCount == boundary.length) {
+                    atTheEnd = true;
+                    return -1;
+                }
+                int fromActualStream = realInputStream.read();
+                if (fromActualStream != boundary[matchedCount]) {
+                    bufferedByte = fromActualStream;
+                    return getBuffered();
+                }
+            }
+        }
+
+        private int getBuffered() throws IOException {
+            int b;
+            if (matchedCount == 0) {
+                b = bufferedByte;
+                bufferedByte = -1;
+                matchedCount = -1;
+            } else {
+                b = boundary[curBoundaryIndex++];
+                if (curBoundaryIndex == matchedCount) {
+                    curBoundaryIndex = 0;
+                    if (bufferedByte == boundary[0]) {
+                        bufferedByte = -1;
+                    }
+                    matchedCount = 0;
+                }
+            }
+            if (b == -1) {
+                throw new IOException(
+                        "The multipart stream ended unexpectedly");
+            }
+            return b;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 128;
+
+        byte[] content = new byte[megabytes * 1024 * 1024];
+        new Random(1).nextBytes(content);
+        byte[] end = ("\r\n--" + BOUNDARY + "--\r\n").getBytes();
+        byte[] body = new byte[content.length + end.length];
+        System.arraycopy(content, 0, body, 0, content.length);
+        System.arraycopy(end, 0, body, content.length, end.length);
+
+        // warmup
+        for (int i = 0; i < 3; i++) {
+            run(new ByteByByteMultiPartInputStream(
+                    new ByteArrayInputStream(body, 0, body.length / 10),
+                    BOUNDARY), false);
+            run(new SimpleMultiPartInputStream(new ByteArrayInputStream(body),
+                    BOUNDARY), true);
+        }
+
+        report("byte by byte", megabytes,
+                run(new ByteByByteMultiPartInputStream(
+                        new ByteArrayInputStream(body), BOUNDARY), true));
+        report("block based ", megabytes,
+                run(new SimpleMultiPartInputStream(
+                        new ByteArrayInputStream(body), BOUNDARY), true));
+    }
+
+    private static long run(InputStream in, boolean expectBoundary)
+            throws IOException {
+        long start = System.nanoTime();
+        byte[] buffer = new byte[32 * 1024];
+        try {
+            while (in.read(buffer) > 0) {
+                // Only parsing is measured
+            }
+        } catch (IOException e) {
+            if (expectBoundary) {
+                throw e;
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String name, int megabytes, long nanos) {
+        System.out.println(name + ": " + nanos / 1000000 + " ms, "
+                + megabytes * 1000000000L / nanos + " MB/s");
+    }
+}
@@ -0,0 +1,120 @@
+package com.vaadin.benchmarks;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vaadin.server.communication.AtmospherePushConnection;
+
+/*
+ * Measures the memory allocated and the time used for framing large push
+ * messages in AtmospherePushConnection.push, compared to writing the message
+ * to a StringWriter and concatenating it with the frame, as was done before
+ * the message buffers were introduced. The message is written in small pieces
+ * like UidlWriter writes the changes of a large Grid refresh. Sending the
+ * message through Atmosphere is not included.
+ *
+ * Please run with -server. Usage: PushMessageBenchmark [message size in chars]
+ * [pushes]
+ */
+public class PushMessageBenchmark {
+
+    private static int sink;
+
+    private static class BenchmarkPushConnection
+            extends AtmospherePushConnection {
+        private final List<String> pieces;
+
+        public BenchmarkPushConnection(List<String> pieces) {
+            super(null);
+            this.pieces = pieces;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+
+        @Override
+        protected void writeMessage(Writer writer, boolean async)
+                throws IOException {
+            for (String piece : pieces) {
+                writer.write(piece);
+            }
+        }
+
+        @Override
+        protected void sendMessage(String message) {
+            sink += message.length();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int pushes = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        List<String> pieces = new ArrayList<>();
+        int length = 0;
+        for (int row = 0; length < size; row++) {
+            String piece = "{\"k\":\"" + row + "\",\"d\":{\"1\":\"Row " + row
+                    + "\",\"2\":\"" + row * 31 + "\"}},";
+            pieces.add(piece);
+            length += piece.length();
+        }
+        BenchmarkPushConnection connection = new BenchmarkPushConnection(
+                pieces);
+
+        // warmup
+        for (int i = 0; i < 3; i++) {
+            pushBuffered(connection, pushes / 10);
+            pushConcatenated(connection, pushes / 10);
+        }
+
+        report("StringWriter and concatenation", length, pushes,
+                () -> pushConcatenated(connection, pushes));
+        report("message buffer                ", length, pushes,
+                () -> pushBuffered(connection, pushes));
+    }
+
+    private interface Run {
+        void run() throws IOException;
+    }
+
+    private static void pushBuffered(BenchmarkPushConnection connection,
+            int pushes) {
+        for (int i = 0; i < pushes; i++) {
+            connection.push(false);
+        }
+    }
+
+    private static void pushConcatenated(BenchmarkPushConnection connection,
+            int pushes) throws IOException {
+        for (int i = 0; i < pushes; i++) {
+            Writer writer = new StringWriter();
+            for (String piece : connection.pieces) {
+                writer.write(piece);
+            }
+            connection.sendMessage("for(;;);[{" + writer + "}]");
+        }
+    }
+
+    private static void report(String name, int length, int pushes, Run run)
+            throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        run.run();
+        long nanos = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId)
+                - allocatedBefore;
+        System.out.println(String.format(
+                "%s: %.1f bytes allocated per message char, %d us per push",
+                name, (double) allocated / pushes / length,
+                nanos / pushes / 1000));
+    }
+}
@@ -0,0 +1,110 @@
+package com.vaadin.benchmarks;
+
+import java.lang.reflect.Type;
+
+import com.vaadin.server.JsonCodec;
+import com.vaadin.server.ServerRpcManager;
+import com.vaadin.server.ServerRpcManager.RpcInvocationException;
+import com.vaadin.server.ServerRpcMethodInvocation;
+import com.vaadin.shared.communication.ServerRpc;
+import com.vaadin.shared.data.DataRequestRpc;
+import com.vaadin.shared.ui.textfield.AbstractTextFieldServerRpc;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+
+/*
+ * Measures the time used for decoding and dispatching server RPC invocations
+ * of DataRequestRpc.requestRows (Grid scrolling) and
+ * AbstractTextFieldServerRpc.setText (typing in a text field), comparing the
+ * cached invocation plans to decoding every parameter through
+ * JsonCodec.decodeInternalOrCustomType with the generic parameter types of
+ * the method, as was done before the plans were introduced.
+ *
+ * Please run with -server. Usage: RpcDispatchBenchmark [invocations]
+ */
+public class RpcDispatchBenchmark {
+
+    private static int sink;
+
+    private static final DataRequestRpc DATA_REQUEST_RPC = new DataRequestRpc() {
+        @Override
+        public void requestRows(int firstRowIndex, int numberOfRows,
+                int firstCachedRowIndex, int cacheSize) {
+            sink += firstRowIndex + numberOfRows;
+        }
+
+        @Override
+        public void dropRows(JsonArray rowKeys) {
+            sink += rowKeys.length();
+        }
+    };
+
+    private static final AbstractTextFieldServerRpc TEXT_FIELD_RPC = (text,
+            cursorPosition) -> sink += text.length() + cursorPosition;
+
+    public static void main(String[] args) throws RpcInvocationException {
+        int invocations = args.length > 0 ? Integer.parseInt(args[0])
+                : 2000000;
+
+        JsonArray requestRows = Json.instance().parse("[1200, 45, 1100, 200]");
+        JsonArray setText = Json.instance()
+                .parse("[\"The quick brown fox\", 19]");
+
+        // warmup
+        for (int i = 0; i < 3; i++) {
+            run(DATA_REQUEST_RPC, DataRequestRpc.class, "requestRows",
+                    requestRows, invocations / 10, true);
+            run(DATA_REQUEST_RPC, DataRequestRpc.class, "requestRows",
+                    requestRows, invocations / 10, false);
+            run(TEXT_FIELD_RPC, AbstractTextFieldServerRpc.class, "setText",
+                    setText, invocations / 10, true);
+            run(TEXT_FIELD_RPC, AbstractTextFieldServerRpc.class, "setText",
+                    setText, invocations / 10, false);
+        }
+
+        report("requestRows, generic decoding", invocations,
+                run(DATA_REQUEST_RPC, DataRequestRpc.class, "requestRows",
+                        requestRows, invocations, false));
+        report("requestRows, invocation plan ", invocations,
+                run(DATA_REQUEST_RPC, DataRequestRpc.class, "requestRows",
+                        requestRows, invocations, true));
+        report("setText, generic decoding    ", invocations,
+                run(TEXT_FIELD_RPC, AbstractTextFieldServerRpc.class,
+                        "setText", setText, invocations, false));
+        report("setText, invocation plan     ", invocations,
+                run(TEXT_FIELD_RPC, AbstractTextFieldServerRpc.class,
+                        "setText", setText, invocations, true));
+    }
+
+    private static <T extends ServerRpc> long run(T implementation,
+            Class<T> rpcInterface, String methodName, JsonArray parameters,
+            int invocations, boolean usePlan) throws RpcInvocationException {
+        ServerRpcManager<T> manager = new ServerRpcManager<>(implementation,
+                rpcInterface);
+        long start = System.nanoTime();
+        for (int i = 0; i < invocations; i++) {
+            ServerRpcMethodInvocation invocation = new ServerRpcMethodInvocation(
+                    "1", rpcInterface, methodName, parameters.length());
+            if (usePlan) {
+                invocation.decodeParameters(parameters, null);
+            } else {
+                Type[] types = invocation.getMethod()
+                        .getGenericParameterTypes();
+                Object[] values = new Object[parameters.length()];
+                for (int j = 0; j < values.length; j++) {
+                    values[j] = JsonCodec.decodeInternalOrCustomType(types[j],
+                            parameters.get(j), null);
+                }
+                invocation.setParameters(values);
+            }
+            manager.applyInvocation(invocation);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String name, int invocations, long nanos) {
+        System.out.println(name + ": " + nanos / invocations
+                + " ns per invocation");
+    }
+}
@@ -0,0 +1,481 @@
+package com.vaadin.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+
+import org.mockito.Mockito;
+
+import com.vaadin.server.ConnectorResource;
+import com.vaadin.server.ConnectorResourceHandler;
+import com.vaadin.server.DefaultUIProvider;
+import com.vaadin.server.MockVaadinServletService;
+import com.vaadin.server.RequestHandler;
+import com.vaadin.server.ServiceException;
+import com.vaadin.server.ServletPortletHelper;
+import com.vaadin.server.SynchronizedRequestHandler;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinServletRequest;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.server.VaadinSessionLock;
+import com.vaadin.server.WrappedSession;
+import com.vaadin.server.communication.HeartbeatHandler;
+import com.vaadin.server.communication.SessionRequestHandler;
+import com.vaadin.shared.ApplicationConstants;
+import com.vaadin.shared.ui.ui.UIConstants;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.ui.AbstractComponent;
+import com.vaadin.ui.UI;
+
+/*
+ * Simulates one session with N UIs (browser tabs) that each keep requesting
+ * connector resources, e.g. images in a grid, and send a heartbeat every 50
+ * resource requests, while one of the UIs handles a UIDL request every 20 ms.
+ * All requests go through VaadinService.handleRequest with the default
+ * session, heartbeat and connector resource handlers. Writing a resource takes
+ * about 50 us and is done without locking the session, while each UIDL request
+ * keeps the session locked for about 2 ms.
+ *
+ * Compares the number of resource requests handled per second with the
+ * sharedSessionLock deployment parameter disabled and enabled, and prints the
+ * contention statistics collected by the session lock.
+ *
+ * Please run with -server. Usage: SessionLockThroughputBenchmark [maxUIs]
+ */
+public class SessionLockThroughputBenchmark {
+
+    private static final long DURATION_MS = 2000;
+    private static final int REQUESTS_PER_HEARTBEAT = 50;
+    private static final long STREAM_NANOS = TimeUnit.MICROSECONDS
+            .toNanos(50);
+    private static final long UIDL_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private static final String HEARTBEAT_PATH = "/"
+            + ApplicationConstants.HEARTBEAT_PATH + "/";
+    private static final String UIDL_PATH = "/" + ApplicationConstants.UIDL_PATH
+            + "/";
+    private static final String RESOURCE_PATH = "/"
+            + ApplicationConstants.APP_PATH + "/"
+            + ConnectorResource.CONNECTOR_PATH + "/";
+
+    public static void main(String[] args) throws Exception {
+        int maxUIs = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+
+        // warmup
+        run(4, false);
+        run(4, true);
+
+        for (int uis = 1; uis <= maxUIs; uis *= 2) {
+            report(uis, "exclusive", run(uis, false));
+            report(uis, "shared   ", run(uis, true));
+        }
+    }
+
+    private static void report(int uis, String mode, Result result) {
+        VaadinSessionLock lock = result.lock;
+        System.out.println(uis + " UIs, " + mode + ": "
+                + result.resourceRequests * 1000 / DURATION_MS
+                + " resource requests/s, "
+                + result.uidlRequests * 1000 / DURATION_MS
+                + " UIDL requests/s, exclusive waits "
+                + lock.getContendedExclusiveAcquisitionCount() + " ("
+                + TimeUnit.NANOSECONDS
+                        .toMillis(lock.getExclusiveWaitTimeNanos())
+                + " ms), shared waits "
+                + lock.getContendedSharedAcquisitionCount() + " ("
+                + TimeUnit.NANOSECONDS.toMillis(lock.getSharedWaitTimeNanos())
+                + " ms)");
+    }
+
+    private static Result run(int uis, boolean shared) throws Exception {
+        MockDeploymentConfiguration configuration = new MockDeploymentConfiguration();
+        configuration.setSharedSessionLockEnabled(shared);
+        InitHandler initHandler = new InitHandler(uis);
+        VaadinServletService service = new MockVaadinServletService(
+                configuration) {
+            @Override
+            protected List<RequestHandler> createRequestHandlers()
+                    throws ServiceException {
+                return Arrays.asList(new SessionRequestHandler(),
+                        new HeartbeatHandler(), new UidlHandler(),
+                        new ConnectorResourceHandler(), initHandler);
+            }
+        };
+        service.init();
+        service.addSessionInitListener(event -> event.getSession()
+                .addUIProvider(new DefaultUIProvider()));
+
+        HttpServletRequest httpRequest = Mockito
+                .mock(HttpServletRequest.class);
+        BenchmarkSession httpSession = new BenchmarkSession();
+        BenchmarkResponse response = new BenchmarkResponse(service);
+
+        // Creates the session and the UIs
+        service.handleRequest(
+                new BenchmarkRequest(httpRequest, service, httpSession, "/"),
+                response);
+        VaadinSessionLock lock = (VaadinSessionLock) initHandler.session
+                .getLockInstance();
+        String[] resourcePaths = initHandler.resourcePaths;
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong resourceRequests = new AtomicLong();
+        AtomicLong uidlRequests = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(uis + 1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < uis; i++) {
+            String uiId = String.valueOf(i);
+            String resourcePath = resourcePaths[i];
+            threads.add(new Thread(() -> {
+                try {
+                    for (int count = 1; running.get(); count++) {
+                        service.handleRequest(new BenchmarkRequest(httpRequest,
+                                service, httpSession, resourcePath), response);
+                        resourceRequests.incrementAndGet();
+                        if (count % REQUESTS_PER_HEARTBEAT == 0) {
+                            service.handleRequest(
+                                    new BenchmarkRequest(httpRequest, service,
+                                            httpSession, HEARTBEAT_PATH)
+                                                    .withUIId(uiId),
+                                    response);
+                        }
+                    }
+                } catch (ServiceException e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    done.countDown();
+                }
+            }));
+        }
+        threads.add(new Thread(() -> {
+            try {
+                while (running.get()) {
+                    service.handleRequest(new BenchmarkRequest(httpRequest,
+                            service, httpSession, UIDL_PATH).withUIId("0"),
+                            response);
+                    uidlRequests.incrementAndGet();
+                    Thread.sleep(20);
+                }
+            } catch (ServiceException e) {
+                throw new RuntimeException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                done.countDown();
+            }
+        }));
+
+        threads.forEach(Thread::start);
+        Thread.sleep(DURATION_MS);
+        running.set(false);
+        done.await();
+
+        return new Result(lock, resourceRequests.get(), uidlRequests.get());
+    }
+
+    private static void work(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            // Busy wait to simulate request handling
+        }
+    }
+
+    /**
+     * Creates the UIs of the benchmark when the session is created.
+     */
+    private static class InitHandler extends SynchronizedRequestHandler {
+        private final int uis;
+        private VaadinSession session;
+        private String[] resourcePaths;
+
+        private InitHandler(int uis) {
+            this.uis = uis;
+        }
+
+        @Override
+        protected boolean canHandleRequest(VaadinRequest request) {
+            return "/".equals(request.getPathInfo());
+        }
+
+        @Override
+        public boolean synchronizedHandleRequest(VaadinSession session,
+                VaadinRequest request, VaadinResponse response)
+                throws IOException {
+            this.session = session;
+            resourcePaths = new String[uis];
+            for (int i = 0; i < uis; i++) {
+                UI ui = new BenchmarkUI();
+                ui.setSession(session);
+                ui.doInit(request, session.getNextUIid(), null);
+                session.addUI(ui);
+
+                ImageComponent image = new ImageComponent();
+                ui.setContent(image);
+                resourcePaths[i] = RESOURCE_PATH + ui.getUIId() + "/"
+                        + image.getConnectorId() + "/image.png";
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Keeps the session locked for the duration of a typical UIDL request.
+     */
+    private static class UidlHandler extends SynchronizedRequestHandler {
+        @Override
+        protected boolean canHandleRequest(VaadinRequest request) {
+            return ServletPortletHelper.isUIDLRequest(request);
+        }
+
+        @Override
+        public boolean synchronizedHandleRequest(VaadinSession session,
+                VaadinRequest request, VaadinResponse response)
+                throws IOException {
+            work(UIDL_NANOS);
+            return true;
+        }
+    }
+
+    private static class BenchmarkUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+        }
+    }
+
+    private static class ImageComponent extends AbstractComponent {
+        @Override
+        public boolean handleConnectorRequest(VaadinRequest request,
+                VaadinResponse response, String path) throws IOException {
+            // Writes the image without locking the session
+            work(STREAM_NANOS);
+            return true;
+        }
+    }
+
+    private static class BenchmarkRequest extends VaadinServletRequest {
+        private final BenchmarkSession session;
+        private final String pathInfo;
+        private final Map<String, Object> attributes = new HashMap<>();
+        private String uiId;
+
+        private BenchmarkRequest(HttpServletRequest request,
+                VaadinServletService service, BenchmarkSession session,
+                String pathInfo) {
+            super(request, service);
+            this.session = session;
+            this.pathInfo = pathInfo;
+        }
+
+        private BenchmarkRequest withUIId(String uiId) {
+            this.uiId = uiId;
+            return this;
+        }
+
+        @Override
+        public String getPathInfo() {
+            return pathInfo;
+        }
+
+        @Override
+        public String getParameter(String name) {
+            if (UIConstants.UI_ID_PARAMETER.equals(name)) {
+                return uiId;
+            } else if ("v-loc".equals(name)) {
+                return "http://localhost/";
+            }
+            return null;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return null;
+        }
+
+        @Override
+        public Locale getLocale() {
+            return Locale.ENGLISH;
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return attributes.get(name);
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            attributes.put(name, value);
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            attributes.remove(name);
+        }
+
+        @Override
+        public WrappedSession getWrappedSession(boolean allowSessionCreation) {
+            return session;
+        }
+    }
+
+    private static class BenchmarkSession implements WrappedSession {
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+        private final long creationTime = System.currentTimeMillis();
+
+        @Override
+        public int getMaxInactiveInterval() {
+            return -1;
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return attributes.get(name);
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+            if (value == null) {
+                attributes.remove(name);
+            } else {
+                attributes.put(name, value);
+            }
+        }
+
+        @Override
+        public Set<String> getAttributeNames() {
+            return Collections.unmodifiableSet(attributes.keySet());
+        }
+
+        @Override
+        public void invalidate() {
+            attributes.clear();
+        }
+
+        @Override
+        public String getId() {
+            return "benchmark";
+        }
+
+        @Override
+        public long getCreationTime() {
+            return creationTime;
+        }
+
+        @Override
+        public long getLastAccessedTime() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public boolean isNew() {
+            return false;
+        }
+
+        @Override
+        public void removeAttribute(String name) {
+            attributes.remove(name);
+        }
+
+        @Override
+        public void setMaxInactiveInterval(int interval) {
+        }
+    }
+
+    private static class BenchmarkResponse implements VaadinResponse {
+        private final VaadinService service;
+        private final OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+
+        private BenchmarkResponse(VaadinService service) {
+            this.service = service;
+        }
+
+        @Override
+        public void setStatus(int statusCode) {
+        }
+
+        @Override
+        public void setContentType(String contentType) {
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+        }
+
+        @Override
+        public void setDateHeader(String name, long timestamp) {
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return out;
+        }
+
+        @Override
+        public PrintWriter getWriter() {
+            return new PrintWriter(out);
+        }
+
+        @Override
+        public void setCacheTime(long milliseconds) {
+        }
+
+        @Override
+        public void sendError(int errorCode, String message) {
+            throw new IllegalStateException(
+                    "Unexpected error response " + errorCode + ": " + message);
+        }
+
+        @Override
+        public VaadinService getService() {
+            return service;
+        }
+
+        @Override
+        public void addCookie(Cookie cookie) {
+        }
+
+        @Override
+        public void setContentLength(int len) {
+        }
+    }
+
+    private static class Result {
+        private final VaadinSessionLock lock;
+        private final long resourceRequests;
+        private final long uidlRequests;
+
+        private Result(VaadinSessionLock lock, long resourceRequests,
+                long uidlRequests) {
+            this.lock = lock;
+            this.resourceRequests = resourceRequests;
+            this.uidlRequests = uidlRequests;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.vaadin.benchmarks;
+
+import java.lang.reflect.Type;
+
+import com.vaadin.server.EncodeResult;
+import com.vaadin.server.JsonCodec;
+import com.vaadin.server.JsonCodec.BeanProperty;
+import com.vaadin.shared.AbstractComponentState;
+import com.vaadin.shared.communication.SharedState;
+import com.vaadin.shared.extension.datacommunicator.DataCommunicatorState;
+import com.vaadin.shared.ui.grid.GridState;
+
+import elemental.json.Json;
+import elemental.json.JsonNull;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+/*
+ * Compares encoding shared state through the cached property encoders of
+ * JsonCodec with the previous approach that read every property reflectively
+ * and diffed it through generic JsonValue equality. The reflective approach is
+ * reproduced here using the public JsonCodec.getProperties API.
+ *
+ * Each iteration encodes a state with one changed property against the
+ * previously sent state, which is the typical case for a roundtrip. The
+ * changed property is the id of component states and the enabled flag of
+ * DataCommunicatorState, which only has the properties of SharedState.
+ *
+ * Please run with -server.
+ */
+public class StateEncodingBenchmark {
+
+    private static final int LOOPS = 200000;
+
+    public static void main(String[] args) throws Exception {
+        SharedState[] states = { createGridState(), createComponentState(),
+                new DataCommunicatorState() };
+
+        // warmup
+        for (SharedState state : states) {
+            run(state, true, LOOPS / 10);
+            run(state, false, LOOPS / 10);
+        }
+
+        for (SharedState state : states) {
+            String name = state.getClass().getSimpleName();
+            System.out.println(name + " reflective: "
+                    + run(state, false, LOOPS) + " ms");
+            System.out.println(name + " cached encoders: "
+                    + run(state, true, LOOPS) + " ms");
+        }
+    }
+
+    private static long run(SharedState state, boolean cached, int loops)
+            throws Exception {
+        Class<? extends SharedState> type = state.getClass();
+        JsonObject reference = (JsonObject) JsonCodec
+                .encode(state, null, type, null).getEncodedValue();
+        // One property differs from what the client has
+        setChanged(state, true);
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < loops; i++) {
+            if (cached) {
+                JsonCodec.encode(state, reference, type, null);
+            } else {
+                encodeReflectively(state, reference, type);
+            }
+        }
+        setChanged(state, false);
+        return System.currentTimeMillis() - start;
+    }
+
+    private static void setChanged(SharedState state, boolean changed) {
+        if (state instanceof AbstractComponentState) {
+            ((AbstractComponentState) state).id = changed ? "changed" : null;
+        } else {
+            state.enabled = !changed;
+        }
+    }
+
+    private static EncodeResult encodeReflectively(Object value,
+            JsonObject referenceValue, Class<?> valueType) throws Exception {
+        JsonObject encoded = Json.createObject();
+        JsonObject diff = Json.createObject();
+        for (BeanProperty property : JsonCodec.getProperties(valueType)) {
+            String fieldName = property.getName();
+            Type fieldType = property.getType();
+            Object fieldValue = property.getValue(value);
+
+            JsonValue fieldReference = referenceValue.get(fieldName);
+            if (fieldReference instanceof JsonNull) {
+                fieldReference = null;
+            }
+
+            EncodeResult encodeResult = JsonCodec.encode(fieldValue,
+                    fieldReference, fieldType, null);
+            JsonValue encodedValue = encodeResult.getEncodedValue();
+            encoded.put(fieldName, encodedValue);
+
+            if (encodedValue instanceof JsonNull) {
+                encodedValue = null;
+            }
+            if (encodedValue != fieldReference && (encodedValue == null
+                    || fieldReference == null
+                    || !JsonCodec.jsonEquals(encodedValue, fieldReference))) {
+                diff.put(fieldName, encodeResult.getDiffOrValue());
+            }
+        }
+        return new EncodeResult(encoded, diff);
+    }
+
+    private static GridState createGridState() {
+        GridState state = new GridState();
+        for (int i = 0; i < 20; i++) {
+            state.columnOrder.add("column" + i);
+        }
+        state.frozenColumnCount = 2;
+        state.caption = "Grid";
+        state.width = "100%";
+        return state;
+    }
+
+    private static AbstractComponentState createComponentState() {
+        AbstractComponentState state = new AbstractComponentState();
+        state.caption = "Caption";
+        state.description = "Description";
+        state.width = "200px";
+        state.height = "100px";
+        return state;
+    }
+}
@@ -0,0 +1,134 @@
+package com.vaadin.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import org.mockito.Mockito;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.PaintTarget;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.server.communication.ClientRpcWriter;
+import com.vaadin.server.communication.ConnectorHierarchyWriter;
+import com.vaadin.server.communication.ConnectorTypeWriter;
+import com.vaadin.server.communication.SharedStateWriter;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.CssLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+/*
+ * Compares the heap allocated per response when writing the state, types,
+ * hierarchy and rpc sections of a UIDL response as complete JSON trees versus
+ * streaming them connector by connector (the streamingUidl deployment
+ * parameter).
+ *
+ * Every iteration writes the response for a freshly built UI with roughly
+ * 4000 dirty connectors, which corresponds to a large view switch. Only the
+ * allocations made while writing are measured.
+ *
+ * Please run with -server -Xmx1g. Allocation counts are read from
+ * com.sun.management.ThreadMXBean and thus require a HotSpot based JVM.
+ */
+public class UidlWriterAllocationBenchmark {
+
+    private static final int CONNECTORS = 4000;
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) throws IOException {
+        // warmup
+        measure(false, 5);
+        measure(true, 5);
+
+        report("tree     ", measure(false, ROUNDS));
+        report("streaming", measure(true, ROUNDS));
+    }
+
+    private static void report(String mode, long[] result) {
+        System.out.println(mode + ": " + result[0] / ROUNDS / 1024
+                + " KiB allocated, " + result[1] / ROUNDS / 1000
+                + " us per response");
+    }
+
+    private static long[] measure(boolean streaming, int rounds)
+            throws IOException {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        PaintTarget target = Mockito.mock(PaintTarget.class);
+        Mockito.when(target.getTag(Mockito.any(ClientConnector.class)))
+                .thenReturn("1");
+
+        long allocated = 0;
+        long time = 0;
+        for (int i = 0; i < rounds; i++) {
+            UI ui = createUI(streaming);
+            Writer writer = new NullWriter();
+            System.gc();
+
+            long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+
+            Set<String> stateUpdateConnectors = new SharedStateWriter()
+                    .write(ui, writer);
+            new ConnectorTypeWriter().write(ui, writer, target);
+            new ConnectorHierarchyWriter().write(ui, writer,
+                    stateUpdateConnectors);
+            new ClientRpcWriter().write(ui, writer);
+
+            time += System.nanoTime() - start;
+            allocated += threadBean.getThreadAllocatedBytes(threadId)
+                    - allocatedBefore;
+        }
+        return new long[] { allocated, time };
+    }
+
+    private static UI createUI(boolean streaming) {
+        MockDeploymentConfiguration configuration = new MockDeploymentConfiguration();
+        configuration.setStreamingUidlEnabled(streaming);
+        VaadinService service = Mockito.mock(VaadinService.class);
+        Mockito.when(service.getDeploymentConfiguration())
+                .thenReturn(configuration);
+        VaadinSession session = new AlwaysLockedVaadinSession(service);
+
+        UI ui = new MockUI(session);
+        VerticalLayout root = new VerticalLayout();
+        for (int i = 0; i < CONNECTORS / 20; i++) {
+            CssLayout row = new CssLayout();
+            for (int j = 0; j < 10; j++) {
+                row.addComponent(new Label("Row " + i + " label " + j));
+                row.addComponent(new Button("Row " + i + " button " + j));
+            }
+            root.addComponent(row);
+        }
+        ui.setContent(root);
+        return ui;
+    }
+
+    private static class NullWriter extends Writer {
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            // discard, as if written to the network
+        }
+
+        @Override
+        public void write(String str) {
+            // avoid the char[] copy of Writer.write(String)
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Field;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -16,6 +17,7 @@ import junit.framework.AssertionFailedError;
 import org.junit.Test;
 
 import com.vaadin.data.provider.bov.Person;
+import com.vaadin.server.Setter;
 import com.vaadin.tests.data.bean.Address;
 import com.vaadin.tests.data.bean.Country;
 import com.vaadin.tests.data.bean.FatherAndSon;
@@ -26,6 +28,8 @@ import static com.vaadin.data.PropertyFilterDefinition.getDefaultFilter;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class BeanPropertySetTest {
     @Test
@@ -186,4 +190,90 @@ public class BeanPropertySetTest {
         assertEquals(new HashSet<>(Arrays.asList("name", "born")),
                 propertyNames);
     }
+
+    public static class Counter {
+        private int count;
+        private String label;
+
+        public int getCount() {
+            if (count < 0) {
+                throw new IllegalStateException("Negative count");
+            }
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public void setLabel(String label) {
+            this.label = label;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Setter<T, Object> getSetter(Class<T> beanType,
+            String propertyName) {
+        return (Setter<T, Object>) BeanPropertySet.get(beanType)
+                .getProperty(propertyName).get().getSetter().get();
+    }
+
+    private static <T> ValueProvider<T, ?> getGetter(Class<T> beanType,
+            String propertyName) {
+        return BeanPropertySet.get(beanType).getProperty(propertyName).get()
+                .getGetter();
+    }
+
+    @Test
+    public void getterAndSetter_primitiveAndReferenceValues() {
+        Counter counter = new Counter();
+
+        getSetter(Counter.class, "count").accept(counter, 5);
+        getSetter(Counter.class, "label").accept(counter, "five");
+        assertEquals(5, getGetter(Counter.class, "count").apply(counter));
+        assertEquals("five", getGetter(Counter.class, "label").apply(counter));
+
+        getSetter(Counter.class, "label").accept(counter, null);
+        assertEquals(null, getGetter(Counter.class, "label").apply(counter));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setter_nullForPrimitive_throws() {
+        getSetter(Counter.class, "count").accept(new Counter(), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setter_wrongValueType_throws() {
+        getSetter(Counter.class, "count").accept(new Counter(), "5");
+    }
+
+    @Test
+    public void getter_exceptionWrapped() {
+        Counter counter = new Counter();
+        counter.setCount(-1);
+        try {
+            getGetter(Counter.class, "count").apply(counter);
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof InvocationTargetException);
+            assertTrue(e.getCause()
+                    .getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void nestedPropertyDefinition_setter() {
+        FatherAndSon father = new FatherAndSon("Old Jon", "Doe", null, null);
+        FatherAndSon son = new FatherAndSon("Jon", "Doe", father, null);
+
+        getSetter(FatherAndSon.class, "father.firstName").accept(son, "Jim");
+
+        assertEquals("Jim", father.getFirstName());
+        assertEquals("Jim",
+                getGetter(FatherAndSon.class, "father.firstName").apply(son));
+    }
 }
@@ -5,8 +5,13 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -121,6 +126,30 @@ public class DataCommunicatorTest {
         }
     }
 
+    private static class QueueingExecutor implements Executor {
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        public void runAll() {
+            List<Runnable> toRun = new ArrayList<>(tasks);
+            tasks.clear();
+            toRun.forEach(Runnable::run);
+        }
+    }
+
+    private static class GeneratedItems implements DataGenerator<Object> {
+        private final List<Object> items = new ArrayList<>();
+
+        @Override
+        public void generateData(Object item, JsonObject jsonObject) {
+            items.add(item);
+        }
+    }
+
     private final MockVaadinSession session = new MockVaadinSession(
             Mockito.mock(VaadinService.class));
 
@@ -314,4 +343,266 @@ public class DataCommunicatorTest {
         assertTrue("DataCommunicator should be marked as dirty",
                 ui.getConnectorTracker().isDirty(communicator));
     }
+
+    private final List<Integer> fetchOffsets = new ArrayList<>();
+
+    private TestDataCommunicator createAsyncCommunicator(
+            QueueingExecutor executor, GeneratedItems generated) {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+        communicator.setDataProvider(DataProvider.fromCallbacks(query -> {
+            fetchOffsets.add(query.getOffset());
+            return IntStream.range(0, 1000).skip(query.getOffset())
+                    .limit(query.getLimit()).boxed().map(Object.class::cast);
+        }, query -> 1000), null);
+        communicator.setFetchExecutor(executor);
+        communicator.setPrefetchSize(10);
+        communicator.addDataGenerator(generated);
+        return communicator;
+    }
+
+    private static List<Object> range(int start, int end) {
+        return IntStream.range(start, end).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    public void fetchExecutor_rowsFetchedInExecutorAndPushedLater() {
+        QueueingExecutor executor = new QueueingExecutor();
+        GeneratedItems generated = new GeneratedItems();
+        TestDataCommunicator communicator = createAsyncCommunicator(executor,
+                generated);
+
+        communicator.beforeClientResponse(true);
+        assertTrue("No rows should be fetched while writing the response",
+                fetchOffsets.isEmpty());
+        assertTrue(generated.items.isEmpty());
+
+        executor.runAll();
+        assertEquals(Collections.singletonList(0), fetchOffsets);
+        assertTrue("Communicator should be dirty after the fetch",
+                communicator.getUI().getConnectorTracker()
+                        .isDirty(communicator));
+
+        communicator.beforeClientResponse(false);
+        assertEquals(range(0, 40), generated.items);
+    }
+
+    @Test
+    public void fetchExecutor_prefetchedRowsServedWithoutFetching() {
+        QueueingExecutor executor = new QueueingExecutor();
+        GeneratedItems generated = new GeneratedItems();
+        TestDataCommunicator communicator = createAsyncCommunicator(executor,
+                generated);
+        communicator.beforeClientResponse(true);
+        executor.runAll();
+        communicator.beforeClientResponse(false);
+        generated.items.clear();
+
+        // Within the prefetch window of 10 rows
+        communicator.onRequestRows(40, 10, 0, 40);
+        communicator.beforeClientResponse(false);
+
+        assertEquals(range(40, 50), generated.items);
+        assertEquals(1, fetchOffsets.size());
+    }
+
+    @Test
+    public void fetchExecutor_requestsCoalescedAndStaleFetchesCancelled() {
+        QueueingExecutor executor = new QueueingExecutor();
+        GeneratedItems generated = new GeneratedItems();
+        TestDataCommunicator communicator = createAsyncCommunicator(executor,
+                generated);
+        communicator.beforeClientResponse(true);
+
+        // Covered by the fetch that has not completed yet
+        communicator.onRequestRows(10, 20, 0, 0);
+        communicator.beforeClientResponse(false);
+        assertEquals(1, executor.tasks.size());
+
+        // Scrolled away before the first fetch was run
+        communicator.onRequestRows(500, 20, 0, 0);
+        communicator.beforeClientResponse(false);
+
+        executor.runAll();
+        assertEquals(Collections.singletonList(490), fetchOffsets);
+
+        communicator.beforeClientResponse(false);
+        assertEquals(range(500, 520), generated.items);
+    }
+
+    @Test
+    public void fetchExecutor_resetDiscardsPrefetchedRows() {
+        QueueingExecutor executor = new QueueingExecutor();
+        GeneratedItems generated = new GeneratedItems();
+        TestDataCommunicator communicator = createAsyncCommunicator(executor,
+                generated);
+        communicator.beforeClientResponse(true);
+        executor.runAll();
+        communicator.beforeClientResponse(false);
+
+        communicator.reset();
+        communicator.onRequestRows(0, 40, 0, 0);
+        communicator.beforeClientResponse(false);
+        executor.runAll();
+
+        assertEquals(2, fetchOffsets.size());
+    }
+
+    @Test
+    public void noFetchExecutor_rowsFetchedWhileWritingResponse() {
+        GeneratedItems generated = new GeneratedItems();
+        TestDataCommunicator communicator = createAsyncCommunicator(null,
+                generated);
+
+        communicator.beforeClientResponse(true);
+
+        assertEquals(Collections.singletonList(0), fetchOffsets);
+        assertEquals(range(0, 40), generated.items);
+    }
+
+    private int sizeQueries = 0;
+
+    private DataProvider<Object, String> createCountingDataProvider() {
+        return DataProvider.fromFilteringCallbacks(query -> {
+            fetchOffsets.add(query.getOffset());
+            return IntStream.range(0, 1000).skip(query.getOffset())
+                    .limit(query.getLimit()).boxed().map(Object.class::cast);
+        }, query -> {
+            sizeQueries++;
+            return 1000;
+        });
+    }
+
+    @Test
+    public void rowCache_scrollingBackServedFromCache() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+        communicator.setDataProvider(createCountingDataProvider(), null);
+        communicator.setRowCacheSize(5);
+        GeneratedItems generated = new GeneratedItems();
+        communicator.addDataGenerator(generated);
+
+        communicator.beforeClientResponse(true);
+        communicator.onRequestRows(100, 40, 0, 40);
+        communicator.beforeClientResponse(false);
+        generated.items.clear();
+
+        communicator.onRequestRows(10, 20, 100, 40);
+        communicator.beforeClientResponse(false);
+
+        assertEquals(range(10, 30), generated.items);
+        assertEquals(Arrays.asList(0, 100), fetchOffsets);
+        assertEquals(1, communicator.getRowCacheHitCount());
+    }
+
+    @Test
+    public void rowCache_keyedByFilter() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+        SerializableConsumer<String> filterSlot = communicator
+                .setDataProvider(createCountingDataProvider(), "a");
+        communicator.setRowCacheSize(5);
+
+        communicator.beforeClientResponse(true);
+        filterSlot.accept("b");
+        communicator.onRequestRows(0, 40, 0, 0);
+        communicator.beforeClientResponse(false);
+        assertEquals(2, fetchOffsets.size());
+        assertEquals(2, sizeQueries);
+
+        // Back to the first filter
+        filterSlot.accept("a");
+        communicator.onRequestRows(0, 40, 0, 0);
+        communicator.beforeClientResponse(false);
+        assertEquals(2, fetchOffsets.size());
+        assertEquals(2, sizeQueries);
+    }
+
+    @Test
+    public void rowCache_clearedOnDataChange() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+        DataProvider<Object, String> dataProvider = createCountingDataProvider();
+        communicator.setDataProvider(dataProvider, null);
+        communicator.setRowCacheSize(5);
+
+        communicator.beforeClientResponse(true);
+        dataProvider.refreshAll();
+        communicator.onRequestRows(0, 40, 0, 0);
+        communicator.beforeClientResponse(false);
+
+        assertEquals(2, fetchOffsets.size());
+        assertEquals(2, sizeQueries);
+        assertEquals(0, communicator.getRowCacheHitCount());
+    }
+
+    @Test
+    public void rowCache_disabledByDefault() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+        communicator.setDataProvider(createCountingDataProvider(), null);
+
+        communicator.beforeClientResponse(true);
+        communicator.onRequestRows(0, 40, 0, 0);
+        communicator.beforeClientResponse(false);
+
+        assertEquals(2, fetchOffsets.size());
+        assertEquals(0, communicator.getRowCacheMissCount());
+    }
+
+    @Test
+    public void activeKeyLimit_droppedRowsReleasedImmediately() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+        communicator.setDataProvider(
+                DataProvider.ofCollection(IntStream.range(0, 100).boxed()
+                        .collect(Collectors.toList())),
+                null);
+        communicator.setActiveKeyLimit(30);
+        communicator.beforeClientResponse(true);
+
+        DataKeyMapper<Object> keyMapper = communicator.getKeyMapper();
+        assertTrue(keyMapper.has(0));
+        JsonArray keys = Json.createArray();
+        keys.set(0, keyMapper.key(0));
+        communicator.onDropRows(keys);
+
+        assertFalse("Dropped row should be released without a push",
+                keyMapper.has(0));
+        assertFalse(communicator.getActiveDataHandler().getActiveData()
+                .containsKey(0));
+        assertTrue(keyMapper.has(1));
+    }
+
+    @Test
+    public void noActiveKeyLimit_droppedRowsReleasedOnPush() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.extend(ui);
+        communicator.setDataProvider(
+                DataProvider.ofCollection(IntStream.range(0, 100).boxed()
+                        .collect(Collectors.toList())),
+                null);
+        communicator.beforeClientResponse(true);
+
+        DataKeyMapper<Object> keyMapper = communicator.getKeyMapper();
+        JsonArray keys = Json.createArray();
+        keys.set(0, keyMapper.key(0));
+        communicator.onDropRows(keys);
+
+        assertTrue(keyMapper.has(0));
+    }
 }
@@ -0,0 +1,119 @@
+package com.vaadin.data.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import com.vaadin.server.SerializableComparator;
+import com.vaadin.server.SerializablePredicate;
+
+/**
+ * Runs the {@link ListDataProviderTest} tests with indexed mode enabled and
+ * tests the caching of views.
+ */
+public class IndexedListDataProviderTest extends ListDataProviderTest {
+
+    private final AtomicInteger filterCalls = new AtomicInteger();
+
+    @Override
+    protected ListDataProvider<StrBean> createDataProvider() {
+        ListDataProvider<StrBean> dataProvider = super.createDataProvider();
+        dataProvider.setIndexed(true);
+        return dataProvider;
+    }
+
+    private ListDataProvider<Integer> createCountingProvider(
+            List<Integer> items) {
+        ListDataProvider<Integer> provider = DataProvider
+                .ofCollection(items);
+        provider.setIndexed(true);
+        provider.setFilter(i -> {
+            filterCalls.incrementAndGet();
+            return i % 2 == 0;
+        });
+        return provider;
+    }
+
+    private static List<Integer> range(int count) {
+        return IntStream.range(0, count).boxed()
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Test
+    public void viewsReusedForSizeAndFetch() {
+        ListDataProvider<Integer> provider = createCountingProvider(
+                range(100));
+        SerializableComparator<Integer> descending = (a, b) -> b - a;
+
+        assertEquals(50, provider.size(new Query<>()));
+        assertEquals(100, filterCalls.get());
+
+        Query<Integer, SerializablePredicate<Integer>> query = new Query<>(10,
+                5, new ArrayList<>(), descending, null);
+        assertEquals(Arrays.asList(78, 76, 74, 72, 70),
+                provider.fetch(query).collect(Collectors.toList()));
+        assertEquals(Arrays.asList(78, 76, 74, 72, 70),
+                provider.fetch(query).collect(Collectors.toList()));
+        assertEquals(50, provider.size(new Query<>()));
+
+        // The filtered view is sorted without filtering again
+        assertEquals(100, filterCalls.get());
+    }
+
+    @Test
+    public void queryFilterPartOfKey() {
+        ListDataProvider<Integer> provider = createCountingProvider(
+                range(100));
+        SerializablePredicate<Integer> below10 = i -> i < 10;
+
+        assertEquals(50, provider.size(new Query<>()));
+        assertEquals(5, provider.size(new Query<>(below10)));
+        assertEquals(5, provider.size(new Query<>(below10)));
+        assertEquals(200, filterCalls.get());
+    }
+
+    @Test
+    public void refreshAllInvalidatesViews() {
+        List<Integer> items = range(100);
+        ListDataProvider<Integer> provider = createCountingProvider(items);
+        assertEquals(50, provider.size(new Query<>()));
+
+        items.add(100);
+        // Changes are not visible before refreshing
+        assertEquals(50, provider.size(new Query<>()));
+
+        provider.refreshAll();
+        assertEquals(51, provider.size(new Query<>()));
+    }
+
+    @Test
+    public void refreshItemInvalidatesViews() {
+        List<Integer> items = range(100);
+        ListDataProvider<Integer> provider = createCountingProvider(items);
+        assertEquals(50, provider.size(new Query<>()));
+
+        items.set(1, 2);
+        provider.refreshItem(2);
+        assertEquals(51, provider.size(new Query<>()));
+    }
+
+    @Test
+    public void offsetBeyondSize() {
+        ListDataProvider<Integer> provider = createCountingProvider(
+                range(10));
+
+        assertTrue(provider.fetch(new Query<>(20, 5, new ArrayList<>(), null,
+                null)).collect(Collectors.toList()).isEmpty());
+        assertEquals(Arrays.asList(8), provider.fetch(new Query<>(4,
+                Integer.MAX_VALUE, new ArrayList<>(), null, null))
+                .collect(Collectors.toList()));
+    }
+}
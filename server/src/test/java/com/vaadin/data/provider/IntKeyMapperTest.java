@@ -0,0 +1,169 @@
+package com.vaadin.data.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IntKeyMapperTest {
+
+    private static class Bean implements Serializable {
+        private final int id;
+
+        private Bean(int id) {
+            this.id = id;
+        }
+
+        public int getId() {
+            return id;
+        }
+    }
+
+    @Test
+    public void keysAreSequentialIntegers() {
+        IntKeyMapper<Object> mapper = new IntKeyMapper<>();
+        Object o1 = new Object();
+        Object o2 = new Object();
+
+        assertEquals("1", mapper.key(o1));
+        assertEquals("2", mapper.key(o2));
+        assertEquals("1", mapper.key(o1));
+        assertSame(o1, mapper.get("1"));
+        assertSame(o2, mapper.get("2"));
+        assertEquals(2, mapper.size());
+    }
+
+    @Test
+    public void removedKeysAreNotReused() {
+        IntKeyMapper<Object> mapper = new IntKeyMapper<>();
+        Object o1 = new Object();
+        String key = mapper.key(o1);
+
+        mapper.remove(o1);
+        assertFalse(mapper.has(o1));
+        assertNull(mapper.get(key));
+        assertFalse(mapper.containsKey(key));
+        assertNotEquals(key, mapper.key(o1));
+    }
+
+    @Test
+    public void invalidKeys() {
+        IntKeyMapper<Object> mapper = new IntKeyMapper<>();
+        mapper.key(new Object());
+
+        assertNull(mapper.get(null));
+        assertNull(mapper.get(""));
+        assertNull(mapper.get("01"));
+        assertNull(mapper.get("-1"));
+        assertNull(mapper.get("1a"));
+        assertNull(mapper.get("99999999999"));
+        assertEquals("null", mapper.key(null));
+        assertNull(mapper.get("null"));
+    }
+
+    @Test
+    public void removeAll() {
+        IntKeyMapper<Object> mapper = new IntKeyMapper<>();
+        for (int i = 0; i < 100; i++) {
+            mapper.key(new Object());
+        }
+
+        mapper.removeAll();
+        assertEquals(0, mapper.size());
+        assertNull(mapper.get("1"));
+        assertEquals("101", mapper.key(new Object()));
+    }
+
+    @Test
+    public void identifierGetter() {
+        IntKeyMapper<Bean> mapper = new IntKeyMapper<>(Bean::getId);
+        Bean bean = new Bean(1);
+        String key = mapper.key(bean);
+
+        Bean sameId = new Bean(1);
+        assertTrue(mapper.has(sameId));
+        assertEquals(key, mapper.key(sameId));
+
+        mapper.refresh(sameId);
+        assertSame(sameId, mapper.get(key));
+
+        mapper.setIdentifierGetter(b -> "bean" + b.getId());
+        assertTrue(mapper.has(new Bean(1)));
+        assertEquals(key, mapper.key(new Bean(1)));
+    }
+
+    @Test
+    public void matchesHashMapUnderRandomOperations() {
+        IntKeyMapper<Object> mapper = new IntKeyMapper<>();
+        Map<Object, String> expected = new HashMap<>();
+        List<Object> objects = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            objects.add(new Object());
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < 50000; i++) {
+            Object object = objects.get(random.nextInt(objects.size()));
+            if (random.nextInt(3) == 0) {
+                mapper.remove(object);
+                expected.remove(object);
+            } else {
+                String key = mapper.key(object);
+                String previous = expected.put(object, key);
+                if (previous != null) {
+                    assertEquals(previous, key);
+                }
+            }
+        }
+
+        assertEquals(expected.size(), mapper.size());
+        expected.forEach((object, key) -> assertSame(object, mapper.get(key)));
+    }
+
+    @Test
+    public void serialization() throws Exception {
+        IntKeyMapper<Bean> mapper = new IntKeyMapper<>();
+        List<Bean> beans = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Bean bean = new Bean(i);
+            beans.add(bean);
+            mapper.key(bean);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(mapper);
+            out.writeObject(beans);
+        }
+        IntKeyMapper<Bean> deserialized;
+        List<Bean> deserializedBeans;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            deserialized = (IntKeyMapper<Bean>) in.readObject();
+            deserializedBeans = (List<Bean>) in.readObject();
+        }
+
+        // Beans use identity hash codes, which change in serialization
+        for (int i = 0; i < beans.size(); i++) {
+            Bean bean = deserializedBeans.get(i);
+            assertTrue(deserialized.has(bean));
+            assertEquals(String.valueOf(i + 1), deserialized.key(bean));
+        }
+        assertEquals(100, deserialized.size());
+    }
+}
@@ -97,6 +97,18 @@ public class HierarchicalCommunicatorTest {
         assertEquals(-1, communicator.getParentIndex(FOLDER).longValue());
     }
 
+    @Test
+    public void refreshAllUpdatesHierarchy() {
+        communicator.expand(ROOT);
+        assertEquals(2, communicator.getDataProviderSize());
+
+        treeData.addItem(ROOT, "FOLDER2");
+        dataProvider.refreshAll();
+        assertEquals(3, communicator.getDataProviderSize());
+        assertEquals(Arrays.asList(ROOT, FOLDER, "FOLDER2"),
+                communicator.fetchItemsWithRange(0, 3));
+    }
+
     private static class TestHierarchicalDataCommunicator<T>
             extends HierarchicalDataCommunicator<T> {
         @Override
@@ -1,9 +1,11 @@
 package com.vaadin.data.provider.hierarchical;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
@@ -210,6 +212,53 @@ public class HierarchyMapperWithDataTest {
         verifyFetchIsCorrect(expectedResult, range);
     }
 
+    @Test
+    public void indexesMatchFetchedRows() {
+        expand(testData.get(0));
+        expand(testData.get(1));
+        expand(roots.get(2));
+        Node hiddenParent = testData.stream()
+                .filter(n -> n.getParent() == roots.get(3)).findFirst().get();
+        expand(hiddenParent);
+        expand(roots.get(3));
+        collapse(testData.get(0));
+        expand(testData.get(0));
+        checkMapSize();
+
+        List<Node> rows = mapper.fetchItems(Range.between(0, mapSize))
+                .collect(Collectors.toList());
+        assertEquals(mapSize, rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Node node = rows.get(i);
+            assertEquals(Integer.valueOf(i), mapper.getIndexOf(node).get());
+            int parentIndex = rows.indexOf(node.getParent());
+            assertEquals(Integer.valueOf(parentIndex),
+                    mapper.getParentIndex(node));
+            assertEquals(Collections.singletonList(node),
+                    mapper.fetchItems(Range.withLength(i, 1))
+                            .collect(Collectors.toList()));
+        }
+        assertTrue(rows.contains(testData.get(2)));
+        assertTrue(rows.contains(hiddenParent));
+        assertFalse(mapper.getIndexOf(testData.get(
+                testData.indexOf(roots.get(1)) + 2)).isPresent());
+    }
+
+    @Test
+    public void fetchChildrenOfExpandedItem() {
+        expand(testData.get(0));
+        expand(testData.get(1));
+
+        List<Node> children = mapper
+                .fetchItems(testData.get(0), Range.between(0, 100))
+                .collect(Collectors.toList());
+        assertEquals(PARENT_COUNT + LEAF_COUNT, children.size());
+        assertEquals(testData.subList(1, 1 + children.size()), children);
+        assertEquals(testData.subList(3, 5),
+                mapper.fetchItems(testData.get(0), Range.withLength(2, 2))
+                        .collect(Collectors.toList()));
+    }
+
     private void expand(Node node) {
         insertRows(mapper.expand(node, mapper.getIndexOf(node).orElse(null)));
     }
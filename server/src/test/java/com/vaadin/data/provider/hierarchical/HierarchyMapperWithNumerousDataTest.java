@@ -62,6 +62,22 @@ public class HierarchyMapperWithNumerousDataTest {
         checkMapSize();
     }
 
+    /**
+     * Fetching rows and finding indexes should not traverse the whole
+     * hierarchy.
+     */
+    @Test(timeout = 2000)
+    public void fetchAndFindIndexes() {
+        expand(testData.get(0));
+        for (int i = 1; i < PARENT_COUNT; i += 97) {
+            Node node = testData.get(i);
+            assertEquals(node, mapper.fetchItems(Range.withLength(i, 10))
+                    .findFirst().get());
+            assertEquals(Integer.valueOf(i), mapper.getIndexOf(node).get());
+            assertEquals(Integer.valueOf(0), mapper.getParentIndex(node));
+        }
+    }
+
     private void expand(Node node) {
         insertRows(mapper.expand(node, mapper.getIndexOf(node).orElse(null)));
     }
@@ -0,0 +1,153 @@
+package com.vaadin.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.EventObject;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.vaadin.shared.Registration;
+import com.vaadin.util.ReflectTools;
+
+public class EventRouterTest {
+
+    public static class BaseEvent extends EventObject {
+        public BaseEvent(Object source) {
+            super(source);
+        }
+    }
+
+    public static class SubEvent extends BaseEvent {
+        public SubEvent(Object source) {
+            super(source);
+        }
+    }
+
+    public static class Listener implements SerializableEventListener {
+        private static final Method ON_EVENT = ReflectTools
+                .findMethod(Listener.class, "onEvent", BaseEvent.class);
+
+        private final String name;
+        private final List<String> calls;
+
+        public Listener(String name, List<String> calls) {
+            this.name = name;
+            this.calls = calls;
+        }
+
+        public void onEvent(BaseEvent event) {
+            calls.add(name + ":" + event.getClass().getSimpleName());
+        }
+    }
+
+    private final List<String> calls = new ArrayList<>();
+    private final EventRouter router = new EventRouter();
+
+    private Registration add(Class<?> eventType, String name) {
+        return router.addListener(eventType, new Listener(name, calls),
+                Listener.ON_EVENT);
+    }
+
+    @Test
+    public void fireEvent_listenersForSuperTypesCalledInOrder() {
+        add(BaseEvent.class, "a");
+        add(SubEvent.class, "b");
+        add(BaseEvent.class, "c");
+
+        router.fireEvent(new BaseEvent(this));
+        router.fireEvent(new SubEvent(this));
+
+        assertEquals("[a:BaseEvent, c:BaseEvent, a:SubEvent, b:SubEvent, "
+                + "c:SubEvent]", calls.toString());
+    }
+
+    @Test
+    public void fireEvent_listenerAddedByListener_calledForNextEvent() {
+        router.addListener(BaseEvent.class,
+                new Listener("adding", calls) {
+                    @Override
+                    public void onEvent(BaseEvent event) {
+                        super.onEvent(event);
+                        add(BaseEvent.class, "added" + calls.size());
+                    }
+                }, Listener.ON_EVENT);
+
+        router.fireEvent(new BaseEvent(this));
+        assertEquals("[adding:BaseEvent]", calls.toString());
+
+        router.fireEvent(new BaseEvent(this));
+        assertEquals("[adding:BaseEvent, adding:BaseEvent, added1:BaseEvent]",
+                calls.toString());
+    }
+
+    @Test
+    public void registrationRemove_listenerNotCalled() {
+        Registration registration = add(BaseEvent.class, "a");
+        router.fireEvent(new SubEvent(this));
+
+        registration.remove();
+        router.fireEvent(new SubEvent(this));
+        registration.remove();
+
+        assertEquals("[a:SubEvent]", calls.toString());
+        assertFalse(router.hasListeners(BaseEvent.class));
+    }
+
+    @Test
+    public void hasListeners_exactType() {
+        assertFalse(router.hasListeners(BaseEvent.class));
+        add(SubEvent.class, "a");
+        assertTrue(router.hasListeners(SubEvent.class));
+        assertFalse(router.hasListeners(BaseEvent.class));
+
+        router.removeListener(SubEvent.class,
+                router.getListeners(SubEvent.class).iterator().next());
+        assertFalse(router.hasListeners(SubEvent.class));
+
+        add(BaseEvent.class, "b");
+        assertTrue(router.hasListeners(BaseEvent.class));
+        router.removeAllListeners();
+        assertFalse(router.hasListeners(BaseEvent.class));
+        router.fireEvent(new BaseEvent(this));
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test
+    public void serialization_listenersRestored()
+            throws IOException, ClassNotFoundException {
+        add(BaseEvent.class, "a");
+        add(SubEvent.class, "b");
+        router.fireEvent(new SubEvent(this));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(router);
+        }
+        EventRouter copy;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (EventRouter) in.readObject();
+        }
+
+        assertTrue(copy.hasListeners(SubEvent.class));
+        assertFalse(copy.hasListeners(Object.class));
+        copy.fireEvent(new SubEvent(this));
+
+        // The deserialized listeners share a copy of the call list
+        Listener listener = (Listener) copy.getListeners(BaseEvent.class)
+                .iterator().next();
+        assertEquals("[a:SubEvent, b:SubEvent, a:SubEvent, b:SubEvent]",
+                listener.calls.toString());
+        assertEquals("[a:SubEvent, b:SubEvent]", calls.toString());
+    }
+}
@@ -136,5 +136,25 @@ public class AbstractDeploymentConfigurationTest {
             return DefaultDeploymentConfiguration.DEFAULT_SEND_URLS_AS_PARAMETERS;
         }
 
+        @Override
+        public boolean isStreamingUidlEnabled() {
+            return DefaultDeploymentConfiguration.DEFAULT_STREAMING_UIDL;
+        }
+
+        @Override
+        public boolean isSharedSessionLockEnabled() {
+            return DefaultDeploymentConfiguration.DEFAULT_SHARED_SESSION_LOCK;
+        }
+
+        @Override
+        public int getUidlCompressionThreshold() {
+            return DefaultDeploymentConfiguration.DEFAULT_UIDL_COMPRESSION_THRESHOLD;
+        }
+
+        @Override
+        public int getStaticResourceCacheSize() {
+            return DefaultDeploymentConfiguration.DEFAULT_STATIC_RESOURCE_CACHE_SIZE;
+        }
+
     }
 }
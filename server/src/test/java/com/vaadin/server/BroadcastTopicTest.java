@@ -0,0 +1,129 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.vaadin.shared.Registration;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.UIDetachedException;
+
+import elemental.json.JsonValue;
+
+public class BroadcastTopicTest {
+
+    private static class SynchronousUI extends MockUI {
+        private boolean detached;
+
+        public SynchronousUI() {
+            super(new AlwaysLockedVaadinSession(null));
+        }
+
+        @Override
+        public Future<Void> access(Runnable runnable) {
+            if (detached) {
+                throw new UIDetachedException();
+            }
+            runnable.run();
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private List<String> items;
+
+    private final BroadcastTopic<List<String>> topic = new BroadcastTopic<>();
+
+    @Test
+    public void publish_deliveredToSubscribers() {
+        List<Object> received = new ArrayList<>();
+        SynchronousUI ui1 = new SynchronousUI();
+        SynchronousUI ui2 = new SynchronousUI();
+        topic.subscribe(ui1, received::add);
+        Registration registration = topic.subscribe(ui2, received::add);
+        assertEquals(2, topic.getSubscriberCount());
+
+        List<String> value = Arrays.asList("a", "b");
+        topic.publish(value);
+        assertEquals(Arrays.asList(value, value), received);
+        assertSame(value, topic.getValue());
+
+        registration.remove();
+        topic.publish(null);
+        assertEquals(Arrays.asList(value, value, null), received);
+        assertEquals(1, topic.getSubscriberCount());
+    }
+
+    @Test
+    public void publish_detachedUI_subscriptionRemoved() {
+        List<Object> received = new ArrayList<>();
+        SynchronousUI ui = new SynchronousUI();
+        topic.subscribe(ui, received::add);
+
+        ui.detached = true;
+        topic.publish(Arrays.asList("a"));
+
+        assertEquals(0, topic.getSubscriberCount());
+        assertEquals(0, received.size());
+    }
+
+    @Test
+    public void encode_publishedValue_encodedOnce() throws Exception {
+        Type type = getClass().getDeclaredField("items").getGenericType();
+        SynchronousUI ui = new SynchronousUI();
+        topic.subscribe(ui, value -> {
+        });
+        ConnectorTracker tracker = ui.getConnectorTracker();
+        List<String> value = new ArrayList<>(Arrays.asList("a", "b"));
+        topic.publish(value);
+
+        JsonValue encoded = JsonCodec.encode(value, null, type, tracker)
+                .getEncodedValue();
+        assertEquals("[\"a\",\"b\"]", encoded.toJson());
+        assertSame(encoded, JsonCodec.encode(value, null, type, tracker)
+                .getEncodedValue());
+        assertNotSame(encoded,
+                JsonCodec.encode(new ArrayList<>(value), null, type, tracker)
+                        .getEncodedValue());
+
+        topic.publish(Arrays.asList("c"));
+        assertNotSame(encoded, JsonCodec.encode(value, null, type, tracker)
+                .getEncodedValue());
+    }
+
+    @Test
+    public void encode_notSubscribed_notShared() throws Exception {
+        Type type = getClass().getDeclaredField("items").getGenericType();
+        SynchronousUI ui = new SynchronousUI();
+        Registration registration = topic.subscribe(ui, value -> {
+        });
+        List<String> value = Arrays.asList("a", "b");
+        topic.publish(value);
+        registration.remove();
+
+        ConnectorTracker tracker = ui.getConnectorTracker();
+        assertEquals(0, tracker.getBroadcastTopics().size());
+        assertNotSame(
+                JsonCodec.encode(value, null, type, tracker).getEncodedValue(),
+                JsonCodec.encode(value, null, type, tracker)
+                        .getEncodedValue());
+
+        ConnectorTracker otherTracker = new SynchronousUI()
+                .getConnectorTracker();
+        assertNotSame(
+                JsonCodec.encode(value, null, type, otherTracker)
+                        .getEncodedValue(),
+                JsonCodec.encode(value, null, type, otherTracker)
+                        .getEncodedValue());
+    }
+}
@@ -33,6 +33,8 @@ public class ConnectorResourceHandlerTest {
                 .andReturn("/APP/connector/0/1/2");
         EasyMock.expect(request.getParameter("v-loc"))
                 .andReturn("http://localhost/");
+        EasyMock.expect(service.getDeploymentConfiguration()).andReturn(dc)
+                .anyTimes();
 
         control.replay();
 
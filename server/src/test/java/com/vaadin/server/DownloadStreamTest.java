@@ -1,15 +1,34 @@
 package com.vaadin.server;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.contains;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.vaadin.server.DownloadStream.ByteRange;
 
 public class DownloadStreamTest {
     private String filename = "A å日.png";
@@ -17,11 +36,44 @@ public class DownloadStreamTest {
             + "%c3%a5" // å
             + "%e6%97%a5" // 日
             + ".png";
+    private static final byte[] DATA = "0123456789abcdefghij"
+            .getBytes(US_ASCII);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private DownloadStream stream;
+    private VaadinRequest request;
+    private VaadinResponse response;
+    private ByteArrayOutputStream output;
 
     @Before
-    public void setup() {
+    public void setup() throws IOException {
         stream = new DownloadStream(mock(InputStream.class), "", filename);
+
+        request = mock(VaadinRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        response = mock(VaadinResponse.class);
+        output = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(output);
+    }
+
+    private DownloadStream createStreamWithLength() {
+        DownloadStream stream = new DownloadStream(
+                new ByteArrayInputStream(DATA), "text/plain", "data.txt");
+        stream.setParameter("Content-Length", String.valueOf(DATA.length));
+        return stream;
+    }
+
+    private DownloadStream createFileStream() throws IOException {
+        File file = folder.newFile("data.txt");
+        Files.write(file.toPath(), DATA);
+        return new DownloadStream(new FileInputStream(file), "text/plain",
+                "data.txt");
+    }
+
+    private void setRange(String range) {
+        when(request.getHeader("Range")).thenReturn(range);
     }
 
     @Test
@@ -36,4 +88,110 @@ public class DownloadStreamTest {
                 contains(
                         String.format("filename*=utf-8''%s", encodedFileName)));
     }
+
+    @Test
+    public void noRange_writesEverything() throws IOException {
+        createStreamWithLength().writeResponse(request, response);
+
+        assertEquals("0123456789abcdefghij", output.toString("US-ASCII"));
+        verify(response).setHeader("Accept-Ranges", "bytes");
+        verify(response, never()).setStatus(Mockito.anyInt());
+    }
+
+    @Test
+    public void singleRange() throws IOException {
+        setRange("bytes=2-5");
+
+        createStreamWithLength().writeResponse(request, response);
+
+        assertEquals("2345", output.toString("US-ASCII"));
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(response).setHeader("Content-Range", "bytes 2-5/20");
+        verify(response).setHeader("Content-Length", "4");
+    }
+
+    @Test
+    public void singleRange_file() throws IOException {
+        setRange("bytes=-3");
+
+        createFileStream().writeResponse(request, response);
+
+        assertEquals("hij", output.toString("US-ASCII"));
+        verify(response).setHeader("Content-Range", "bytes 17-19/20");
+    }
+
+    @Test
+    public void multipleRanges() throws IOException {
+        setRange("bytes=0-1, 4-5, 1-2, 18-");
+
+        createFileStream().writeResponse(request, response);
+
+        String body = output.toString("US-ASCII");
+        assertTrue(body.contains(
+                "Content-Range: bytes 0-2/20\r\n\r\n012\r\n"));
+        assertTrue(body.contains(
+                "Content-Range: bytes 4-5/20\r\n\r\n45\r\n"));
+        assertTrue(body.contains("Content-Range: bytes 18-19/20\r\n\r\nij\r\n"));
+        verify(response).setHeader("Content-Length",
+                String.valueOf(output.size()));
+        verify(response).setContentType(
+                contains("multipart/byteranges; boundary="));
+    }
+
+    @Test
+    public void unsatisfiableRange() throws IOException {
+        setRange("bytes=20-");
+
+        createStreamWithLength().writeResponse(request, response);
+
+        assertEquals(0, output.size());
+        verify(response).setStatus(
+                HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        verify(response).setHeader("Content-Range", "bytes */20");
+    }
+
+    @Test
+    public void ifRangeNotMatching_writesEverything() throws IOException {
+        setRange("bytes=2-5");
+        when(request.getHeader("If-Range")).thenReturn("\"old\"");
+        DownloadStream stream = createStreamWithLength();
+        stream.setParameter("ETag", "\"new\"");
+
+        stream.writeResponse(request, response);
+        assertEquals(DATA.length, output.size());
+
+        output.reset();
+        when(request.getHeader("If-Range")).thenReturn("\"new\"");
+        stream = createStreamWithLength();
+        stream.setParameter("ETag", "\"new\"");
+        stream.writeResponse(request, response);
+        assertEquals("2345", output.toString("US-ASCII"));
+    }
+
+    @Test
+    public void unknownLength_rangeIgnored() throws IOException {
+        setRange("bytes=2-5");
+
+        new DownloadStream(new ByteArrayInputStream(DATA), "text/plain",
+                "data.txt").writeResponse(request, response);
+
+        assertEquals(DATA.length, output.size());
+        verify(response, never()).setHeader(eq("Accept-Ranges"),
+                Mockito.anyString());
+    }
+
+    @Test
+    public void parseRanges() {
+        assertNull(DownloadStream.parseRanges("items=0-1", 20));
+        assertNull(DownloadStream.parseRanges("bytes=5-2", 20));
+        assertNull(DownloadStream.parseRanges("bytes=a-", 20));
+        assertTrue(DownloadStream.parseRanges("bytes=-0", 20).isEmpty());
+
+        List<ByteRange> ranges = DownloadStream
+                .parseRanges("bytes=10-12,0-3,2-4,-2", 20);
+        assertEquals(3, ranges.size());
+        assertEquals("bytes 0-4/20", ranges.get(0).getContentRange(20));
+        assertEquals("bytes 10-12/20", ranges.get(1).getContentRange(20));
+        assertEquals("bytes 18-19/20", ranges.get(2).getContentRange(20));
+    }
 }
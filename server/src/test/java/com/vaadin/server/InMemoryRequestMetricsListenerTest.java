@@ -0,0 +1,103 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.vaadin.server.InMemoryRequestMetricsListener.Histogram;
+import com.vaadin.server.RequestMetrics.Phase;
+
+public class InMemoryRequestMetricsListenerTest {
+
+    @Test
+    public void histogram_bucketsByPowerOfTwo() {
+        Histogram histogram = new Histogram();
+        histogram.record(0);
+        histogram.record(1);
+        histogram.record(2);
+        histogram.record(3);
+        histogram.record(4);
+        histogram.record(5);
+
+        assertEquals(2, histogram.getBucketCount(0));
+        assertEquals(1, histogram.getBucketCount(1));
+        assertEquals(2, histogram.getBucketCount(2));
+        assertEquals(1, histogram.getBucketCount(3));
+        assertEquals(8, Histogram.getBucketUpperBound(3));
+        assertEquals(6, histogram.getCount());
+        assertEquals(15, histogram.getSum());
+        assertEquals(5, histogram.getMax());
+        assertEquals(2.5, histogram.getMean(), 0.0001);
+    }
+
+    @Test
+    public void histogram_largeValuesInLastBucket() {
+        Histogram histogram = new Histogram();
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(1,
+                histogram.getBucketCount(Histogram.BUCKET_COUNT - 1));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void histogram_percentile() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(1, histogram.getPercentile(1));
+        assertEquals(64, histogram.getPercentile(50));
+        // Limited by the largest recorded value
+        assertEquals(100, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void histogram_reset() {
+        Histogram histogram = new Histogram();
+        histogram.record(100);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void histogram_invalidPercentile() {
+        new Histogram().getPercentile(101);
+    }
+
+    @Test
+    public void requestHandled_recordsAllMetrics() {
+        RequestMetrics metrics = new RequestMetrics();
+        metrics.addPhaseNanos(Phase.RPC_HANDLING, 1000);
+        metrics.addPhaseNanos(Phase.STATE_ENCODING, 300);
+        metrics.addPhaseNanos(Phase.STATE_ENCODING, 200);
+        metrics.setLockWaitNanos(50);
+        metrics.setTotalNanos(2000);
+        metrics.setDirtyConnectorCount(7);
+        metrics.setBytesWritten(4096);
+
+        InMemoryRequestMetricsListener listener = new InMemoryRequestMetricsListener();
+        listener.requestHandled(metrics);
+        listener.requestHandled(metrics);
+
+        assertEquals(2000, listener.getPhaseTimeHistogram(Phase.RPC_HANDLING)
+                .getSum());
+        assertEquals(1000, listener
+                .getPhaseTimeHistogram(Phase.STATE_ENCODING).getSum());
+        assertEquals(2, listener.getPhaseTimeHistogram(Phase.RESPONSE_WRITE)
+                .getCount());
+        assertEquals(0, listener.getPhaseTimeHistogram(Phase.RESPONSE_WRITE)
+                .getMax());
+        assertEquals(50, listener.getLockWaitTimeHistogram().getMax());
+        assertEquals(4000, listener.getTotalTimeHistogram().getSum());
+        assertEquals(7, listener.getDirtyConnectorCountHistogram().getMax());
+        assertEquals(8192, listener.getBytesWrittenHistogram().getSum());
+
+        listener.reset();
+        assertEquals(0, listener.getTotalTimeHistogram().getCount());
+    }
+}
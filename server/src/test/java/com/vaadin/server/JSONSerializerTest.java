@@ -1,5 +1,7 @@
 package com.vaadin.server;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -17,6 +19,7 @@ import com.vaadin.shared.ui.splitpanel.AbstractSplitPanelState;
 import elemental.json.Json;
 import elemental.json.JsonArray;
 import elemental.json.JsonException;
+import elemental.json.JsonObject;
 import elemental.json.JsonValue;
 
 /**
@@ -89,6 +92,60 @@ public class JSONSerializerTest {
                 .decodeInternalType(UidlValue.class, true, inputArray, null);
     }
 
+    @Test
+    public void testStateDiffContainsOnlyChangedProperties() {
+        AbstractSplitPanelState state = new AbstractSplitPanelState();
+        state.caption = "Caption";
+        state.width = "100px";
+        state.splitterState.position = 50;
+
+        JsonObject reference = (JsonObject) JsonCodec
+                .encode(state, null, AbstractSplitPanelState.class, null)
+                .getEncodedValue();
+
+        state.caption = "Changed";
+        state.captionAsHtml = true;
+        state.splitterState.position = 25;
+
+        EncodeResult result = JsonCodec.encode(state, reference,
+                AbstractSplitPanelState.class, null);
+        JsonObject diff = (JsonObject) result.getDiff();
+
+        assertEquals("Changed", diff.getString("caption"));
+        assertTrue(diff.getBoolean("captionAsHtml"));
+        assertEquals(25, diff.getObject("splitterState").getNumber("position"),
+                0);
+        assertFalse(diff.hasKey("width"));
+        assertFalse(diff.hasKey("enabled"));
+
+        // Unchanged values are reused from the reference
+        JsonObject encoded = (JsonObject) result.getEncodedValue();
+        assertTrue(encoded.get("width") == reference.get("width"));
+    }
+
+    @Test
+    public void testStateDiffNullString() {
+        AbstractSplitPanelState state = new AbstractSplitPanelState();
+        state.caption = "Caption";
+        JsonObject reference = (JsonObject) JsonCodec
+                .encode(state, null, AbstractSplitPanelState.class, null)
+                .getEncodedValue();
+
+        state.caption = null;
+        JsonObject diff = (JsonObject) JsonCodec
+                .encode(state, reference, AbstractSplitPanelState.class, null)
+                .getDiff();
+        assertTrue(diff.hasKey("caption"));
+
+        reference = (JsonObject) JsonCodec
+                .encode(state, null, AbstractSplitPanelState.class, null)
+                .getEncodedValue();
+        diff = (JsonObject) JsonCodec
+                .encode(state, reference, AbstractSplitPanelState.class, null)
+                .getDiff();
+        assertFalse(diff.hasKey("caption"));
+    }
+
     private void ensureDecodedCorrectly(Object original, JsonValue encoded,
             Type type) throws Exception {
         Object serverSideDecoded = JsonCodec.decodeInternalOrCustomType(type,
@@ -0,0 +1,132 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.vaadin.server.ServerRpcManager.RpcInvocationException;
+import com.vaadin.shared.communication.ServerRpc;
+import com.vaadin.shared.data.DataRequestRpc;
+import com.vaadin.shared.ui.textfield.AbstractTextFieldServerRpc;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+
+public class ServerRpcMethodInvocationTest {
+
+    public interface OverloadedRpc extends ServerRpc {
+        public void call(String value);
+
+        public void call(List<String> values, boolean flag);
+    }
+
+    private final List<Object> calls = new ArrayList<>();
+
+    private static JsonArray parse(String json) {
+        return Json.instance().parse(json);
+    }
+
+    private <T extends ServerRpc> void apply(T implementation,
+            Class<T> rpcInterface, String methodName, String json)
+            throws RpcInvocationException {
+        JsonArray parameters = parse(json);
+        ServerRpcMethodInvocation invocation = new ServerRpcMethodInvocation(
+                "1", rpcInterface, methodName, parameters.length());
+        invocation.decodeParameters(parameters, null);
+        new ServerRpcManager<>(implementation, rpcInterface)
+                .applyInvocation(invocation);
+    }
+
+    @Test
+    public void primitiveParameters() throws RpcInvocationException {
+        apply(new DataRequestRpc() {
+            @Override
+            public void requestRows(int firstRowIndex, int numberOfRows,
+                    int firstCachedRowIndex, int cacheSize) {
+                calls.addAll(Arrays.asList(firstRowIndex, numberOfRows,
+                        firstCachedRowIndex, cacheSize));
+            }
+
+            @Override
+            public void dropRows(JsonArray rowKeys) {
+                calls.add(rowKeys.toJson());
+            }
+        }, DataRequestRpc.class, "requestRows", "[10, 20, 0, 40]");
+
+        assertEquals(Arrays.asList(10, 20, 0, 40), calls);
+    }
+
+    @Test
+    public void stringAndIntParameters() throws RpcInvocationException {
+        apply((text, cursorPosition) -> {
+            calls.add(text);
+            calls.add(cursorPosition);
+        }, AbstractTextFieldServerRpc.class, "setText", "[\"foo\", 3]");
+        apply((text, cursorPosition) -> calls.add(text),
+                AbstractTextFieldServerRpc.class, "setText", "[null, 0]");
+
+        assertEquals(Arrays.asList("foo", 3, null), calls);
+    }
+
+    @Test
+    public void overloadsWithDifferentParameterCounts()
+            throws RpcInvocationException {
+        OverloadedRpc rpc = new OverloadedRpc() {
+            @Override
+            public void call(String value) {
+                calls.add(value);
+            }
+
+            @Override
+            public void call(List<String> values, boolean flag) {
+                calls.add(values);
+                calls.add(flag);
+            }
+        };
+
+        apply(rpc, OverloadedRpc.class, "call", "[\"a\"]");
+        apply(rpc, OverloadedRpc.class, "call", "[[\"b\", \"c\"], true]");
+        apply(rpc, OverloadedRpc.class, "call", "[\"d\"]");
+
+        assertEquals(Arrays.asList("a", Arrays.asList("b", "c"), true, "d"),
+                calls);
+    }
+
+    @Test
+    public void exceptionWrapped() {
+        IllegalStateException exception = new IllegalStateException();
+        try {
+            apply((text, cursorPosition) -> {
+                throw exception;
+            }, AbstractTextFieldServerRpc.class, "setText", "[\"foo\", 1]");
+            fail();
+        } catch (RpcInvocationException e) {
+            assertSame(exception,
+                    DefaultErrorHandler.findRelevantThrowable(e));
+        }
+    }
+
+    @Test
+    public void decodersMatchGenericDecoding() {
+        JsonArray values = parse("[1.5, 7, true, \"x\", null]");
+        Class<?>[] types = { double.class, Integer.class, boolean.class,
+                String.class, Long.class };
+        Object[] decoded = new Object[types.length];
+        Object[] expected = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            decoded[i] = JsonCodec.getDecoder(types[i]).decode(values.get(i),
+                    null);
+            expected[i] = JsonCodec.decodeInternalOrCustomType(types[i],
+                    values.get(i), null);
+        }
+        assertArrayEquals(expected, decoded);
+        assertArrayEquals(new Object[] { 1.5, 7, true, "x", null }, decoded);
+    }
+}
@@ -0,0 +1,188 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.shared.communication.SharedState;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.AbstractComponent;
+import com.vaadin.ui.UI;
+
+import elemental.json.JsonObject;
+
+public class StatePropertyTrackingTest {
+
+    public static class TrackedState extends SharedState {
+        public String caption;
+        public String width;
+    }
+
+    public static class TrackedExtension extends AbstractExtension {
+        public void extend(UI ui) {
+            super.extend(ui);
+        }
+
+        public void setTrackedCaption(String caption) {
+            getState(false).caption = caption;
+            markStatePropertiesDirty("caption");
+        }
+
+        public void setUntrackedWidth(String width) {
+            getState(false).width = width;
+        }
+
+        @Override
+        public TrackedState getState() {
+            return (TrackedState) super.getState();
+        }
+
+        @Override
+        public TrackedState getState(boolean markAsDirty) {
+            return (TrackedState) super.getState(markAsDirty);
+        }
+    }
+
+    public static class UpdatingExtension extends TrackedExtension {
+        @Override
+        public void beforeClientResponse(boolean initial) {
+            super.beforeClientResponse(initial);
+            // Like framework code writing directly to the state
+            getState(false).width = "100px";
+        }
+    }
+
+    public static class TrackedComponent extends AbstractComponent {
+        public void setTrackedCaption(String caption) {
+            getState(false).caption = caption;
+            markStatePropertiesDirty("caption");
+        }
+
+        public void setUntrackedWidth(String width) {
+            // Like beforeClientResponse in AbstractComponent
+            getState(false).width = width;
+        }
+    }
+
+    private UI ui;
+    private TrackedExtension extension;
+
+    @Before
+    public void setUp() {
+        ui = new MockUI();
+        extension = createExtension(new TrackedExtension());
+    }
+
+    private <T extends TrackedExtension> T createExtension(T extension) {
+        extension.extend(ui);
+        // Initial full encoding
+        extension.encodeState();
+        ui.getConnectorTracker().markAllConnectorsClean();
+        return extension;
+    }
+
+    @Test
+    public void trackedChange_onlyMarkedPropertyEncoded() {
+        extension.setTrackedCaption("Caption");
+
+        assertTrue(ui.getConnectorTracker().isDirty(extension));
+        JsonObject diff = extension.encodeState();
+        assertEquals(1, diff.keys().length);
+        assertEquals("Caption", diff.getString("caption"));
+
+        // Diff state is updated for the encoded property
+        assertEquals("Caption", ui.getConnectorTracker()
+                .getDiffState(extension).getString("caption"));
+    }
+
+    @Test
+    public void trackedChangeToSameValue_notEncoded() {
+        extension.setTrackedCaption("Caption");
+        extension.encodeState();
+
+        extension.setTrackedCaption("Caption");
+        assertEquals(0, extension.encodeState().keys().length);
+    }
+
+    @Test(expected = AssertionError.class)
+    public void untrackedChange_detected() {
+        extension.setTrackedCaption("Caption");
+        extension.setUntrackedWidth("100px");
+
+        extension.encodeState();
+    }
+
+    @Test
+    public void getStateAfterTrackedChange_fullStateEncoded() {
+        extension.setTrackedCaption("Caption");
+        extension.setUntrackedWidth("100px");
+        extension.getState();
+
+        JsonObject diff = extension.encodeState();
+        assertEquals("Caption", diff.getString("caption"));
+        assertEquals("100px", diff.getString("width"));
+    }
+
+    @Test
+    public void markAsDirtyBeforeTrackedChange_fullStateEncoded() {
+        extension.setUntrackedWidth("100px");
+        extension.markAsDirty();
+        extension.setTrackedCaption("Caption");
+
+        JsonObject diff = extension.encodeState();
+        assertEquals("Caption", diff.getString("caption"));
+        assertEquals("100px", diff.getString("width"));
+    }
+
+    @Test
+    public void beforeClientResponseOverridden_fullStateEncoded() {
+        UpdatingExtension updating = createExtension(new UpdatingExtension());
+        updating.setTrackedCaption("Caption");
+        updating.beforeClientResponse(false);
+
+        JsonObject diff = updating.encodeState();
+        assertEquals("Caption", diff.getString("caption"));
+        assertEquals("100px", diff.getString("width"));
+    }
+
+    @Test
+    public void component_fullStateEncoded() {
+        TrackedComponent component = new TrackedComponent();
+        ui.setContent(component);
+        component.encodeState();
+        ui.getConnectorTracker().markAllConnectorsClean();
+        component.setTrackedCaption("Caption");
+        component.setUntrackedWidth("100px");
+
+        JsonObject diff = component.encodeState();
+        assertEquals("Caption", diff.getString("caption"));
+        assertEquals("100px", diff.getString("width"));
+    }
+
+    @Test
+    public void trackingResetAfterEncode() {
+        extension.getState();
+        extension.encodeState();
+
+        extension.setTrackedCaption("Caption");
+        JsonObject diff = extension.encodeState();
+        assertEquals(1, diff.keys().length);
+        assertFalse(diff.hasKey("width"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownProperty_throws() {
+        TrackedExtension misbehaving = createExtension(new TrackedExtension() {
+            @Override
+            public void setTrackedCaption(String caption) {
+                markStatePropertiesDirty("noSuchProperty");
+            }
+        });
+
+        misbehaving.setTrackedCaption("Caption");
+        misbehaving.encodeState();
+    }
+}
@@ -0,0 +1,179 @@
+package com.vaadin.server;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+public class StaticResourceCacheTest {
+
+    private static final String CSS = String.join("\n",
+            Collections.nCopies(100, ".v-app { color: red; }"));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private URL cssUrl;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private ByteArrayOutputStream output;
+
+    @Before
+    public void setUp() throws IOException {
+        File css = new File(folder.newFolder("VAADIN"), "styles.css");
+        Files.write(css.toPath(), CSS.getBytes(UTF_8));
+        cssUrl = css.toURI().toURL();
+
+        request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getDateHeader(Mockito.anyString()))
+                .thenReturn(-1L);
+        response = Mockito.mock(HttpServletResponse.class);
+        output = new ByteArrayOutputStream();
+        Mockito.when(response.getOutputStream())
+                .thenReturn(new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        output.write(b);
+                    }
+                });
+    }
+
+    private StaticResourceCache.Entry load(StaticResourceCache cache)
+            throws IOException {
+        return cache.load(cssUrl, "text/css");
+    }
+
+    @Test
+    public void writeUncompressed() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(1024 * 1024);
+        StaticResourceCache.Entry entry = load(cache);
+
+        cache.write(entry, request, response);
+
+        assertArrayEquals(CSS.getBytes(UTF_8), output.toByteArray());
+        Mockito.verify(response).setHeader("ETag", entry.getETag(null));
+        Mockito.verify(response).setHeader("Vary", "Accept-Encoding");
+        Mockito.verify(response).setContentType("text/css");
+        Mockito.verify(response).setContentLength(CSS.length());
+        Mockito.verify(response, Mockito.never())
+                .setHeader(Mockito.eq("Content-Encoding"), Mockito.anyString());
+    }
+
+    @Test
+    public void writeGzipCreatedOnLoad() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(1024 * 1024);
+        StaticResourceCache.Entry entry = load(cache);
+        Mockito.when(request.getHeader("Accept-Encoding"))
+                .thenReturn("gzip, deflate");
+
+        cache.write(entry, request, response);
+
+        byte[] gzip = entry.getContent(StaticResourceCache.GZIP);
+        assertTrue(gzip.length < CSS.length());
+        assertArrayEquals(gzip, output.toByteArray());
+        Mockito.verify(response).setHeader("Content-Encoding", "gzip");
+        Mockito.verify(response).setHeader("ETag",
+                entry.getETag(StaticResourceCache.GZIP));
+        assertNotEquals(entry.getETag(null),
+                entry.getETag(StaticResourceCache.GZIP));
+    }
+
+    @Test
+    public void precompressedVariantsPreferred() throws IOException {
+        byte[] brotli = { 1, 2, 3 };
+        Files.write(new File(cssUrl.getPath() + ".br").toPath(), brotli);
+        StaticResourceCache cache = new StaticResourceCache(1024 * 1024);
+        StaticResourceCache.Entry entry = load(cache);
+        Mockito.when(request.getHeader("Accept-Encoding"))
+                .thenReturn("gzip, br");
+
+        cache.write(entry, request, response);
+
+        assertArrayEquals(brotli, output.toByteArray());
+        Mockito.verify(response).setHeader("Content-Encoding", "br");
+    }
+
+    @Test
+    public void ifNoneMatch_notModified() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(1024 * 1024);
+        StaticResourceCache.Entry entry = load(cache);
+        Mockito.when(request.getHeader("If-None-Match"))
+                .thenReturn("\"other\", W/" + entry.getETag(null));
+
+        cache.write(entry, request, response);
+
+        Mockito.verify(response)
+                .setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals(0, output.size());
+    }
+
+    @Test
+    public void ifNoneMatchOtherEncoding_modified() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(1024 * 1024);
+        StaticResourceCache.Entry entry = load(cache);
+        Mockito.when(request.getHeader("If-None-Match"))
+                .thenReturn(entry.getETag(StaticResourceCache.GZIP));
+
+        cache.write(entry, request, response);
+
+        Mockito.verify(response, Mockito.never()).setStatus(Mockito.anyInt());
+        assertEquals(CSS.length(), output.size());
+    }
+
+    @Test
+    public void ifModifiedSince_notModified() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(1024 * 1024);
+        StaticResourceCache.Entry entry = load(cache);
+        Mockito.when(request.getDateHeader("If-Modified-Since"))
+                .thenReturn(System.currentTimeMillis());
+
+        cache.write(entry, request, response);
+
+        Mockito.verify(response)
+                .setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    }
+
+    @Test
+    public void sizeIsBounded() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(CSS.length() * 2);
+        StaticResourceCache.Entry entry = load(cache);
+
+        assertTrue(cache.put("/VAADIN/styles.css", entry));
+        assertFalse(cache.put("/VAADIN/other.css", entry));
+        assertNotNull(cache.get("/VAADIN/styles.css"));
+        assertNull(cache.get("/VAADIN/other.css"));
+        assertEquals(entry.getSize(), cache.getSize());
+
+        assertNull(new StaticResourceCache(10).load(cssUrl, "text/css"));
+    }
+
+    @Test
+    public void matchesETag() {
+        assertTrue(StaticResourceCache.matchesETag("*", "\"abc\""));
+        assertTrue(StaticResourceCache.matchesETag("\"x\" , \"abc\"",
+                "\"abc\""));
+        assertTrue(StaticResourceCache.matchesETag("W/\"abc\"", "\"abc\""));
+        assertFalse(StaticResourceCache.matchesETag("\"abcd\"", "\"abc\""));
+    }
+}
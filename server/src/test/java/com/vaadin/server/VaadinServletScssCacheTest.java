@@ -0,0 +1,158 @@
+package com.vaadin.server;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+public class VaadinServletScssCacheTest {
+
+    private static final String CSS_FILE = "/VAADIN/themes/test/styles.css";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private File scssFile;
+    private final CountDownLatch compileStarted = new CountDownLatch(1);
+    private CountDownLatch releaseCompile = new CountDownLatch(0);
+    private final AtomicInteger compilations = new AtomicInteger();
+    private VaadinServlet servlet;
+
+    @Before
+    public void setUp() throws IOException, ServletException {
+        File themeFolder = new File(folder.getRoot(), "VAADIN/themes/test");
+        assertTrue(themeFolder.mkdirs());
+        scssFile = new File(themeFolder, "styles.scss");
+        Files.write(scssFile.toPath(),
+                ".v-app { color: red; }".getBytes(UTF_8));
+
+        ServletContext context = new MockServletContext() {
+            @Override
+            public String getRealPath(String path) {
+                return new File(folder.getRoot(), path).getPath();
+            }
+        };
+        servlet = new VaadinServlet() {
+            @Override
+            public ServletContext getServletContext() {
+                return context;
+            }
+
+            @Override
+            public URL findResourceURL(String filename) throws IOException {
+                File file = new File(folder.getRoot(), filename);
+                return file.exists() ? file.toURI().toURL() : null;
+            }
+
+            @Override
+            ScssCacheEntry compileScssOnTheFly(String filename,
+                    String scssFilename, ServletContext sc)
+                    throws IOException {
+                compilations.incrementAndGet();
+                compileStarted.countDown();
+                try {
+                    releaseCompile.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                String realFilename = sc.getRealPath(scssFilename);
+                // Stands in for the compiler, which would list the imports
+                String css = new String(
+                        Files.readAllBytes(new File(realFilename).toPath()),
+                        UTF_8);
+                return new ScssCacheEntry(realFilename, css,
+                        Collections.singletonList(realFilename));
+            }
+        };
+        servlet.init(new MockServletConfig());
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private String requestCss() throws IOException, ServletException {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        HttpServletResponse response = Mockito
+                .mock(HttpServletResponse.class);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Mockito.when(response.getOutputStream())
+                .thenReturn(new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        output.write(b);
+                    }
+                });
+        servlet.serveStaticResourcesInVAADIN(CSS_FILE, request, response);
+        return output.toString(UTF_8.name());
+    }
+
+    @Test
+    public void concurrentRequests_compiledOnce() throws Exception {
+        releaseCompile = new CountDownLatch(1);
+
+        List<Future<String>> responses = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            responses.add(executor.submit(this::requestCss));
+        }
+        assertTrue(compileStarted.await(5, TimeUnit.SECONDS));
+        releaseCompile.countDown();
+
+        for (Future<String> response : responses) {
+            assertEquals(".v-app { color: red; }",
+                    response.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, compilations.get());
+    }
+
+    @Test
+    public void touchedSource_recompiledOnlyWhenContentChanges()
+            throws Exception {
+        assertEquals(".v-app { color: red; }", requestCss());
+        assertEquals(".v-app { color: red; }", requestCss());
+        assertEquals(1, compilations.get());
+
+        // Same content with a new timestamp, the hash still matches
+        assertTrue(scssFile.setLastModified(
+                scssFile.lastModified() + TimeUnit.SECONDS.toMillis(10)));
+        assertEquals(".v-app { color: red; }", requestCss());
+        assertEquals(1, compilations.get());
+
+        Files.write(scssFile.toPath(),
+                ".v-app { color: blue; }".getBytes(UTF_8));
+        assertTrue(scssFile.setLastModified(
+                scssFile.lastModified() + TimeUnit.SECONDS.toMillis(20)));
+        assertEquals(".v-app { color: blue; }", requestCss());
+        assertEquals(2, compilations.get());
+    }
+}
@@ -0,0 +1,166 @@
+package com.vaadin.server;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Properties;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import com.vaadin.util.EncodeUtil;
+
+public class VaadinServletStaticResourceCacheTest {
+
+    private static final String CSS = String.join("\n",
+            Collections.nCopies(100, ".v-app { color: red; }"));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File vaadinFolder;
+    private VaadinServlet servlet;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private ByteArrayOutputStream output;
+
+    @Before
+    public void setUp() throws IOException {
+        vaadinFolder = folder.newFolder("VAADIN");
+        writeFile("styles.css", CSS.getBytes(UTF_8));
+        resetRequest();
+    }
+
+    private void initServlet(int cacheSize) throws ServletException {
+        servlet = new VaadinServlet() {
+            @Override
+            public URL findResourceURL(String filename) throws IOException {
+                File file = new File(folder.getRoot(), filename);
+                return file.exists() ? file.toURI().toURL() : null;
+            }
+        };
+        Properties initParameters = new Properties();
+        initParameters.setProperty(
+                Constants.SERVLET_PARAMETER_STATIC_RESOURCE_CACHE_SIZE,
+                String.valueOf(cacheSize));
+        servlet.init(new MockServletConfig(initParameters));
+    }
+
+    private void writeFile(String name, byte[] content) throws IOException {
+        Files.write(new File(vaadinFolder, name).toPath(), content);
+    }
+
+    private void resetRequest() throws IOException {
+        request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getDateHeader(Mockito.anyString()))
+                .thenReturn(-1L);
+        response = Mockito.mock(HttpServletResponse.class);
+        output = new ByteArrayOutputStream();
+        Mockito.when(response.getOutputStream())
+                .thenReturn(new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        output.write(b);
+                    }
+                });
+    }
+
+    private void serve(String filename) throws IOException, ServletException {
+        servlet.serveStaticResourcesInVAADIN(filename, request, response);
+    }
+
+    private String getETag() {
+        ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+        Mockito.verify(response).setHeader(Mockito.eq("ETag"),
+                etag.capture());
+        return etag.getValue();
+    }
+
+    @Test
+    public void cachedResource_servedWithETagAndRevalidated()
+            throws Exception {
+        initServlet(1024 * 1024);
+
+        serve("/VAADIN/styles.css");
+        assertEquals(CSS, output.toString(UTF_8.name()));
+        String etag = getETag();
+
+        // Served from the cache even though the file is gone
+        new File(vaadinFolder, "styles.css").delete();
+        resetRequest();
+        serve("/VAADIN/styles.css");
+        assertEquals(CSS, output.toString(UTF_8.name()));
+        assertEquals(etag, getETag());
+
+        resetRequest();
+        Mockito.when(request.getHeader("If-None-Match")).thenReturn(etag);
+        serve("/VAADIN/styles.css");
+        Mockito.verify(response)
+                .setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertEquals(0, output.size());
+    }
+
+    @Test
+    public void acceptEncoding_selectsPrecompressedVariant() throws Exception {
+        byte[] gzipped = EncodeUtil.gzip(CSS.getBytes(UTF_8));
+        writeFile("styles.css.gz", gzipped);
+        initServlet(1024 * 1024);
+
+        Mockito.when(request.getHeader("Accept-Encoding"))
+                .thenReturn("gzip, deflate");
+        serve("/VAADIN/styles.css");
+        Mockito.verify(response).setHeader("Content-Encoding", "gzip");
+        Mockito.verify(response).setHeader("Vary", "Accept-Encoding");
+        assertArrayEquals(gzipped, output.toByteArray());
+        String gzipETag = getETag();
+        assertTrue(gzipETag.endsWith("-gzip\""));
+
+        resetRequest();
+        Mockito.when(request.getHeader("Accept-Encoding"))
+                .thenReturn("gzip;q=0");
+        serve("/VAADIN/styles.css");
+        Mockito.verify(response, Mockito.never())
+                .setHeader(Mockito.eq("Content-Encoding"), Mockito.anyString());
+        assertEquals(CSS, output.toString(UTF_8.name()));
+        assertEquals(gzipETag.replace("-gzip", ""), getETag());
+    }
+
+    @Test
+    public void cacheFull_fallsBackToStreaming() throws Exception {
+        writeFile("other.css", CSS.getBytes(UTF_8));
+        // Room for one of the resources only
+        initServlet(CSS.length() * 3 / 2);
+
+        serve("/VAADIN/styles.css");
+        assertEquals(CSS, output.toString(UTF_8.name()));
+
+        resetRequest();
+        serve("/VAADIN/other.css");
+        assertEquals(CSS, output.toString(UTF_8.name()));
+
+        // The resource that did not fit is read from the file every time
+        writeFile("other.css", "changed".getBytes(UTF_8));
+        resetRequest();
+        serve("/VAADIN/other.css");
+        assertEquals("changed", output.toString(UTF_8.name()));
+        Mockito.verify(response, Mockito.never())
+                .setHeader(Mockito.eq("ETag"), Mockito.anyString());
+    }
+}
@@ -0,0 +1,190 @@
+package com.vaadin.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Exchanger;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class VaadinSessionLockTest {
+
+    private final VaadinSessionLock lock = new VaadinSessionLock();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void sharedLock_heldByManyThreads() throws Exception {
+        CountDownLatch allLocked = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable holder = () -> {
+            lock.lockShared();
+            try {
+                allLocked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlockShared();
+            }
+        };
+        executor.submit(holder);
+        executor.submit(holder);
+
+        assertTrue("Both threads should hold the shared lock",
+                allLocked.await(5, TimeUnit.SECONDS));
+        assertFalse("Exclusive lock should not be available",
+                executor.submit(() -> lock.tryLock()).get());
+
+        release.countDown();
+    }
+
+    @Test
+    public void exclusiveLock_blocksSharedLock() throws Exception {
+        AtomicBoolean exclusiveReleased = new AtomicBoolean();
+        Exchanger<Thread> waitingThread = new Exchanger<>();
+        lock.lock();
+        try {
+            Future<Boolean> shared = executor.submit(() -> {
+                waitingThread.exchange(Thread.currentThread());
+                lock.lockShared();
+                try {
+                    return exclusiveReleased.get();
+                } finally {
+                    lock.unlockShared();
+                }
+            });
+            awaitWaiting(waitingThread.exchange(null, 5, TimeUnit.SECONDS));
+
+            exclusiveReleased.set(true);
+            lock.unlock();
+            assertTrue("Shared lock should be taken only after unlock",
+                    shared.get(5, TimeUnit.SECONDS));
+            assertEquals(1, lock.getContendedSharedAcquisitionCount());
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Test
+    public void exclusiveHolder_canTakeSharedLock() {
+        lock.lock();
+        lock.lockShared();
+        assertTrue(lock.isSharedHeldByCurrentThread());
+        lock.unlockShared();
+        lock.unlock();
+        assertFalse(lock.isLocked());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void sharedHolder_cannotLockExclusively() {
+        lock.lockShared();
+        try {
+            lock.lock();
+        } finally {
+            lock.unlockShared();
+        }
+    }
+
+    @Test
+    public void reentrantExclusiveLock_releasedAfterLastUnlock()
+            throws Exception {
+        lock.lock();
+        lock.lock();
+        lock.unlock();
+        assertFalse(executor.submit(() -> lock.tryLock()).get());
+
+        lock.unlock();
+        assertTrue(executor.submit(() -> {
+            boolean locked = lock.tryLock();
+            lock.unlock();
+            return locked;
+        }).get());
+    }
+
+    @Test
+    public void contendedExclusiveLock_counted() throws Exception {
+        Exchanger<Thread> waitingThread = new Exchanger<>();
+        lock.lock();
+        Future<?> waiting = executor.submit(() -> {
+            waitingThread.exchange(Thread.currentThread());
+            lock.lock();
+            lock.unlock();
+            return null;
+        });
+        awaitWaiting(waitingThread.exchange(null, 5, TimeUnit.SECONDS));
+        lock.unlock();
+        waiting.get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, lock.getExclusiveAcquisitionCount());
+        assertEquals(1, lock.getContendedExclusiveAcquisitionCount());
+        assertTrue(lock.getExclusiveWaitTimeNanos() > 0);
+    }
+
+    @Test
+    public void condition_sharedLockAvailableWhileAwaiting() throws Exception {
+        Condition condition = lock.newCondition();
+        AtomicBoolean signalled = new AtomicBoolean();
+        CountDownLatch locked = new CountDownLatch(1);
+        Future<Integer> waiting = executor.submit(() -> {
+            lock.lock();
+            lock.lock();
+            try {
+                locked.countDown();
+                while (!signalled.get()) {
+                    condition.await();
+                }
+                return lock.getHoldCount();
+            } finally {
+                // Fails if the shared write lock was not taken again
+                lock.unlock();
+                lock.unlock();
+            }
+        });
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        // Only possible once the waiting thread releases the session
+        executor.submit(() -> {
+            lock.lockShared();
+            lock.unlockShared();
+        }).get(5, TimeUnit.SECONDS);
+
+        lock.lock();
+        try {
+            signalled.set(true);
+            condition.signal();
+        } finally {
+            lock.unlock();
+        }
+        assertEquals(2, waiting.get(5, TimeUnit.SECONDS).intValue());
+        assertFalse(lock.isLocked());
+    }
+
+    private static void awaitWaiting(Thread thread) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        // Parked on the lock rather than e.g. still in the exchanger
+        while (!(LockSupport
+                .getBlocker(thread) instanceof AbstractQueuedSynchronizer)) {
+            assertTrue("Thread did not start waiting for the lock",
+                    System.nanoTime() < deadline);
+            Thread.yield();
+        }
+    }
+}
@@ -1,17 +1,29 @@
 package com.vaadin.server.communication;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.atmosphere.cpr.AtmosphereResource;
+import org.atmosphere.cpr.Broadcaster;
 import org.easymock.EasyMock;
 import org.junit.Test;
 
 import com.vaadin.server.communication.AtmospherePushConnection.State;
+import com.vaadin.shared.communication.PushMode;
+import com.vaadin.ui.PushConfiguration;
 import com.vaadin.ui.UI;
 
 public class AtmospherePushConnectionTest {
@@ -36,4 +48,192 @@ public class AtmospherePushConnectionTest {
 
         assertEquals(State.DISCONNECTED, connection.getState());
     }
+
+    private static class CoalescingPushConnection
+            extends AtmospherePushConnection {
+        private int scheduled = 0;
+        private Runnable deferredPush;
+        private long nanoTime = 0;
+        private String payload = "";
+        private final List<String> sent = new ArrayList<>();
+
+        public CoalescingPushConnection(UI ui) {
+            super(ui);
+        }
+
+        @Override
+        protected void writeMessage(Writer writer, boolean async)
+                throws IOException {
+            writer.write(payload);
+        }
+
+        @Override
+        protected void sendMessage(String message) {
+            super.sendMessage(message);
+            sent.add(message);
+        }
+
+        @Override
+        Future<?> scheduleDeferredPush(Runnable push, long delayNanos) {
+            scheduled++;
+            deferredPush = push;
+            return new CompletableFuture<>();
+        }
+
+        @Override
+        long nanoTime() {
+            return nanoTime;
+        }
+    }
+
+    private CompletableFuture<Object> message;
+    private int interval;
+    private CoalescingPushConnection connection;
+
+    private CoalescingPushConnection createConnection() {
+        PushConfiguration configuration = EasyMock
+                .createNiceMock(PushConfiguration.class);
+        EasyMock.expect(configuration.getPushCoalescingInterval())
+                .andAnswer(() -> interval).anyTimes();
+        EasyMock.expect(configuration.getPushMode())
+                .andReturn(PushMode.AUTOMATIC).anyTimes();
+        UI ui = EasyMock.createNiceMock(UI.class);
+        EasyMock.expect(ui.getPushConfiguration()).andReturn(configuration)
+                .anyTimes();
+        EasyMock.expect(ui.getPushConnection()).andAnswer(() -> connection)
+                .anyTimes();
+        // Runs the task directly, the session is not locked in the test
+        EasyMock.expect(ui.access(EasyMock.anyObject(Runnable.class)))
+                .andAnswer(() -> {
+                    ((Runnable) EasyMock.getCurrentArguments()[0]).run();
+                    return null;
+                }).anyTimes();
+        ui.push();
+        EasyMock.expectLastCall().andAnswer(() -> {
+            connection.push();
+            return null;
+        }).anyTimes();
+        Broadcaster broadcaster = EasyMock.createNiceMock(Broadcaster.class);
+        EasyMock.expect(broadcaster.broadcast(EasyMock.anyObject(),
+                EasyMock.anyObject(AtmosphereResource.class)))
+                .andAnswer(() -> message).anyTimes();
+        AtmosphereResource resource = EasyMock
+                .createNiceMock(AtmosphereResource.class);
+        EasyMock.expect(resource.getBroadcaster()).andReturn(broadcaster)
+                .anyTimes();
+        EasyMock.replay(configuration, ui, broadcaster, resource);
+
+        connection = new CoalescingPushConnection(ui);
+        connection.connect(resource);
+        return connection;
+    }
+
+    @Test
+    public void coalescingDisabled_pushNotDeferred() {
+        CoalescingPushConnection connection = createConnection();
+        message = new CompletableFuture<>();
+        connection.sendMessage("1");
+
+        assertFalse(connection.deferPush());
+        assertEquals(0, connection.getOutstandingMessageCount());
+        assertEquals(1, connection.getPushedMessageCount());
+        assertEquals(0, connection.getCoalescedPushCount());
+    }
+
+    @Test
+    public void coalescing_pushesWithinIntervalDeferred() {
+        interval = 60000;
+        CoalescingPushConnection connection = createConnection();
+        // Nothing sent yet
+        assertFalse(connection.deferPush());
+
+        message = CompletableFuture.completedFuture(null);
+        connection.sendMessage("1");
+        assertEquals(0, connection.getOutstandingMessageCount());
+
+        assertTrue(connection.deferPush());
+        assertTrue(connection.deferPush());
+        assertEquals(1, connection.scheduled);
+        assertEquals(2, connection.getCoalescedPushCount());
+        assertEquals(1, connection.getPushedMessageCount());
+    }
+
+    @Test
+    public void coalescing_pushesWithinIntervalSentAsOneMessage() {
+        interval = 100;
+        CoalescingPushConnection connection = createConnection();
+        message = CompletableFuture.completedFuture(null);
+
+        connection.payload = "\"syncId\":1";
+        connection.push();
+        connection.nanoTime += TimeUnit.MILLISECONDS.toNanos(10);
+        connection.payload = "\"syncId\":2";
+        connection.push();
+        connection.nanoTime += TimeUnit.MILLISECONDS.toNanos(10);
+        connection.payload = "\"syncId\":3";
+        connection.push();
+
+        // Only the first push is sent within the interval
+        assertEquals(1, connection.sent.size());
+        assertEquals(1, connection.scheduled);
+        assertEquals(2, connection.getCoalescedPushCount());
+
+        // The deferred push sends the latest state once the interval is over
+        connection.nanoTime += TimeUnit.MILLISECONDS.toNanos(80);
+        connection.deferredPush.run();
+
+        assertEquals(2, connection.sent.size());
+        assertEquals("for(;;);[{\"syncId\":1}]", connection.sent.get(0));
+        assertEquals("for(;;);[{\"syncId\":3}]", connection.sent.get(1));
+        assertEquals(2, connection.getPushedMessageCount());
+
+        // A push after the deferred one is deferred again
+        connection.payload = "\"syncId\":4";
+        connection.push();
+        assertEquals(2, connection.sent.size());
+        assertEquals(2, connection.scheduled);
+    }
+
+    @Test
+    public void coalescing_pushDeferredWhileMessageOutstanding() {
+        interval = 1;
+        CoalescingPushConnection connection = createConnection();
+        message = new CompletableFuture<>();
+        connection.sendMessage("1");
+        CompletableFuture<Object> first = message;
+        message = new CompletableFuture<>();
+        connection.sendMessage("2");
+        assertEquals(2, connection.getOutstandingMessageCount());
+
+        first.complete(null);
+        assertEquals(1, connection.getOutstandingMessageCount());
+        assertTrue(connection.deferPush());
+
+        message.complete(null);
+        assertEquals(0, connection.getOutstandingMessageCount());
+    }
+
+    @Test
+    public void push_messagesFramed() {
+        CoalescingPushConnection connection = createConnection();
+        message = CompletableFuture.completedFuture(null);
+        StringBuilder large = new StringBuilder();
+        while (large.length() < 200000) {
+            large.append("\"changes\":[],");
+        }
+
+        connection.payload = "\"syncId\":1";
+        connection.push(true);
+        connection.payload = large.toString();
+        connection.push(true);
+        connection.push(false);
+        connection.payload = "\"syncId\":2";
+        connection.push(true);
+
+        assertEquals(4, connection.sent.size());
+        assertEquals("for(;;);[{\"syncId\":1}]", connection.sent.get(0));
+        assertEquals("for(;;);[{" + large + "}]", connection.sent.get(1));
+        assertEquals(connection.sent.get(1), connection.sent.get(2));
+        assertEquals("for(;;);[{\"syncId\":2}]", connection.sent.get(3));
+    }
 }
@@ -1,22 +1,28 @@
 package com.vaadin.server.communication;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.ServletPortletHelper;
 import com.vaadin.server.StreamVariable;
+import com.vaadin.server.StreamVariable.StreamingStartEvent;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinResponse;
 import com.vaadin.server.VaadinSession;
@@ -150,4 +156,31 @@ public class FileUploadHandlerTest {
 
         verifyZeroInteractions(responseOutput);
     }
+
+    @Test
+    public void multipartContentIsStreamedToReceiver() throws IOException {
+        String content = "line 1\r\nline 2\r\n--almost a boundary";
+        String body = "--bbbb\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"C:\\dir\\file.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n" + content
+                + "\r\n--bbbb--\r\n";
+        when(request.getInputStream())
+                .thenReturn(new ByteArrayInputStream(body.getBytes(UTF_8)));
+        when(request.getHeader("Content-Length"))
+                .thenReturn(String.valueOf(body.length()));
+        when(request.getContentType())
+                .thenReturn("multipart/form-data; boundary=bbbb");
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        when(streamVariable.getOutputStream()).thenReturn(received);
+
+        handler.handleRequest(session, request, response);
+
+        assertEquals(content, new String(received.toByteArray(), UTF_8));
+        ArgumentCaptor<StreamingStartEvent> event = ArgumentCaptor
+                .forClass(StreamingStartEvent.class);
+        verify(streamVariable).streamingStarted(event.capture());
+        assertEquals("file.txt", event.getValue().getFileName());
+        assertEquals("text/plain", event.getValue().getMimeType());
+        assertEquals(content.length(), event.getValue().getContentLength());
+    }
 }
@@ -0,0 +1,70 @@
+package com.vaadin.server.communication;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.impl.JsonUtil;
+
+public class JsonStreamWriterTest {
+
+    private final StringWriter writer = new StringWriter();
+    private final JsonStreamWriter json = new JsonStreamWriter(writer);
+
+    @Test
+    public void emptyObject() throws IOException {
+        json.beginObject().endObject();
+        assertEquals("{}", writer.toString());
+    }
+
+    @Test
+    public void emptyArray() throws IOException {
+        json.beginArray().endArray();
+        assertEquals("[]", writer.toString());
+    }
+
+    @Test
+    public void objectMembers_sameAsStringify() throws IOException {
+        JsonObject value = Json.createObject();
+        value.put("caption", "a \"quoted\" value");
+        value.put("width", 100);
+
+        JsonObject expected = Json.createObject();
+        expected.put("1", value);
+        expected.put("2", "text");
+
+        json.beginObject().name("1").value(value).name("2").value("text")
+                .endObject();
+
+        assertEquals(JsonUtil.stringify(expected), writer.toString());
+    }
+
+    @Test
+    public void nestedArrays_sameAsStringify() throws IOException {
+        JsonArray children = Json.createArray();
+        children.set(0, "2");
+        children.set(1, "3");
+
+        JsonObject expected = Json.createObject();
+        expected.put("1", children);
+        expected.put("4", Json.createArray());
+
+        json.beginObject();
+        json.name("1").beginArray().value("2").value("3").endArray();
+        json.name("4").beginArray().endArray();
+        json.endObject();
+
+        assertEquals(JsonUtil.stringify(expected), writer.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closeWithoutOpen_throws() throws IOException {
+        json.endObject();
+    }
+}
@@ -0,0 +1,109 @@
+package com.vaadin.server.communication;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Set;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.JsonCodec;
+import com.vaadin.server.PaintTarget;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+public class StreamingUidlWriterTest {
+
+    private static UI createUI(boolean streaming) {
+        MockDeploymentConfiguration configuration = new MockDeploymentConfiguration();
+        configuration.setStreamingUidlEnabled(streaming);
+        VaadinService service = Mockito.mock(VaadinService.class);
+        Mockito.when(service.getDeploymentConfiguration())
+                .thenReturn(configuration);
+        VaadinSession session = new AlwaysLockedVaadinSession(service);
+
+        UI ui = new MockUI(session);
+        VerticalLayout layout = new VerticalLayout();
+        for (int i = 0; i < 20; i++) {
+            layout.addComponent(new Label("Label \"" + i + "\""));
+            layout.addComponent(new Button("Button " + i));
+        }
+        layout.addComponent(new VerticalLayout());
+        ui.setContent(layout);
+        return ui;
+    }
+
+    private static JsonValue parse(StringWriter writer) {
+        return JsonUtil.parse(writer.toString());
+    }
+
+    @Test
+    public void sharedState_streamingMatchesTree() throws IOException {
+        StringWriter tree = new StringWriter();
+        Set<String> treeConnectors = new SharedStateWriter()
+                .write(createUI(false), tree);
+
+        StringWriter streamed = new StringWriter();
+        Set<String> streamedConnectors = new SharedStateWriter()
+                .write(createUI(true), streamed);
+
+        assertEquals(treeConnectors, streamedConnectors);
+        assertTrue(JsonCodec.jsonEquals(parse(tree), parse(streamed)));
+    }
+
+    @Test
+    public void connectorTypes_streamingMatchesTree() throws IOException {
+        PaintTarget target = Mockito.mock(PaintTarget.class);
+        Mockito.when(target.getTag(Mockito.any(ClientConnector.class)))
+                .thenAnswer(invocation -> invocation.getArguments()[0]
+                        .getClass().getSimpleName());
+
+        StringWriter tree = new StringWriter();
+        new ConnectorTypeWriter().write(createUI(false), tree, target);
+
+        StringWriter streamed = new StringWriter();
+        new ConnectorTypeWriter().write(createUI(true), streamed, target);
+
+        assertTrue(JsonCodec.jsonEquals(parse(tree), parse(streamed)));
+    }
+
+    @Test
+    public void hierarchy_streamingMatchesTree() throws IOException {
+        UI treeUI = createUI(false);
+        Set<String> treeConnectors = new SharedStateWriter().write(treeUI,
+                new StringWriter());
+        StringWriter tree = new StringWriter();
+        new ConnectorHierarchyWriter().write(treeUI, tree, treeConnectors);
+
+        UI streamedUI = createUI(true);
+        Set<String> streamedConnectors = new SharedStateWriter()
+                .write(streamedUI, new StringWriter());
+        StringWriter streamed = new StringWriter();
+        new ConnectorHierarchyWriter().write(streamedUI, streamed,
+                streamedConnectors);
+
+        assertTrue(JsonCodec.jsonEquals(parse(tree), parse(streamed)));
+    }
+
+    @Test
+    public void rpc_noPendingCalls_writesEmptyArray() throws IOException {
+        StringWriter streamed = new StringWriter();
+        new ClientRpcWriter().write(createUI(true), streamed);
+
+        assertEquals("[]", streamed.toString());
+    }
+}
@@ -0,0 +1,133 @@
+package com.vaadin.server.communication;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.RequestMetrics;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.VaadinService;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
+
+public class UidlCompressionTest {
+
+    private static final String JSON = "for(;;);[{\"changes\":["
+            + String.join(",", Collections.nCopies(200, "\"repeated\""))
+            + "]}]";
+
+    private MockDeploymentConfiguration configuration;
+    private VaadinRequest request;
+    private VaadinResponse response;
+    private ByteArrayOutputStream output;
+
+    @Before
+    public void setUp() throws IOException {
+        configuration = new MockDeploymentConfiguration();
+        VaadinService service = Mockito.mock(VaadinService.class);
+        Mockito.when(service.getDeploymentConfiguration())
+                .thenReturn(configuration);
+        request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getService()).thenReturn(service);
+        response = Mockito.mock(VaadinResponse.class);
+        output = new ByteArrayOutputStream();
+        Mockito.when(response.getOutputStream()).thenReturn(output);
+    }
+
+    private void setAcceptEncoding(String acceptEncoding) {
+        Mockito.when(request.getHeader("Accept-Encoding"))
+                .thenReturn(acceptEncoding);
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (GZIPInputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(data))) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                result.write(buffer, 0, read);
+            }
+        }
+        return result.toByteArray();
+    }
+
+    @Test
+    public void compressionDisabled_writesPlainJson() throws IOException {
+        setAcceptEncoding("gzip, deflate");
+
+        UIInitHandler.commitJsonResponse(request, response, JSON);
+
+        assertArrayEquals(JSON.getBytes(UTF_8), output.toByteArray());
+        Mockito.verify(response, Mockito.never())
+                .setHeader(Mockito.eq("Content-Encoding"), Mockito.anyString());
+    }
+
+    @Test
+    public void aboveThreshold_writesGzippedJson() throws IOException {
+        configuration.setUidlCompressionThreshold(100);
+        setAcceptEncoding("gzip, deflate");
+        RequestMetrics metrics = new RequestMetrics();
+
+        UIInitHandler.commitJsonResponse(request, response, JSON, metrics);
+
+        byte[] written = output.toByteArray();
+        assertTrue(written.length < JSON.length());
+        assertArrayEquals(JSON.getBytes(UTF_8), gunzip(written));
+        assertEquals(written.length, metrics.getBytesWritten());
+        Mockito.verify(response).setHeader("Content-Encoding", "gzip");
+        Mockito.verify(response).setHeader("Vary", "Accept-Encoding");
+        Mockito.verify(response).setContentLength(written.length);
+    }
+
+    @Test
+    public void belowThreshold_writesPlainJson() throws IOException {
+        configuration.setUidlCompressionThreshold(JSON.length() + 1);
+        setAcceptEncoding("gzip");
+
+        UIInitHandler.commitJsonResponse(request, response, JSON);
+
+        assertArrayEquals(JSON.getBytes(UTF_8), output.toByteArray());
+        Mockito.verify(response).setHeader("Vary", "Accept-Encoding");
+    }
+
+    @Test
+    public void gzipNotAccepted_writesPlainJson() throws IOException {
+        configuration.setUidlCompressionThreshold(0);
+        setAcceptEncoding("deflate");
+
+        UIInitHandler.commitJsonResponse(request, response, JSON);
+
+        assertArrayEquals(JSON.getBytes(UTF_8), output.toByteArray());
+    }
+
+    @Test
+    public void acceptsGzip() {
+        setAcceptEncoding(null);
+        assertFalse(UIInitHandler.acceptsGzip(request));
+
+        setAcceptEncoding("gzip");
+        assertTrue(UIInitHandler.acceptsGzip(request));
+
+        setAcceptEncoding("deflate, GZIP;q=0.5");
+        assertTrue(UIInitHandler.acceptsGzip(request));
+
+        setAcceptEncoding("gzip;q=0, deflate");
+        assertFalse(UIInitHandler.acceptsGzip(request));
+
+        setAcceptEncoding("x-gzip, br");
+        assertFalse(UIInitHandler.acceptsGzip(request));
+    }
+}
@@ -50,6 +50,7 @@ public class ClassesSerializableTest {
             "com\\.vaadin\\.server\\.widgetsetutils\\..*", //
             "com\\.vaadin\\.server\\.themeutils\\..*", //
             "com\\.vaadin\\.tests\\..*", // exclude automated tests
+            "com\\.vaadin\\.benchmarks\\..*", // stand-alone benchmarks
             "com\\.vaadin\\.tools\\..*", //
             "com\\.vaadin\\.ui\\.themes\\..*", //
             // exact class level filtering
@@ -66,6 +67,7 @@ public class ClassesSerializableTest {
             "com\\.vaadin\\.server\\.VaadinServiceClassLoaderUtil", //
             "com\\.vaadin\\.server\\.VaadinServiceClassLoaderUtil\\$GetClassLoaderPrivilegedAction", //
             "com\\.vaadin\\.server\\.communication\\.FileUploadHandler\\$SimpleMultiPartInputStream", //
+            "com\\.vaadin\\.server\\.communication\\.JsonStreamWriter", //
             "com\\.vaadin\\.server\\.communication\\.PushRequestHandler.*",
             "com\\.vaadin\\.server\\.communication\\.PushHandler.*", // PushHandler
             "com\\.vaadin\\.server\\.communication\\.DateSerializer", //
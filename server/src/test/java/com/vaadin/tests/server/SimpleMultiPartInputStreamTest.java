@@ -1,9 +1,16 @@
 package com.vaadin.tests.server;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Random;
 
 import org.junit.Test;
 
@@ -113,6 +120,53 @@ public class SimpleMultiPartInputStreamTest {
                 "abcabd", "xyz123abc");
     }
 
+    @Test
+    public void testBlockReadsWithSmallChunks() throws Exception {
+        String boundary = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+        byte[] content = new byte[200000];
+        // Plenty of partial boundary matches
+        byte[] alphabet = ("\r\n-" + boundary).getBytes(UTF_8);
+        Random random = new Random(42);
+        for (int i = 0; i < content.length; i++) {
+            content[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        ByteArrayOutputStream input = new ByteArrayOutputStream();
+        input.write(content);
+        input.write((getFullBoundary(boundary) + "\r\n").getBytes(UTF_8));
+
+        for (int chunk : new int[] { 1, 7, 100, 100000 }) {
+            SimpleMultiPartInputStream smpis = new SimpleMultiPartInputStream(
+                    chunked(input.toByteArray(), chunk), boundary);
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = smpis.read(buffer)) != -1) {
+                result.write(buffer, 0, read);
+            }
+            assertArrayEquals("chunk size " + chunk, content,
+                    result.toByteArray());
+            assertEquals(-1, smpis.read());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testBlockReadWithoutBoundary() throws Exception {
+        SimpleMultiPartInputStream smpis = new SimpleMultiPartInputStream(
+                new ByteArrayInputStream("xyz123ab".getBytes(UTF_8)), "abc");
+        byte[] buffer = new byte[100];
+        assertEquals(8, smpis.read(buffer));
+        smpis.read(buffer);
+    }
+
+    private static InputStream chunked(byte[] input, final int chunk) {
+        return new FilterInputStream(new ByteArrayInputStream(input)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, chunk));
+            }
+        };
+    }
+
     /*
      * TODO fix these tests, they don't do what their method name says.
      */
@@ -21,6 +21,10 @@ public class MockDeploymentConfiguration
     private final Map<String, String> applicationOrSystemProperty = new HashMap<>();
     private boolean syncIdCheckEnabled = true;
     private final boolean sendUrlsAsParameters = true;
+    private boolean streamingUidlEnabled = false;
+    private boolean sharedSessionLockEnabled = false;
+    private int uidlCompressionThreshold = -1;
+    private int staticResourceCacheSize = 0;
 
     @Override
     public boolean isProductionMode() {
@@ -113,4 +117,40 @@ public class MockDeploymentConfiguration
         return sendUrlsAsParameters;
     }
 
+    @Override
+    public boolean isStreamingUidlEnabled() {
+        return streamingUidlEnabled;
+    }
+
+    public void setStreamingUidlEnabled(boolean streamingUidlEnabled) {
+        this.streamingUidlEnabled = streamingUidlEnabled;
+    }
+
+    @Override
+    public boolean isSharedSessionLockEnabled() {
+        return sharedSessionLockEnabled;
+    }
+
+    public void setSharedSessionLockEnabled(boolean sharedSessionLockEnabled) {
+        this.sharedSessionLockEnabled = sharedSessionLockEnabled;
+    }
+
+    @Override
+    public int getUidlCompressionThreshold() {
+        return uidlCompressionThreshold;
+    }
+
+    public void setUidlCompressionThreshold(int uidlCompressionThreshold) {
+        this.uidlCompressionThreshold = uidlCompressionThreshold;
+    }
+
+    @Override
+    public int getStaticResourceCacheSize() {
+        return staticResourceCacheSize;
+    }
+
+    public void setStaticResourceCacheSize(int staticResourceCacheSize) {
+        this.staticResourceCacheSize = staticResourceCacheSize;
+    }
+
 }
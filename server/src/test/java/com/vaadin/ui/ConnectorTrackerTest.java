@@ -0,0 +1,122 @@
+package com.vaadin.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.tests.util.MockUI;
+
+public class ConnectorTrackerTest {
+
+    private UI ui;
+    private ConnectorTracker tracker;
+    private VerticalLayout root;
+    private CssLayout nested;
+    private Label deepLabel;
+    private Button button;
+
+    @Before
+    public void setUp() {
+        ui = new MockUI();
+        tracker = ui.getConnectorTracker();
+
+        root = new VerticalLayout();
+        nested = new CssLayout();
+        deepLabel = new Label("deep");
+        button = new Button("button");
+
+        nested.addComponent(deepLabel);
+        root.addComponents(button, nested);
+        ui.setContent(root);
+    }
+
+    private static int depth(ClientConnector connector) {
+        int depth = 0;
+        while (connector.getParent() != null) {
+            depth++;
+            connector = connector.getParent();
+        }
+        return depth;
+    }
+
+    @Test
+    public void newDirtyVisibleConnectors_parentsBeforeChildren() {
+        List<ClientConnector> dirty = tracker.getNewDirtyVisibleConnectors();
+
+        assertEquals(
+                new HashSet<>(Arrays.asList(ui, root, nested, deepLabel,
+                        button)),
+                new HashSet<>(dirty));
+        for (int i = 1; i < dirty.size(); i++) {
+            assertTrue("Connectors should be ordered by depth",
+                    depth(dirty.get(i - 1)) <= depth(dirty.get(i)));
+        }
+    }
+
+    @Test
+    public void newDirtyVisibleConnectors_onlyReturnsNewlyDirty() {
+        tracker.getNewDirtyVisibleConnectors();
+        assertTrue(tracker.getNewDirtyVisibleConnectors().isEmpty());
+
+        Label added = new Label("added");
+        nested.addComponent(added);
+
+        // nested is already dirty and has been returned once
+        assertEquals(Arrays.asList(added),
+                tracker.getNewDirtyVisibleConnectors());
+    }
+
+    @Test
+    public void newDirtyVisibleConnectors_afterMarkAllClean() {
+        tracker.getNewDirtyVisibleConnectors();
+        tracker.markAllConnectorsClean();
+
+        deepLabel.setValue("changed");
+        button.setCaption("changed");
+
+        List<ClientConnector> dirty = tracker.getNewDirtyVisibleConnectors();
+        assertEquals(2, dirty.size());
+        assertEquals(button, dirty.get(0));
+        assertEquals(deepLabel, dirty.get(1));
+    }
+
+    @Test
+    public void newDirtyVisibleConnectors_invisibleReturnedWhenVisible() {
+        nested.setVisible(false);
+        List<ClientConnector> dirty = tracker.getNewDirtyVisibleConnectors();
+        assertFalse(dirty.contains(nested));
+        assertFalse(dirty.contains(deepLabel));
+
+        nested.setVisible(true);
+        dirty = tracker.getNewDirtyVisibleConnectors();
+        assertEquals(Arrays.asList(nested, deepLabel), dirty);
+    }
+
+    @Test
+    public void newDirtyVisibleConnectors_markedCleanNotReturned() {
+        tracker.markClean(button);
+
+        assertFalse(tracker.getNewDirtyVisibleConnectors().contains(button));
+    }
+
+    @Test
+    public void newDirtyVisibleConnectors_depthUpdatedWhenMoved() {
+        tracker.getNewDirtyVisibleConnectors();
+        tracker.markAllConnectorsClean();
+
+        // Move the label from depth 3 to depth 2
+        root.addComponent(deepLabel);
+        nested.addComponent(button);
+
+        List<ClientConnector> dirty = tracker.getNewDirtyVisibleConnectors();
+        assertTrue(dirty.indexOf(deepLabel) < dirty.indexOf(button));
+    }
+}
@@ -3,11 +3,13 @@ package com.vaadin.util;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Callable;
@@ -231,6 +233,45 @@ public class CurrentInstanceTest {
         fail("Value was not garbage collected.");
     }
 
+    @Test
+    public void testGetInstancesAndRestore() {
+        VaadinSession session = new SessionStoredInCurrentInstance(
+                EasyMock.createNiceMock(VaadinService.class));
+        CurrentInstance.setCurrent(session);
+        CurrentInstance.set(Locale.class, Locale.GERMAN);
+        CurrentInstance.set(CurrentInstanceTest.class, this);
+
+        Map<Class<?>, CurrentInstance> instances = CurrentInstance
+                .getInstances();
+        assertEquals(4, instances.size());
+        CurrentInstance.clearAll();
+        assertNull(CurrentInstance.get(VaadinSession.class));
+
+        CurrentInstance.restoreInstances(instances);
+        assertSame(session, CurrentInstance.get(VaadinSession.class));
+        assertSame(session.getService(),
+                CurrentInstance.get(VaadinService.class));
+        assertSame(Locale.GERMAN, CurrentInstance.get(Locale.class));
+        assertSame(this, CurrentInstance.get(CurrentInstanceTest.class));
+    }
+
+    @Test
+    public void testRestoringNestedSetCurrentKeepsOuterValues()
+            throws Exception {
+        UI ui = new UIStoredInCurrentInstance();
+        Map<Class<?>, CurrentInstance> outer = CurrentInstance.setCurrent(ui);
+        Map<Class<?>, CurrentInstance> inner = CurrentInstance.setCurrent(ui);
+        CurrentInstance.set(CurrentInstanceTest.class, this);
+
+        CurrentInstance.restoreInstances(inner);
+        assertSame(ui, CurrentInstance.get(UI.class));
+
+        CurrentInstance.restoreInstances(outer);
+        assertNull(CurrentInstance.get(UI.class));
+        CurrentInstance.set(CurrentInstanceTest.class, null);
+        assertCleared();
+    }
+
     @Test
     public void nonInheritableThreadLocals()
             throws InterruptedException, ExecutionException {
@@ -1,6 +1,15 @@
 package com.vaadin.util;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.Test;
 
@@ -15,4 +24,34 @@ public class EncodeUtilTest {
         assertEquals("A" + "%20" + "%c3%a5" + "%e6%97%a5",
                 EncodeUtil.rfc5987Encode("A å日"));
     }
+
+    @Test
+    public void acceptsContentEncoding() {
+        assertFalse(EncodeUtil.acceptsContentEncoding(null, "gzip"));
+        assertTrue(EncodeUtil.acceptsContentEncoding("gzip", "gzip"));
+        assertTrue(EncodeUtil.acceptsContentEncoding("deflate, GZIP;q=0.5",
+                "gzip"));
+        assertTrue(EncodeUtil.acceptsContentEncoding("gzip;Q=0.001", "gzip"));
+        assertFalse(
+                EncodeUtil.acceptsContentEncoding("gzip;q=0, br", "gzip"));
+        assertFalse(EncodeUtil.acceptsContentEncoding("gzip;q=0.000", "gzip"));
+        assertFalse(EncodeUtil.acceptsContentEncoding("gzip;q=x", "gzip"));
+        assertTrue(EncodeUtil.acceptsContentEncoding("gzip;q=0, br", "br"));
+        assertFalse(EncodeUtil.acceptsContentEncoding("x-gzip", "gzip"));
+    }
+
+    @Test
+    public void gzip() throws IOException {
+        byte[] data = "Hello, World!".getBytes(UTF_8);
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        try (GZIPInputStream in = new GZIPInputStream(
+                new ByteArrayInputStream(EncodeUtil.gzip(data)))) {
+            byte[] buffer = new byte[64];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                decompressed.write(buffer, 0, read);
+            }
+        }
+        assertArrayEquals(data, decompressed.toByteArray());
+    }
 }